@@ -29,6 +29,8 @@ import org.ow2.authzforce.core.pdp.api.io.PdpEngineInoutAdapter;
 import org.ow2.authzforce.core.pdp.api.io.XacmlJaxbParsingUtils;
 import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
 import org.ow2.authzforce.core.pdp.impl.io.PdpEngineAdapters;
+import org.ow2.authzforce.core.pdp.impl.policy.PolicyAttributeDependencies;
+import org.ow2.authzforce.core.pdp.impl.policy.PolicyHeapFootprints;
 import org.ow2.authzforce.core.pdp.io.xacml.json.BaseXacmlJsonResultPostprocessor;
 import org.ow2.authzforce.core.pdp.io.xacml.json.IndividualXacmlJsonRequest;
 import org.ow2.authzforce.core.pdp.io.xacml.json.SingleDecisionXacmlJsonRequestPreprocessor;
@@ -75,9 +77,15 @@ public final class PdpCommandLineCallable implements Callable<Void>
 	        "--extensions" }, description = "Path to extensions XSD (contains XSD namespace imports for all extensions used in the PDP configuration), required only if using any extension in the PDP configuration file")
 	private String extensionXsdLocation = null;
 
-	@Parameters(index = "1", description = "XACML Request (format determined by -t option)")
+	@Parameters(index = "1", arity = "0..1", description = "XACML Request (format determined by -t option), required unless --heap-footprint or --attribute-dependencies option is used")
 	private File reqFile;
 
+	@Option(names = { "--heap-footprint" }, description = "Instead of evaluating a XACML Request, print the estimated heap footprint (in bytes) of each compiled Policy(Set) of the root policy tree, by decreasing size (requires a static policy provider)")
+	private boolean heapFootprintReport = false;
+
+	@Option(names = { "--attribute-dependencies" }, description = "Instead of evaluating a XACML Request, print the attributes that the root policy tree may read (AttributeDesignators and AttributeSelectors, following VariableReferences and Policy(Set)IdReferences), with their usages: TARGET, CONDITION and/or PEP_ACTION (Obligation/Advice). Requires the built-in static policy provider (XACML policy documents).")
+	private boolean attributeDependenciesReport = false;
+
 	@Option(names = { "-p", "--prettyprint" }, description = "Pretty-print output with line feeds and indentation")
 	private boolean formattedOutput = false;
 
@@ -85,6 +93,58 @@ public final class PdpCommandLineCallable implements Callable<Void>
 	public Void call() throws Exception
 	{
 		final PdpEngineConfiguration configuration = PdpEngineConfiguration.getInstance(confFile, catalogLocation, extensionXsdLocation);
+		if (heapFootprintReport)
+		{
+			try
+			{
+				for (final PolicyHeapFootprints.Footprint footprint : PolicyHeapFootprints.estimate(configuration))
+				{
+					System.out.println(footprint.bytes() + "\t" + footprint.objectCount() + "\t" + footprint.policy());
+				}
+			}
+			finally
+			{
+				// no PDP engine to close the policy provider
+				configuration.getPolicyProvider().close();
+			}
+
+			return null;
+		}
+
+		if (attributeDependenciesReport)
+		{
+			try
+			{
+				final PolicyAttributeDependencies.Result result = PolicyAttributeDependencies.analyze(configuration);
+				for (final PolicyAttributeDependencies.DesignatedAttribute attribute : result.designatedAttributes())
+				{
+					System.out.println(attribute.usages() + "\tAttributeDesignator\t" + attribute.attribute() + "\t" + attribute.datatypeId());
+				}
+
+				for (final PolicyAttributeDependencies.SelectedAttribute attribute : result.selectedAttributes())
+				{
+					System.out.println(attribute.usages() + "\tAttributeSelector\t" + attribute.selector() + "\t" + attribute.datatypeId());
+				}
+
+				if (!result.complete())
+				{
+					System.err.println("WARNING: incomplete result: the policy tree has Policy(Set)IdReferences to policies provided by other policy providers");
+				}
+			}
+			finally
+			{
+				// no PDP engine to close the policy provider
+				configuration.getPolicyProvider().close();
+			}
+
+			return null;
+		}
+
+		if (reqFile == null)
+		{
+			throw new IllegalArgumentException("Missing XACML Request file argument (required unless --heap-footprint or --attribute-dependencies option is used)");
+		}
+
 		switch (requestType)
 		{
 			case XACML_JSON:
@@ -26,6 +26,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -86,6 +87,16 @@ public final class AllOfEvaluator
         }
     }
 
+    /**
+     * Gets the Match evaluators of this AllOf
+     *
+     * @return Match evaluators (non-empty, immutable)
+     */
+    public List<MatchEvaluator> getMatchEvaluators()
+    {
+        return Collections.unmodifiableList(evaluableMatchList);
+    }
+
     /**
      * Determines whether this <code>AllOf</code> matches the input request
      * (whether it is applicable), according to the XACML 3.0 specification, section 7.7:
@@ -26,6 +26,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -92,6 +93,16 @@ public final class AnyOfEvaluator
 		}
 	}
 
+	/**
+	 * Gets the AllOf evaluators of this AnyOf
+	 *
+	 * @return AllOf evaluators (non-empty, immutable)
+	 */
+	public List<AllOfEvaluator> getAllOfEvaluators()
+	{
+		return Collections.unmodifiableList(evaluableAllOfList);
+	}
+
 	/**
 	 * Determines whether this <code>AnyOf</code> matches the input request
 	 * (whether it is applicable). If all the AllOf values is No_Match, so it's a
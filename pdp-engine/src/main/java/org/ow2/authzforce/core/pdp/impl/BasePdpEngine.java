@@ -26,6 +26,11 @@ import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
 import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementType;
 import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
 import org.ow2.authzforce.core.pdp.api.value.Bag;
+import org.ow2.authzforce.core.pdp.impl.metrics.DecisionCacheLookupEvent;
+import org.ow2.authzforce.core.pdp.impl.metrics.DecisionEvaluationEvent;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationMetrics;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationMetricsListener;
+import org.ow2.authzforce.core.pdp.impl.policy.PolicyAttributeDependencies;
 import org.ow2.authzforce.core.pdp.impl.policy.RootPolicyEvaluator;
 import org.ow2.authzforce.core.pdp.impl.policy.RootPolicyEvaluators;
 import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
@@ -36,6 +41,7 @@ import java.io.IOException;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.function.Supplier;
 
 /**
  * This is the core XACML PDP engine implementation.
@@ -110,6 +116,19 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		}
 	}
 
+	/**
+	 * Individual Decision request evaluation context, once the attribute providers have begun the evaluation of the request (see
+	 * {@link CloseableNamedAttributeProviderRegistry#beginIndividualDecisionRequest(EvaluationContext, Optional)})
+	 *
+	 * @param context
+	 *            evaluation context
+	 * @param beginError
+	 *            error of the attribute providers beginning the request evaluation; null if none
+	 */
+	private record BegunEvaluationContext(EvaluationContext context, IndeterminateEvaluationException beginError)
+	{
+	}
+
 	/**
 	 * Individual decision request evaluator
 	 *
@@ -120,6 +139,8 @@ public final class BasePdpEngine implements CloseablePdpEngine
 
 		private final RootPolicyEvaluator rootPolicyEvaluator;
 		private final Optional<CloseableNamedAttributeProviderRegistry> attProviders;
+		private final Optional<EvaluationMetricsListener> metricsListener;
+		private final Optional<DecisionAuditLog> decisionAuditLog;
 
 		/**
 		 * Creates an evaluator
@@ -127,55 +148,81 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		 * @param rootPolicyEvaluator
 		 *            root policy evaluator that this request evaluator uses to evaluate individual decision request
 		 * @param attributeProviders attribute providers
+		 * @param metricsListener listener of the evaluation metrics of this PDP engine (empty if metrics disabled)
+		 * @param decisionAuditLog audit log of the decisions of this PDP engine (empty if audit disabled)
 		 * @throws IllegalArgumentException
 		 *             if {@code stdEnvAttributeSource} is null or not supported
 		 */
-		protected IndividualDecisionRequestEvaluator(final RootPolicyEvaluator rootPolicyEvaluator, Optional<CloseableNamedAttributeProviderRegistry> attributeProviders) throws IllegalArgumentException
+		protected IndividualDecisionRequestEvaluator(final RootPolicyEvaluator rootPolicyEvaluator, Optional<CloseableNamedAttributeProviderRegistry> attributeProviders,
+		        final Optional<EvaluationMetricsListener> metricsListener, final Optional<DecisionAuditLog> decisionAuditLog) throws IllegalArgumentException
 		{
-			assert rootPolicyEvaluator != null;
+			assert rootPolicyEvaluator != null && metricsListener != null && decisionAuditLog != null;
 			this.rootPolicyEvaluator = rootPolicyEvaluator;
 			this.attProviders = attributeProviders;
+			this.metricsListener = metricsListener;
+			this.decisionAuditLog = decisionAuditLog;
 		}
 
-		protected static final EvaluationContext newEvaluationContext(final DecisionRequest request)
+		/**
+		 * Gets the start time of an Individual Decision request evaluation to be audited with {@link #audited(DecisionRequest, DecisionResult, long)}
+		 *
+		 * @return current {@link System#nanoTime()}; 0 if audit disabled
+		 */
+		protected final long auditStartNanos()
 		{
-			assert request != null;
-			return new IndividualDecisionRequestContext(request.getNamedAttributes(), request.getExtraContentsByCategory(), request.isApplicablePolicyIdListReturned(), Optional.of(request.getCreationTimestamp()));
+			return decisionAuditLog.isPresent() ? System.nanoTime() : 0;
 		}
 
-		protected final DecisionResult evaluateInNewContext(final DecisionRequest request, final Optional<EvaluationContext> mdpCtx)
+		/**
+		 * Records the decision of an Individual Decision request in the decision audit log, if any
+		 *
+		 * @param request
+		 *            Individual Decision request
+		 * @param result
+		 *            decision result
+		 * @param startNanos
+		 *            start of the evaluation of this request only (from {@link #auditStartNanos()})
+		 * @return {@code result}
+		 */
+		protected final DecisionResult audited(final DecisionRequest request, final DecisionResult result, final long startNanos)
 		{
-			assert request != null;
-			final EvaluationContext evalCtx = newEvaluationContext(request);
-			if(this.attProviders.isPresent())
+			if (decisionAuditLog.isPresent())
 			{
-					try
-					{
-						this.attProviders.get().beginIndividualDecisionRequest(evalCtx, mdpCtx);
-					} catch (IndeterminateEvaluationException e)
-					{
-						LOGGER.error("Error calling one of the AttributeProvider's beginIndividualDecisionRequest(...)", e);
-						return DecisionResults.newIndeterminate(DecisionType.NOT_APPLICABLE, e, null);
-					}
+				decisionAuditLog.get().record(request, result, System.nanoTime() - startNanos);
 			}
 
-			return rootPolicyEvaluator.findAndEvaluate(evalCtx, mdpCtx);
+			return result;
+		}
+
+		protected final EvaluationContext newEvaluationContext(final DecisionRequest request)
+		{
+			assert request != null;
+			final EvaluationContext evalCtx = new IndividualDecisionRequestContext(request.getNamedAttributes(), request.getExtraContentsByCategory(), request.isApplicablePolicyIdListReturned(), Optional.of(request.getCreationTimestamp()));
+			this.metricsListener.ifPresent(listener -> EvaluationMetrics.setListener(evalCtx, listener));
+			return evalCtx;
+		}
+
+		private DecisionResult evaluateRootPolicy(final EvaluationContext evalCtx, final Optional<EvaluationContext> mdpCtx)
+		{
+			final DecisionEvaluationEvent event = new DecisionEvaluationEvent();
+			event.begin();
+			final DecisionResult result = rootPolicyEvaluator.findAndEvaluate(evalCtx, mdpCtx);
+			event.report(result, mdpCtx.isPresent());
+			return result;
 		}
 
 		/**
-		 * <p>
-		 * Evaluate Individual Decision Request in an existing request context
-		 * </p>
+		 * Begins the evaluation of an Individual Decision request with the attribute providers
 		 *
 		 * @param evalCtx
-		 *            existing Individual Decision evaluation context
+		 *            Individual Decision evaluation context
 		 * @param mdpCtx
-		 * 	 the context of the Multiple Decision request that the {@code evalCtx} belongs to if the Multiple Decision Profile is used.
-		 * @return the evaluation result.
+		 *            the context of the Multiple Decision request that the {@code evalCtx} belongs to if the Multiple Decision Profile is used.
+		 * @return the context, with the error of the attribute providers if any
 		 */
-		protected final DecisionResult evaluateReusingContext(final EvaluationContext evalCtx, final Optional<EvaluationContext> mdpCtx)
+		protected final BegunEvaluationContext begin(final EvaluationContext evalCtx, final Optional<EvaluationContext> mdpCtx)
 		{
-			if(this.attProviders.isPresent())
+			if (this.attProviders.isPresent())
 			{
 				try
 				{
@@ -183,11 +230,70 @@ public final class BasePdpEngine implements CloseablePdpEngine
 				} catch (IndeterminateEvaluationException e)
 				{
 					LOGGER.error("Error calling one of the AttributeProvider's beginIndividualDecisionRequest(...)", e);
-					return DecisionResults.newIndeterminate(DecisionType.NOT_APPLICABLE, e, null);
+					return new BegunEvaluationContext(evalCtx, e);
+				}
+			}
+
+			return new BegunEvaluationContext(evalCtx, null);
+		}
+
+		protected final DecisionResult evaluateInNewContext(final DecisionRequest request, final Optional<EvaluationContext> mdpCtx)
+		{
+			assert request != null;
+			return evaluateInBegunContext(begin(newEvaluationContext(request), mdpCtx), mdpCtx);
+		}
+
+		/**
+		 * <p>
+		 * Evaluate Individual Decision Request in an existing request context, once begun with {@link #begin(EvaluationContext, Optional)}
+		 * </p>
+		 *
+		 * @param begunEvalCtx
+		 *            existing Individual Decision evaluation context
+		 * @param mdpCtx
+		 * 	 the context of the Multiple Decision request that the {@code begunEvalCtx} belongs to if the Multiple Decision Profile is used.
+		 * @return the evaluation result.
+		 */
+		protected final DecisionResult evaluateInBegunContext(final BegunEvaluationContext begunEvalCtx, final Optional<EvaluationContext> mdpCtx)
+		{
+			if (begunEvalCtx.beginError() != null)
+			{
+				return DecisionResults.newIndeterminate(DecisionType.NOT_APPLICABLE, begunEvalCtx.beginError(), null);
+			}
+
+			return evaluateRootPolicy(begunEvalCtx.context(), mdpCtx);
+		}
+
+		/**
+		 * Creates the evaluation contexts of Individual Decision requests of a Multiple Decision request, to be evaluated in the same order with
+		 * {@link #evaluateInBegunContext(BegunEvaluationContext, Optional)}, so that the attribute providers may resolve attributes for all of them at once (see
+		 * {@link BatchNamedAttributeProvider}). The evaluation of all of them is begun with the attribute providers beforehand, since any of them may be used for such batch resolution while
+		 * evaluating the previous ones (therefore the request evaluation deadlines, if any, start now as well).
+		 *
+		 * @param individualDecisionRequests
+		 *            Individual Decision requests, in evaluation order
+		 * @param mdpCtx
+		 *            the context of the Multiple Decision request that the {@code individualDecisionRequests} belong to
+		 * @return new evaluation contexts, one per Individual Decision request, in the same order
+		 */
+		protected final List<BegunEvaluationContext> newEvaluationContexts(final Collection<? extends DecisionRequest> individualDecisionRequests, final EvaluationContext mdpCtx)
+		{
+			final Optional<EvaluationContext> optMdpCtx = Optional.of(mdpCtx);
+			final List<BegunEvaluationContext> begunEvalCtxs = new ArrayList<>(individualDecisionRequests.size());
+			final List<EvaluationContext> batchEvalCtxs = new ArrayList<>(individualDecisionRequests.size());
+			for (final DecisionRequest individualDecisionRequest : individualDecisionRequests)
+			{
+				final BegunEvaluationContext begunEvalCtx = begin(newEvaluationContext(individualDecisionRequest), optMdpCtx);
+				begunEvalCtxs.add(begunEvalCtx);
+				// the requests that failed to begin are not evaluated
+				if (begunEvalCtx.beginError() == null)
+				{
+					batchEvalCtxs.add(begunEvalCtx.context());
 				}
 			}
 
-			return rootPolicyEvaluator.findAndEvaluate(evalCtx, mdpCtx);
+			this.attProviders.ifPresent(registry -> registry.beginIndividualDecisionRequests(batchEvalCtxs, mdpCtx));
+			return begunEvalCtxs;
 		}
 
 		/**
@@ -226,9 +332,10 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		private static final RuntimeException NULL_INDIVIDUAL_DECISION_REQUEST_EXCEPTION = new RuntimeException(
 		        "One of the individual decision requests returned by the request filter is invalid (null).");
 
-		private NonCachingIndividualDecisionRequestEvaluator(final RootPolicyEvaluator rootPolicyEvaluator, Optional<CloseableNamedAttributeProviderRegistry> attributeProviders)
+		private NonCachingIndividualDecisionRequestEvaluator(final RootPolicyEvaluator rootPolicyEvaluator, Optional<CloseableNamedAttributeProviderRegistry> attributeProviders,
+		        final Optional<EvaluationMetricsListener> metricsListener, final Optional<DecisionAuditLog> decisionAuditLog)
 		{
-			super(rootPolicyEvaluator, attributeProviders);
+			super(rootPolicyEvaluator, attributeProviders, metricsListener, decisionAuditLog);
 		}
 
 		@Override
@@ -236,7 +343,8 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		{
 			assert request != null;
 			LOGGER.debug("Evaluating Individual Decision Request: {}", request);
-			return evaluateInNewContext(request, Optional.empty());
+			final long startNanos = auditStartNanos();
+			return audited(request, evaluateInNewContext(request, Optional.empty()), startNanos);
 		}
 
 		@Override
@@ -245,16 +353,21 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		{
 			assert individualDecisionRequests != null && mdpContext != null;
 
-			final Optional<EvaluationContext> optEvalCtx = Optional.of(mdpContext);
-			final Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> resultsByRequest = new ArrayDeque<>(individualDecisionRequests.size());
 			for (final INDIVIDUAL_DECISION_REQ_T individualDecisionRequest : individualDecisionRequests)
 			{
 				if (individualDecisionRequest == null)
 				{
 					throw NULL_INDIVIDUAL_DECISION_REQUEST_EXCEPTION;
 				}
+			}
 
-				final DecisionResult decisionResult = evaluateInNewContext(individualDecisionRequest, optEvalCtx);
+			final Optional<EvaluationContext> optEvalCtx = Optional.of(mdpContext);
+			final Iterator<BegunEvaluationContext> evalCtxIterator = newEvaluationContexts(individualDecisionRequests, mdpContext).iterator();
+			final Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> resultsByRequest = new ArrayDeque<>(individualDecisionRequests.size());
+			for (final INDIVIDUAL_DECISION_REQ_T individualDecisionRequest : individualDecisionRequests)
+			{
+				final long startNanos = auditStartNanos();
+				final DecisionResult decisionResult = audited(individualDecisionRequest, evaluateInBegunContext(evalCtxIterator.next(), optEvalCtx), startNanos);
 				resultsByRequest.add(new SimpleImmutableEntry<>(individualDecisionRequest, decisionResult));
 			}
 
@@ -273,9 +386,10 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		private final DecisionCache decisionCache;
 
 		private IndividualRequestEvaluatorWithCacheIgnoringEvaluationContext(final RootPolicyEvaluator rootPolicyEvaluator,
-																			 final DecisionCache decisionCache, final Optional<CloseableNamedAttributeProviderRegistry> attributeProviders)
+																			 final DecisionCache decisionCache, final Optional<CloseableNamedAttributeProviderRegistry> attributeProviders,
+		        final Optional<EvaluationMetricsListener> metricsListener, final Optional<DecisionAuditLog> decisionAuditLog)
 		{
-			super(rootPolicyEvaluator, attributeProviders);
+			super(rootPolicyEvaluator, attributeProviders, metricsListener, decisionAuditLog);
 			assert decisionCache != null;
 			this.decisionCache = decisionCache;
 		}
@@ -285,18 +399,22 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		{
 			assert individualDecisionRequest != null;
 			LOGGER.debug("Evaluating Individual Decision Request: {}", individualDecisionRequest);
+			final long startNanos = auditStartNanos();
+			final DecisionCacheLookupEvent cacheLookupEvent = new DecisionCacheLookupEvent();
+			cacheLookupEvent.begin();
 			final DecisionResult cachedResult = decisionCache.get(individualDecisionRequest, null);
+			cacheLookupEvent.report(1, cachedResult == null ? 0 : 1);
 			if (cachedResult == null)
 			{
 				LOGGER.debug("No result found in cache for Individual Decision Request: {}. Computing new result from policy evaluation...", individualDecisionRequest);
 				final DecisionResult newResult = evaluateInNewContext(individualDecisionRequest, Optional.empty());
 				LOGGER.debug("Caching new Result for Individual Decision Request: {} -> {}", individualDecisionRequest, newResult);
 				decisionCache.put(individualDecisionRequest, newResult, null);
-				return newResult;
+				return audited(individualDecisionRequest, newResult, startNanos);
 			}
 
 			LOGGER.debug("Result found in cache for Individual Decision Request: {} -> {}", individualDecisionRequest, cachedResult);
-			return cachedResult;
+			return audited(individualDecisionRequest, cachedResult, startNanos);
 		}
 
 		@Override
@@ -305,7 +423,10 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		{
 			assert individualDecisionRequests != null && mdpContext != null;
 
+			final DecisionCacheLookupEvent cacheLookupEvent = new DecisionCacheLookupEvent();
+			cacheLookupEvent.begin();
 			final Map<INDIVIDUAL_DECISION_REQ_T, DecisionResult> cachedResultsByRequest = decisionCache.getAll(individualDecisionRequests);
+			cacheLookupEvent.report(individualDecisionRequests.size(), cachedResultsByRequest == null ? 0 : cachedResultsByRequest.size());
 			if (cachedResultsByRequest == null)
 			{
 				// error, return indeterminate result as only result
@@ -315,14 +436,30 @@ public final class BasePdpEngine implements CloseablePdpEngine
 
 			final Optional<EvaluationContext> optEvalCtx = Optional.of(mdpContext);
 
+			/*
+			 * Evaluation contexts of the requests without result in cache, created before evaluating any of them (batch attribute resolution)
+			 */
+			final List<INDIVIDUAL_DECISION_REQ_T> uncachedRequests = new ArrayList<>(individualDecisionRequests.size() - cachedResultsByRequest.size());
+			for (final INDIVIDUAL_DECISION_REQ_T individualDecisionRequest : individualDecisionRequests)
+			{
+				if (cachedResultsByRequest.get(individualDecisionRequest) == null)
+				{
+					uncachedRequests.add(individualDecisionRequest);
+				}
+			}
+
+			final Iterator<BegunEvaluationContext> uncachedRequestEvalCtxIterator = newEvaluationContexts(uncachedRequests, mdpContext).iterator();
+
 			/*
 			 * There will be at most as many new results (not in cache) as there are individual decision requests
 			 */
 			final Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> finalResultsByRequest = new ArrayDeque<>(individualDecisionRequests.size());
-			final Map<INDIVIDUAL_DECISION_REQ_T, DecisionResult> newResultsByRequest = HashCollections.newUpdatableMap(individualDecisionRequests.size());
+			final Map<INDIVIDUAL_DECISION_REQ_T, DecisionResult> newResultsByRequest = HashCollections.newUpdatableMap(uncachedRequests.size());
 			for (final INDIVIDUAL_DECISION_REQ_T individualDecisionRequest : individualDecisionRequests)
 			{
 				LOGGER.debug("Evaluating Individual Decision Request: {}", individualDecisionRequest);
+				// the cache lookup is done for all requests at once beforehand, therefore not included
+				final long startNanos = auditStartNanos();
 				final DecisionResult finalResult;
 				/*
 				 * Check whether there is any decision result in cache for this request
@@ -331,7 +468,7 @@ public final class BasePdpEngine implements CloseablePdpEngine
 				if (cachedResult == null)
 				{
 					LOGGER.debug("No result found in cache for Individual Decision Request: {}. Computing new result from policy evaluation...", individualDecisionRequest);
-					finalResult = evaluateInNewContext(individualDecisionRequest, optEvalCtx);
+					finalResult = evaluateInBegunContext(uncachedRequestEvalCtxIterator.next(), optEvalCtx);
 					LOGGER.debug("Caching new Result for Individual Decision Request: {} -> {}", individualDecisionRequest, finalResult);
 					newResultsByRequest.put(individualDecisionRequest, finalResult);
 				}
@@ -342,7 +479,7 @@ public final class BasePdpEngine implements CloseablePdpEngine
 					finalResult = cachedResult;
 				}
 
-				finalResultsByRequest.add(new SimpleImmutableEntry<>(individualDecisionRequest, finalResult));
+				finalResultsByRequest.add(new SimpleImmutableEntry<>(individualDecisionRequest, audited(individualDecisionRequest, finalResult, startNanos)));
 			}
 
 			if (!newResultsByRequest.isEmpty())
@@ -362,40 +499,50 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		private final DecisionCache decisionCache;
 
 		private IndividualRequestEvaluatorWithCacheUsingEvaluationContext(final RootPolicyEvaluator rootPolicyEvaluator,
-																		  final DecisionCache decisionCache, final Optional<CloseableNamedAttributeProviderRegistry> attributeProviders)
+																		  final DecisionCache decisionCache, final Optional<CloseableNamedAttributeProviderRegistry> attributeProviders,
+		        final Optional<EvaluationMetricsListener> metricsListener, final Optional<DecisionAuditLog> decisionAuditLog)
 		{
-			super(rootPolicyEvaluator, attributeProviders);
+			super(rootPolicyEvaluator, attributeProviders, metricsListener, decisionAuditLog);
 			assert decisionCache != null;
 			this.decisionCache = decisionCache;
 		}
 
-		private <INDIVIDUAL_DECISION_REQ_T extends DecisionRequest> DecisionResult evaluateWithDecisionCache(final INDIVIDUAL_DECISION_REQ_T individualDecisionRequest, final Optional<EvaluationContext> mdpCtx)
+		/*
+		 * evaluator: evaluates the request in evalCtx if there is no result in cache
+		 */
+		private <INDIVIDUAL_DECISION_REQ_T extends DecisionRequest> DecisionResult evaluateWithDecisionCache(final INDIVIDUAL_DECISION_REQ_T individualDecisionRequest, final EvaluationContext evalCtx,
+		        final Supplier<DecisionResult> evaluator)
 		{
-			assert individualDecisionRequest != null;
+			assert individualDecisionRequest != null && evalCtx != null && evaluator != null;
 			LOGGER.debug("Evaluating Individual Decision Request: {}", individualDecisionRequest);
+			final long startNanos = auditStartNanos();
 			/*
 			 * Check whether there is any decision result in cache for this request
 			 */
-			final EvaluationContext evalCtx = newEvaluationContext(individualDecisionRequest);
+			final DecisionCacheLookupEvent cacheLookupEvent = new DecisionCacheLookupEvent();
+			cacheLookupEvent.begin();
 			final DecisionResult cachedResult = decisionCache.get(individualDecisionRequest, evalCtx);
+			cacheLookupEvent.report(1, cachedResult == null ? 0 : 1);
 			if (cachedResult == null)
 			{
 				LOGGER.debug("No result found in cache for Individual Decision Request: {}. Computing new result from policy evaluation...", individualDecisionRequest);
-				final DecisionResult finalResult = evaluateReusingContext(evalCtx, mdpCtx);
+				final DecisionResult finalResult = evaluator.get();
 				LOGGER.debug("Caching new Result for Individual Decision Request: {} -> {}", individualDecisionRequest, finalResult);
 				decisionCache.put(individualDecisionRequest, finalResult, evalCtx);
-				return finalResult;
+				return audited(individualDecisionRequest, finalResult, startNanos);
 			}
 
 			LOGGER.debug("Result found in cache for Individual Decision Request: {} -> {}", individualDecisionRequest, cachedResult);
-			return cachedResult;
+			return audited(individualDecisionRequest, cachedResult, startNanos);
 		}
 
 		@Override
 		protected DecisionResult evaluate(final DecisionRequest individualDecisionRequest)
 		{
 			assert individualDecisionRequest != null;
-			return evaluateWithDecisionCache(individualDecisionRequest, Optional.empty());
+			final EvaluationContext evalCtx = newEvaluationContext(individualDecisionRequest);
+			// begun only if not in cache
+			return evaluateWithDecisionCache(individualDecisionRequest, evalCtx, () -> evaluateInBegunContext(begin(evalCtx, Optional.empty()), Optional.empty()));
 		}
 
 		@Override
@@ -405,6 +552,7 @@ public final class BasePdpEngine implements CloseablePdpEngine
 			assert individualDecisionRequests != null && mdpContext != null;
 
 			final Optional<EvaluationContext> optEvalCtx = Optional.of(mdpContext);
+			final Iterator<BegunEvaluationContext> evalCtxIterator = newEvaluationContexts(individualDecisionRequests, mdpContext).iterator();
 
 			/*
 			 * There will be at most as many new results (not in cache) as there are individual decision requests
@@ -412,7 +560,8 @@ public final class BasePdpEngine implements CloseablePdpEngine
 			final Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> finalResultsByRequest = new ArrayDeque<>(individualDecisionRequests.size());
 			for (final INDIVIDUAL_DECISION_REQ_T individualDecisionRequest : individualDecisionRequests)
 			{
-				final DecisionResult finalResult = evaluateWithDecisionCache(individualDecisionRequest, optEvalCtx);
+				final BegunEvaluationContext begunEvalCtx = evalCtxIterator.next();
+				final DecisionResult finalResult = evaluateWithDecisionCache(individualDecisionRequest, begunEvalCtx.context(), () -> evaluateInBegunContext(begunEvalCtx, optEvalCtx));
 				finalResultsByRequest.add(new SimpleImmutableEntry<>(individualDecisionRequest, finalResult));
 			}
 
@@ -442,6 +591,10 @@ public final class BasePdpEngine implements CloseablePdpEngine
 	 *            version pattern to be matched by root policy version
 	 * @param decisionCache
 	 *            (optional) decision response cache
+	 * @param metricsListener
+	 *            (optional) listener of the evaluation metrics of this PDP engine (see {@link EvaluationMetrics})
+	 * @param decisionAuditLog
+	 *            (optional) audit log recording every (Individual) decision of this PDP engine with its own evaluation time, not closed by {@link #close()}
 	 * @param strictAttributeIssuerMatch
 	 *            true iff strict Attribute Issuer matching is enabled, i.e. AttributeDesignators without Issuer only match request Attributes without Issuer (and same AttributeId, Category...). This
 	 *            mode is not fully compliant with XACML 3.0, §5.29, in the case that the Issuer is indeed not present on a AttributeDesignator; but it performs better and is recommended when all
@@ -455,7 +608,8 @@ public final class BasePdpEngine implements CloseablePdpEngine
 	public BasePdpEngine(final CloseablePolicyProvider<?> policyProvider, final Optional<TopLevelPolicyElementType> rootPolicyElementType,
 	        final String rootPolicyId, final Optional<PolicyVersionPatterns> rootPolicyVersionPatterns, final boolean strictAttributeIssuerMatch,
 						 final Optional<CloseableNamedAttributeProviderRegistry> attributeProviders,
-						 final Optional<DecisionCache> decisionCache) throws IllegalArgumentException, IOException
+						 final Optional<DecisionCache> decisionCache, final Optional<EvaluationMetricsListener> metricsListener, final Optional<DecisionAuditLog> decisionAuditLog)
+	        throws IllegalArgumentException, IOException
 	{
 		final RootPolicyEvaluators.Base candidateRootPolicyEvaluator = new RootPolicyEvaluators.Base(policyProvider, rootPolicyElementType, rootPolicyId, rootPolicyVersionPatterns);
 		// Use static resolution if possible
@@ -476,8 +630,38 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		this.attProviders = attributeProviders;
 
 		this.decisionCache = decisionCache;
-		this.individualReqEvaluator = this.decisionCache.map(cache -> cache.isEvaluationContextRequired()? new IndividualRequestEvaluatorWithCacheUsingEvaluationContext(rootPolicyEvaluator, cache, attProviders)
-				: new IndividualRequestEvaluatorWithCacheIgnoringEvaluationContext(rootPolicyEvaluator, cache, attProviders)).orElse(new NonCachingIndividualDecisionRequestEvaluator(rootPolicyEvaluator, attProviders));
+		this.individualReqEvaluator = this.decisionCache.map(cache -> cache.isEvaluationContextRequired()? new IndividualRequestEvaluatorWithCacheUsingEvaluationContext(rootPolicyEvaluator, cache, attProviders, metricsListener, decisionAuditLog)
+				: new IndividualRequestEvaluatorWithCacheIgnoringEvaluationContext(rootPolicyEvaluator, cache, attProviders, metricsListener, decisionAuditLog)).orElse(new NonCachingIndividualDecisionRequestEvaluator(rootPolicyEvaluator, attProviders, metricsListener, decisionAuditLog));
+	}
+
+	/**
+	 * Constructs a new PDP engine with the given configuration information, without evaluation metrics and decision audit log.
+	 *
+	 * @param attributeProviders
+	 *            Attribute Providers - mandatory
+	 * @param policyProvider
+	 * 	 *            Policy Provider - mandatory
+	 * @param rootPolicyId
+	 *            root Policy(Set) ID
+	 * @param rootPolicyElementType
+	 *            type of root policy element (XACML Policy or XACML PolicySet). If undefined, try with XACML Policy, and else (if it fails) with XACML PolicySet.
+	 * @param rootPolicyVersionPatterns
+	 *            version pattern to be matched by root policy version
+	 * @param decisionCache
+	 *            (optional) decision response cache
+	 * @param strictAttributeIssuerMatch
+	 *            true iff strict Attribute Issuer matching is enabled (see {@link #BasePdpEngine(CloseablePolicyProvider, Optional, String, Optional, boolean, Optional, Optional, Optional, Optional)})
+	 * @throws java.lang.IllegalArgumentException
+	 *             if one of the mandatory arguments is null ({@code xacmlExpressionFactory}, {@code rootPolicyProvider})
+	 * @throws java.io.IOException
+	 *             error closing the root policy Provider when static resolution is to be used
+	 */
+	public BasePdpEngine(final CloseablePolicyProvider<?> policyProvider, final Optional<TopLevelPolicyElementType> rootPolicyElementType,
+	        final String rootPolicyId, final Optional<PolicyVersionPatterns> rootPolicyVersionPatterns, final boolean strictAttributeIssuerMatch,
+						 final Optional<CloseableNamedAttributeProviderRegistry> attributeProviders,
+						 final Optional<DecisionCache> decisionCache) throws IllegalArgumentException, IOException
+	{
+		this(policyProvider, rootPolicyElementType, rootPolicyId, rootPolicyVersionPatterns, strictAttributeIssuerMatch, attributeProviders, decisionCache, Optional.empty(), Optional.empty());
 	}
 
 	/**
@@ -494,7 +678,8 @@ public final class BasePdpEngine implements CloseablePdpEngine
 	public BasePdpEngine(final PdpEngineConfiguration configuration) throws IllegalArgumentException, IOException
 	{
 		this(configuration.getPolicyProvider(), configuration.getRootPolicyElementType(), configuration.getRootPolicyId(),
-		        configuration.getRootPolicyVersionPatterns(), configuration.isStrictAttributeIssuerMatchEnabled(), configuration.getAttributeProviders(), configuration.getDecisionCache());
+		        configuration.getRootPolicyVersionPatterns(), configuration.isStrictAttributeIssuerMatchEnabled(), configuration.getAttributeProviders(), configuration.getDecisionCache(),
+		        configuration.getMetricsListener(), configuration.getDecisionAuditLog());
 	}
 
 	@Override
@@ -503,6 +688,17 @@ public final class BasePdpEngine implements CloseablePdpEngine
 		return this.rootPolicyEvaluator.getStaticApplicablePolicies();
 	}
 
+	/**
+	 * Get the attributes that the applicable policies (see {@link #getApplicablePolicies()}) may read, with their usages (Target, Condition, PEP action), e.g. for PEPs to send only the attributes
+	 * needed in the requests
+	 *
+	 * @return the attribute dependencies of the policies; null if the root policy is not statically resolved, or not provided by the built-in static policy provider (XACML policy documents)
+	 */
+	public PolicyAttributeDependencies.Result getAttributeDependencies()
+	{
+		return this.rootPolicyEvaluator.getStaticAttributeDependencies();
+	}
+
 	@Override
 	public DecisionRequestBuilder<?> newRequestBuilder(final int expectedNumOfAttributeCategories, final int expectedTotalNumOfAttributes)
 	{
@@ -552,6 +748,10 @@ public final class BasePdpEngine implements CloseablePdpEngine
 			* before every individual request is evaluated to make sure they all use the same value for current-time/current-date/current-dateTime, if they use the one from PDP.
 		 */
 		attProviders.ifPresent(registry -> registry.beginMultipleDecisionRequest(mdpContext));
+		/*
+		 * mdpContext is also where Targets/Conditions memoize their results across the individual decision requests (see MultipleDecisionScopedBooleanEvaluators), so that the ones reading only
+		 * attributes common to all individual requests are evaluated once per Multiple Decision request.
+		 */
 		return individualReqEvaluator.evaluate(individualDecisionRequests, mdpContext);
 	}
 
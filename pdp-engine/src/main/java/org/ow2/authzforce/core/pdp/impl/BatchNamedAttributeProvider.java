@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.NamedAttributeProvider;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.api.value.Datatype;
+
+import java.util.List;
+
+/**
+ * Optional extension of the Attribute Provider SPI for providers able to resolve an attribute for multiple Individual Decision requests at once, e.g. with a single SQL query {@code ... WHERE
+ * resource_id IN (...)} instead of one query per request.
+ * <p>
+ * When a Multiple Decision request is evaluated, the first time an Individual Decision request needs an attribute from such a provider, the {@link CloseableNamedAttributeProviderRegistry} calls
+ * {@link #getAll(AttributeFqn, Datatype, List, EvaluationContext)} for this Individual Decision request and all the following ones (of the same Multiple Decision request) that do not have the
+ * attribute in their own context, and keeps the results for when these requests are evaluated. {@link #get(AttributeFqn, Datatype, EvaluationContext, java.util.Optional)} is still used outside
+ * Multiple Decision requests, or if the batch call fails.
+ *
+ * @version $Id: $
+ */
+public interface BatchNamedAttributeProvider extends NamedAttributeProvider
+{
+	/**
+	 * Retrieves the values of an attribute for multiple Individual Decision requests
+	 *
+	 * @param attributeFqn
+	 *            attribute name
+	 * @param datatype
+	 *            attribute datatype
+	 * @param contexts
+	 *            evaluation contexts of the Individual Decision requests (the attributes that the provider depends on are resolved from each of them, e.g. resource-id)
+	 * @param mdpContext
+	 *            context of the Multiple Decision request that the {@code contexts} belong to
+	 * @param <AV>
+	 *            type of attribute values
+	 * @return attribute values (bag) for each of {@code contexts}, in the same order
+	 * @throws IndeterminateEvaluationException
+	 *             error resolving the attribute for all requests
+	 */
+	<AV extends AttributeValue> List<AttributeBag<AV>> getAll(AttributeFqn attributeFqn, Datatype<AV> datatype, List<EvaluationContext> contexts, EvaluationContext mdpContext)
+	        throws IndeterminateEvaluationException;
+}
@@ -17,9 +17,14 @@
  */
 package org.ow2.authzforce.core.pdp.impl;
 
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationTrace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Optional;
+
 /**
  * Evaluator returning a boolean result
  */
@@ -48,4 +53,46 @@ public final class BooleanEvaluators
 		return false;
 	};
 
+	/**
+	 * Evaluates a boolean evaluator and records the result as a step of an evaluation trace
+	 *
+	 * @param evaluator
+	 *            evaluator
+	 * @param trace
+	 *            evaluation trace in progress (see {@link EvaluationTrace#current()})
+	 * @param traceStepType
+	 *            type of evaluated element (e.g. Target, Match, Condition)
+	 * @param traceStepElement
+	 *            evaluated element
+	 * @param context
+	 *            Individual Decision evaluation context
+	 * @param mdpContext
+	 *            the context of the Multiple Decision request that the {@code context} belongs to if the Multiple Decision Profile is used.
+	 * @return evaluation result
+	 * @throws IndeterminateEvaluationException
+	 *             evaluation error
+	 */
+	public static boolean evaluateTraced(final BooleanEvaluator evaluator, final EvaluationTrace trace, final String traceStepType, final Object traceStepElement,
+	        final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+	{
+		final int traceStepNumber = trace.enter();
+		final long startNanos = System.nanoTime();
+		String traceStepResult = "Error";
+		try
+		{
+			final boolean result = evaluator.evaluate(context, mdpContext);
+			traceStepResult = Boolean.toString(result);
+			return result;
+		}
+		catch (final IndeterminateEvaluationException e)
+		{
+			traceStepResult = "Indeterminate: " + e.getMessage();
+			throw e;
+		}
+		finally
+		{
+			trace.exit(traceStepNumber, startNanos, traceStepType, traceStepElement, traceStepResult);
+		}
+	}
+
 }
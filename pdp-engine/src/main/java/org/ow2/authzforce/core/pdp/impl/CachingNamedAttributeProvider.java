@@ -0,0 +1,313 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactory;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactoryRegistry;
+import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Attribute Provider that caches the attribute values returned by another Attribute Provider across requests, whereas {@link EvaluationContextBasedNamedAttributeProvider} only caches them in the
+ * request evaluation context. The cache key is the attribute name and datatype, plus the values of the attributes that the Attribute Provider depends on (see
+ * {@link CloseableNamedAttributeProvider.DependencyAwareFactory#getDependencies()}), e.g. the user roles are cached per subject-id if the provider depends on subject-id.
+ * <p>
+ * Cached values are fresh during the time-to-live after they are fetched. If a stale-while-revalidate period is defined, values stay in the cache during this extra period, when they are
+ * <i>stale</i>: the first request getting a stale value fetches it again from the Attribute Provider (the request evaluation context is confined to the request thread, therefore the refresh is not done
+ * in the background), while concurrent requests get the stale value instead of calling the provider too. If the refresh fails, the stale value is returned. Errors are not cached.
+ * <p>
+ * WARNING: only suitable for Attribute Providers whose results depend only on the requested attribute and the declared dependencies, not on other data in the request evaluation context. Therefore
+ * caching is enabled per Attribute Provider, in the PDP configuration ({@code attributeProviderCache} elements).
+ *
+ * @version $Id: $
+ */
+public final class CachingNamedAttributeProvider extends BaseNamedAttributeProvider
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(CachingNamedAttributeProvider.class);
+
+	private static final IllegalArgumentException INVALID_TTL_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined or non-positive time-to-live of attribute cache entries");
+	private static final IllegalArgumentException INVALID_STALE_WHILE_REVALIDATE_ARGUMENT_EXCEPTION = new IllegalArgumentException(
+	        "Undefined or negative stale-while-revalidate period of attribute cache entries");
+	private static final IllegalArgumentException INVALID_MAX_SIZE_ARGUMENT_EXCEPTION = new IllegalArgumentException("Non-positive max size of attribute cache");
+
+	private record AttributeDependency(AttributeFqn name, Datatype<? extends AttributeValue> datatype)
+	{
+	}
+
+	private record CacheKey(AttributeFqn attributeFqn, Datatype<?> datatype, List<AttributeBag<?>> dependencyValues)
+	{
+	}
+
+	private static final class CacheEntry
+	{
+		private final AttributeBag<?> values;
+		private final long fetchNanos;
+		private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+		private CacheEntry(final AttributeBag<?> values, final long fetchNanos)
+		{
+			this.values = values;
+			this.fetchNanos = fetchNanos;
+		}
+	}
+
+	/**
+	 * Factory of {@link CachingNamedAttributeProvider}s, decorating another Attribute Provider factory
+	 */
+	public static final class Factory extends DecoratingNamedAttributeProviderFactory
+	{
+		private final String createdInstanceId;
+		private final Duration ttl;
+		private final Duration staleWhileRevalidate;
+		private final int maxSize;
+
+		/**
+		 * Creates the factory
+		 *
+		 * @param id
+		 *            ID of the created Attribute Providers
+		 * @param providerFactory
+		 *            factory of the cached Attribute Provider
+		 * @param ttl
+		 *            time-to-live of cached values
+		 * @param staleWhileRevalidate
+		 *            extra period after the time-to-live during which stale values are returned while being fetched again (see {@link CachingNamedAttributeProvider}); {@link Duration#ZERO} to
+		 *            disable
+		 * @param maxSize
+		 *            maximum number of cache entries
+		 * @throws IllegalArgumentException
+		 *             if {@code providerFactory == null}, or {@code ttl} undefined or not positive, or {@code staleWhileRevalidate} undefined or negative, or {@code maxSize <= 0}
+		 */
+		public Factory(final String id, final CloseableNamedAttributeProvider.DependencyAwareFactory providerFactory, final Duration ttl, final Duration staleWhileRevalidate,
+		        final int maxSize) throws IllegalArgumentException
+		{
+			super(providerFactory);
+			if (ttl == null || ttl.isNegative() || ttl.isZero())
+			{
+				throw INVALID_TTL_ARGUMENT_EXCEPTION;
+			}
+
+			if (staleWhileRevalidate == null || staleWhileRevalidate.isNegative())
+			{
+				throw INVALID_STALE_WHILE_REVALIDATE_ARGUMENT_EXCEPTION;
+			}
+
+			if (maxSize <= 0)
+			{
+				throw INVALID_MAX_SIZE_ARGUMENT_EXCEPTION;
+			}
+
+			this.createdInstanceId = id;
+			this.ttl = ttl;
+			this.staleWhileRevalidate = staleWhileRevalidate;
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		public CloseableNamedAttributeProvider decorate(final NamedAttributeProvider provider, final AttributeValueFactoryRegistry attributeValueFactoryRegistry,
+		        final NamedAttributeProvider dependencyAttributeProvider)
+		{
+			final Set<AttributeDesignatorType> dependencies = getDependencies();
+			final List<AttributeDependency> attributeDependencies;
+			if (dependencies == null || dependencies.isEmpty())
+			{
+				attributeDependencies = List.of();
+			}
+			else
+			{
+				final List<AttributeDependency> mutableAttributeDependencies = new ArrayList<>(dependencies.size());
+				for (final AttributeDesignatorType dependency : dependencies)
+				{
+					final AttributeValueFactory<?> attValFactory = attributeValueFactoryRegistry.getExtension(dependency.getDataType());
+					if (attValFactory == null)
+					{
+						throw new IllegalArgumentException("Unsupported DataType of Attribute Provider dependency " + dependency + ": " + dependency.getDataType());
+					}
+
+					mutableAttributeDependencies.add(new AttributeDependency(AttributeFqns.newInstance(dependency), attValFactory.getDatatype()));
+				}
+
+				attributeDependencies = ImmutableList.copyOf(mutableAttributeDependencies);
+			}
+
+			return new CachingNamedAttributeProvider(createdInstanceId, provider, attributeDependencies, dependencyAttributeProvider, ttl, staleWhileRevalidate, maxSize);
+		}
+	}
+
+	private final NamedAttributeProvider provider;
+	private final List<AttributeDependency> dependencies;
+	private final NamedAttributeProvider dependencyProvider;
+	private final long ttlNanos;
+	private final Cache<CacheKey, CacheEntry> cache;
+
+	private CachingNamedAttributeProvider(final String id, final NamedAttributeProvider provider, final List<AttributeDependency> dependencies,
+	        final NamedAttributeProvider dependencyProvider, final Duration ttl, final Duration staleWhileRevalidate, final int maxSize)
+	{
+		super(id);
+		assert provider != null && dependencies != null && dependencyProvider != null;
+		this.provider = provider;
+		this.dependencies = dependencies;
+		this.dependencyProvider = dependencyProvider;
+		this.ttlNanos = ttl.toNanos();
+		this.cache = CacheBuilder.newBuilder().expireAfterWrite(ttl.plus(staleWhileRevalidate)).maximumSize(maxSize).build();
+	}
+
+	/*
+	 * Returns null if a dependency cannot be resolved
+	 */
+	private CacheKey newCacheKey(final AttributeFqn attributeFqn, final Datatype<?> datatype, final EvaluationContext context, final Optional<EvaluationContext> mdpContext)
+	{
+		final List<AttributeBag<?>> dependencyValues = new ArrayList<>(dependencies.size());
+		for (final AttributeDependency dependency : dependencies)
+		{
+			try
+			{
+				dependencyValues.add(dependencyProvider.get(dependency.name, dependency.datatype, context, mdpContext));
+			}
+			catch (final IndeterminateEvaluationException e)
+			{
+				LOGGER.debug("Attribute Provider '{}': failed to get dependency {} for cache key of attribute {} -> cache bypassed", this, dependency.name, attributeFqn, e);
+				return null;
+			}
+		}
+
+		return new CacheKey(attributeFqn, datatype, dependencyValues);
+	}
+
+	@Override
+	public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context, final Optional<EvaluationContext> mdpContext)
+	        throws IndeterminateEvaluationException
+	{
+		final CacheKey key = newCacheKey(attributeFqn, datatype, context, mdpContext);
+		if (key == null)
+		{
+			return provider.get(attributeFqn, datatype, context, mdpContext);
+		}
+
+		final CacheEntry entry = cache.getIfPresent(key);
+		if (entry != null)
+		{
+			if (System.nanoTime() - entry.fetchNanos < ttlNanos || !entry.refreshing.compareAndSet(false, true))
+			{
+				// fresh, or stale and already being refreshed by another request
+				LOGGER.debug("Attribute Provider '{}': values of attribute {} (type={}) found in cache", this, attributeFqn, datatype);
+				/*
+				 * Datatype is part of the cache key
+				 */
+				return (AttributeBag<AV>) entry.values;
+			}
+
+			// stale, refresh it
+			try
+			{
+				return fetch(key, attributeFqn, datatype, context, mdpContext);
+			}
+			catch (final IndeterminateEvaluationException e)
+			{
+				LOGGER.warn("Attribute Provider '{}': failed to refresh stale values of attribute {} (type={}) -> using stale values", this, attributeFqn, datatype, e);
+				return (AttributeBag<AV>) entry.values;
+			}
+			finally
+			{
+				/*
+				 * Whatever the outcome (including unchecked exceptions), so that the next request may refresh the entry if it is still stale
+				 */
+				entry.refreshing.set(false);
+			}
+		}
+
+		return fetch(key, attributeFqn, datatype, context, mdpContext);
+	}
+
+	private <AV extends AttributeValue> AttributeBag<AV> fetch(final CacheKey key, final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context,
+	        final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+	{
+		final long fetchNanos = System.nanoTime();
+		final AttributeBag<AV> values = provider.get(attributeFqn, datatype, context, mdpContext);
+		if (values != null)
+		{
+			cache.put(key, new CacheEntry(values, fetchNanos));
+		}
+
+		return values;
+	}
+
+	/**
+	 * Removes all values from the cache
+	 */
+	public void invalidateAll()
+	{
+		cache.invalidateAll();
+	}
+
+	@Override
+	public Set<AttributeDesignatorType> getProvidedAttributes()
+	{
+		return provider.getProvidedAttributes();
+	}
+
+	@Override
+	public boolean supportsBeginMultipleDecisionRequest()
+	{
+		return provider.supportsBeginMultipleDecisionRequest();
+	}
+
+	@Override
+	public void beginMultipleDecisionRequest(final EvaluationContext mdpContext)
+	{
+		provider.beginMultipleDecisionRequest(mdpContext);
+	}
+
+	@Override
+	public boolean supportsBeginIndividualDecisionRequest()
+	{
+		return provider.supportsBeginIndividualDecisionRequest();
+	}
+
+	@Override
+	public void beginIndividualDecisionRequest(final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+	{
+		provider.beginIndividualDecisionRequest(context, mdpContext);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		cache.invalidateAll();
+		if (provider instanceof CloseableNamedAttributeProvider closeableProvider)
+		{
+			closeableProvider.close();
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.NamedAttributeProvider;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Optional extension of the Attribute Provider SPI for category-wide Attribute Providers (providing any attribute of a given category, i.e. AttributeDesignatorType with undefined AttributeId in
+ * {@link #getProvidedAttributes()}) able to fetch all the attributes of the category at once, e.g. the full user profile from a directory.
+ * <p>
+ * The first time an attribute of the category is requested during the evaluation of a request, the {@link CloseableNamedAttributeProviderRegistry} calls
+ * {@link #getAll(String, EvaluationContext, Optional)} and puts all the returned attributes in the request evaluation context, so that the other attributes of the category are found in the context
+ * instead of calling {@link #get(AttributeFqn, org.ow2.authzforce.core.pdp.api.value.Datatype, EvaluationContext, Optional)} for each of them. The attributes of the category not returned by
+ * {@link #getAll(String, EvaluationContext, Optional)} are considered empty (no value).
+ *
+ * @version $Id: $
+ */
+public interface CategoryBulkNamedAttributeProvider extends NamedAttributeProvider
+{
+	/**
+	 * Retrieves all the attributes of a given category
+	 *
+	 * @param category
+	 *            attribute category (one of the categories of the category-wide provided attributes)
+	 * @param context
+	 *            request evaluation context
+	 * @param mdpContext
+	 *            optional Multiple Decision context when the Multiple Decision Profile is used (shared by all Individual Decision requests of the same Multiple Decision request)
+	 * @return attribute values by attribute name (all in {@code category})
+	 * @throws IndeterminateEvaluationException
+	 *             error retrieving the attributes
+	 */
+	Map<AttributeFqn, AttributeBag<?>> getAll(String category, EvaluationContext context, Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException;
+}
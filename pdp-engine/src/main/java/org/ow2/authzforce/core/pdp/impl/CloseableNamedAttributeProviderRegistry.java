@@ -29,10 +29,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Registry of {@link CloseableNamedAttributeProvider}s
@@ -92,7 +93,7 @@ public final class CloseableNamedAttributeProviderRegistry implements Closeable
 	private static final class CompositeMultiNamedAttributeProvider extends EvaluationContextBasedMultiNamedAttributeProvider
 	{
 
-		private static DelegateSupplier newDelegateSupplier(final ListMultimap<AttributeFqn, NamedAttributeProvider> providersByAttributeName, final Set<AttributeDesignatorType> requiredProvidedAttributes, boolean strictAttributeIssuerMatch)
+		private static DelegateSupplier newDelegateSupplier(final ListMultimap<AttributeFqn, NamedAttributeProvider> providersByAttributeName, final Set<AttributeDesignatorType> requiredProvidedAttributes, boolean strictAttributeIssuerMatch, final Optional<Executor> subProviderCallExecutor)
 		{
 			/*
 			Recreate a ListMultimap that consists of:
@@ -138,18 +139,355 @@ public final class CloseableNamedAttributeProviderRegistry implements Closeable
 								XacmlStatusCode.MISSING_ATTRIBUTE.value());
 					}
 
-					return newDelegate(subProviders);
+					return newDelegate(subProviders, subProviderCallExecutor);
 				}
 			};
 		}
 
-		private CompositeMultiNamedAttributeProvider(final ImmutableSet<AttributeDesignatorType> providedAttributes, final boolean strictAttributeIssuerMatch, final ListMultimap<AttributeFqn, NamedAttributeProvider> providersByAttributeName)
+		private CompositeMultiNamedAttributeProvider(final ImmutableSet<AttributeDesignatorType> providedAttributes, final boolean strictAttributeIssuerMatch, final ListMultimap<AttributeFqn, NamedAttributeProvider> providersByAttributeName, final Optional<Executor> subProviderCallExecutor)
 		{
-			super(providedAttributes, strictAttributeIssuerMatch, newDelegateSupplier(providersByAttributeName, providedAttributes, strictAttributeIssuerMatch));
+			super(providedAttributes, strictAttributeIssuerMatch, newDelegateSupplier(providersByAttributeName, providedAttributes, strictAttributeIssuerMatch, subProviderCallExecutor));
 		}
 
 	}
 
+	/*
+	 * Key of the MultipleDecisionBatchScope in the values shared by the Multiple Decision request context and its copies (see EvaluationContextSnapshot#getSharedValues(EvaluationContext)), so that
+	 * batch resolution works as well when the Attribute Provider is called in another thread (e.g. time-limited)
+	 */
+	private static final String BATCH_SCOPE_KEY = CloseableNamedAttributeProviderRegistry.class.getName() + ".batchScope";
+
+	private record BatchKey(BatchNamedAttributeProvider provider, AttributeFqn attributeFqn, Datatype<?> datatype)
+	{
+	}
+
+	/**
+	 * Individual Decision request contexts of a Multiple Decision request, and the attribute values resolved in batch for them but not requested yet. Thread-safe, since the Attribute Providers
+	 * may be called in other threads with copies of the request contexts (identified by their original contexts), e.g. time-limited or hedged calls.
+	 */
+	private static final class MultipleDecisionBatchScope
+	{
+		private final List<EvaluationContext> contexts;
+		private final Map<EvaluationContext, Integer> indexByContext;
+		private final Map<BatchKey, Map<EvaluationContext, AttributeBag<?>>> pendingResultsByKey = new HashMap<>();
+
+		private MultipleDecisionBatchScope(final List<EvaluationContext> contexts)
+		{
+			this.contexts = contexts;
+			this.indexByContext = new IdentityHashMap<>(contexts.size());
+			for (int i = 0; i < contexts.size(); i++)
+			{
+				final EvaluationContext context = contexts.get(i);
+				indexByContext.put(context, i);
+				/*
+				 * Created in the request thread, before the contexts are copied for calls in other threads, where the (batch) Attribute Provider may use them for the other requests of the batch
+				 */
+				EvaluationContextSnapshot.getSharedValues(context);
+			}
+		}
+
+		private static boolean isInContext(final AttributeFqn attributeFqn, final Datatype<?> datatype, final EvaluationContext context)
+		{
+			try
+			{
+				return context.getNamedAttributeValue(attributeFqn, datatype) != null;
+			}
+			catch (final IndeterminateEvaluationException e)
+			{
+				// value with a different datatype in context, nothing to resolve
+				return true;
+			}
+		}
+
+		/*
+		 * Returns null if the attribute value could not be resolved in batch for this context (original context, not a copy)
+		 */
+		private synchronized <AV extends AttributeValue> AttributeBag<AV> get(final BatchNamedAttributeProvider provider, final AttributeFqn attributeFqn, final Datatype<AV> datatype,
+		        final EvaluationContext context, final EvaluationContext mdpContext)
+		{
+			final BatchKey key = new BatchKey(provider, attributeFqn, datatype);
+			final Map<EvaluationContext, AttributeBag<?>> pendingResults = pendingResultsByKey.get(key);
+			if (pendingResults != null)
+			{
+				/*
+				 * Already resolved in batch. Each result is used once, by the Individual Decision request it was resolved for (then it is in the request context).
+				 */
+				return (AttributeBag<AV>) pendingResults.remove(context);
+			}
+
+			final Integer contextIndex = indexByContext.get(context);
+			if (contextIndex == null)
+			{
+				return null;
+			}
+
+			/*
+			 * Resolve the attribute for this request and the following ones that do not have it in context yet
+			 */
+			final List<EvaluationContext> batchContexts = new ArrayList<>(contexts.size() - contextIndex);
+			batchContexts.add(context);
+			for (final EvaluationContext nextContext : contexts.subList(contextIndex + 1, contexts.size()))
+			{
+				if (!isInContext(attributeFqn, datatype, nextContext))
+				{
+					batchContexts.add(nextContext);
+				}
+			}
+
+			/*
+			 * Registered before the batch call, so that the batch is not retried if it fails
+			 */
+			final Map<EvaluationContext, AttributeBag<?>> newPendingResults = new IdentityHashMap<>(batchContexts.size());
+			pendingResultsByKey.put(key, newPendingResults);
+			final List<AttributeBag<AV>> results;
+			try
+			{
+				results = provider.getAll(attributeFqn, datatype, batchContexts, mdpContext);
+			}
+			catch (final IndeterminateEvaluationException e)
+			{
+				LOGGER.debug("Error resolving attribute {}, type={} in batch for {} Individual Decision requests with Attribute Provider module {} -> resolving it per request", attributeFqn, datatype,
+				        batchContexts.size(), provider, e);
+				return null;
+			}
+
+			if (results == null || results.size() != batchContexts.size())
+			{
+				LOGGER.error("Invalid result of batch resolution of attribute {}, type={} by Attribute Provider module {}: expected {} bags, got {} -> resolving it per request", attributeFqn,
+				        datatype, provider, batchContexts.size(), results == null ? null : results.size());
+				return null;
+			}
+
+			LOGGER.debug("Attribute {}, type={} resolved in batch for {} Individual Decision requests by Attribute Provider module {}", attributeFqn, datatype, batchContexts.size(), provider);
+			for (int i = 1; i < batchContexts.size(); i++)
+			{
+				newPendingResults.put(batchContexts.get(i), results.get(i));
+			}
+
+			return results.get(0);
+		}
+	}
+
+	/**
+	 * Attribute Provider resolving attributes with a {@link BatchNamedAttributeProvider} in batch when a {@link MultipleDecisionBatchScope} is defined in the Multiple Decision request context
+	 */
+	private static final class BatchingNamedAttributeProvider implements NamedAttributeProvider
+	{
+		private final BatchNamedAttributeProvider provider;
+
+		private BatchingNamedAttributeProvider(final BatchNamedAttributeProvider provider)
+		{
+			assert provider != null;
+			this.provider = provider;
+		}
+
+		@Override
+		public Set<AttributeDesignatorType> getProvidedAttributes()
+		{
+			return provider.getProvidedAttributes();
+		}
+
+		@Override
+		public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context,
+		        final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			if (mdpContext.isPresent() && EvaluationContextSnapshot.getSharedValue(mdpContext.get(), BATCH_SCOPE_KEY) instanceof MultipleDecisionBatchScope batchScope)
+			{
+				/*
+				 * The batch is defined with the original Individual Decision request contexts
+				 */
+				final AttributeBag<AV> batchResult = batchScope.get(provider, attributeFqn, datatype, EvaluationContextSnapshot.getOriginal(context), mdpContext.get());
+				if (batchResult != null)
+				{
+					return batchResult;
+				}
+			}
+
+			return provider.get(attributeFqn, datatype, context, mdpContext);
+		}
+
+		@Override
+		public String toString()
+		{
+			return provider.toString();
+		}
+	}
+
+	/*
+	 * Key of the records fetched by CategoryBulkFetchingNamedAttributeProviders in the values shared by the Individual Decision request context and its copies (see
+	 * EvaluationContextSnapshot#getSharedValues(EvaluationContext)): map of fetched record (attribute bags by name), or the IndeterminateEvaluationException if the fetch failed, by
+	 * CategoryBulkFetchingNamedAttributeProvider
+	 */
+	private static final String CATEGORY_BULK_RECORDS_KEY = CloseableNamedAttributeProviderRegistry.class.getName() + ".categoryBulkRecords";
+
+	/**
+	 * Category-wide Attribute Provider fetching all the attributes of the category with a {@link CategoryBulkNamedAttributeProvider} on the first request for one of them, and putting them all in the
+	 * request context
+	 */
+	private static final class CategoryBulkFetchingNamedAttributeProvider implements NamedAttributeProvider
+	{
+		private final CategoryBulkNamedAttributeProvider provider;
+		private final String category;
+
+		private CategoryBulkFetchingNamedAttributeProvider(final CategoryBulkNamedAttributeProvider provider, final String category)
+		{
+			assert provider != null && category != null;
+			this.provider = provider;
+			this.category = category;
+		}
+
+		@Override
+		public Set<AttributeDesignatorType> getProvidedAttributes()
+		{
+			return provider.getProvidedAttributes();
+		}
+
+		private Map<AttributeFqn, AttributeBag<?>> getRecord(final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			/*
+			 * CategoryBulkFetchingNamedAttributeProvider does not override equals(), therefore the keys are compared by identity
+			 */
+			final Map<CategoryBulkFetchingNamedAttributeProvider, Object> recordsByProvider = (Map<CategoryBulkFetchingNamedAttributeProvider, Object>) EvaluationContextSnapshot
+			        .getSharedValues(context).computeIfAbsent(CATEGORY_BULK_RECORDS_KEY, key -> new ConcurrentHashMap<>());
+
+			final Object fetchedRecord = recordsByProvider.get(this);
+			if (fetchedRecord instanceof IndeterminateEvaluationException fetchError)
+			{
+				// do not retry the fetch for the other attributes
+				throw fetchError;
+			}
+
+			if (fetchedRecord != null)
+			{
+				return (Map<AttributeFqn, AttributeBag<?>>) fetchedRecord;
+			}
+
+			final Map<AttributeFqn, AttributeBag<?>> record;
+			try
+			{
+				final Map<AttributeFqn, AttributeBag<?>> result = provider.getAll(category, context, mdpContext);
+				record = result == null ? Map.of() : result;
+			}
+			catch (final IndeterminateEvaluationException e)
+			{
+				recordsByProvider.put(this, e);
+				throw e;
+			}
+
+			recordsByProvider.put(this, record);
+			for (final Map.Entry<AttributeFqn, AttributeBag<?>> attribute : record.entrySet())
+			{
+				/*
+				 * Attributes already in context (e.g. from the request) are not overridden
+				 */
+				context.putNamedAttributeValue(attribute.getKey(), attribute.getValue(), false);
+			}
+
+			LOGGER.debug("Fetched {} attributes of category {} with Attribute Provider module {}", record.size(), category, provider);
+			return record;
+		}
+
+		@Override
+		public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context,
+		        final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			assert category.equals(attributeFqn.getCategory());
+			final AttributeBag<?> bag = getRecord(context, mdpContext).get(attributeFqn);
+			if (bag == null)
+			{
+				return Bags.emptyAttributeBag(datatype, null);
+			}
+
+			if (!bag.getElementDatatype().equals(datatype))
+			{
+				throw new IndeterminateEvaluationException("Datatype (" + bag.getElementDatatype() + ") of attribute " + attributeFqn + " fetched by Attribute Provider module " + provider
+				        + " does not match expected datatype (" + datatype + ")", XacmlStatusCode.SYNTAX_ERROR.value());
+			}
+
+			return (AttributeBag<AV>) bag;
+		}
+
+		@Override
+		public String toString()
+		{
+			return provider.toString();
+		}
+	}
+
+	/**
+	 * Attribute Provider marking a wrapped (e.g. decorated) {@link ConcurrentNamedAttributeProvider} as such
+	 */
+	private static final class ConcurrentDelegatingNamedAttributeProvider implements ConcurrentNamedAttributeProvider
+	{
+		private final NamedAttributeProvider provider;
+
+		private ConcurrentDelegatingNamedAttributeProvider(final NamedAttributeProvider provider)
+		{
+			assert provider != null;
+			this.provider = provider;
+		}
+
+		@Override
+		public Set<AttributeDesignatorType> getProvidedAttributes()
+		{
+			return provider.getProvidedAttributes();
+		}
+
+		@Override
+		public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context,
+		        final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			return provider.get(attributeFqn, datatype, context, mdpContext);
+		}
+
+		@Override
+		public String toString()
+		{
+			return provider.toString();
+		}
+	}
+
+	/*
+	 * Marks the provider registered for some attributes as concurrent iff the sub-provider it wraps is (opt-in) and called concurrently with the other providers of the same attribute
+	 */
+	private static NamedAttributeProvider markConcurrent(final NamedAttributeProvider registeredProvider, final CloseableNamedAttributeProvider subProvider,
+	        final Optional<ExecutorService> compositeProviderExecutor)
+	{
+		return compositeProviderExecutor.isPresent() && subProvider instanceof ConcurrentNamedAttributeProvider && !(registeredProvider instanceof ConcurrentNamedAttributeProvider)
+		        ? new ConcurrentDelegatingNamedAttributeProvider(registeredProvider) : registeredProvider;
+	}
+
+	/*
+	 * Applies the decorators (innermost first) to an Attribute Provider registered for some attributes
+	 */
+	private static NamedAttributeProvider decorate(final NamedAttributeProvider provider, final Deque<DecoratingNamedAttributeProviderFactory> decoratorFactories,
+	        final AttributeValueFactoryRegistry attributeFactory, final NamedAttributeProvider depAttrProvider, final Set<CloseableNamedAttributeProvider> closeableProviders)
+	{
+		if (decoratorFactories.isEmpty())
+		{
+			return provider;
+		}
+
+		CloseableNamedAttributeProvider decorator = null;
+		NamedAttributeProvider decoratedProvider = provider;
+		for (final DecoratingNamedAttributeProviderFactory decoratorFactory : decoratorFactories)
+		{
+			decorator = decoratorFactory.decorate(decoratedProvider, attributeFactory, depAttrProvider);
+			decoratedProvider = decorator;
+		}
+
+		/*
+		 * The outermost decorator closes the inner ones, and the provider if closeable
+		 */
+		if (provider instanceof CloseableNamedAttributeProvider closeableProvider)
+		{
+			closeableProviders.remove(closeableProvider);
+		}
+
+		closeableProviders.add(decorator);
+		return decorator;
+	}
+
 	private static void close(final Set<CloseableNamedAttributeProvider> closeableProviders) throws IOException
 	{
 		/* An error occurring on closing one module should not stop from closing
@@ -195,6 +533,13 @@ public final class CloseableNamedAttributeProviderRegistry implements Closeable
 
 	private final List<NamedAttributeProvider> individualReqBeginners;
 
+	private final boolean batchProvidersPresent;
+
+	// 0 if no deadline
+	private final long requestEvaluationTimeoutNanos;
+
+	private final Optional<ExecutorService> compositeProviderExecutor;
+
 	/**
 	 * Instantiates a "composite/modular" Attribute Provider that tries to find attribute values in evaluation context, then, if not there, query dedicated sub-provider(s) (created from {@code attributeProviderFactories}) providing the requested attribute ID, if there is any.
 	 *
@@ -202,22 +547,30 @@ public final class CloseableNamedAttributeProviderRegistry implements Closeable
 	 *            (mandatory) attribute value factory
 	 * @param attributeProviderFactories
 	 *            Factories of all the Attribute Providers to be combined in the created instance (Attribute Providers resolve values of attributes absent from the request context). Empty if none.
+	 *            {@link DecoratingNamedAttributeProviderFactory}s are applied to the Attribute Provider created by the decorated factory after detecting the optional interfaces it implements
+	 *            ({@link BatchNamedAttributeProvider}, {@link CategoryBulkNamedAttributeProvider}).
 	 *            <b>We assume that they are listed in dependency order, i.e. for any AttributeProvider AP (at index N) in the list, if AP depends on attribute(s) A, B, etc. then A, B, etc. are assumed to be provided by either another AttributeProvider preceding AP in the list (at index n &lt; N), or the PDP input request directly.</b>
 	 * @param strictAttributeIssuerMatch
 	 *            true iff it is required that AttributeDesignator without Issuer only match request Attributes without Issuer. This mode is not fully compliant with XACML 3.0, §5.29, in the case that
 	 *            the Issuer is not present; but it performs better and is recommended when all AttributeDesignators have an Issuer (best practice). Set it to false, if you want full compliance with
 	 *            the XACML 3.0 Attribute Evaluation: "If the Issuer is not present in the AttributeDesignator, then the matching of the attribute to the named attribute SHALL be governed by
 	 *            AttributeId and DataType attributes alone."
+	 * @param requestEvaluationTimeout
+	 *            maximum time to resolve the attributes of an Individual Decision request with the Attribute Providers, from the start of its evaluation ({@link #beginIndividualDecisionRequest(EvaluationContext, Optional)}): the deadline is set in the request context (see {@link EvaluationDeadlines}). {@link Duration#ZERO} if no deadline.
+	 * @param compositeProviderExecutor
+	 *            if present, when multiple Attribute Providers provide the same attribute, those implementing {@link ConcurrentNamedAttributeProvider} (opt-in) are called concurrently with this executor - with copies of the request contexts - and the results of all merged (in the order of {@code attributeProviderFactories}), instead of being called sequentially (see {@link #getCompositeProviderExecutor()}). <b>Shut down by {@link #close()}.</b>
 	 * @throws java.lang.IllegalArgumentException
 	 *             If any Attribute Provider created from {@code attributeProviderFactories} does not provide any attribute.
 	 * @throws java.io.IOException
 	 *             error closing the Attribute Providers created from {@code attributeProviderFactories}, when a {@link IllegalArgumentException} is raised
 	 */
 	public CloseableNamedAttributeProviderRegistry(final List<CloseableNamedAttributeProvider.DependencyAwareFactory> attributeProviderFactories,
-																	  final AttributeValueFactoryRegistry attributeFactory, final boolean strictAttributeIssuerMatch) throws IOException
+																	  final AttributeValueFactoryRegistry attributeFactory, final boolean strictAttributeIssuerMatch, final Duration requestEvaluationTimeout, final Optional<ExecutorService> compositeProviderExecutor) throws IOException
 	{
 		Preconditions.checkArgument(attributeProviderFactories != null && !attributeProviderFactories.isEmpty(), "No input AttributeProvider");
 		Preconditions.checkArgument(attributeFactory != null, "No input AttributeValue factory");
+		Preconditions.checkArgument(requestEvaluationTimeout != null && !requestEvaluationTimeout.isNegative(), "Undefined or negative request evaluation timeout");
+		Preconditions.checkArgument(compositeProviderExecutor != null, "Undefined composite Attribute Provider executor option");
 
 		// attributeProviderFactories != null && attributeProviderFactories.size() >= 1
 		final ListMultimap<AttributeFqn, NamedAttributeProvider> mutableListOfAttNameSpecificProvidersByAttName = ArrayListMultimap.create();
@@ -226,6 +579,7 @@ public final class CloseableNamedAttributeProviderRegistry implements Closeable
 		final Set<CloseableNamedAttributeProvider> mutableSubProviderSet = HashCollections.newUpdatableSet(moduleCount);
 		final List<NamedAttributeProvider> mutableMdpReqBeginners = new ArrayList<>();
 		final List<NamedAttributeProvider> mutableIndividualReqBeginners = new ArrayList<>();
+		boolean anyBatchProvider = false;
 		for (final CloseableNamedAttributeProvider.DependencyAwareFactory attProviderFactory : attributeProviderFactories)
 		{
 			/*
@@ -254,12 +608,24 @@ public final class CloseableNamedAttributeProviderRegistry implements Closeable
 				{
 					// requiredAttrs != null && requiredAttrs.size() >= 1
 					final ImmutableListMultimap<AttributeFqn, NamedAttributeProvider> immutableCopyOfAttrProviderModsByAttrId = ImmutableListMultimap.copyOf(mutableListOfAttNameSpecificProvidersByAttName);
-					depAttrProvider = new CompositeMultiNamedAttributeProvider(ImmutableSet.copyOf(requiredAttrs), strictAttributeIssuerMatch, immutableCopyOfAttrProviderModsByAttrId);
+					depAttrProvider = new CompositeMultiNamedAttributeProvider(ImmutableSet.copyOf(requiredAttrs), strictAttributeIssuerMatch, immutableCopyOfAttrProviderModsByAttrId, compositeProviderExecutor.map(Executor.class::cast));
+				}
+				/*
+				 * Decorators are applied after detection of the optional interfaces of the decorated provider (batch/category bulk retrieval), that they would hide
+				 */
+				final Deque<DecoratingNamedAttributeProviderFactory> decoratorFactories = new ArrayDeque<>();
+				CloseableNamedAttributeProvider.DependencyAwareFactory subProviderFactory = attProviderFactory;
+				while (subProviderFactory instanceof DecoratingNamedAttributeProviderFactory decoratorFactory)
+				{
+					// innermost first
+					decoratorFactories.push(decoratorFactory);
+					subProviderFactory = decoratorFactory.getDecoratedFactory();
 				}
+
 				/*
 				 * sub-provider closing isn't done in this method but handled in close() method when closing all modules
 				 */
-				final CloseableNamedAttributeProvider subProvider = attProviderFactory.getInstance(attributeFactory, depAttrProvider);
+				final CloseableNamedAttributeProvider subProvider = subProviderFactory.getInstance(attributeFactory, depAttrProvider);
 				/*
 				Validate the sub-provider's list of provided attributes
 				 */
@@ -279,6 +645,20 @@ public final class CloseableNamedAttributeProviderRegistry implements Closeable
 					mutableIndividualReqBeginners.add(subProvider);
 				}
 
+				final NamedAttributeProvider undecoratedProvider;
+				if (subProvider instanceof BatchNamedAttributeProvider batchProvider)
+				{
+					undecoratedProvider = new BatchingNamedAttributeProvider(batchProvider);
+					anyBatchProvider = true;
+				}
+				else
+				{
+					undecoratedProvider = subProvider;
+				}
+
+				final NamedAttributeProvider registeredProvider = markConcurrent(decorate(undecoratedProvider, decoratorFactories, attributeFactory, depAttrProvider, mutableSubProviderSet),
+				        subProvider, compositeProviderExecutor);
+
 				for (final AttributeDesignatorType attrDesignator : providedAttributes)
 				{
 					final String providedAttCat = attrDesignator.getCategory();
@@ -286,7 +666,10 @@ public final class CloseableNamedAttributeProviderRegistry implements Closeable
 					final String providedAttId = attrDesignator.getAttributeId();
 					if(providedAttId == null) {
 						// Category-wide attribute provider (any AttributeId in the given category providedAttCat)
-						mutableListOfCategoryWideProvidersByAttCategory.put(providedAttCat, subProvider);
+						mutableListOfCategoryWideProvidersByAttCategory.put(providedAttCat, subProvider instanceof CategoryBulkNamedAttributeProvider bulkProvider
+						        ? markConcurrent(decorate(new CategoryBulkFetchingNamedAttributeProvider(bulkProvider, providedAttCat), decoratorFactories, attributeFactory, depAttrProvider,
+						                mutableSubProviderSet), subProvider, compositeProviderExecutor)
+						        : registeredProvider);
 					}else
 					{
 
@@ -294,12 +677,13 @@ public final class CloseableNamedAttributeProviderRegistry implements Closeable
 						/*
 						 * We allow multiple modules supporting the same attribute designator (as fall-back: if one does not find any value, the next one comes in)
 						 */
-						mutableListOfAttNameSpecificProvidersByAttName.put(providedAttName, subProvider);
+						mutableListOfAttNameSpecificProvidersByAttName.put(providedAttName, registeredProvider);
 					}
 				}
 				// mutableListOfAttNameSpecificProvidersByAttName.size() >= 1
 			} catch (final IllegalArgumentException e)
 			{
+				compositeProviderExecutor.ifPresent(ExecutorService::shutdownNow);
 				close(mutableSubProviderSet);
 				throw e;
 			}
@@ -312,6 +696,37 @@ public final class CloseableNamedAttributeProviderRegistry implements Closeable
 		this.closeableProviders = HashCollections.newImmutableSet(mutableSubProviderSet);
 		this.mdpReqBeginners = ImmutableList.copyOf(mutableMdpReqBeginners);
 		this.individualReqBeginners = ImmutableList.copyOf(mutableIndividualReqBeginners);
+		this.batchProvidersPresent = anyBatchProvider;
+		this.requestEvaluationTimeoutNanos = requestEvaluationTimeout.toNanos();
+		this.compositeProviderExecutor = compositeProviderExecutor;
+	}
+
+	/**
+	 * Instantiates a "composite/modular" Attribute Provider without request evaluation deadline, calling the Attribute Providers of the same attribute sequentially, i.e. same as {@link #CloseableNamedAttributeProviderRegistry(List, AttributeValueFactoryRegistry, boolean, Duration, Optional)} with {@link Duration#ZERO} timeout and no executor.
+	 *
+	 * @param attributeFactory
+	 *            (mandatory) attribute value factory
+	 * @param attributeProviderFactories
+	 *            Factories of all the Attribute Providers to be combined in the created instance, in dependency order
+	 * @param strictAttributeIssuerMatch
+	 *            true iff it is required that AttributeDesignator without Issuer only match request Attributes without Issuer
+	 * @throws java.lang.IllegalArgumentException
+	 *             If any Attribute Provider created from {@code attributeProviderFactories} does not provide any attribute.
+	 * @throws java.io.IOException
+	 *             error closing the Attribute Providers created from {@code attributeProviderFactories}, when a {@link IllegalArgumentException} is raised
+	 */
+	public CloseableNamedAttributeProviderRegistry(final List<CloseableNamedAttributeProvider.DependencyAwareFactory> attributeProviderFactories,
+																	  final AttributeValueFactoryRegistry attributeFactory, final boolean strictAttributeIssuerMatch) throws IOException
+	{
+		this(attributeProviderFactories, attributeFactory, strictAttributeIssuerMatch, Duration.ZERO, Optional.empty());
+	}
+
+	/**
+	 * Get the executor used to call concurrently the AttributeProviders of the same attribute (only those implementing {@link ConcurrentNamedAttributeProvider})
+	 * @return executor; empty if they are called sequentially
+	 */
+	public Optional<Executor> getCompositeProviderExecutor() {
+		return this.compositeProviderExecutor.map(Executor.class::cast);
 	}
 
 	/**
@@ -344,16 +759,36 @@ public final class CloseableNamedAttributeProviderRegistry implements Closeable
 	 * @throws IndeterminateEvaluationException error beginning the request evaluation
 	 */
 	public void beginIndividualDecisionRequest(final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException {
+		if(this.requestEvaluationTimeoutNanos > 0) {
+			EvaluationDeadlines.set(context, System.nanoTime() + this.requestEvaluationTimeoutNanos);
+		}
+
 		for (final NamedAttributeProvider provider : this.individualReqBeginners)
 		{
 			provider.beginIndividualDecisionRequest(context, mdpContext);
 		}
 	}
 
+	/**
+	 * When the Multiple Decision Profile is used, the PDP engine calls this method with the contexts of the Individual Decision requests of a given Multiple Decision request, once
+	 * {@link #beginIndividualDecisionRequest(EvaluationContext, Optional)} has been called for each of them and before evaluating them (in the same order), so that AttributeProviders supporting batch resolution ({@link BatchNamedAttributeProvider}) resolve attributes for all these Individual Decision requests at once when
+	 * the first one needs it, instead of one call per Individual Decision request.
+	 * @param contexts Individual Decision request contexts, in evaluation order
+	 * @param mdpContext context of the Multiple Decision request
+	 */
+	public void beginIndividualDecisionRequests(final List<EvaluationContext> contexts, final EvaluationContext mdpContext) {
+		if(!this.batchProvidersPresent || contexts.size() < 2) {
+			return;
+		}
+
+		EvaluationContextSnapshot.getSharedValues(mdpContext).put(BATCH_SCOPE_KEY, new MultipleDecisionBatchScope(contexts));
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void close() throws IOException
 	{
+		this.compositeProviderExecutor.ifPresent(ExecutorService::shutdownNow);
 		close(this.closeableProviders);
 	}
 }
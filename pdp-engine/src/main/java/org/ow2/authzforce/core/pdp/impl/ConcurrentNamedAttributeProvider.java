@@ -0,0 +1,38 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.NamedAttributeProvider;
+
+/**
+ * Optional marker extension of the Attribute Provider SPI for providers that may be called concurrently with the other providers of the same attribute (see
+ * {@link CloseableNamedAttributeProviderRegistry#getCompositeProviderExecutor()}), i.e. from another thread than the one evaluating the request, while the request evaluation goes on.
+ * <p>
+ * Such a provider is called with a copy of the request evaluation context (and Multiple Decision request context if any), since {@link EvaluationContext}s are not thread-safe: it must not rely on
+ * the values put in the context with {@link EvaluationContext#putOther(String, Object)} (e.g. per-request caches) when called this way. Batch resolution ({@link BatchNamedAttributeProvider}) and
+ * the per-request caches of the built-in Attribute Providers still apply, since they are shared by the request context and its copies.
+ * The named attributes it adds to the copy (e.g. resolved dependencies) are put back into the request context once the call is complete. The providers not implementing this interface are always
+ * called in the thread evaluating the request.
+ *
+ * @version $Id: $
+ */
+public interface ConcurrentNamedAttributeProvider extends NamedAttributeProvider
+{
+	// marker interface
+}
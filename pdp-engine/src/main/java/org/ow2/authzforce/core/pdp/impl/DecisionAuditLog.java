@@ -0,0 +1,581 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import com.google.common.collect.ImmutableList;
+import net.sf.saxon.s9api.XdmNode;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.DecisionRequest;
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+import org.ow2.authzforce.core.pdp.api.PepAction;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous decision audit log, writing one JSON line per decision - request digest, decision, applicable policies, obligation/advice IDs, latency - to a rolling file.
+ * <p>
+ * Decisions are recorded by the evaluation threads into a preallocated ring buffer, without lock and without allocation: {@link #record(DecisionRequest, DecisionResult, long)} only claims a slot
+ * (compare-and-set) and stores references to the (immutable) request/result data. A background (daemon) thread drains the buffer to the file. If the buffer is full - the writer thread cannot keep
+ * up - the decision is dropped and counted (see {@link #getDroppedCount()}), i.e. the evaluation thread never blocks. Once {@link #close()} is called, no more decision can be recorded, and the ones
+ * recorded before are all written before the file is closed. A decision that fails to be written (I/O or any other error) is logged and counted (see {@link #getWriteErrorCount()}), and the writer
+ * thread carries on with the next ones. After an I/O error, the file is closed and opened again (created if it no longer exists) to write the next decision.
+ * <p>
+ * The request digest is the SHA-256 hash (hexadecimal) of a canonical form of the Individual Decision Request, computed by the writer thread: the request attributes sorted by category, issuer and ID,
+ * each with its datatype and values (sorted as well, since the order of the values in a bag does not matter), then the extra (XML) contents sorted by category, and the ReturnPolicyIdList flag. Identical
+ * requests have the same digest, whatever the order of their attributes. When the file size exceeds the maximum, the file is rolled over: {@code file} renamed to {@code file.1}, {@code file.1} to {@code file.2}, etc., up to the maximum number of
+ * backup files (the oldest is deleted).
+ *
+ * @version $Id: $
+ */
+public final class DecisionAuditLog implements Closeable
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(DecisionAuditLog.class);
+
+	private static final IllegalArgumentException NULL_FILE_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined audit log file");
+	private static final IllegalArgumentException INVALID_CAPACITY_ARGUMENT_EXCEPTION = new IllegalArgumentException("Invalid audit log buffer capacity: must be a positive power of two");
+	private static final IllegalArgumentException INVALID_MAX_FILE_SIZE_ARGUMENT_EXCEPTION = new IllegalArgumentException("Invalid audit log max file size: must be positive");
+	private static final IllegalArgumentException INVALID_MAX_BACKUP_COUNT_ARGUMENT_EXCEPTION = new IllegalArgumentException("Invalid audit log max backup file count: must be positive");
+
+	private static final long EMPTY_BUFFER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	/*
+	 * Flag set in nextWriteSequence on close, so that no sequence number can be claimed after the writer thread has read the last one to be written (sign bit, i.e. closed iff nextWriteSequence < 0)
+	 */
+	private static final long CLOSED_FLAG = Long.MIN_VALUE;
+
+	/*
+	 * Preallocated buffer entry, filled by an evaluation thread, then read and cleared by the writer thread
+	 */
+	private static final class Slot
+	{
+		private long timestampMillis;
+		private DecisionRequest request;
+		private DecisionType decision;
+		private ImmutableList<PrimaryPolicyMetadata> applicablePolicies;
+		private ImmutableList<PepAction> pepActions;
+		private long latencyNanos;
+
+		/*
+		 * Sequence number of the last record published in this slot (the fields above are visible to the writer thread once it reads this sequence number)
+		 */
+		private volatile long publishedSequence = -1;
+	}
+
+	private final Path file;
+	private final long maxFileSize;
+	private final int maxBackupCount;
+	private final Slot[] slots;
+	private final int slotIndexMask;
+
+	// next sequence number to be claimed by the evaluation threads, with CLOSED_FLAG set once closed
+	private final AtomicLong nextWriteSequence = new AtomicLong();
+
+	// next sequence number to be read by the writer thread (only written by the writer thread)
+	private volatile long nextReadSequence = 0;
+
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final AtomicLong writeErrorCount = new AtomicLong();
+	private final Thread writerThread;
+
+	// Only used by the writer thread. Writer null after an I/O error, until opened again.
+	private Writer writer;
+	private long fileSize;
+	private final StringBuilder lineBuilder = new StringBuilder(512);
+	private final MessageDigest requestDigest;
+
+	/**
+	 * Creates an audit log and starts its writer thread
+	 *
+	 * @param file
+	 *            audit log file (JSON Lines), created if it does not exist, else appended
+	 * @param bufferCapacity
+	 *            maximum number of decisions waiting to be written, must be a power of two
+	 * @param maxFileSize
+	 *            maximum size of the audit log file (bytes) before rollover
+	 * @param maxBackupCount
+	 *            maximum number of rolled-over (backup) files
+	 * @throws IllegalArgumentException
+	 *             if {@code file} is null or any other argument is invalid
+	 * @throws IOException
+	 *             error opening the audit log file
+	 */
+	public DecisionAuditLog(final Path file, final int bufferCapacity, final long maxFileSize, final int maxBackupCount) throws IllegalArgumentException, IOException
+	{
+		if (file == null)
+		{
+			throw NULL_FILE_ARGUMENT_EXCEPTION;
+		}
+
+		if (bufferCapacity <= 0 || Integer.bitCount(bufferCapacity) != 1)
+		{
+			throw INVALID_CAPACITY_ARGUMENT_EXCEPTION;
+		}
+
+		if (maxFileSize <= 0)
+		{
+			throw INVALID_MAX_FILE_SIZE_ARGUMENT_EXCEPTION;
+		}
+
+		if (maxBackupCount <= 0)
+		{
+			throw INVALID_MAX_BACKUP_COUNT_ARGUMENT_EXCEPTION;
+		}
+
+		this.file = file;
+		this.maxFileSize = maxFileSize;
+		this.maxBackupCount = maxBackupCount;
+		this.slots = new Slot[bufferCapacity];
+		for (int i = 0; i < bufferCapacity; i++)
+		{
+			slots[i] = new Slot();
+		}
+
+		this.slotIndexMask = bufferCapacity - 1;
+		try
+		{
+			this.requestDigest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (final NoSuchAlgorithmException e)
+		{
+			throw new RuntimeException("SHA-256 not supported by the JRE", e);
+		}
+
+		openFile();
+		this.writerThread = new Thread(this::drain, "authzforce-pdp-decision-audit-writer");
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+	}
+
+	private void openFile() throws IOException
+	{
+		this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		this.fileSize = Files.size(file);
+	}
+
+	/**
+	 * Records a decision (non-blocking). The decision is dropped if the buffer is full or this audit log is closed.
+	 *
+	 * @param request
+	 *            Individual Decision Request
+	 * @param result
+	 *            decision result
+	 * @param latencyNanos
+	 *            evaluation time in nanoseconds
+	 * @return true iff the decision is recorded, false if dropped
+	 */
+	public boolean record(final DecisionRequest request, final DecisionResult result, final long latencyNanos)
+	{
+		long sequence;
+		do
+		{
+			sequence = nextWriteSequence.get();
+			/*
+			 * Closed iff sequence < 0 (CLOSED_FLAG). Since the flag is set on the same counter, the compare-and-set below fails if this audit log is closed in the meantime.
+			 */
+			if (sequence < 0 || sequence - nextReadSequence >= slots.length)
+			{
+				droppedCount.incrementAndGet();
+				return false;
+			}
+		}
+		while (!nextWriteSequence.compareAndSet(sequence, sequence + 1));
+
+		final Slot slot = slots[(int) sequence & slotIndexMask];
+		slot.timestampMillis = System.currentTimeMillis();
+		slot.request = request;
+		slot.decision = result.getDecision();
+		slot.applicablePolicies = result.getApplicablePolicies();
+		slot.pepActions = result.getPepActions();
+		slot.latencyNanos = latencyNanos;
+		slot.publishedSequence = sequence;
+		return true;
+	}
+
+	/**
+	 * Gets the number of decisions dropped because the buffer was full (or this audit log closed)
+	 *
+	 * @return number of dropped decisions
+	 */
+	public long getDroppedCount()
+	{
+		return droppedCount.get();
+	}
+
+	/**
+	 * Gets the number of recorded decisions that failed to be written to the file
+	 *
+	 * @return number of write errors
+	 */
+	public long getWriteErrorCount()
+	{
+		return writeErrorCount.get();
+	}
+
+	private static void appendJsonString(final StringBuilder sb, final String s)
+	{
+		sb.append('"');
+		for (int i = 0; i < s.length(); i++)
+		{
+			final char c = s.charAt(i);
+			switch (c)
+			{
+				case '"' -> sb.append("\\\"");
+				case '\\' -> sb.append("\\\\");
+				case '\n' -> sb.append("\\n");
+				case '\r' -> sb.append("\\r");
+				case '\t' -> sb.append("\\t");
+				default ->
+				{
+					if (c < 0x20)
+					{
+						sb.append(String.format("\\u%04x", (int) c));
+					}
+					else
+					{
+						sb.append(c);
+					}
+				}
+			}
+		}
+
+		sb.append('"');
+	}
+
+	private void appendPepActionIds(final ImmutableList<PepAction> pepActions, final boolean mandatory)
+	{
+		lineBuilder.append('[');
+		boolean first = true;
+		if (pepActions != null)
+		{
+			for (final PepAction pepAction : pepActions)
+			{
+				if (pepAction.isMandatory() == mandatory)
+				{
+					if (!first)
+					{
+						lineBuilder.append(',');
+					}
+
+					appendJsonString(lineBuilder, pepAction.getId());
+					first = false;
+				}
+			}
+		}
+
+		lineBuilder.append(']');
+	}
+
+	/*
+	 * JSON array of the string representations of the items, sorted
+	 */
+	private static String toSortedJsonArray(final List<String> items)
+	{
+		items.sort(null);
+		final StringBuilder sb = new StringBuilder();
+		sb.append('[');
+		for (int i = 0; i < items.size(); i++)
+		{
+			if (i > 0)
+			{
+				sb.append(',');
+			}
+
+			appendJsonString(sb, items.get(i));
+		}
+
+		return sb.append(']').toString();
+	}
+
+	private static String toCanonicalString(final AttributeValue value)
+	{
+		final List<String> xmlAttributes = new ArrayList<>(value.getXmlAttributes().size());
+		value.getXmlAttributes().forEach((name, attValue) -> xmlAttributes.add(name + "=" + attValue));
+		// the order of the content items (mixed content) matters, unlike the order of the XML attributes
+		final StringBuilder sb = new StringBuilder(toSortedJsonArray(xmlAttributes));
+		for (final Serializable contentItem : value.getContent())
+		{
+			sb.append(',');
+			appendJsonString(sb, String.valueOf(contentItem));
+		}
+
+		return sb.toString();
+	}
+
+	/*
+	 * Canonical form of the request, independent of the order of the attributes and attribute values
+	 */
+	private static String toCanonicalString(final DecisionRequest request)
+	{
+		final List<String> attributes = new ArrayList<>(request.getNamedAttributes().size());
+		for (final Entry<AttributeFqn, AttributeBag<?>> namedAttribute : request.getNamedAttributes().entrySet())
+		{
+			final AttributeFqn attributeFqn = namedAttribute.getKey();
+			final AttributeBag<?> bag = namedAttribute.getValue();
+			final List<String> values = new ArrayList<>(bag.size());
+			for (final AttributeValue value : bag)
+			{
+				values.add(toCanonicalString(value));
+			}
+
+			final StringBuilder sb = new StringBuilder();
+			appendJsonString(sb, attributeFqn.getCategory());
+			sb.append(',');
+			appendJsonString(sb, attributeFqn.getIssuer().map(issuer -> "+" + issuer).orElse("-"));
+			sb.append(',');
+			appendJsonString(sb, attributeFqn.getId());
+			sb.append(',');
+			appendJsonString(sb, bag.getElementDatatype().getId());
+			sb.append(',').append(toSortedJsonArray(values));
+			attributes.add(sb.toString());
+		}
+
+		final List<String> extraContents = new ArrayList<>(request.getExtraContentsByCategory().size());
+		for (final Entry<String, XdmNode> extraContent : request.getExtraContentsByCategory().entrySet())
+		{
+			final StringBuilder sb = new StringBuilder();
+			appendJsonString(sb, extraContent.getKey());
+			sb.append(',');
+			appendJsonString(sb, extraContent.getValue().toString());
+			extraContents.add(sb.toString());
+		}
+
+		return toSortedJsonArray(attributes) + toSortedJsonArray(extraContents) + request.isApplicablePolicyIdListReturned();
+	}
+
+	private String getRequestDigest(final DecisionRequest request)
+	{
+		return HexFormat.of().formatHex(requestDigest.digest(toCanonicalString(request).getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private void write(final Slot slot) throws IOException
+	{
+		lineBuilder.setLength(0);
+		lineBuilder.append("{\"timestamp\":").append(slot.timestampMillis).append(",\"requestDigest\":\"").append(getRequestDigest(slot.request)).append("\",\"decision\":");
+		appendJsonString(lineBuilder, slot.decision.value());
+		lineBuilder.append(",\"applicablePolicies\":[");
+		if (slot.applicablePolicies != null)
+		{
+			boolean first = true;
+			for (final PrimaryPolicyMetadata policy : slot.applicablePolicies)
+			{
+				if (!first)
+				{
+					lineBuilder.append(',');
+				}
+
+				lineBuilder.append("{\"type\":");
+				appendJsonString(lineBuilder, policy.getType().toString());
+				lineBuilder.append(",\"id\":");
+				appendJsonString(lineBuilder, policy.getId());
+				lineBuilder.append(",\"version\":");
+				appendJsonString(lineBuilder, policy.getVersion().toString());
+				lineBuilder.append('}');
+				first = false;
+			}
+		}
+
+		lineBuilder.append("],\"obligations\":");
+		appendPepActionIds(slot.pepActions, true);
+		lineBuilder.append(",\"advice\":");
+		appendPepActionIds(slot.pepActions, false);
+		lineBuilder.append(",\"latencyNanos\":").append(slot.latencyNanos).append("}\n");
+
+		if (writer == null)
+		{
+			// closed after an I/O error
+			openFile();
+		}
+
+		if (fileSize > 0 && fileSize + lineBuilder.length() > maxFileSize)
+		{
+			rollOver();
+		}
+
+		writer.append(lineBuilder);
+		// approximation (non-ASCII characters take more than one byte)
+		fileSize += lineBuilder.length();
+	}
+
+	private void rollOver() throws IOException
+	{
+		final Writer oldWriter = writer;
+		writer = null;
+		oldWriter.close();
+		final Path oldestBackup = file.resolveSibling(file.getFileName() + "." + maxBackupCount);
+		Files.deleteIfExists(oldestBackup);
+		for (int i = maxBackupCount - 1; i >= 1; i--)
+		{
+			final Path backup = file.resolveSibling(file.getFileName() + "." + i);
+			if (Files.exists(backup))
+			{
+				Files.move(backup, file.resolveSibling(file.getFileName() + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+
+		Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+		openFile();
+	}
+
+	/*
+	 * Closes the writer after an I/O error, so that the file is opened again for the next decision
+	 */
+	private void closeWriterAfterError()
+	{
+		if (writer == null)
+		{
+			return;
+		}
+
+		try
+		{
+			writer.close();
+		}
+		catch (final IOException e)
+		{
+			LOGGER.debug("Failed to close decision audit log '{}' after I/O error", file, e);
+		}
+
+		writer = null;
+	}
+
+	/*
+	 * Writer thread loop
+	 */
+	private void drain()
+	{
+		while (true)
+		{
+			final long sequence = nextReadSequence;
+			final Slot slot = slots[(int) sequence & slotIndexMask];
+			if (slot.publishedSequence != sequence)
+			{
+				/*
+				 * Buffer empty, or next slot claimed but not published yet
+				 */
+				if (writer != null)
+				{
+					try
+					{
+						writer.flush();
+					}
+					catch (final IOException e)
+					{
+						LOGGER.error("Failed to flush decision audit log '{}' (file opened again for the next decision)", file, e);
+						closeWriterAfterError();
+					}
+				}
+
+				/*
+				 * Once closed, nextWriteSequence does not change anymore: stop when all claimed slots are written
+				 */
+				final long writeSequence = nextWriteSequence.get();
+				if (writeSequence < 0 && sequence == (writeSequence & ~CLOSED_FLAG))
+				{
+					break;
+				}
+
+				LockSupport.parkNanos(EMPTY_BUFFER_PARK_NANOS);
+				continue;
+			}
+
+			try
+			{
+				write(slot);
+			}
+			catch (final IOException e)
+			{
+				writeErrorCount.incrementAndGet();
+				LOGGER.error("Failed to write decision to audit log '{}' (file opened again for the next decision)", file, e);
+				closeWriterAfterError();
+			}
+			catch (final RuntimeException e)
+			{
+				writeErrorCount.incrementAndGet();
+				LOGGER.error("Failed to write decision to audit log '{}'", file, e);
+			}
+
+			// release references for GC
+			slot.request = null;
+			slot.decision = null;
+			slot.applicablePolicies = null;
+			slot.pepActions = null;
+			nextReadSequence = sequence + 1;
+		}
+
+		if (writer == null)
+		{
+			return;
+		}
+
+		try
+		{
+			writer.close();
+		}
+		catch (final IOException e)
+		{
+			LOGGER.error("Failed to close decision audit log '{}'", file, e);
+		}
+	}
+
+	/**
+	 * Stops recording decisions, writes the remaining ones and closes the file
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		nextWriteSequence.getAndUpdate(sequence -> sequence | CLOSED_FLAG);
+		try
+		{
+			writerThread.join();
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the decision audit log writer to complete", e);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return "DecisionAuditLog(" + file + ")";
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import org.ow2.authzforce.core.pdp.api.CloseableNamedAttributeProvider;
+import org.ow2.authzforce.core.pdp.api.NamedAttributeProvider;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactoryRegistry;
+
+import java.util.Set;
+
+/**
+ * Factory of Attribute Providers decorating the Attribute Providers created by another factory, e.g. to cache their results (see {@link CachingNamedAttributeProvider}).
+ * <p>
+ * The {@link CloseableNamedAttributeProviderRegistry} creates the Attribute Provider with the decorated factory (see {@link #getDecoratedFactory()}) and detects the optional interfaces it implements
+ * ({@link BatchNamedAttributeProvider}, {@link CategoryBulkNamedAttributeProvider}) before applying the decorator with {@link #decorate(NamedAttributeProvider, AttributeValueFactoryRegistry,
+ * NamedAttributeProvider)}, so that the decorator does not hide them.
+ *
+ * @version $Id: $
+ */
+public abstract class DecoratingNamedAttributeProviderFactory implements CloseableNamedAttributeProvider.DependencyAwareFactory
+{
+	private static final IllegalArgumentException NULL_FACTORY_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined Attribute Provider factory to decorate");
+
+	private final CloseableNamedAttributeProvider.DependencyAwareFactory decoratedFactory;
+
+	/**
+	 * Creates the factory
+	 *
+	 * @param decoratedFactory
+	 *            factory of the decorated Attribute Providers
+	 * @throws IllegalArgumentException
+	 *             if {@code decoratedFactory == null}
+	 */
+	protected DecoratingNamedAttributeProviderFactory(final CloseableNamedAttributeProvider.DependencyAwareFactory decoratedFactory) throws IllegalArgumentException
+	{
+		if (decoratedFactory == null)
+		{
+			throw NULL_FACTORY_ARGUMENT_EXCEPTION;
+		}
+
+		this.decoratedFactory = decoratedFactory;
+	}
+
+	/**
+	 * Get the factory of the decorated Attribute Providers
+	 *
+	 * @return decorated factory
+	 */
+	public final CloseableNamedAttributeProvider.DependencyAwareFactory getDecoratedFactory()
+	{
+		return decoratedFactory;
+	}
+
+	/**
+	 * Decorates an Attribute Provider
+	 *
+	 * @param provider
+	 *            decorated Attribute Provider, created by {@link #getDecoratedFactory()}, possibly wrapped by the {@link CloseableNamedAttributeProviderRegistry} or decorated already by the
+	 *            decorators applied before this one
+	 * @param attributeValueFactoryRegistry
+	 *            attribute value factories
+	 * @param dependencyAttributeProvider
+	 *            provider of the attributes that {@code provider} depends on (see {@link #getDependencies()})
+	 * @return decorator. Its {@link CloseableNamedAttributeProvider#close()} method must close {@code provider} as well if {@code provider} is a {@link CloseableNamedAttributeProvider}.
+	 */
+	public abstract CloseableNamedAttributeProvider decorate(NamedAttributeProvider provider, AttributeValueFactoryRegistry attributeValueFactoryRegistry,
+	        NamedAttributeProvider dependencyAttributeProvider);
+
+	@Override
+	public final Set<AttributeDesignatorType> getDependencies()
+	{
+		return decoratedFactory.getDependencies();
+	}
+
+	@Override
+	public final CloseableNamedAttributeProvider getInstance(final AttributeValueFactoryRegistry attributeValueFactoryRegistry, final NamedAttributeProvider dependencyAttributeProvider)
+	{
+		return decorate(decoratedFactory.getInstance(attributeValueFactoryRegistry, dependencyAttributeProvider), attributeValueFactoryRegistry, dependencyAttributeProvider);
+	}
+}
@@ -22,6 +22,10 @@ import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
 import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
 import org.ow2.authzforce.core.pdp.api.value.Bags;
 import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.ow2.authzforce.core.pdp.impl.metrics.AttributeProviderFetchEvent;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationMetrics;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationMetricsListener;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationTrace;
 import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +34,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * AttributeProvider stub used as common base for ModularMultiNamedAttributeProvider and EvaluationContextBasedSingleNamedAttributeProvider.
@@ -59,43 +68,161 @@ public abstract class EvaluationContextBasedNamedAttributeProvider
 		AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException;
 	}
 
+	private static <AV extends AttributeValue> AttributeBag<AV> getFromSubProvider(final NamedAttributeProvider subProvider, final AttributeFqn attributeFqn, final Datatype<AV> datatype,
+	        final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+	{
+		LOGGER.debug("Requesting attribute {} from Provider module: {}", attributeFqn, subProvider);
+		final AttributeBag<AV> result = subProvider.get(attributeFqn, datatype, context, mdpContext);
+		LOGGER.debug("Values of attribute {}, type={} returned by Attribute Provider module #{}: {}", attributeFqn, datatype, subProvider, result);
+		return result;
+	}
+
+	private static <AV extends AttributeValue> AttributeBag<AV> getResult(final Future<AttributeBag<AV>> subProviderCall, final AttributeFqn attributeFqn) throws IndeterminateEvaluationException
+	{
+		try
+		{
+			return subProviderCall.get();
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IndeterminateEvaluationException("Interrupted while waiting for Attribute Provider modules to get attribute " + attributeFqn, XacmlStatusCode.PROCESSING_ERROR.value(), e);
+		}
+		catch (final ExecutionException e)
+		{
+			final Throwable cause = e.getCause();
+			if (cause instanceof IndeterminateEvaluationException iee)
+			{
+				throw iee;
+			}
+
+			if (cause instanceof RuntimeException re)
+			{
+				throw re;
+			}
+
+			if (cause instanceof Error err)
+			{
+				throw err;
+			}
+
+			throw new IndeterminateEvaluationException("Error getting attribute " + attributeFqn + " from Attribute Provider module", XacmlStatusCode.PROCESSING_ERROR.value(), cause);
+		}
+	}
+
 	/**
-	 * Creates the proper delegate combining provider based on input sub-modules (PIP extensions)
+	 * Creates the proper delegate combining provider based on input sub-modules (PIP extensions), calling the sub-modules sequentially (in order)
 	 * @param composedProviders composed AttributeProvider (aka PIP) sub-modules
 	 * @return combining delegate
 	 * @param <AV> type of AttributeValue(s) returned by the new instance
 	 */
 	protected static <AV extends AttributeValue> DelegateAttributeProvider<AV> newDelegate(final List<NamedAttributeProvider> composedProviders) {
-		assert composedProviders != null && !composedProviders.isEmpty();
+		return newDelegate(composedProviders, Optional.empty());
+	}
+
+	/**
+	 * Creates the proper delegate combining provider based on input sub-modules (PIP extensions)
+	 * @param composedProviders composed AttributeProvider (aka PIP) sub-modules
+	 * @param executor if present and there are multiple {@code composedProviders}, the sub-modules implementing {@link ConcurrentNamedAttributeProvider} are called concurrently with this executor, with copies of the request contexts (see {@link ConcurrentNamedAttributeProvider}), the others in the calling thread; and the results merged in the order of {@code composedProviders}. A call not started by the executor yet when its result is needed is run in the calling thread, so that the calling thread never waits for a queued call (e.g. nested calls from the executor threads when all are busy). Else the sub-modules are called sequentially.
+	 * @return combining delegate
+	 * @param <AV> type of AttributeValue(s) returned by the new instance
+	 */
+	protected static <AV extends AttributeValue> DelegateAttributeProvider<AV> newDelegate(final List<NamedAttributeProvider> composedProviders, final Optional<Executor> executor) {
+		assert composedProviders != null && !composedProviders.isEmpty() && executor != null;
 		if(composedProviders.size() == 1) {
 			final NamedAttributeProvider subProvider = composedProviders.get(0);
-			return  (name, type, ctx, mdpCtx) ->
-			{
-				LOGGER.debug("Requesting attribute {} from Provider module: {}", name, subProvider);
-				final AttributeBag<AV> result = subProvider.get(name, type, ctx, mdpCtx);
-				LOGGER.debug("Values of attribute {}, type={} returned by Attribute Provider module #{}: {}", name, type, subProvider, result);
-				return result;
-			};
+			return  (name, type, ctx, mdpCtx) -> getFromSubProvider(subProvider, name, type, ctx, mdpCtx);
 		}
 
 		// composedProviders.size > 1
+		if(executor.isEmpty() || composedProviders.stream().noneMatch(ConcurrentNamedAttributeProvider.class::isInstance))
+		{
+			return (name, type, ctx, mdpCtx) -> {
+				/*
+				 * Query all sub-providers in order
+				 */
+				final Collection<AV> values = new ArrayList<>();
+				for (final NamedAttributeProvider subProvider : composedProviders)
+				{
+					final AttributeBag<AV> result = getFromSubProvider(subProvider, name, type, ctx, mdpCtx);
+					if (result != null)
+					{
+						values.addAll(result.elements());
+					}
+				}
+
+				return Bags.newAttributeBag(type, values, AttributeSources.PDP);
+			};
+		}
+
+		final Executor subProviderCallExecutor = executor.get();
 		return (name, type, ctx, mdpCtx) -> {
 			/*
-			 * Query all sub-providers in order
+			 * Query the concurrent sub-providers with the executor, with copies of the request contexts made in this thread, and the others in this thread, in order
 			 */
-			final Collection<AV> values = new ArrayList<>();
-			for (final NamedAttributeProvider subProvider : composedProviders)
+			final List<FutureTask<AttributeBag<AV>>> concurrentSubProviderCalls = new ArrayList<>(composedProviders.size());
+			final List<EvaluationContextSnapshot> contextSnapshots = new ArrayList<>(composedProviders.size());
+			try
 			{
-				LOGGER.debug("Requesting attribute {} from Provider module: {}", name, subProvider);
-				final AttributeBag<AV> result = subProvider.get(name, type, ctx, mdpCtx);
-				LOGGER.debug("Values of attribute {}, type={} returned by Attribute Provider module #{}: {}", name, type, subProvider, result);
-				if (result != null)
+				for (final NamedAttributeProvider subProvider : composedProviders)
+				{
+					if (!(subProvider instanceof ConcurrentNamedAttributeProvider))
+					{
+						concurrentSubProviderCalls.add(null);
+						contextSnapshots.add(null);
+						continue;
+					}
+
+					final EvaluationContextSnapshot contextSnapshot = new EvaluationContextSnapshot(ctx);
+					final Optional<EvaluationContext> mdpContextCopy = EvaluationContextSnapshot.copyOf(mdpCtx);
+					final FutureTask<AttributeBag<AV>> subProviderCall = new FutureTask<>(() -> getFromSubProvider(subProvider, name, type, contextSnapshot.get(), mdpContextCopy));
+					concurrentSubProviderCalls.add(subProviderCall);
+					contextSnapshots.add(contextSnapshot);
+					try
+					{
+						subProviderCallExecutor.execute(subProviderCall);
+					}
+					catch (final RejectedExecutionException e)
+					{
+						LOGGER.debug("Call to Attribute Provider module {} rejected by executor -> calling it in the current thread", subProvider, e);
+					}
+				}
+
+				final Collection<AV> values = new ArrayList<>();
+				for (int i = 0; i < composedProviders.size(); i++)
 				{
-					values.addAll(result.elements());
+					final FutureTask<AttributeBag<AV>> subProviderCall = concurrentSubProviderCalls.get(i);
+					final AttributeBag<AV> result;
+					if (subProviderCall == null)
+					{
+						result = getFromSubProvider(composedProviders.get(i), name, type, ctx, mdpCtx);
+					}
+					else
+					{
+						// no-op if already started by the executor
+						subProviderCall.run();
+						result = getResult(subProviderCall, name);
+						contextSnapshots.get(i).mergeNewAttributes();
+					}
+
+					if (result != null)
+					{
+						values.addAll(result.elements());
+					}
 				}
-			}
 
-			return Bags.newAttributeBag( type, values, AttributeSources.PDP);
+				return Bags.newAttributeBag(type, values, AttributeSources.PDP);
+			}
+			finally
+			{
+				// no-op for completed calls
+				concurrentSubProviderCalls.forEach(subProviderCall -> {
+					if (subProviderCall != null)
+					{
+						subProviderCall.cancel(true);
+					}
+				});
+			}
 		};
 	}
 
@@ -157,6 +284,36 @@ public abstract class EvaluationContextBasedNamedAttributeProvider
 		issuedToNonIssuedAttributeCopyMode.process(attributeFqn, vals, context);
 	}
 
+	private static <AV extends AttributeValue> AttributeBag<AV> getFromDelegate(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context,
+	        final Optional<EvaluationContext> mdpContext, final DelegateAttributeProvider<AV> delegate) throws IndeterminateEvaluationException
+	{
+		final AttributeProviderFetchEvent event = new AttributeProviderFetchEvent();
+		event.begin();
+		final EvaluationMetricsListener metricsListener = EvaluationMetrics.getListener(context);
+		final EvaluationTrace trace = EvaluationTrace.current();
+		final int traceStepNumber = trace == null ? -1 : trace.enter();
+		final long startNanos = metricsListener == null && trace == null ? 0 : System.nanoTime();
+		AttributeBag<AV> result = null;
+		try
+		{
+			result = delegate.get(attributeFqn, datatype, context, mdpContext);
+			return result;
+		}
+		finally
+		{
+			event.report(attributeFqn, datatype, result);
+			if (metricsListener != null)
+			{
+				metricsListener.attributeProviderCalled(attributeFqn, result == null, System.nanoTime() - startNanos);
+			}
+
+			if (trace != null)
+			{
+				trace.exit(traceStepNumber, startNanos, "AttributeFetch", attributeFqn, result == null ? "Error" : result.size() + " value(s)");
+			}
+		}
+	}
+
 	/**
 	 * Retrieve/resolve the values of the attribute with given name and datatype
 	 * @param attributeFqn attribute name
@@ -179,7 +336,11 @@ public abstract class EvaluationContextBasedNamedAttributeProvider
 				return contextBag;
 			}
 
-			final AttributeBag<AV> result = delegate.get(attributeFqn, datatype, context, mdpContext);
+			/*
+			 * Do not call the attribute provider(s) after the request evaluation deadline, if any
+			 */
+			EvaluationDeadlines.check(context, mdpContext);
+			final AttributeBag<AV> result = getFromDelegate(attributeFqn, datatype, context, mdpContext, delegate);
 			/*
 			Null result indicates an error and should have been avoided by throwing IndeterminateEvaluation Exception instead
 			 */
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generator of keys of the values put in request evaluation contexts ({@link EvaluationContext#putOther(String, Object)}) by evaluator instances, e.g. memoized results. Each key is unique in the JVM,
+ * unlike keys based on the identity hash code, which may collide among the many evaluators of large policies, in which case two evaluators would share the same memoized results.
+ */
+final class EvaluationContextKeys
+{
+	private static final AtomicLong INSTANCE_COUNTER = new AtomicLong();
+
+	private EvaluationContextKeys()
+	{
+		// prevent instantiation
+	}
+
+	/**
+	 * Creates a new unique key for an evaluator instance
+	 *
+	 * @param evaluatorClass
+	 *            class of the evaluator (used as prefix for debugging)
+	 * @return new key, unique in the JVM
+	 */
+	static String newInstanceKey(final Class<?> evaluatorClass)
+	{
+		return evaluatorClass.getName() + '#' + INSTANCE_COUNTER.incrementAndGet();
+	}
+}
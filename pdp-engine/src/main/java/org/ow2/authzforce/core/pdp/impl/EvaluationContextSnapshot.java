@@ -0,0 +1,181 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import com.google.common.collect.ImmutableMap;
+import net.sf.saxon.s9api.XdmNode;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.HashCollections;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationMetrics;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationMetricsListener;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Copy of a request evaluation context, given to an Attribute Provider called in another thread than the one evaluating the request, since {@link EvaluationContext}s are not thread-safe. The
+ * Attribute Provider may update the copy (e.g. with the dependency attributes it resolves) without affecting the original context, even if the call is abandoned (timeout) and goes on while the
+ * request evaluation goes on.
+ * <p>
+ * The copy has the named attributes, the extra contents (if the original context is a {@link IndividualDecisionRequestContext}), the creation timestamp, the evaluation deadline (see
+ * {@link EvaluationDeadlines}) and the metrics listener (see {@link EvaluationMetrics}) of the original context, but not the other values (AttributeSelector results, {@link EvaluationContext#getOther(String)}
+ * values, etc.), except the values shared by the original context and its copies (see {@link #getSharedValues(EvaluationContext)}), e.g. the per-request caches of Attribute Providers, and the
+ * reference to the original context (see {@link #getOriginal(EvaluationContext)}), e.g. to identify the Individual Decision request in a batch.
+ */
+final class EvaluationContextSnapshot
+{
+	/*
+	 * Key of the values shared by a request context and its copies (see EvaluationContext#putOther(String, Object))
+	 */
+	private static final String SHARED_VALUES_KEY = EvaluationContextSnapshot.class.getName() + ".sharedValues";
+
+	/*
+	 * Key of the original request context in a copy (see EvaluationContext#putOther(String, Object))
+	 */
+	private static final String ORIGINAL_CONTEXT_KEY = EvaluationContextSnapshot.class.getName() + ".original";
+
+	/**
+	 * Gets the values shared by a request context and its copies, creating them if none. Unlike the values put with {@link EvaluationContext#putOther(String, Object)}, they are kept when the
+	 * context is copied for calling an Attribute Provider in another thread, e.g. per-request caches or batch resolution state. The returned map is thread-safe, since it may be updated by
+	 * concurrent calls (with copies of the same context); so must be the values in it. For a given context, the first call must be done in the thread evaluating the request, before the context is
+	 * copied.
+	 *
+	 * @param context
+	 *            request evaluation context (original or copy)
+	 * @return shared values by key
+	 */
+	static ConcurrentMap<String, Object> getSharedValues(final EvaluationContext context)
+	{
+		if (context.getOther(SHARED_VALUES_KEY) instanceof ConcurrentMap<?, ?> sharedValues)
+		{
+			return (ConcurrentMap<String, Object>) sharedValues;
+		}
+
+		final ConcurrentMap<String, Object> newSharedValues = new ConcurrentHashMap<>();
+		context.putOther(SHARED_VALUES_KEY, newSharedValues);
+		return newSharedValues;
+	}
+
+	/**
+	 * Gets a value shared by a request context and its copies (see {@link #getSharedValues(EvaluationContext)}), without creating the shared values if none
+	 *
+	 * @param context
+	 *            request evaluation context (original or copy)
+	 * @param key
+	 *            key of the shared value
+	 * @return shared value; null if none
+	 */
+	static Object getSharedValue(final EvaluationContext context, final String key)
+	{
+		return context.getOther(SHARED_VALUES_KEY) instanceof ConcurrentMap<?, ?> sharedValues ? sharedValues.get(key) : null;
+	}
+
+	/**
+	 * Gets the original request context of a copy
+	 *
+	 * @param context
+	 *            request evaluation context
+	 * @return the context that {@code context} is a copy of (directly or not); {@code context} itself if it is not a copy
+	 */
+	static EvaluationContext getOriginal(final EvaluationContext context)
+	{
+		return context.getOther(ORIGINAL_CONTEXT_KEY) instanceof EvaluationContext original ? original : context;
+	}
+
+	private final EvaluationContext original;
+	private final Map<AttributeFqn, AttributeBag<?>> originalNamedAttributes;
+	private final EvaluationContext copy;
+
+	/**
+	 * Copies a request evaluation context. To be called in the thread evaluating the request.
+	 *
+	 * @param original
+	 *            request evaluation context
+	 */
+	EvaluationContextSnapshot(final EvaluationContext original)
+	{
+		assert original != null;
+		this.original = original;
+		final Map<AttributeFqn, AttributeBag<?>> mutableNamedAttributes = HashCollections.newUpdatableMap();
+		final Iterator<Entry<AttributeFqn, AttributeBag<?>>> namedAttributeIterator = original.getNamedAttributes();
+		while (namedAttributeIterator.hasNext())
+		{
+			final Entry<AttributeFqn, AttributeBag<?>> namedAttribute = namedAttributeIterator.next();
+			mutableNamedAttributes.put(namedAttribute.getKey(), namedAttribute.getValue());
+		}
+
+		this.originalNamedAttributes = HashCollections.newImmutableMap(mutableNamedAttributes);
+		final ImmutableMap<String, XdmNode> extraContents = original instanceof IndividualDecisionRequestContext individualDecisionRequestContext
+		        ? individualDecisionRequestContext.getExtraContentsByAttributeCategory() : null;
+		this.copy = new IndividualDecisionRequestContext(mutableNamedAttributes, extraContents, original.isApplicablePolicyIdListRequested(), Optional.of(original.getCreationTimestamp()));
+		EvaluationDeadlines.copy(original, copy);
+		final EvaluationMetricsListener metricsListener = EvaluationMetrics.getListener(original);
+		if (metricsListener != null)
+		{
+			EvaluationMetrics.setListener(copy, metricsListener);
+		}
+
+		copy.putOther(SHARED_VALUES_KEY, getSharedValues(original));
+		copy.putOther(ORIGINAL_CONTEXT_KEY, getOriginal(original));
+	}
+
+	/**
+	 * Copies an optional (Multiple Decision) request evaluation context. To be called in the thread evaluating the request.
+	 *
+	 * @param original
+	 *            request evaluation context
+	 * @return copy; empty iff {@code original} is empty
+	 */
+	static Optional<EvaluationContext> copyOf(final Optional<EvaluationContext> original)
+	{
+		return original.map(context -> new EvaluationContextSnapshot(context).get());
+	}
+
+	/**
+	 * Gets the copy of the original context
+	 *
+	 * @return copy
+	 */
+	EvaluationContext get()
+	{
+		return copy;
+	}
+
+	/**
+	 * Puts the named attributes added to the copy (e.g. dependency attributes resolved by the Attribute Provider) into the original context, so that they are not resolved again. To be called in the
+	 * thread evaluating the request, once the Attribute Provider call is complete.
+	 */
+	void mergeNewAttributes()
+	{
+		final Iterator<Entry<AttributeFqn, AttributeBag<?>>> namedAttributeIterator = copy.getNamedAttributes();
+		while (namedAttributeIterator.hasNext())
+		{
+			final Entry<AttributeFqn, AttributeBag<?>> namedAttribute = namedAttributeIterator.next();
+			if (!originalNamedAttributes.containsKey(namedAttribute.getKey()))
+			{
+				original.putNamedAttributeValue(namedAttribute.getKey(), namedAttribute.getValue(), false);
+			}
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+
+import java.util.Optional;
+
+/**
+ * Utilities to handle the evaluation deadline of a request, carried in the request evaluation context (Individual Decision request context, or else the Multiple Decision request context). Once the
+ * deadline is exceeded, the Attribute Providers are no longer called, i.e. the attributes not resolved yet are Indeterminate, and the Attribute Provider calls in progress are limited to the
+ * remaining time if they have a timeout (see {@link TimeLimitedNamedAttributeProvider}).
+ *
+ * @version $Id: $
+ */
+public final class EvaluationDeadlines
+{
+	private static final String DEADLINE_CONTEXT_KEY = EvaluationDeadlines.class.getName() + ".deadlineNanos";
+
+	private static final IndeterminateEvaluationException DEADLINE_EXCEEDED_EXCEPTION = new IndeterminateEvaluationException("Request evaluation deadline exceeded",
+	        XacmlStatusCode.PROCESSING_ERROR.value());
+
+	private EvaluationDeadlines()
+	{
+		// prevent instantiation
+	}
+
+	/**
+	 * Sets the evaluation deadline of a request
+	 *
+	 * @param context
+	 *            request evaluation context
+	 * @param deadlineNanos
+	 *            deadline as {@link System#nanoTime()} value
+	 */
+	public static void set(final EvaluationContext context, final long deadlineNanos)
+	{
+		context.putOther(DEADLINE_CONTEXT_KEY, deadlineNanos);
+	}
+
+	private static Long get(final EvaluationContext context)
+	{
+		return context.getOther(DEADLINE_CONTEXT_KEY) instanceof Long deadlineNanos ? deadlineNanos : null;
+	}
+
+	/*
+	 * Copies the evaluation deadline, if any, of a request context to another context (see EvaluationContextSnapshot)
+	 */
+	static void copy(final EvaluationContext from, final EvaluationContext to)
+	{
+		final Long deadlineNanos = get(from);
+		if (deadlineNanos != null)
+		{
+			set(to, deadlineNanos);
+		}
+	}
+
+	/**
+	 * Gets the time remaining before the evaluation deadline of a request
+	 *
+	 * @param context
+	 *            Individual Decision request evaluation context
+	 * @param mdpContext
+	 *            the context of the Multiple Decision request that the {@code context} belongs to if the Multiple Decision Profile is used (deadline used if {@code context} has none)
+	 * @return remaining time in nanoseconds (negative if the deadline is exceeded); {@link Long#MAX_VALUE} if no deadline
+	 */
+	public static long getRemainingNanos(final EvaluationContext context, final Optional<EvaluationContext> mdpContext)
+	{
+		final Long deadlineNanos = get(context);
+		final Long finalDeadlineNanos = deadlineNanos == null && mdpContext.isPresent() ? get(mdpContext.get()) : deadlineNanos;
+		return finalDeadlineNanos == null ? Long.MAX_VALUE : finalDeadlineNanos - System.nanoTime();
+	}
+
+	/**
+	 * Checks that the evaluation deadline of a request is not exceeded
+	 *
+	 * @param context
+	 *            Individual Decision request evaluation context
+	 * @param mdpContext
+	 *            the context of the Multiple Decision request that the {@code context} belongs to if the Multiple Decision Profile is used
+	 * @throws IndeterminateEvaluationException
+	 *             if the deadline is exceeded
+	 */
+	public static void check(final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+	{
+		if (getRemainingNanos(context, mdpContext) <= 0)
+		{
+			throw DEADLINE_EXCEEDED_EXCEPTION;
+		}
+	}
+}
@@ -0,0 +1,744 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.value.*;
+import org.ow2.authzforce.core.xmlns.pdp.HttpJsonAttributeMapping;
+import org.ow2.authzforce.core.xmlns.pdp.HttpJsonAttributeProviderDescriptor;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Attribute Provider fetching attributes from an HTTP/JSON endpoint, e.g. a user directory REST API. The JSON object (record) returned by an HTTP GET on a URL built from the value of a key attribute
+ * (e.g. subject-id) is mapped to the provided attributes with JSONPath expressions, e.g. {@code $.roles[*]} or {@code $.address.city}. A HTTP 404 (Not Found) response means there is no record for the
+ * key, i.e. all the provided attributes are empty (no value).
+ * <p>
+ * The HTTP connections are kept alive and reused for all lookups. The record of a given key is fetched once per request for all the attributes mapped from it, concurrent lookups of the same key may
+ * be coalesced into a single HTTP call, and records may be cached for a given time. If a batch URL is configured, the records for the Individual Decision requests of a Multiple Decision request are
+ * fetched with a single HTTP POST (see {@link BatchNamedAttributeProvider}): the request body is the JSON array of keys and the response must be a JSON object mapping each key to its record (keys
+ * without record omitted).
+ * <p>
+ * Supported JSONPath syntax: root {@code $}, child by name {@code .name} or {@code ['name']}, array element by index {@code [0]}, and wildcard {@code .*} or {@code [*]}. A JSON array selected by
+ * the path provides one attribute value per item.
+ *
+ * @version $Id: $
+ */
+public final class HttpJsonAttributeProvider extends BaseNamedAttributeProvider implements BatchNamedAttributeProvider
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(HttpJsonAttributeProvider.class);
+
+	/**
+	 * Placeholder for the (URL-encoded) key in the record URL
+	 */
+	public static final String KEY_PLACEHOLDER = "{key}";
+
+	private static final IllegalArgumentException NULL_ID_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined HTTP/JSON Attribute Provider ID");
+	private static final IllegalArgumentException NULL_KEY_ATTRIBUTE_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined HTTP/JSON Attribute Provider key attribute");
+	private static final IllegalArgumentException EMPTY_MAPPINGS_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined/empty HTTP/JSON Attribute Provider attribute mappings");
+	private static final IllegalArgumentException INVALID_TIMEOUTS_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined or non-positive HTTP/JSON Attribute Provider timeout(s)");
+	private static final IllegalArgumentException INVALID_CACHE_ARGUMENT_EXCEPTION = new IllegalArgumentException(
+	        "Invalid HTTP/JSON Attribute Provider cache settings (cacheMaxSize, cacheTtl): expected positive values or 0");
+
+	/*
+	 * Record of keys without record (HTTP 404). Never modified.
+	 */
+	private static final JSONObject EMPTY_RECORD = new JSONObject();
+
+	/**
+	 * Mapping of a JSON record to an attribute
+	 *
+	 * @param attribute
+	 *            attribute name and datatype (MustBePresent ignored)
+	 * @param jsonPath
+	 *            JSONPath expression selecting the attribute value(s) in the record
+	 */
+	public record AttributeMapping(AttributeDesignatorType attribute, String jsonPath)
+	{
+		/**
+		 * Creates the mapping
+		 *
+		 * @throws IllegalArgumentException
+		 *             if {@code attribute} or {@code jsonPath} undefined
+		 */
+		public AttributeMapping
+		{
+			if (attribute == null || attribute.getCategory() == null || attribute.getAttributeId() == null || attribute.getDataType() == null || jsonPath == null)
+			{
+				throw new IllegalArgumentException("Invalid HTTP/JSON attribute mapping: undefined attribute (Category, AttributeId or DataType) or JSONPath");
+			}
+		}
+	}
+
+	/**
+	 * Compiled JSONPath expression (supported subset, see class description)
+	 */
+	private static final class JsonPath
+	{
+		/*
+		 * Path steps: String (member name), Integer (array index) or null (wildcard)
+		 */
+		private final List<Object> steps;
+		private final String expression;
+
+		private JsonPath(final String expression) throws IllegalArgumentException
+		{
+			if (!expression.startsWith("$"))
+			{
+				throw new IllegalArgumentException("Invalid JSONPath '" + expression + "': must start with '$'");
+			}
+
+			final List<Object> mutableSteps = new ArrayList<>();
+			int i = 1;
+			while (i < expression.length())
+			{
+				final char c = expression.charAt(i);
+				if (c == '.')
+				{
+					int end = i + 1;
+					while (end < expression.length() && expression.charAt(end) != '.' && expression.charAt(end) != '[')
+					{
+						end++;
+					}
+
+					final String name = expression.substring(i + 1, end);
+					if (name.isEmpty())
+					{
+						throw new IllegalArgumentException("Invalid JSONPath '" + expression + "': empty member name at position " + i);
+					}
+
+					mutableSteps.add(name.equals("*") ? null : name);
+					i = end;
+				}
+				else if (c == '[')
+				{
+					final int end = expression.indexOf(']', i);
+					if (end < 0)
+					{
+						throw new IllegalArgumentException("Invalid JSONPath '" + expression + "': missing ']' after position " + i);
+					}
+
+					final String selector = expression.substring(i + 1, end).trim();
+					if (selector.equals("*"))
+					{
+						mutableSteps.add(null);
+					}
+					else if (selector.length() >= 2 && (selector.startsWith("'") && selector.endsWith("'") || selector.startsWith("\"") && selector.endsWith("\"")))
+					{
+						mutableSteps.add(selector.substring(1, selector.length() - 1));
+					}
+					else
+					{
+						try
+						{
+							mutableSteps.add(Integer.valueOf(selector));
+						}
+						catch (final NumberFormatException e)
+						{
+							throw new IllegalArgumentException("Invalid JSONPath '" + expression + "': unsupported selector [" + selector + "]", e);
+						}
+					}
+
+					i = end + 1;
+				}
+				else
+				{
+					throw new IllegalArgumentException("Invalid JSONPath '" + expression + "': unexpected character '" + c + "' at position " + i);
+				}
+			}
+
+			this.steps = Collections.unmodifiableList(mutableSteps);
+			this.expression = expression;
+		}
+
+		private static void addChildren(final Object node, final Object step, final List<Object> children)
+		{
+			if (node instanceof JSONObject jsonObject)
+			{
+				if (step == null)
+				{
+					for (final String name : jsonObject.keySet())
+					{
+						children.add(jsonObject.get(name));
+					}
+				}
+				else if (step instanceof String name && jsonObject.has(name))
+				{
+					children.add(jsonObject.get(name));
+				}
+			}
+			else if (node instanceof JSONArray jsonArray)
+			{
+				if (step == null)
+				{
+					jsonArray.forEach(children::add);
+				}
+				else if (step instanceof Integer index && index >= 0 && index < jsonArray.length())
+				{
+					children.add(jsonArray.get(index));
+				}
+			}
+		}
+
+		/*
+		 * Returns the selected leaf values (items of a selected array included), except nulls
+		 */
+		private List<Object> evaluate(final JSONObject record)
+		{
+			List<Object> nodes = List.of(record);
+			for (final Object step : steps)
+			{
+				final List<Object> children = new ArrayList<>();
+				for (final Object node : nodes)
+				{
+					addChildren(node, step, children);
+				}
+
+				nodes = children;
+			}
+
+			final List<Object> values = new ArrayList<>(nodes.size());
+			for (final Object node : nodes)
+			{
+				if (node instanceof JSONArray jsonArray)
+				{
+					jsonArray.forEach(values::add);
+				}
+				else
+				{
+					values.add(node);
+				}
+			}
+
+			values.removeIf(value -> value == null || JSONObject.NULL.equals(value));
+			return values;
+		}
+
+		@Override
+		public String toString()
+		{
+			return expression;
+		}
+	}
+
+	private record MappedAttribute(AttributeValueFactory<?> valueFactory, JsonPath jsonPath)
+	{
+	}
+
+	private final String recordUrlTemplate;
+	private final Optional<URI> batchUrl;
+	private final RecordKeyAttribute recordKeyAttribute;
+	private final Map<AttributeFqn, MappedAttribute> mappedAttributes;
+	private final Set<AttributeDesignatorType> providedAttributes;
+	private final ExecutorService httpClientExecutor;
+	private final HttpClient httpClient;
+	private final Duration requestTimeout;
+	private final Optional<ConcurrentMap<String, CompletableFuture<JSONObject>>> inFlightFetches;
+	private final Optional<Cache<String, JSONObject>> recordCache;
+	private final String recordsContextKey;
+	private final AttributeSource attributeSource;
+
+	private HttpJsonAttributeProvider(final String id, final String recordUrlTemplate, final Optional<URI> batchUrl, final AttributeDesignatorType keyAttribute, final Datatype<?> keyDatatype,
+	        final NamedAttributeProvider keyAttributeProvider, final Map<AttributeFqn, MappedAttribute> mappedAttributes, final Set<AttributeDesignatorType> providedAttributes,
+	        final Duration connectTimeout, final Duration requestTimeout, final boolean coalescing, final int cacheMaxSize, final Duration cacheTtl)
+	{
+		super(id);
+		this.recordUrlTemplate = recordUrlTemplate;
+		this.batchUrl = batchUrl;
+		this.recordKeyAttribute = new RecordKeyAttribute(keyAttribute, keyDatatype, keyAttributeProvider);
+		this.mappedAttributes = mappedAttributes;
+		this.providedAttributes = providedAttributes;
+		/*
+		 * The client keeps the connections alive in its pool (size set with system property jdk.httpclient.connectionPoolSize, unlimited by default). Its executor is shut down on close, since the
+		 * HttpClient cannot be closed itself (Java 17).
+		 */
+		this.httpClientExecutor = Executors.newCachedThreadPool(runnable -> {
+			final Thread thread = new Thread(runnable, "authzforce-http-json-attribute-provider-" + id);
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.httpClient = HttpClient.newBuilder().connectTimeout(connectTimeout).followRedirects(HttpClient.Redirect.NORMAL).executor(httpClientExecutor).build();
+		this.requestTimeout = requestTimeout;
+		this.inFlightFetches = coalescing ? Optional.of(new ConcurrentHashMap<>()) : Optional.empty();
+		if (cacheMaxSize > 0)
+		{
+			final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().maximumSize(cacheMaxSize);
+			if (!cacheTtl.isZero())
+			{
+				cacheBuilder.expireAfterWrite(cacheTtl);
+			}
+
+			this.recordCache = Optional.of(cacheBuilder.build());
+		}
+		else
+		{
+			this.recordCache = Optional.empty();
+		}
+
+		this.recordsContextKey = HttpJsonAttributeProvider.class.getName() + "#" + id + ".records";
+		this.attributeSource = AttributeSources.newCustomSource(id);
+	}
+
+	/**
+	 * Creates a factory of HTTP/JSON Attribute Providers
+	 *
+	 * @param id
+	 *            ID of the created Attribute Providers
+	 * @param recordUrl
+	 *            URL of the record of a given key, where {@value #KEY_PLACEHOLDER} is replaced with the URL-encoded key, e.g. {@code https://directory.example.com/users/{key}}
+	 * @param batchUrl
+	 *            URL of the batch endpoint (HTTP POST), if any
+	 * @param keyAttribute
+	 *            attribute whose (single) value is the key of the record to fetch (if MustBePresent is false and the attribute is missing, all the provided attributes are empty)
+	 * @param mappings
+	 *            mappings of the record to the provided attributes
+	 * @param connectTimeout
+	 *            HTTP connection timeout
+	 * @param requestTimeout
+	 *            HTTP request timeout (until the response is received)
+	 * @param coalescing
+	 *            true iff concurrent lookups of the same key are coalesced into a single HTTP call
+	 * @param cacheMaxSize
+	 *            maximum number of cached records; 0 disables the cache
+	 * @param cacheTtl
+	 *            time-to-live of cached records; {@link Duration#ZERO} means no expiration
+	 * @return Attribute Provider factory
+	 * @throws IllegalArgumentException
+	 *             invalid arguments, e.g. invalid URL or JSONPath
+	 */
+	public static CloseableNamedAttributeProvider.DependencyAwareFactory newFactory(final String id, final String recordUrl, final Optional<String> batchUrl, final AttributeDesignatorType keyAttribute,
+	        final List<AttributeMapping> mappings, final Duration connectTimeout, final Duration requestTimeout, final boolean coalescing, final int cacheMaxSize, final Duration cacheTtl)
+	        throws IllegalArgumentException
+	{
+		if (id == null)
+		{
+			throw NULL_ID_ARGUMENT_EXCEPTION;
+		}
+
+		if (recordUrl == null || !recordUrl.contains(KEY_PLACEHOLDER))
+		{
+			throw new IllegalArgumentException("Invalid record URL of HTTP/JSON Attribute Provider '" + id + "': " + recordUrl + " (missing " + KEY_PLACEHOLDER + ")");
+		}
+
+		// validate the URL syntax
+		URI.create(recordUrl.replace(KEY_PLACEHOLDER, "key"));
+		final Optional<URI> batchUri = batchUrl.map(URI::create);
+
+		if (keyAttribute == null || keyAttribute.getCategory() == null || keyAttribute.getAttributeId() == null || keyAttribute.getDataType() == null)
+		{
+			throw NULL_KEY_ATTRIBUTE_ARGUMENT_EXCEPTION;
+		}
+
+		if (mappings == null || mappings.isEmpty())
+		{
+			throw EMPTY_MAPPINGS_ARGUMENT_EXCEPTION;
+		}
+
+		if (connectTimeout == null || connectTimeout.isNegative() || connectTimeout.isZero() || requestTimeout == null || requestTimeout.isNegative() || requestTimeout.isZero())
+		{
+			throw INVALID_TIMEOUTS_ARGUMENT_EXCEPTION;
+		}
+
+		if (cacheMaxSize < 0 || cacheTtl == null || cacheTtl.isNegative())
+		{
+			throw INVALID_CACHE_ARGUMENT_EXCEPTION;
+		}
+
+		final Map<AttributeDesignatorType, JsonPath> jsonPathsByAttribute = new LinkedHashMap<>();
+		for (final AttributeMapping mapping : mappings)
+		{
+			final AttributeDesignatorType attribute = mapping.attribute();
+			final AttributeDesignatorType providedAttribute = new AttributeDesignatorType(attribute.getCategory(), attribute.getAttributeId(), attribute.getDataType(), attribute.getIssuer(), false);
+			if (jsonPathsByAttribute.put(providedAttribute, new JsonPath(mapping.jsonPath())) != null)
+			{
+				throw new IllegalArgumentException("HTTP/JSON Attribute Provider '" + id + "': duplicate mapping of attribute " + AttributeFqns.newInstance(attribute));
+			}
+		}
+
+		final Set<AttributeDesignatorType> providedAttributes = Collections.unmodifiableSet(jsonPathsByAttribute.keySet());
+		return new CloseableNamedAttributeProvider.DependencyAwareFactory()
+		{
+			@Override
+			public Set<AttributeDesignatorType> getDependencies()
+			{
+				return Set.of(keyAttribute);
+			}
+
+			@Override
+			public CloseableNamedAttributeProvider getInstance(final AttributeValueFactoryRegistry attributeValueFactoryRegistry, final NamedAttributeProvider dependencyAttributeProvider)
+			{
+				final AttributeValueFactory<?> keyValueFactory = attributeValueFactoryRegistry.getExtension(keyAttribute.getDataType());
+				if (keyValueFactory == null)
+				{
+					throw new IllegalArgumentException("HTTP/JSON Attribute Provider '" + id + "': unsupported key attribute datatype: " + keyAttribute.getDataType());
+				}
+
+				final Map<AttributeFqn, MappedAttribute> mappedAttributes = HashCollections.newUpdatableMap(jsonPathsByAttribute.size());
+				for (final Map.Entry<AttributeDesignatorType, JsonPath> entry : jsonPathsByAttribute.entrySet())
+				{
+					final AttributeDesignatorType attribute = entry.getKey();
+					final AttributeValueFactory<?> valueFactory = attributeValueFactoryRegistry.getExtension(attribute.getDataType());
+					if (valueFactory == null)
+					{
+						throw new IllegalArgumentException("HTTP/JSON Attribute Provider '" + id + "': unsupported datatype of attribute " + AttributeFqns.newInstance(attribute) + ": "
+						        + attribute.getDataType());
+					}
+
+					mappedAttributes.put(AttributeFqns.newInstance(attribute), new MappedAttribute(valueFactory, entry.getValue()));
+				}
+
+				return new HttpJsonAttributeProvider(id, recordUrl, batchUri, keyAttribute, keyValueFactory.getDatatype(), dependencyAttributeProvider, mappedAttributes, providedAttributes,
+				        connectTimeout, requestTimeout, coalescing, cacheMaxSize, cacheTtl);
+			}
+		};
+	}
+
+	@Override
+	public Set<AttributeDesignatorType> getProvidedAttributes()
+	{
+		return providedAttributes;
+	}
+
+	/*
+	 * Records fetched for the request, shared with the copies of the request context (see EvaluationContextSnapshot), e.g. when this provider is time-limited
+	 */
+	private Map<String, JSONObject> getContextRecords(final EvaluationContext context)
+	{
+		return (Map<String, JSONObject>) EvaluationContextSnapshot.getSharedValues(context).computeIfAbsent(recordsContextKey, key -> new ConcurrentHashMap<>());
+	}
+
+	private HttpResponse<String> send(final HttpRequest httpRequest) throws IndeterminateEvaluationException
+	{
+		final HttpResponse<String> response;
+		try
+		{
+			response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IndeterminateEvaluationException("HTTP/JSON Attribute Provider '" + this + "': interrupted while waiting for response to " + httpRequest.method() + " " + httpRequest.uri(),
+			        XacmlStatusCode.PROCESSING_ERROR.value(), e);
+		}
+		catch (final java.io.IOException e)
+		{
+			throw new IndeterminateEvaluationException("HTTP/JSON Attribute Provider '" + this + "': error sending " + httpRequest.method() + " " + httpRequest.uri(), XacmlStatusCode.PROCESSING_ERROR.value(),
+			        e);
+		}
+
+		final int status = response.statusCode();
+		if (status != 404 && (status < 200 || status >= 300))
+		{
+			throw new IndeterminateEvaluationException("HTTP/JSON Attribute Provider '" + this + "': unexpected response status to " + httpRequest.method() + " " + httpRequest.uri() + ": " + status,
+			        XacmlStatusCode.PROCESSING_ERROR.value());
+		}
+
+		return response;
+	}
+
+	private JSONObject fetchRecord(final String key) throws IndeterminateEvaluationException
+	{
+		final String encodedKey = URLEncoder.encode(key, StandardCharsets.UTF_8).replace("+", "%20");
+		final HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(recordUrlTemplate.replace(KEY_PLACEHOLDER, encodedKey))).timeout(requestTimeout).header("Accept", "application/json").GET()
+		        .build();
+		final HttpResponse<String> response = send(httpRequest);
+		if (response.statusCode() == 404)
+		{
+			LOGGER.debug("HTTP/JSON Attribute Provider '{}': no record for key '{}'", this, key);
+			return EMPTY_RECORD;
+		}
+
+		try
+		{
+			return new JSONObject(response.body());
+		}
+		catch (final JSONException e)
+		{
+			throw new IndeterminateEvaluationException("HTTP/JSON Attribute Provider '" + this + "': invalid JSON object in response to GET " + httpRequest.uri(), XacmlStatusCode.PROCESSING_ERROR.value(),
+			        e);
+		}
+	}
+
+	private JSONObject fetchRecordCoalesced(final String key, final ConcurrentMap<String, CompletableFuture<JSONObject>> inFlightFetches) throws IndeterminateEvaluationException
+	{
+		final CompletableFuture<JSONObject> newFetch = new CompletableFuture<>();
+		final CompletableFuture<JSONObject> inFlightFetch = inFlightFetches.putIfAbsent(key, newFetch);
+		if (inFlightFetch == null)
+		{
+			try
+			{
+				final JSONObject record = fetchRecord(key);
+				newFetch.complete(record);
+				return record;
+			}
+			catch (final IndeterminateEvaluationException | RuntimeException e)
+			{
+				newFetch.completeExceptionally(e);
+				throw e;
+			}
+			finally
+			{
+				inFlightFetches.remove(key, newFetch);
+			}
+		}
+
+		// same key being fetched by another thread, wait for its result
+		LOGGER.debug("HTTP/JSON Attribute Provider '{}': lookup of key '{}' coalesced with the one in progress", this, key);
+		try
+		{
+			return inFlightFetch.get();
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IndeterminateEvaluationException("HTTP/JSON Attribute Provider '" + this + "': interrupted while waiting for record of key '" + key + "'", XacmlStatusCode.PROCESSING_ERROR.value(), e);
+		}
+		catch (final ExecutionException e)
+		{
+			if (e.getCause() instanceof IndeterminateEvaluationException iee)
+			{
+				throw iee;
+			}
+
+			throw new IndeterminateEvaluationException("HTTP/JSON Attribute Provider '" + this + "': error fetching record of key '" + key + "'", XacmlStatusCode.PROCESSING_ERROR.value(), e.getCause());
+		}
+	}
+
+	private JSONObject getRecord(final String key, final EvaluationContext context) throws IndeterminateEvaluationException
+	{
+		final Map<String, JSONObject> contextRecords = getContextRecords(context);
+		final JSONObject contextRecord = contextRecords.get(key);
+		if (contextRecord != null)
+		{
+			return contextRecord;
+		}
+
+		final JSONObject cachedRecord = recordCache.map(cache -> cache.getIfPresent(key)).orElse(null);
+		final JSONObject record;
+		if (cachedRecord != null)
+		{
+			record = cachedRecord;
+		}
+		else
+		{
+			record = inFlightFetches.isPresent() ? fetchRecordCoalesced(key, inFlightFetches.get()) : fetchRecord(key);
+			recordCache.ifPresent(cache -> cache.put(key, record));
+		}
+
+		contextRecords.put(key, record);
+		return record;
+	}
+
+	private <AV extends AttributeValue> AttributeBag<AV> getAttribute(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final JSONObject record)
+	        throws IndeterminateEvaluationException
+	{
+		final MappedAttribute mappedAttribute = mappedAttributes.get(attributeFqn);
+		if (mappedAttribute == null)
+		{
+			throw new IndeterminateEvaluationException("HTTP/JSON Attribute Provider '" + this + "': unsupported attribute " + attributeFqn, XacmlStatusCode.PROCESSING_ERROR.value());
+		}
+
+		if (!mappedAttribute.valueFactory().getDatatype().equals(datatype))
+		{
+			throw new IndeterminateEvaluationException("HTTP/JSON Attribute Provider '" + this + "': requested datatype (" + datatype + ") of attribute " + attributeFqn + " != provided ("
+			        + mappedAttribute.valueFactory().getDatatype() + ")", XacmlStatusCode.MISSING_ATTRIBUTE.value());
+		}
+
+		final List<Object> jsonValues = mappedAttribute.jsonPath().evaluate(record);
+		final List<AV> values = new ArrayList<>(jsonValues.size());
+		for (final Object jsonValue : jsonValues)
+		{
+			if (jsonValue instanceof JSONObject || jsonValue instanceof JSONArray)
+			{
+				throw new IndeterminateEvaluationException("HTTP/JSON Attribute Provider '" + this + "': JSONPath " + mappedAttribute.jsonPath() + " of attribute " + attributeFqn
+				        + " selects a JSON object/array instead of a primitive value", XacmlStatusCode.SYNTAX_ERROR.value());
+			}
+
+			final AttributeValue value;
+			try
+			{
+				value = mappedAttribute.valueFactory().getInstance(List.of(String.valueOf(jsonValue)), Map.of(), Optional.empty());
+			}
+			catch (final IllegalArgumentException e)
+			{
+				throw new IndeterminateEvaluationException("HTTP/JSON Attribute Provider '" + this + "': invalid value of attribute " + attributeFqn + ": " + jsonValue, XacmlStatusCode.SYNTAX_ERROR.value(),
+				        e);
+			}
+
+			// datatype of the value factory checked above
+			values.add((AV) value);
+		}
+
+		return Bags.newAttributeBag(datatype, values, attributeSource);
+	}
+
+	@Override
+	public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context, final Optional<EvaluationContext> mdpContext)
+	        throws IndeterminateEvaluationException
+	{
+		final String key = recordKeyAttribute.getKey(context, mdpContext, "HTTP/JSON Attribute Provider", this);
+		return getAttribute(attributeFqn, datatype, key == null ? EMPTY_RECORD : getRecord(key, context));
+	}
+
+	/*
+	 * Fetches the records of the given keys with one call to the batch endpoint
+	 */
+	private Map<String, JSONObject> fetchRecords(final URI batchUri, final Set<String> keys) throws IndeterminateEvaluationException
+	{
+		final HttpRequest httpRequest = HttpRequest.newBuilder(batchUri).timeout(requestTimeout).header("Accept", "application/json").header("Content-Type", "application/json")
+		        .POST(HttpRequest.BodyPublishers.ofString(new JSONArray(keys).toString(), StandardCharsets.UTF_8)).build();
+		final HttpResponse<String> response = send(httpRequest);
+		final Map<String, JSONObject> records = HashCollections.newUpdatableMap(keys.size());
+		final JSONObject jsonRecords;
+		try
+		{
+			jsonRecords = response.statusCode() == 404 ? EMPTY_RECORD : new JSONObject(response.body());
+			for (final String key : keys)
+			{
+				final JSONObject record = jsonRecords.optJSONObject(key);
+				records.put(key, record == null ? EMPTY_RECORD : record);
+			}
+		}
+		catch (final JSONException e)
+		{
+			throw new IndeterminateEvaluationException("HTTP/JSON Attribute Provider '" + this + "': invalid JSON object in response to POST " + batchUri, XacmlStatusCode.PROCESSING_ERROR.value(), e);
+		}
+
+		LOGGER.debug("HTTP/JSON Attribute Provider '{}': fetched {} records in batch", this, records.size());
+		return records;
+	}
+
+	@Override
+	public <AV extends AttributeValue> List<AttributeBag<AV>> getAll(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final List<EvaluationContext> contexts, final EvaluationContext mdpContext)
+	        throws IndeterminateEvaluationException
+	{
+		final Optional<EvaluationContext> optMdpContext = Optional.of(mdpContext);
+		if (batchUrl.isEmpty())
+		{
+			final List<AttributeBag<AV>> results = new ArrayList<>(contexts.size());
+			for (final EvaluationContext context : contexts)
+			{
+				results.add(get(attributeFqn, datatype, context, optMdpContext));
+			}
+
+			return results;
+		}
+
+		/*
+		 * Keys of the records neither in context nor in cache
+		 */
+		final List<String> keys = new ArrayList<>(contexts.size());
+		final Set<String> keysToFetch = new LinkedHashSet<>();
+		for (final EvaluationContext context : contexts)
+		{
+			final String key = recordKeyAttribute.getKey(context, optMdpContext, "HTTP/JSON Attribute Provider", this);
+			keys.add(key);
+			if (key != null && !getContextRecords(context).containsKey(key) && recordCache.map(cache -> cache.getIfPresent(key) == null).orElse(true))
+			{
+				keysToFetch.add(key);
+			}
+		}
+
+		final Map<String, JSONObject> fetchedRecords = keysToFetch.isEmpty() ? Map.of() : fetchRecords(batchUrl.get(), keysToFetch);
+		recordCache.ifPresent(cache -> cache.putAll(fetchedRecords));
+		final List<AttributeBag<AV>> results = new ArrayList<>(contexts.size());
+		for (int i = 0; i < contexts.size(); i++)
+		{
+			final String key = keys.get(i);
+			final JSONObject record;
+			if (key == null)
+			{
+				record = EMPTY_RECORD;
+			}
+			else
+			{
+				final JSONObject fetchedRecord = fetchedRecords.get(key);
+				if (fetchedRecord == null)
+				{
+					record = getRecord(key, contexts.get(i));
+				}
+				else
+				{
+					record = fetchedRecord;
+					// other attributes of the same record in the same request
+					getContextRecords(contexts.get(i)).put(key, fetchedRecord);
+				}
+			}
+
+			results.add(getAttribute(attributeFqn, datatype, record));
+		}
+
+		return results;
+	}
+
+	@Override
+	public void close()
+	{
+		recordCache.ifPresent(Cache::invalidateAll);
+		httpClientExecutor.shutdownNow();
+	}
+
+	/**
+	 * {@link HttpJsonAttributeProvider} factory
+	 */
+	public static final class Factory extends CloseableNamedAttributeProvider.FactoryBuilder<HttpJsonAttributeProviderDescriptor>
+	{
+		@Override
+		public Class<HttpJsonAttributeProviderDescriptor> getJaxbClass()
+		{
+			return HttpJsonAttributeProviderDescriptor.class;
+		}
+
+		@Override
+		public CloseableNamedAttributeProvider.DependencyAwareFactory getInstance(final HttpJsonAttributeProviderDescriptor conf, final EnvironmentProperties environmentProperties)
+		{
+			final List<AttributeMapping> mappings = new ArrayList<>(conf.getAttributes().size());
+			for (final HttpJsonAttributeMapping jaxbMapping : conf.getAttributes())
+			{
+				mappings.add(new AttributeMapping(new AttributeDesignatorType(jaxbMapping.getCategory(), jaxbMapping.getAttributeId(), jaxbMapping.getDataType(), jaxbMapping.getIssuer(), false),
+				        jaxbMapping.getJsonPath()));
+			}
+
+			return newFactory(conf.getId(), environmentProperties.replacePlaceholders(conf.getUrl()), Optional.ofNullable(conf.getBatchUrl()).map(environmentProperties::replacePlaceholders),
+			        conf.getKeyAttribute(), mappings, Duration.ofMillis(conf.getConnectTimeoutMillis()), Duration.ofMillis(conf.getRequestTimeoutMillis()), conf.isCoalescing(),
+			        conf.getCacheMaxSize(), Duration.ofSeconds(conf.getCacheTtlSeconds()));
+		}
+	}
+}
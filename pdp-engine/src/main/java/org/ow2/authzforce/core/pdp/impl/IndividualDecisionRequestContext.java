@@ -83,6 +83,14 @@ public final class IndividualDecisionRequestContext extends BaseEvaluationContex
 		}
 	}
 
+	/*
+	 * Extra contents by attribute category, for copying the context (see EvaluationContextSnapshot)
+	 */
+	ImmutableMap<String, XdmNode> getExtraContentsByAttributeCategory()
+	{
+		return extraContentsByAttributeCategory;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public XdmNode getAttributesContent(final String category)
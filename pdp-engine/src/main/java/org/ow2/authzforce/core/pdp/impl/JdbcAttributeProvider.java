@@ -0,0 +1,581 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.value.*;
+import org.ow2.authzforce.core.xmlns.pdp.JdbcAttributeMapping;
+import org.ow2.authzforce.core.xmlns.pdp.JdbcAttributeProviderDescriptor;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import java.sql.*;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Attribute Provider fetching attributes from a relational database: the rows returned by a parameterized SQL query - the parameter being the value of a key attribute (e.g. subject-id) - are mapped
+ * to the provided attributes by column, each row providing one value per column (SQL NULLs ignored). All the provided attributes are fetched with the same query, once per request and key.
+ * <p>
+ * The connections are borrowed from a {@link DataSource}, which should be pooled (e.g. container-managed DataSource). The SQL queries are generated and prepared once on initialization, to fail fast
+ * if invalid; then they are prepared on the connection borrowed for each lookup, which is cheap with the statement cache of the pool or JDBC driver. If a batch query is configured, the records for the
+ * Individual Decision requests of a Multiple Decision request are fetched with IN-list queries (see {@link BatchNamedAttributeProvider}): {@value #KEYS_PLACEHOLDER} in the batch query is replaced with
+ * the list of parameters, e.g. {@code SELECT user_id, role FROM user_roles WHERE user_id IN ({keys})}, and the key column identifies the record of each row. The number of parameters is rounded up to a
+ * power of two (the last key being repeated) to limit the number of distinct statements.
+ *
+ * @version $Id: $
+ */
+public final class JdbcAttributeProvider extends BaseNamedAttributeProvider implements BatchNamedAttributeProvider
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(JdbcAttributeProvider.class);
+
+	/**
+	 * Placeholder for the IN-list of parameters in the batch query
+	 */
+	public static final String KEYS_PLACEHOLDER = "{keys}";
+
+	private static final IllegalArgumentException NULL_ID_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined JDBC Attribute Provider ID");
+	private static final IllegalArgumentException NULL_DATASOURCE_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined JDBC Attribute Provider DataSource");
+	private static final IllegalArgumentException NULL_QUERY_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined/empty JDBC Attribute Provider query");
+	private static final IllegalArgumentException INVALID_BATCH_QUERY_ARGUMENT_EXCEPTION = new IllegalArgumentException(
+	        "Invalid JDBC Attribute Provider batch query: missing " + KEYS_PLACEHOLDER + " or key column");
+	private static final IllegalArgumentException NULL_KEY_ATTRIBUTE_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined JDBC Attribute Provider key attribute");
+	private static final IllegalArgumentException EMPTY_MAPPINGS_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined/empty JDBC Attribute Provider attribute mappings");
+	private static final IllegalArgumentException INVALID_LIMITS_ARGUMENT_EXCEPTION = new IllegalArgumentException(
+	        "Invalid JDBC Attribute Provider maxBatchSize/queryTimeout: expected maxBatchSize > 0 and queryTimeout >= 0");
+
+	/*
+	 * Record of keys without row
+	 */
+	private static final Map<String, List<String>> EMPTY_RECORD = Map.of();
+
+	/*
+	 * xs:time lexical representation: seconds always present (unlike LocalTime#toString()), fraction of second only if non-zero
+	 */
+	private static final DateTimeFormatter XML_TIME_FORMATTER = new DateTimeFormatterBuilder().appendPattern("HH:mm:ss").appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true).toFormatter();
+
+	/*
+	 * xs:dateTime lexical representation, without time zone
+	 */
+	private static final DateTimeFormatter XML_DATE_TIME_FORMATTER = new DateTimeFormatterBuilder().append(DateTimeFormatter.ISO_LOCAL_DATE).appendLiteral('T').append(XML_TIME_FORMATTER)
+	        .toFormatter();
+
+	/**
+	 * Mapping of a column of the query result to an attribute
+	 *
+	 * @param attribute
+	 *            attribute name and datatype (MustBePresent ignored)
+	 * @param column
+	 *            column label in the query result
+	 */
+	public record AttributeMapping(AttributeDesignatorType attribute, String column)
+	{
+		/**
+		 * Creates the mapping
+		 *
+		 * @throws IllegalArgumentException
+		 *             if {@code attribute} or {@code column} undefined
+		 */
+		public AttributeMapping
+		{
+			if (attribute == null || attribute.getCategory() == null || attribute.getAttributeId() == null || attribute.getDataType() == null || column == null || column.isEmpty())
+			{
+				throw new IllegalArgumentException("Invalid JDBC attribute mapping: undefined attribute (Category, AttributeId or DataType) or column");
+			}
+		}
+	}
+
+	private record MappedAttribute(AttributeValueFactory<?> valueFactory, String column)
+	{
+	}
+
+	private final DataSource dataSource;
+	private final String query;
+	private final Optional<String> keyColumn;
+	/*
+	 * Batch queries by IN-list size exponent (list of 2^i parameters), empty if no batch query
+	 */
+	private final List<String> batchQueries;
+	private final int maxBatchSize;
+	private final int queryTimeoutSeconds;
+	private final RecordKeyAttribute recordKeyAttribute;
+	private final Map<AttributeFqn, MappedAttribute> mappedAttributes;
+	private final Set<String> columns;
+	private final Set<AttributeDesignatorType> providedAttributes;
+	private final String recordsContextKey;
+	private final AttributeSource attributeSource;
+
+	private JdbcAttributeProvider(final String id, final DataSource dataSource, final String query, final Optional<String> batchQuery, final Optional<String> keyColumn, final int maxBatchSize,
+	        final int queryTimeoutSeconds, final AttributeDesignatorType keyAttribute, final Datatype<?> keyDatatype, final NamedAttributeProvider keyAttributeProvider,
+	        final Map<AttributeFqn, MappedAttribute> mappedAttributes, final Set<AttributeDesignatorType> providedAttributes)
+	{
+		super(id);
+		this.dataSource = dataSource;
+		this.query = query;
+		this.keyColumn = keyColumn;
+		// power of two
+		this.maxBatchSize = Integer.highestOneBit(maxBatchSize);
+		if (batchQuery.isPresent())
+		{
+			final List<String> mutableBatchQueries = new ArrayList<>();
+			for (int size = 1; size <= this.maxBatchSize; size *= 2)
+			{
+				mutableBatchQueries.add(batchQuery.get().replace(KEYS_PLACEHOLDER, String.join(", ", Collections.nCopies(size, "?"))));
+			}
+
+			this.batchQueries = List.copyOf(mutableBatchQueries);
+		}
+		else
+		{
+			this.batchQueries = List.of();
+		}
+
+		this.queryTimeoutSeconds = queryTimeoutSeconds;
+		this.recordKeyAttribute = new RecordKeyAttribute(keyAttribute, keyDatatype, keyAttributeProvider);
+		this.mappedAttributes = mappedAttributes;
+		this.columns = Set.copyOf(mappedAttributes.values().stream().map(MappedAttribute::column).toList());
+		this.providedAttributes = providedAttributes;
+		this.recordsContextKey = JdbcAttributeProvider.class.getName() + "#" + id + ".records";
+		this.attributeSource = AttributeSources.newCustomSource(id);
+	}
+
+	/*
+	 * Prepares the queries once to check them (requires a database connection)
+	 */
+	private void checkQueries() throws IllegalArgumentException
+	{
+		try (Connection connection = dataSource.getConnection())
+		{
+			connection.prepareStatement(query).close();
+			for (final String batchQuery : batchQueries)
+			{
+				connection.prepareStatement(batchQuery).close();
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new IllegalArgumentException("JDBC Attribute Provider '" + this + "': invalid query or database unavailable", e);
+		}
+	}
+
+	/**
+	 * Creates a factory of JDBC Attribute Providers
+	 *
+	 * @param id
+	 *            ID of the created Attribute Providers
+	 * @param dataSource
+	 *            (pooled) DataSource
+	 * @param query
+	 *            SQL query with a single parameter ({@code ?}) for the key, e.g. {@code SELECT role, department FROM users WHERE user_id = ?}
+	 * @param batchQuery
+	 *            SQL query with {@value #KEYS_PLACEHOLDER} for the IN-list of keys, if any
+	 * @param keyColumn
+	 *            label of the column holding the key in the batch query result (required if {@code batchQuery} is present)
+	 * @param maxBatchSize
+	 *            maximum number of keys per batch query (rounded down to a power of two)
+	 * @param queryTimeoutSeconds
+	 *            query timeout in seconds; 0 means no timeout
+	 * @param checkQueries
+	 *            true iff the queries must be checked (prepared) against the database when the Attribute Provider is created, in which case the database must be available at that time;
+	 *            else invalid queries are only reported (as Indeterminate) when first executed
+	 * @param keyAttribute
+	 *            attribute whose (single) value is the key (if MustBePresent is false and the attribute is missing, all the provided attributes are empty)
+	 * @param mappings
+	 *            mappings of the result columns to the provided attributes
+	 * @return Attribute Provider factory
+	 * @throws IllegalArgumentException
+	 *             invalid arguments
+	 */
+	public static CloseableNamedAttributeProvider.DependencyAwareFactory newFactory(final String id, final DataSource dataSource, final String query, final Optional<String> batchQuery,
+	        final Optional<String> keyColumn, final int maxBatchSize, final int queryTimeoutSeconds, final boolean checkQueries, final AttributeDesignatorType keyAttribute,
+	        final List<AttributeMapping> mappings)
+	        throws IllegalArgumentException
+	{
+		if (id == null)
+		{
+			throw NULL_ID_ARGUMENT_EXCEPTION;
+		}
+
+		if (dataSource == null)
+		{
+			throw NULL_DATASOURCE_ARGUMENT_EXCEPTION;
+		}
+
+		if (query == null || query.isBlank())
+		{
+			throw NULL_QUERY_ARGUMENT_EXCEPTION;
+		}
+
+		if (batchQuery.isPresent() && (!batchQuery.get().contains(KEYS_PLACEHOLDER) || keyColumn.isEmpty()))
+		{
+			throw INVALID_BATCH_QUERY_ARGUMENT_EXCEPTION;
+		}
+
+		if (maxBatchSize < 1 || queryTimeoutSeconds < 0)
+		{
+			throw INVALID_LIMITS_ARGUMENT_EXCEPTION;
+		}
+
+		if (keyAttribute == null || keyAttribute.getCategory() == null || keyAttribute.getAttributeId() == null || keyAttribute.getDataType() == null)
+		{
+			throw NULL_KEY_ATTRIBUTE_ARGUMENT_EXCEPTION;
+		}
+
+		if (mappings == null || mappings.isEmpty())
+		{
+			throw EMPTY_MAPPINGS_ARGUMENT_EXCEPTION;
+		}
+
+		final Map<AttributeDesignatorType, String> columnsByAttribute = new LinkedHashMap<>();
+		for (final AttributeMapping mapping : mappings)
+		{
+			final AttributeDesignatorType attribute = mapping.attribute();
+			final AttributeDesignatorType providedAttribute = new AttributeDesignatorType(attribute.getCategory(), attribute.getAttributeId(), attribute.getDataType(), attribute.getIssuer(), false);
+			if (columnsByAttribute.put(providedAttribute, mapping.column()) != null)
+			{
+				throw new IllegalArgumentException("JDBC Attribute Provider '" + id + "': duplicate mapping of attribute " + AttributeFqns.newInstance(attribute));
+			}
+		}
+
+		final Set<AttributeDesignatorType> providedAttributes = Collections.unmodifiableSet(columnsByAttribute.keySet());
+		return new CloseableNamedAttributeProvider.DependencyAwareFactory()
+		{
+			@Override
+			public Set<AttributeDesignatorType> getDependencies()
+			{
+				return Set.of(keyAttribute);
+			}
+
+			@Override
+			public CloseableNamedAttributeProvider getInstance(final AttributeValueFactoryRegistry attributeValueFactoryRegistry, final NamedAttributeProvider dependencyAttributeProvider)
+			{
+				final AttributeValueFactory<?> keyValueFactory = attributeValueFactoryRegistry.getExtension(keyAttribute.getDataType());
+				if (keyValueFactory == null)
+				{
+					throw new IllegalArgumentException("JDBC Attribute Provider '" + id + "': unsupported key attribute datatype: " + keyAttribute.getDataType());
+				}
+
+				final Map<AttributeFqn, MappedAttribute> mappedAttributes = HashCollections.newUpdatableMap(columnsByAttribute.size());
+				for (final Map.Entry<AttributeDesignatorType, String> entry : columnsByAttribute.entrySet())
+				{
+					final AttributeDesignatorType attribute = entry.getKey();
+					final AttributeValueFactory<?> valueFactory = attributeValueFactoryRegistry.getExtension(attribute.getDataType());
+					if (valueFactory == null)
+					{
+						throw new IllegalArgumentException("JDBC Attribute Provider '" + id + "': unsupported datatype of attribute " + AttributeFqns.newInstance(attribute) + ": "
+						        + attribute.getDataType());
+					}
+
+					mappedAttributes.put(AttributeFqns.newInstance(attribute), new MappedAttribute(valueFactory, entry.getValue()));
+				}
+
+				final JdbcAttributeProvider provider = new JdbcAttributeProvider(id, dataSource, query, batchQuery, keyColumn, maxBatchSize, queryTimeoutSeconds, keyAttribute,
+				        keyValueFactory.getDatatype(), dependencyAttributeProvider, mappedAttributes, providedAttributes);
+				if (checkQueries)
+				{
+					provider.checkQueries();
+				}
+
+				return provider;
+			}
+		};
+	}
+
+	@Override
+	public Set<AttributeDesignatorType> getProvidedAttributes()
+	{
+		return providedAttributes;
+	}
+
+	/*
+	 * Records fetched for the request, shared with the copies of the request context (see EvaluationContextSnapshot), e.g. when this provider is time-limited
+	 */
+	private Map<String, Map<String, List<String>>> getContextRecords(final EvaluationContext context)
+	{
+		return (Map<String, Map<String, List<String>>>) EvaluationContextSnapshot.getSharedValues(context).computeIfAbsent(recordsContextKey, key -> new ConcurrentHashMap<>());
+	}
+
+	/*
+	 * Lexical representation of a column value, in XML schema format for booleans and dates/times
+	 */
+	private static String toString(final Object columnValue)
+	{
+		if (columnValue instanceof Timestamp timestamp)
+		{
+			return XML_DATE_TIME_FORMATTER.format(timestamp.toLocalDateTime());
+		}
+
+		if (columnValue instanceof java.sql.Date date)
+		{
+			return date.toLocalDate().toString();
+		}
+
+		if (columnValue instanceof Time time)
+		{
+			return XML_TIME_FORMATTER.format(time.toLocalTime());
+		}
+
+		return columnValue.toString();
+	}
+
+	/*
+	 * Adds the values of the current row to a record
+	 */
+	private void addRow(final ResultSet resultSet, final Map<String, List<String>> record) throws SQLException
+	{
+		for (final String column : columns)
+		{
+			final Object columnValue = resultSet.getObject(column);
+			if (columnValue != null)
+			{
+				record.computeIfAbsent(column, k -> new ArrayList<>()).add(toString(columnValue));
+			}
+		}
+	}
+
+	private Map<String, List<String>> fetchRecord(final String key) throws IndeterminateEvaluationException
+	{
+		final Map<String, List<String>> record = new HashMap<>();
+		try (Connection connection = dataSource.getConnection(); PreparedStatement statement = connection.prepareStatement(query))
+		{
+			statement.setQueryTimeout(queryTimeoutSeconds);
+			statement.setString(1, key);
+			try (ResultSet resultSet = statement.executeQuery())
+			{
+				while (resultSet.next())
+				{
+					addRow(resultSet, record);
+				}
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new IndeterminateEvaluationException("JDBC Attribute Provider '" + this + "': error executing query for key '" + key + "'", XacmlStatusCode.PROCESSING_ERROR.value(), e);
+		}
+
+		return record;
+	}
+
+	/*
+	 * Fetches the records of the given keys with IN-list queries
+	 */
+	private Map<String, Map<String, List<String>>> fetchRecords(final List<String> keys) throws IndeterminateEvaluationException
+	{
+		assert !batchQueries.isEmpty() && keyColumn.isPresent();
+		final Map<String, Map<String, List<String>>> records = HashCollections.newUpdatableMap(keys.size());
+		try (Connection connection = dataSource.getConnection())
+		{
+			for (int offset = 0; offset < keys.size(); offset += maxBatchSize)
+			{
+				final List<String> batchKeys = keys.subList(offset, Math.min(offset + maxBatchSize, keys.size()));
+				// number of parameters = smallest power of two >= batchKeys.size()
+				final int sizeExponent = 32 - Integer.numberOfLeadingZeros(batchKeys.size() - 1);
+				try (PreparedStatement statement = connection.prepareStatement(batchQueries.get(sizeExponent)))
+				{
+					statement.setQueryTimeout(queryTimeoutSeconds);
+					for (int i = 0; i < 1 << sizeExponent; i++)
+					{
+						statement.setString(i + 1, batchKeys.get(Math.min(i, batchKeys.size() - 1)));
+					}
+
+					try (ResultSet resultSet = statement.executeQuery())
+					{
+						while (resultSet.next())
+						{
+							final String key = resultSet.getString(keyColumn.get());
+							if (key != null)
+							{
+								addRow(resultSet, records.computeIfAbsent(key, k -> new HashMap<>()));
+							}
+						}
+					}
+				}
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new IndeterminateEvaluationException("JDBC Attribute Provider '" + this + "': error executing batch query for " + keys.size() + " keys", XacmlStatusCode.PROCESSING_ERROR.value(), e);
+		}
+
+		LOGGER.debug("JDBC Attribute Provider '{}': fetched records of {} keys in batch", this, keys.size());
+		return records;
+	}
+
+	private Map<String, List<String>> getRecord(final String key, final EvaluationContext context) throws IndeterminateEvaluationException
+	{
+		final Map<String, Map<String, List<String>>> contextRecords = getContextRecords(context);
+		final Map<String, List<String>> contextRecord = contextRecords.get(key);
+		if (contextRecord != null)
+		{
+			return contextRecord;
+		}
+
+		final Map<String, List<String>> record = fetchRecord(key);
+		contextRecords.put(key, record);
+		return record;
+	}
+
+	private <AV extends AttributeValue> AttributeBag<AV> getAttribute(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final Map<String, List<String>> record)
+	        throws IndeterminateEvaluationException
+	{
+		final MappedAttribute mappedAttribute = mappedAttributes.get(attributeFqn);
+		if (mappedAttribute == null)
+		{
+			throw new IndeterminateEvaluationException("JDBC Attribute Provider '" + this + "': unsupported attribute " + attributeFqn, XacmlStatusCode.PROCESSING_ERROR.value());
+		}
+
+		if (!mappedAttribute.valueFactory().getDatatype().equals(datatype))
+		{
+			throw new IndeterminateEvaluationException("JDBC Attribute Provider '" + this + "': requested datatype (" + datatype + ") of attribute " + attributeFqn + " != provided ("
+			        + mappedAttribute.valueFactory().getDatatype() + ")", XacmlStatusCode.MISSING_ATTRIBUTE.value());
+		}
+
+		final List<String> columnValues = record.getOrDefault(mappedAttribute.column(), List.of());
+		final List<AV> values = new ArrayList<>(columnValues.size());
+		for (final String columnValue : columnValues)
+		{
+			final AttributeValue value;
+			try
+			{
+				value = mappedAttribute.valueFactory().getInstance(List.of(columnValue), Map.of(), Optional.empty());
+			}
+			catch (final IllegalArgumentException e)
+			{
+				throw new IndeterminateEvaluationException("JDBC Attribute Provider '" + this + "': invalid value of attribute " + attributeFqn + ": " + columnValue, XacmlStatusCode.SYNTAX_ERROR.value(), e);
+			}
+
+			// datatype of the value factory checked above
+			values.add((AV) value);
+		}
+
+		return Bags.newAttributeBag(datatype, values, attributeSource);
+	}
+
+	@Override
+	public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context, final Optional<EvaluationContext> mdpContext)
+	        throws IndeterminateEvaluationException
+	{
+		final String key = recordKeyAttribute.getKey(context, mdpContext, "JDBC Attribute Provider", this);
+		return getAttribute(attributeFqn, datatype, key == null ? EMPTY_RECORD : getRecord(key, context));
+	}
+
+	@Override
+	public <AV extends AttributeValue> List<AttributeBag<AV>> getAll(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final List<EvaluationContext> contexts, final EvaluationContext mdpContext)
+	        throws IndeterminateEvaluationException
+	{
+		final Optional<EvaluationContext> optMdpContext = Optional.of(mdpContext);
+		if (batchQueries.isEmpty())
+		{
+			final List<AttributeBag<AV>> results = new ArrayList<>(contexts.size());
+			for (final EvaluationContext context : contexts)
+			{
+				results.add(get(attributeFqn, datatype, context, optMdpContext));
+			}
+
+			return results;
+		}
+
+		final List<String> keys = new ArrayList<>(contexts.size());
+		final Set<String> keysToFetch = new LinkedHashSet<>();
+		for (final EvaluationContext context : contexts)
+		{
+			final String key = recordKeyAttribute.getKey(context, optMdpContext, "JDBC Attribute Provider", this);
+			keys.add(key);
+			if (key != null && !getContextRecords(context).containsKey(key))
+			{
+				keysToFetch.add(key);
+			}
+		}
+
+		final Map<String, Map<String, List<String>>> fetchedRecords = keysToFetch.isEmpty() ? Map.of() : fetchRecords(List.copyOf(keysToFetch));
+		final List<AttributeBag<AV>> results = new ArrayList<>(contexts.size());
+		for (int i = 0; i < contexts.size(); i++)
+		{
+			final String key = keys.get(i);
+			final Map<String, List<String>> record;
+			if (key == null)
+			{
+				record = EMPTY_RECORD;
+			}
+			else if (keysToFetch.contains(key))
+			{
+				record = fetchedRecords.getOrDefault(key, EMPTY_RECORD);
+				// other attributes of the same record in the same request
+				getContextRecords(contexts.get(i)).put(key, record);
+			}
+			else
+			{
+				record = getRecord(key, contexts.get(i));
+			}
+
+			results.add(getAttribute(attributeFqn, datatype, record));
+		}
+
+		return results;
+	}
+
+	@Override
+	public void close()
+	{
+		// the DataSource is managed by the application/container
+	}
+
+	/**
+	 * {@link JdbcAttributeProvider} factory, getting the DataSource from JNDI
+	 */
+	public static final class Factory extends CloseableNamedAttributeProvider.FactoryBuilder<JdbcAttributeProviderDescriptor>
+	{
+		@Override
+		public Class<JdbcAttributeProviderDescriptor> getJaxbClass()
+		{
+			return JdbcAttributeProviderDescriptor.class;
+		}
+
+		@Override
+		public CloseableNamedAttributeProvider.DependencyAwareFactory getInstance(final JdbcAttributeProviderDescriptor conf, final EnvironmentProperties environmentProperties)
+		{
+			final DataSource dataSource;
+			try
+			{
+				dataSource = (DataSource) new InitialContext().lookup(conf.getDataSource());
+			}
+			catch (final NamingException | ClassCastException e)
+			{
+				throw new IllegalArgumentException("JDBC Attribute Provider '" + conf.getId() + "': no DataSource found in JNDI with name: " + conf.getDataSource(), e);
+			}
+
+			final List<AttributeMapping> mappings = new ArrayList<>(conf.getAttributes().size());
+			for (final JdbcAttributeMapping jaxbMapping : conf.getAttributes())
+			{
+				mappings.add(new AttributeMapping(new AttributeDesignatorType(jaxbMapping.getCategory(), jaxbMapping.getAttributeId(), jaxbMapping.getDataType(), jaxbMapping.getIssuer(), false),
+				        jaxbMapping.getColumn()));
+			}
+
+			return newFactory(conf.getId(), dataSource, conf.getQuery(), Optional.ofNullable(conf.getBatchQuery()), Optional.ofNullable(conf.getKeyColumn()), conf.getMaxBatchSize(),
+			        conf.getQueryTimeoutSeconds(), conf.isCheckQueries(), conf.getKeyAttribute(), mappings);
+		}
+	}
+}
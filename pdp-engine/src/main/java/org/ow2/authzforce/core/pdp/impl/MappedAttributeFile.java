@@ -0,0 +1,466 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Precompiled attribute file, memory-mapped read-only by {@link MappedFileAttributeProvider}: records of attribute values by key (e.g. user ID), indexed by an off-heap open-addressing hash table,
+ * so that lookups neither deserialize the file nor hold one Java object per entry on the heap. Each record has a list of values for each field declared in the file header (e.g. "groups", "owner").
+ * <p>
+ * Files are created offline with {@link Writer}, which writes to a temporary file in the same directory and then moves it atomically to the target path, so that the providers reading the file swap
+ * to the new version on their next check without ever seeing a partial file.
+ * <p>
+ * Format (big-endian):
+ * <ul>
+ * <li>Header: magic number, format version, field count, each field name (int length + UTF-8 bytes), slot count (power of two), record count;</li>
+ * <li>Index: slots of (int key hash, int record offset), offset 0 meaning an empty slot, with linear probing and a load factor of at most 1/2;</li>
+ * <li>Records: key (int length + UTF-8 bytes), then for each field: int value count, each value (int length + UTF-8 bytes).</li>
+ * </ul>
+ * Offsets are int, which limits the file size to 2 GB.
+ *
+ * @version $Id: $
+ */
+public final class MappedAttributeFile
+{
+	private static final int MAGIC = 0x415A4D46;
+	private static final int VERSION = 1;
+	private static final int SLOT_SIZE = 8;
+
+	/*
+	 * FNV-1a hash of the key bytes
+	 */
+	private static int hash(final byte[] keyBytes)
+	{
+		int hash = 0x811C9DC5;
+		for (final byte b : keyBytes)
+		{
+			hash ^= b & 0xFF;
+			hash *= 0x01000193;
+		}
+
+		return hash;
+	}
+
+	private final Path path;
+	private final ByteBuffer buffer;
+	private final List<String> fieldNames;
+	private final int slotMask;
+	private final int indexOffset;
+	private final int recordCount;
+
+	private MappedAttributeFile(final Path path, final ByteBuffer buffer, final List<String> fieldNames, final int slotCount, final int indexOffset, final int recordCount)
+	{
+		this.path = path;
+		this.buffer = buffer;
+		this.fieldNames = fieldNames;
+		this.slotMask = slotCount - 1;
+		this.indexOffset = indexOffset;
+		this.recordCount = recordCount;
+	}
+
+	private static String readString(final ByteBuffer buffer, final int offset, final int length)
+	{
+		return StandardCharsets.UTF_8.decode(buffer.slice(offset, length)).toString();
+	}
+
+	/**
+	 * Maps a file in memory (read-only)
+	 *
+	 * @param path
+	 *            file created with {@link Writer}
+	 * @return mapped file
+	 * @throws IOException
+	 *             error reading the file, or invalid file
+	 */
+	public static MappedAttributeFile open(final Path path) throws IOException
+	{
+		final MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			if (channel.size() > Integer.MAX_VALUE)
+			{
+				throw new IOException("Attribute file too big (> 2 GB): " + path);
+			}
+
+			// the mapping remains valid after the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		try
+		{
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+			{
+				throw new IOException("Invalid attribute file (bad magic number or unsupported version): " + path);
+			}
+
+			final int fieldCount = buffer.getInt(8);
+			final List<String> fieldNames = new ArrayList<>(fieldCount);
+			int offset = 12;
+			for (int i = 0; i < fieldCount; i++)
+			{
+				final int length = buffer.getInt(offset);
+				fieldNames.add(readString(buffer, offset + 4, length));
+				offset += 4 + length;
+			}
+
+			final int slotCount = buffer.getInt(offset);
+			final int recordCount = buffer.getInt(offset + 4);
+			if (Integer.bitCount(slotCount) != 1 || recordCount < 0 || recordCount > slotCount / 2 || offset + 8 + (long) slotCount * SLOT_SIZE > buffer.capacity())
+			{
+				throw new IOException("Invalid attribute file (corrupted index): " + path);
+			}
+
+			return new MappedAttributeFile(path, buffer, Collections.unmodifiableList(fieldNames), slotCount, offset + 8, recordCount);
+		}
+		catch (final IndexOutOfBoundsException e)
+		{
+			throw new IOException("Invalid attribute file (truncated): " + path, e);
+		}
+	}
+
+	/**
+	 * Get the path of the file
+	 *
+	 * @return path
+	 */
+	public Path getPath()
+	{
+		return path;
+	}
+
+	/**
+	 * Get the names of the fields of each record
+	 *
+	 * @return field names, in record order
+	 */
+	public List<String> getFieldNames()
+	{
+		return fieldNames;
+	}
+
+	/**
+	 * Get the number of records
+	 *
+	 * @return record count
+	 */
+	public int size()
+	{
+		return recordCount;
+	}
+
+	/*
+	 * Returns the offset of the record of the key, -1 if none
+	 */
+	private int findRecord(final String key)
+	{
+		final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		final int hash = hash(keyBytes);
+		final ByteBuffer wrappedKey = ByteBuffer.wrap(keyBytes);
+		// at least one empty slot (load factor <= 1/2)
+		for (int slot = hash & slotMask;; slot = slot + 1 & slotMask)
+		{
+			final int slotOffset = indexOffset + slot * SLOT_SIZE;
+			final int recordOffset = buffer.getInt(slotOffset + 4);
+			if (recordOffset == 0)
+			{
+				return -1;
+			}
+
+			if (buffer.getInt(slotOffset) == hash && buffer.getInt(recordOffset) == keyBytes.length && wrappedKey.mismatch(buffer.slice(recordOffset + 4, keyBytes.length)) == -1)
+			{
+				return recordOffset;
+			}
+		}
+	}
+
+	/**
+	 * Get the values of a field of a record
+	 *
+	 * @param key
+	 *            record key
+	 * @param fieldIndex
+	 *            index of the field in {@link #getFieldNames()}
+	 * @return values of the field (possibly empty), or null if there is no record for {@code key}
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code fieldIndex} is not a valid index
+	 */
+	public List<String> get(final String key, final int fieldIndex) throws IndexOutOfBoundsException
+	{
+		if (fieldIndex < 0 || fieldIndex >= fieldNames.size())
+		{
+			throw new IndexOutOfBoundsException(fieldIndex);
+		}
+
+		final int recordOffset = findRecord(key);
+		if (recordOffset == -1)
+		{
+			return null;
+		}
+
+		int offset = recordOffset + 4 + buffer.getInt(recordOffset);
+		// skip the previous fields
+		for (int i = 0; i < fieldIndex; i++)
+		{
+			final int valueCount = buffer.getInt(offset);
+			offset += 4;
+			for (int j = 0; j < valueCount; j++)
+			{
+				offset += 4 + buffer.getInt(offset);
+			}
+		}
+
+		final int valueCount = buffer.getInt(offset);
+		offset += 4;
+		final List<String> values = new ArrayList<>(valueCount);
+		for (int j = 0; j < valueCount; j++)
+		{
+			final int length = buffer.getInt(offset);
+			values.add(readString(buffer, offset + 4, length));
+			offset += 4 + length;
+		}
+
+		return values;
+	}
+
+	@Override
+	public String toString()
+	{
+		return path.toString();
+	}
+
+	/**
+	 * Writer of {@link MappedAttributeFile}s, for the offline tools building the files. The records are spooled to a temporary file, so that the memory used is 8 bytes per record (for the index),
+	 * whatever the record sizes. Keys must be unique (if not, the first record of a key wins).
+	 * <p>
+	 * Usage:
+	 *
+	 * <pre>
+	 * {@code
+	 * try (MappedAttributeFile.Writer writer = new MappedAttributeFile.Writer(Path.of("/var/lib/authzforce/user-groups.bin"), List.of("groups")))
+	 * {
+	 *     for (User user : users)
+	 *     {
+	 *         writer.add(user.getId(), List.of(user.getGroups()));
+	 *     }
+	 *
+	 *     writer.commit();
+	 * }
+	 * }
+	 * </pre>
+	 */
+	public static final class Writer implements Closeable
+	{
+		private final Path target;
+		private final List<String> fieldNames;
+		private final Path spoolFile;
+		private final DataOutputStream spool;
+		private int[] hashes = new int[1024];
+		private int[] relativeOffsets = new int[1024];
+		private int recordCount = 0;
+		private boolean closed = false;
+
+		/**
+		 * Creates a writer
+		 *
+		 * @param target
+		 *            path of the file to (re)create on {@link #commit()}
+		 * @param fieldNames
+		 *            names of the fields of each record
+		 * @throws IOException
+		 *             error creating the temporary file in the directory of {@code target}
+		 */
+		public Writer(final Path target, final List<String> fieldNames) throws IOException
+		{
+			if (target == null || fieldNames == null || fieldNames.isEmpty())
+			{
+				throw new IllegalArgumentException("Undefined attribute file path or empty field names");
+			}
+
+			this.target = target.toAbsolutePath();
+			this.fieldNames = List.copyOf(fieldNames);
+			this.spoolFile = Files.createTempFile(this.target.getParent(), this.target.getFileName().toString(), ".records");
+			this.spool = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spoolFile)));
+		}
+
+		private static void writeString(final DataOutputStream out, final String s) throws IOException
+		{
+			final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		/**
+		 * Adds a record
+		 *
+		 * @param key
+		 *            record key
+		 * @param fieldValues
+		 *            values of each field, in the order of the field names
+		 * @throws IOException
+		 *             error writing the temporary file, or file size limit (2 GB) exceeded
+		 */
+		public void add(final String key, final List<? extends Collection<String>> fieldValues) throws IOException
+		{
+			if (closed)
+			{
+				throw new IllegalStateException("Attribute file writer closed");
+			}
+
+			if (key == null || fieldValues == null || fieldValues.size() != fieldNames.size())
+			{
+				throw new IllegalArgumentException("Undefined key or number of field values != number of fields (" + fieldNames.size() + ")");
+			}
+
+			if (recordCount == hashes.length)
+			{
+				hashes = Arrays.copyOf(hashes, recordCount * 2);
+				relativeOffsets = Arrays.copyOf(relativeOffsets, recordCount * 2);
+			}
+
+			final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+			hashes[recordCount] = hash(keyBytes);
+			relativeOffsets[recordCount] = spool.size();
+			spool.writeInt(keyBytes.length);
+			spool.write(keyBytes);
+			for (final Collection<String> values : fieldValues)
+			{
+				spool.writeInt(values.size());
+				for (final String value : values)
+				{
+					writeString(spool, value);
+				}
+			}
+
+			// DataOutputStream#size() saturates at Integer.MAX_VALUE
+			if (spool.size() == Integer.MAX_VALUE)
+			{
+				throw new IOException("Attribute file size limit (2 GB) exceeded");
+			}
+
+			recordCount++;
+		}
+
+		/**
+		 * Writes the file and moves it atomically to the target path, replacing the previous version if any. The writer is closed afterwards.
+		 *
+		 * @throws IOException
+		 *             error writing or moving the file, or file size limit (2 GB) exceeded
+		 */
+		public void commit() throws IOException
+		{
+			if (closed)
+			{
+				throw new IllegalStateException("Attribute file writer closed");
+			}
+
+			spool.close();
+			final ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+			final DataOutputStream header = new DataOutputStream(headerBytes);
+			header.writeInt(MAGIC);
+			header.writeInt(VERSION);
+			header.writeInt(fieldNames.size());
+			for (final String fieldName : fieldNames)
+			{
+				writeString(header, fieldName);
+			}
+
+			// load factor <= 1/2
+			final int slotCount = Math.max(2, Integer.highestOneBit(Math.max(1, recordCount)) * 4);
+			header.writeInt(slotCount);
+			header.writeInt(recordCount);
+			final long recordsOffset = header.size() + (long) slotCount * SLOT_SIZE;
+			if (recordsOffset + Files.size(spoolFile) > Integer.MAX_VALUE)
+			{
+				throw new IOException("Attribute file size limit (2 GB) exceeded");
+			}
+
+			final ByteBuffer index = ByteBuffer.allocate(slotCount * SLOT_SIZE);
+			final int slotMask = slotCount - 1;
+			for (int i = 0; i < recordCount; i++)
+			{
+				int slot = hashes[i] & slotMask;
+				while (index.getInt(slot * SLOT_SIZE + 4) != 0)
+				{
+					slot = slot + 1 & slotMask;
+				}
+
+				index.putInt(slot * SLOT_SIZE, hashes[i]);
+				index.putInt(slot * SLOT_SIZE + 4, (int) recordsOffset + relativeOffsets[i]);
+			}
+
+			final Path tmpFile = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+			try
+			{
+				try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE); FileChannel spoolChannel = FileChannel.open(spoolFile, StandardOpenOption.READ))
+				{
+					channel.write(ByteBuffer.wrap(headerBytes.toByteArray()));
+					channel.write(index);
+					long transferred = 0;
+					final long spoolSize = spoolChannel.size();
+					while (transferred < spoolSize)
+					{
+						transferred += spoolChannel.transferTo(transferred, spoolSize - transferred, channel);
+					}
+
+					channel.force(true);
+				}
+
+				Files.move(tmpFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			finally
+			{
+				Files.deleteIfExists(tmpFile);
+				close();
+			}
+		}
+
+		/**
+		 * Discards the records if not committed and deletes the temporary file
+		 */
+		@Override
+		public void close() throws IOException
+		{
+			if (closed)
+			{
+				return;
+			}
+
+			closed = true;
+			spool.close();
+			Files.deleteIfExists(spoolFile);
+		}
+	}
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.value.*;
+import org.ow2.authzforce.core.xmlns.pdp.MappedFileAttributeMapping;
+import org.ow2.authzforce.core.xmlns.pdp.MappedFileAttributeProviderDescriptor;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Attribute Provider looking up attributes by key attribute (e.g. subject-id) in a {@link MappedAttributeFile}, for large, slowly changing directories (user groups, resource owners, etc.): lookups take
+ * microseconds, without remote call and without holding the entries on the heap. Each provided attribute is mapped to a field of the file records.
+ * <p>
+ * The file is rebuilt offline with {@link MappedAttributeFile.Writer}, which replaces it atomically. The provider checks the file for a new version (different file key or modification time) at most
+ * once per check interval, during a lookup, and swaps to the new version if valid (else it keeps using the current one).
+ *
+ * @version $Id: $
+ */
+public final class MappedFileAttributeProvider extends BaseNamedAttributeProvider
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(MappedFileAttributeProvider.class);
+
+	private static final IllegalArgumentException NULL_ID_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined Mapped File Attribute Provider ID");
+	private static final IllegalArgumentException NULL_FILE_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined Mapped File Attribute Provider file");
+	private static final IllegalArgumentException NULL_KEY_ATTRIBUTE_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined Mapped File Attribute Provider key attribute");
+	private static final IllegalArgumentException EMPTY_MAPPINGS_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined/empty Mapped File Attribute Provider attribute mappings");
+	private static final IllegalArgumentException INVALID_CHECK_INTERVAL_ARGUMENT_EXCEPTION = new IllegalArgumentException(
+	        "Invalid Mapped File Attribute Provider reload check interval: expected >= 0");
+
+	/**
+	 * Mapping of a field of the file records to an attribute
+	 *
+	 * @param attribute
+	 *            attribute name and datatype (MustBePresent ignored)
+	 * @param field
+	 *            field name in the file header
+	 */
+	public record AttributeMapping(AttributeDesignatorType attribute, String field)
+	{
+		/**
+		 * Creates the mapping
+		 *
+		 * @throws IllegalArgumentException
+		 *             if {@code attribute} or {@code field} undefined
+		 */
+		public AttributeMapping
+		{
+			if (attribute == null || attribute.getCategory() == null || attribute.getAttributeId() == null || attribute.getDataType() == null || field == null || field.isEmpty())
+			{
+				throw new IllegalArgumentException("Invalid mapped file attribute mapping: undefined attribute (Category, AttributeId or DataType) or field");
+			}
+		}
+	}
+
+	private record MappedAttribute(AttributeValueFactory<?> valueFactory, String field)
+	{
+	}
+
+	/*
+	 * Mapped file with the field indexes of the provided attributes, and the file version
+	 */
+	private record LoadedFile(MappedAttributeFile file, Map<AttributeFqn, Integer> fieldIndexes, Object fileKey, long lastModifiedMillis)
+	{
+	}
+
+	private final Path path;
+	private final long checkIntervalNanos;
+	private final AtomicLong nextCheckNanos;
+	private final RecordKeyAttribute recordKeyAttribute;
+	private final Map<AttributeFqn, MappedAttribute> mappedAttributes;
+	private final Set<AttributeDesignatorType> providedAttributes;
+	private final AttributeSource attributeSource;
+	private volatile LoadedFile loadedFile;
+
+	private MappedFileAttributeProvider(final String id, final Path path, final Duration checkInterval, final AttributeDesignatorType keyAttribute, final Datatype<?> keyDatatype,
+	        final NamedAttributeProvider keyAttributeProvider, final Map<AttributeFqn, MappedAttribute> mappedAttributes, final Set<AttributeDesignatorType> providedAttributes)
+	        throws IOException
+	{
+		super(id);
+		this.path = path;
+		this.checkIntervalNanos = checkInterval.toNanos();
+		this.recordKeyAttribute = new RecordKeyAttribute(keyAttribute, keyDatatype, keyAttributeProvider);
+		this.mappedAttributes = mappedAttributes;
+		this.providedAttributes = providedAttributes;
+		this.attributeSource = AttributeSources.newCustomSource(id);
+		this.loadedFile = load();
+		this.nextCheckNanos = new AtomicLong(System.nanoTime() + checkIntervalNanos);
+	}
+
+	private LoadedFile load() throws IOException
+	{
+		final BasicFileAttributes fileAttributes = Files.readAttributes(path, BasicFileAttributes.class);
+		final MappedAttributeFile file = MappedAttributeFile.open(path);
+		final List<String> fieldNames = file.getFieldNames();
+		final Map<AttributeFqn, Integer> fieldIndexes = HashCollections.newUpdatableMap(mappedAttributes.size());
+		for (final Map.Entry<AttributeFqn, MappedAttribute> entry : mappedAttributes.entrySet())
+		{
+			final int fieldIndex = fieldNames.indexOf(entry.getValue().field());
+			if (fieldIndex == -1)
+			{
+				throw new IOException("Mapped File Attribute Provider '" + this + "': no field '" + entry.getValue().field() + "' (mapped to attribute " + entry.getKey() + ") in file " + path
+				        + " (fields: " + fieldNames + ")");
+			}
+
+			fieldIndexes.put(entry.getKey(), fieldIndex);
+		}
+
+		LOGGER.info("Mapped File Attribute Provider '{}': loaded file {} ({} records)", this, path, file.size());
+		return new LoadedFile(file, fieldIndexes, fileAttributes.fileKey(), fileAttributes.lastModifiedTime().toMillis());
+	}
+
+	/*
+	 * Swaps to the new version of the file, if any and the check interval has elapsed
+	 */
+	private LoadedFile getLoadedFile()
+	{
+		final LoadedFile currentFile = loadedFile;
+		if (checkIntervalNanos == 0)
+		{
+			return currentFile;
+		}
+
+		final long now = System.nanoTime();
+		final long nextCheck = nextCheckNanos.get();
+		// a single thread checks, the others go on with the current file
+		if (now - nextCheck < 0 || !nextCheckNanos.compareAndSet(nextCheck, now + checkIntervalNanos))
+		{
+			return currentFile;
+		}
+
+		try
+		{
+			final BasicFileAttributes fileAttributes = Files.readAttributes(path, BasicFileAttributes.class);
+			if (Objects.equals(fileAttributes.fileKey(), currentFile.fileKey()) && fileAttributes.lastModifiedTime().toMillis() == currentFile.lastModifiedMillis())
+			{
+				return currentFile;
+			}
+
+			final LoadedFile newFile = load();
+			loadedFile = newFile;
+			return newFile;
+		}
+		catch (final IOException e)
+		{
+			LOGGER.warn("Mapped File Attribute Provider '{}': failed to load new version of file {}; still using the current one", this, path, e);
+			return currentFile;
+		}
+	}
+
+	/**
+	 * Creates a factory of Mapped File Attribute Providers
+	 *
+	 * @param id
+	 *            ID of the created Attribute Providers
+	 * @param path
+	 *            path of the file created with {@link MappedAttributeFile.Writer}
+	 * @param checkInterval
+	 *            minimum interval between checks for a new version of the file; zero means never
+	 * @param keyAttribute
+	 *            attribute whose (single) value is the record key (if MustBePresent is false and the attribute is missing, all the provided attributes are empty)
+	 * @param mappings
+	 *            mappings of the record fields to the provided attributes
+	 * @return Attribute Provider factory
+	 * @throws IllegalArgumentException
+	 *             invalid arguments
+	 */
+	public static CloseableNamedAttributeProvider.DependencyAwareFactory newFactory(final String id, final Path path, final Duration checkInterval, final AttributeDesignatorType keyAttribute,
+	        final List<AttributeMapping> mappings) throws IllegalArgumentException
+	{
+		if (id == null)
+		{
+			throw NULL_ID_ARGUMENT_EXCEPTION;
+		}
+
+		if (path == null)
+		{
+			throw NULL_FILE_ARGUMENT_EXCEPTION;
+		}
+
+		if (checkInterval == null || checkInterval.isNegative())
+		{
+			throw INVALID_CHECK_INTERVAL_ARGUMENT_EXCEPTION;
+		}
+
+		if (keyAttribute == null || keyAttribute.getCategory() == null || keyAttribute.getAttributeId() == null || keyAttribute.getDataType() == null)
+		{
+			throw NULL_KEY_ATTRIBUTE_ARGUMENT_EXCEPTION;
+		}
+
+		if (mappings == null || mappings.isEmpty())
+		{
+			throw EMPTY_MAPPINGS_ARGUMENT_EXCEPTION;
+		}
+
+		final Map<AttributeDesignatorType, String> fieldsByAttribute = new LinkedHashMap<>();
+		for (final AttributeMapping mapping : mappings)
+		{
+			final AttributeDesignatorType attribute = mapping.attribute();
+			final AttributeDesignatorType providedAttribute = new AttributeDesignatorType(attribute.getCategory(), attribute.getAttributeId(), attribute.getDataType(), attribute.getIssuer(), false);
+			if (fieldsByAttribute.put(providedAttribute, mapping.field()) != null)
+			{
+				throw new IllegalArgumentException("Mapped File Attribute Provider '" + id + "': duplicate mapping of attribute " + AttributeFqns.newInstance(attribute));
+			}
+		}
+
+		final Set<AttributeDesignatorType> providedAttributes = Collections.unmodifiableSet(fieldsByAttribute.keySet());
+		return new CloseableNamedAttributeProvider.DependencyAwareFactory()
+		{
+			@Override
+			public Set<AttributeDesignatorType> getDependencies()
+			{
+				return Set.of(keyAttribute);
+			}
+
+			@Override
+			public CloseableNamedAttributeProvider getInstance(final AttributeValueFactoryRegistry attributeValueFactoryRegistry, final NamedAttributeProvider dependencyAttributeProvider)
+			{
+				final AttributeValueFactory<?> keyValueFactory = attributeValueFactoryRegistry.getExtension(keyAttribute.getDataType());
+				if (keyValueFactory == null)
+				{
+					throw new IllegalArgumentException("Mapped File Attribute Provider '" + id + "': unsupported key attribute datatype: " + keyAttribute.getDataType());
+				}
+
+				final Map<AttributeFqn, MappedAttribute> mappedAttributes = HashCollections.newUpdatableMap(fieldsByAttribute.size());
+				for (final Map.Entry<AttributeDesignatorType, String> entry : fieldsByAttribute.entrySet())
+				{
+					final AttributeDesignatorType attribute = entry.getKey();
+					final AttributeValueFactory<?> valueFactory = attributeValueFactoryRegistry.getExtension(attribute.getDataType());
+					if (valueFactory == null)
+					{
+						throw new IllegalArgumentException("Mapped File Attribute Provider '" + id + "': unsupported datatype of attribute " + AttributeFqns.newInstance(attribute) + ": "
+						        + attribute.getDataType());
+					}
+
+					mappedAttributes.put(AttributeFqns.newInstance(attribute), new MappedAttribute(valueFactory, entry.getValue()));
+				}
+
+				try
+				{
+					return new MappedFileAttributeProvider(id, path, checkInterval, keyAttribute, keyValueFactory.getDatatype(), dependencyAttributeProvider, mappedAttributes, providedAttributes);
+				}
+				catch (final IOException e)
+				{
+					throw new IllegalArgumentException("Mapped File Attribute Provider '" + id + "': invalid or unreadable file: " + path, e);
+				}
+			}
+		};
+	}
+
+	@Override
+	public Set<AttributeDesignatorType> getProvidedAttributes()
+	{
+		return providedAttributes;
+	}
+
+	@Override
+	public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context, final Optional<EvaluationContext> mdpContext)
+	        throws IndeterminateEvaluationException
+	{
+		final MappedAttribute mappedAttribute = mappedAttributes.get(attributeFqn);
+		if (mappedAttribute == null)
+		{
+			throw new IndeterminateEvaluationException("Mapped File Attribute Provider '" + this + "': unsupported attribute " + attributeFqn, XacmlStatusCode.PROCESSING_ERROR.value());
+		}
+
+		if (!mappedAttribute.valueFactory().getDatatype().equals(datatype))
+		{
+			throw new IndeterminateEvaluationException("Mapped File Attribute Provider '" + this + "': requested datatype (" + datatype + ") of attribute " + attributeFqn + " != provided ("
+			        + mappedAttribute.valueFactory().getDatatype() + ")", XacmlStatusCode.MISSING_ATTRIBUTE.value());
+		}
+
+		final String key = recordKeyAttribute.getKey(context, mdpContext, "Mapped File Attribute Provider", this);
+		if (key == null)
+		{
+			return Bags.emptyAttributeBag(datatype, null);
+		}
+
+		final LoadedFile currentFile = getLoadedFile();
+		final List<String> fieldValues;
+		try
+		{
+			fieldValues = currentFile.file().get(key, currentFile.fieldIndexes().get(attributeFqn));
+		}
+		catch (final IndexOutOfBoundsException e)
+		{
+			throw new IndeterminateEvaluationException("Mapped File Attribute Provider '" + this + "': corrupted file " + currentFile.file(), XacmlStatusCode.PROCESSING_ERROR.value(), e);
+		}
+
+		if (fieldValues == null || fieldValues.isEmpty())
+		{
+			return Bags.emptyAttributeBag(datatype, null);
+		}
+
+		final List<AV> values = new ArrayList<>(fieldValues.size());
+		for (final String fieldValue : fieldValues)
+		{
+			final AttributeValue value;
+			try
+			{
+				value = mappedAttribute.valueFactory().getInstance(List.of(fieldValue), Map.of(), Optional.empty());
+			}
+			catch (final IllegalArgumentException e)
+			{
+				throw new IndeterminateEvaluationException("Mapped File Attribute Provider '" + this + "': invalid value of attribute " + attributeFqn + ": " + fieldValue,
+				        XacmlStatusCode.SYNTAX_ERROR.value(), e);
+			}
+
+			// datatype of the value factory checked above
+			values.add((AV) value);
+		}
+
+		return Bags.newAttributeBag(datatype, values, attributeSource);
+	}
+
+	@Override
+	public void close()
+	{
+		// the mapping is released when the MappedAttributeFile is garbage-collected
+	}
+
+	/**
+	 * {@link MappedFileAttributeProvider} factory
+	 */
+	public static final class Factory extends CloseableNamedAttributeProvider.FactoryBuilder<MappedFileAttributeProviderDescriptor>
+	{
+		@Override
+		public Class<MappedFileAttributeProviderDescriptor> getJaxbClass()
+		{
+			return MappedFileAttributeProviderDescriptor.class;
+		}
+
+		@Override
+		public CloseableNamedAttributeProvider.DependencyAwareFactory getInstance(final MappedFileAttributeProviderDescriptor conf, final EnvironmentProperties environmentProperties)
+		{
+			final List<AttributeMapping> mappings = new ArrayList<>(conf.getAttributes().size());
+			for (final MappedFileAttributeMapping jaxbMapping : conf.getAttributes())
+			{
+				mappings.add(new AttributeMapping(new AttributeDesignatorType(jaxbMapping.getCategory(), jaxbMapping.getAttributeId(), jaxbMapping.getDataType(), jaxbMapping.getIssuer(), false),
+				        jaxbMapping.getField()));
+			}
+
+			return newFactory(conf.getId(), Path.of(environmentProperties.replacePlaceholders(conf.getFile())), Duration.ofSeconds(conf.getReloadCheckIntervalSeconds()), conf.getKeyAttribute(),
+			        mappings);
+		}
+	}
+}
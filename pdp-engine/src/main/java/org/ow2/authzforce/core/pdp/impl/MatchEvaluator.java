@@ -32,6 +32,7 @@ import org.ow2.authzforce.core.pdp.api.func.FunctionCall;
 import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
 import org.ow2.authzforce.core.pdp.api.value.BooleanValue;
 import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationTrace;
 
 import java.util.Arrays;
 import java.util.List;
@@ -55,6 +56,13 @@ public final class MatchEvaluator
 	 */
 	private final transient FunctionCall<BooleanValue> anyOfFuncCall;
 
+	/**
+	 * AttributeDesignator/AttributeSelector expression
+	 */
+	private final transient Expression<?> bagExpression;
+
+	private final transient String toString;
+
 	/**
 	 * Instantiates Match evaluator from XACML-Schema-derived JAXB Match
 	 *
@@ -92,7 +100,7 @@ public final class MatchEvaluator
 		// value paired with it
 		final AttributeDesignatorType attributeDesignator = jaxbMatch.getAttributeDesignator();
 		final AttributeSelectorType attributeSelector = jaxbMatch.getAttributeSelector();
-		final Expression<?> bagExpression = expFactory.getInstance(attributeDesignator == null ? attributeSelector : attributeDesignator, null, xPathCompiler);
+		this.bagExpression = expFactory.getInstance(attributeDesignator == null ? attributeSelector : attributeDesignator, null, xPathCompiler);
 
 		final AttributeValueType attributeValue = jaxbMatch.getAttributeValue();
 		final Expression<? extends AttributeValue> attrValueExpr;
@@ -126,6 +134,24 @@ public final class MatchEvaluator
 		{
 			throw new IllegalArgumentException("Invalid inputs (Expressions) to the Match (validated using the equivalent standard 'any-of' function definition): " + anyOfFuncInputs, e);
 		}
+
+		this.toString = "Match(" + matchId + ", " + attrValueExpr + ", " + bagExpression + ")";
+	}
+
+	/**
+	 * Gets the (compiled) AttributeDesignator or AttributeSelector of this Match
+	 *
+	 * @return AttributeDesignator/AttributeSelector expression
+	 */
+	public Expression<?> getBagExpression()
+	{
+		return bagExpression;
+	}
+
+	@Override
+	public String toString()
+	{
+		return toString;
 	}
 
 	/**
@@ -140,6 +166,12 @@ public final class MatchEvaluator
 	 *             error occurred evaluating the Match element in this evaluation {@code context}
 	 */
 	public boolean match(final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+	{
+		final EvaluationTrace trace = EvaluationTrace.current();
+		return trace == null ? matchWithoutTrace(context, mdpContext) : BooleanEvaluators.evaluateTraced(this::matchWithoutTrace, trace, "Match", this, context, mdpContext);
+	}
+
+	private boolean matchWithoutTrace(final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
 	{
 		final BooleanValue anyOfFuncCallResult;
 		try
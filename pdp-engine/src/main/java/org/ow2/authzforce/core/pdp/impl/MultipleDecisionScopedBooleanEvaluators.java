@@ -0,0 +1,260 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import com.google.common.collect.ImmutableList;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.HashCollections;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.expression.AttributeDesignatorExpression;
+import org.ow2.authzforce.core.pdp.api.expression.Expression;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.api.value.BooleanValue;
+import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.impl.expression.ApplyExpressions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Factory of {@link BooleanEvaluator}s memoizing their results in the scope of a Multiple Decision request (Multiple Decision Profile), i.e. across the Individual Decision requests of the same
+ * Multiple Decision request.
+ * <p>
+ * Individual Decision requests of the same Multiple Decision request usually differ in a single attribute category (typically the resource), therefore a Target or Condition that only reads
+ * attributes from the other categories evaluates to the same result for most of them. The memoizing evaluator takes the bags of the attributes read by the Target/Condition (found statically from its
+ * AttributeDesignators) as memo key, and stores the results in the Multiple Decision request context, so that each distinct combination of attribute values is evaluated only once per Multiple Decision
+ * request.
+ * <p>
+ * The memo is used only if all the attributes read by the Target/Condition are already in the Individual Decision request context (typically provided by the PEP in the request), else the result
+ * might depend on Attribute Providers that are resolved lazily during evaluation, in which case the evaluation is delegated as usual. Targets/Conditions using AttributeSelectors, non-constant
+ * VariableReferences or XPath expressions (evaluated against the request content) are never memoized, since they may depend on more than the attributes found statically. Indeterminate results are
+ * not memoized either.
+ * <p>
+ * The attributes are found from the compiled AttributeDesignator expressions of the Target/Condition evaluator, i.e. the Target/Condition is not compiled twice.
+ *
+ * @version $Id: $
+ */
+public final class MultipleDecisionScopedBooleanEvaluators
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(MultipleDecisionScopedBooleanEvaluators.class);
+
+	private record AttributeDependency(AttributeFqn name, Datatype<? extends AttributeValue> datatype)
+	{
+	}
+
+	private static final class MemoizingBooleanEvaluator implements BooleanEvaluator
+	{
+		private final BooleanEvaluator delegate;
+		private final List<AttributeDependency> attributeDependencies;
+		private final String mdpScopedMemoKey;
+
+		private MemoizingBooleanEvaluator(final BooleanEvaluator delegate, final List<AttributeDependency> attributeDependencies)
+		{
+			assert delegate != null && attributeDependencies != null && !attributeDependencies.isEmpty();
+			this.delegate = delegate;
+			this.attributeDependencies = attributeDependencies;
+			this.mdpScopedMemoKey = EvaluationContextKeys.newInstanceKey(MemoizingBooleanEvaluator.class);
+		}
+
+		private Map<List<AttributeBag<?>>, Boolean> getMemo(final EvaluationContext mdpContext)
+		{
+			final Object cachedValue = mdpContext.getOther(this.mdpScopedMemoKey);
+			if (cachedValue instanceof Map)
+			{
+				// WARNING: unchecked cast, but only this class puts values with this key
+				return (Map<List<AttributeBag<?>>, Boolean>) cachedValue;
+			}
+
+			final Map<List<AttributeBag<?>>, Boolean> newMemo = HashCollections.newUpdatableMap();
+			mdpContext.putOther(this.mdpScopedMemoKey, newMemo);
+			return newMemo;
+		}
+
+		@Override
+		public boolean evaluate(final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			if (mdpContext.isEmpty())
+			{
+				return delegate.evaluate(context, mdpContext);
+			}
+
+			final List<AttributeBag<?>> memoEntryKey = new ArrayList<>(attributeDependencies.size());
+			for (final AttributeDependency attDep : attributeDependencies)
+			{
+				final AttributeBag<?> attBag;
+				try
+				{
+					attBag = context.getNamedAttributeValue(attDep.name, attDep.datatype);
+				}
+				catch (final IndeterminateEvaluationException e)
+				{
+					// datatype conflict in the context, let the delegate report the error
+					return delegate.evaluate(context, mdpContext);
+				}
+
+				if (attBag == null)
+				{
+					/*
+					 * Not (yet) in the context, might be resolved by an Attribute Provider during evaluation -> no memoization
+					 */
+					return delegate.evaluate(context, mdpContext);
+				}
+
+				memoEntryKey.add(attBag);
+			}
+
+			final Map<List<AttributeBag<?>>, Boolean> memo = getMemo(mdpContext.get());
+			final Boolean memoizedResult = memo.get(memoEntryKey);
+			if (memoizedResult != null)
+			{
+				LOGGER.debug("{} -> {} (result memoized in Multiple Decision request context)", delegate, memoizedResult);
+				return memoizedResult;
+			}
+
+			final boolean result = delegate.evaluate(context, mdpContext);
+			memo.put(memoEntryKey, result);
+			return result;
+		}
+
+		@Override
+		public String toString()
+		{
+			return delegate.toString();
+		}
+	}
+
+	private static void addAttributeDependency(final AttributeDesignatorExpression<?> attDesExpr, final Set<AttributeDependency> attDeps)
+	{
+		final Optional<? extends Datatype<?>> attDatatype = attDesExpr.getReturnType().getTypeParameter();
+		assert attDatatype.isPresent();
+		// WARNING: unchecked cast, an AttributeDesignator always returns a bag of AttributeValues
+		attDeps.add(new AttributeDependency(attDesExpr.getAttributeFQN(), (Datatype<? extends AttributeValue>) attDatatype.get()));
+	}
+
+	/*
+	 * Returns false iff the expression reads anything else than AttributeDesignators, e.g. AttributeSelector, non-constant VariableReference or XPath expression
+	 */
+	private static boolean addAttributeDependencies(final Expression<?> expr, final Set<AttributeDependency> attDeps)
+	{
+		if (expr instanceof AttributeDesignatorExpression<?> attDesExpr)
+		{
+			addAttributeDependency(attDesExpr, attDeps);
+			return true;
+		}
+
+		final Optional<List<Expression<?>>> applyArgs = ApplyExpressions.getArguments(expr);
+		if (applyArgs.isPresent())
+		{
+			for (final Expression<?> argExpr : applyArgs.get())
+			{
+				if (!addAttributeDependencies(argExpr, attDeps))
+				{
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		/*
+		 * Constant (AttributeValue, Function, constant Apply or VariableReference), except XPath expressions which are evaluated against the request content
+		 */
+		return expr.getValue().isPresent() && !StandardDatatypes.XPATH.equals(expr.getReturnType());
+	}
+
+	private static BooleanEvaluator newInstance(final BooleanEvaluator evaluator, final Set<AttributeDependency> attDeps)
+	{
+		if (attDeps.isEmpty())
+		{
+			return evaluator;
+		}
+
+		LOGGER.debug("{}: results memoized in Multiple Decision request scope, memo key = values of attributes {}", evaluator, attDeps);
+		return new MemoizingBooleanEvaluator(evaluator, ImmutableList.copyOf(attDeps));
+	}
+
+	/**
+	 * Creates a Target evaluator memoizing the results of a given one in the scope of a Multiple Decision request, if the Target is worth it, i.e. it has more than one Match and does not use any
+	 * AttributeSelector.
+	 *
+	 * @param targetEvaluator
+	 *            evaluator of a (non-empty) Target
+	 * @param anyOfEvaluators
+	 *            evaluators of the AnyOfs of the Target, used by {@code targetEvaluator}
+	 * @return memoizing evaluator, or {@code targetEvaluator} as is if memoization is not possible/worth it
+	 */
+	public static BooleanEvaluator forTarget(final BooleanEvaluator targetEvaluator, final List<AnyOfEvaluator> anyOfEvaluators)
+	{
+		assert targetEvaluator != null && anyOfEvaluators != null;
+		final Set<AttributeDependency> attDeps = new LinkedHashSet<>();
+		int matchCount = 0;
+		for (final AnyOfEvaluator anyOfEvaluator : anyOfEvaluators)
+		{
+			for (final AllOfEvaluator allOfEvaluator : anyOfEvaluator.getAllOfEvaluators())
+			{
+				for (final MatchEvaluator matchEvaluator : allOfEvaluator.getMatchEvaluators())
+				{
+					if (!(matchEvaluator.getBagExpression() instanceof AttributeDesignatorExpression<?> attDesExpr))
+					{
+						// AttributeSelector
+						return targetEvaluator;
+					}
+
+					addAttributeDependency(attDesExpr, attDeps);
+					matchCount++;
+				}
+			}
+		}
+
+		/*
+		 * The memo lookup costs roughly as much as a single Match evaluation
+		 */
+		return matchCount > 1 ? newInstance(targetEvaluator, attDeps) : targetEvaluator;
+	}
+
+	/**
+	 * Creates a Condition evaluator memoizing the results of a given one in the scope of a Multiple Decision request, if the Condition is worth it, i.e. it is a function call (Apply) that reads
+	 * attributes with AttributeDesignators only (no AttributeSelector, non-constant VariableReference or XPath expression).
+	 *
+	 * @param conditionEvaluator
+	 *            evaluator of a Condition
+	 * @param conditionExpression
+	 *            (compiled) expression of the Condition, evaluated by {@code conditionEvaluator}
+	 * @return memoizing evaluator, or {@code conditionEvaluator} as is if memoization is not possible/worth it
+	 */
+	public static BooleanEvaluator forCondition(final BooleanEvaluator conditionEvaluator, final Expression<BooleanValue> conditionExpression)
+	{
+		assert conditionEvaluator != null && conditionExpression != null;
+		if (ApplyExpressions.getArguments(conditionExpression).isEmpty())
+		{
+			return conditionEvaluator;
+		}
+
+		final Set<AttributeDependency> attDeps = new LinkedHashSet<>();
+		return addAttributeDependencies(conditionExpression, attDeps) ? newInstance(conditionEvaluator, attDeps) : conditionEvaluator;
+	}
+
+	private MultipleDecisionScopedBooleanEvaluators()
+	{
+		// prevent instantiation
+	}
+}
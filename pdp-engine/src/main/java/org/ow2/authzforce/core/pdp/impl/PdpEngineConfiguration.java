@@ -37,10 +37,15 @@ import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactor
 import org.ow2.authzforce.core.pdp.impl.func.FunctionRegistry;
 import org.ow2.authzforce.core.pdp.impl.func.ImmutableFunctionRegistry;
 import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationMetricsListener;
+import org.ow2.authzforce.core.pdp.impl.policy.CachingPolicyProvider;
+import org.ow2.authzforce.core.pdp.impl.policy.CoreStaticPolicyProvider;
+import org.ow2.authzforce.core.xmlns.pdp.AttributeProviderCache;
 import org.ow2.authzforce.core.xmlns.pdp.InOutProcChain;
 import org.ow2.authzforce.core.xmlns.pdp.Pdp;
 import org.ow2.authzforce.core.xmlns.pdp.StdEnvAttributeProviderDescriptor;
 import org.ow2.authzforce.core.xmlns.pdp.TopLevelPolicyElementRef;
+import org.ow2.authzforce.core.xmlns.pdp.XacmlVarBasedAttributeProviderDescriptor;
 import org.ow2.authzforce.xacml.Xacml3JaxbHelper;
 import org.ow2.authzforce.xacml.identifiers.XacmlDatatypeId;
 import org.ow2.authzforce.xmlns.pdp.ext.AbstractAttributeProvider;
@@ -59,8 +64,11 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.net.URL;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * PDP engine configuration
@@ -303,18 +311,45 @@ public final class PdpEngineConfiguration
 	 */
 	private final CloseablePolicyProvider<?> combinedPolicyProvider;
 
+	/*
+	 * Cross-request caches of the policies resolved by the non-static policyProviders (empty if dynamicPolicyCacheTtl = 0)
+	 */
+	private final List<CachingPolicyProvider<?>> dynamicPolicyCaches;
+
+	/*
+	 * StaticPolicyProviders declared in PDP configuration, and environment properties for placeholder replacement in their locations, to get the policy directories (only when needed, e.g. to watch
+	 * them)
+	 */
+	private final List<org.ow2.authzforce.core.xmlns.pdp.StaticPolicyProvider> staticPolicyProviderJaxbConfs;
+	private final EnvironmentProperties envProps;
+
 	private final String rootPolicyId;
 
 	private final Optional<TopLevelPolicyElementType> rootPolicyElementType;
 
 	private final Optional<PolicyVersionPatterns> rootPolicyVersionPatterns;
 
+	/*
+	 * True iff the root policy is the candidate root policy of the policy provider (rootPolicyRef undefined)
+	 */
+	private final boolean isRootPolicyFromCandidate;
+
 	private final Optional<DecisionCache> decisionCache;
 
 	private final ImmutableMap<Class<?>, Entry<DecisionRequestPreprocessor<?, ?>, DecisionResultPostprocessor<?, ?>>> ioProcChainsByInputType;
 
 	private final int clientReqErrVerbosityLevel;
 
+	/*
+	 * Listener of the evaluation metrics of the PDP engine(s) using this configuration (empty if metrics disabled)
+	 */
+	private final Optional<EvaluationMetricsListener> metricsListener;
+
+	/*
+	 * Audit log of the decisions of the PDP engine(s) using this configuration (empty if audit disabled)
+	 */
+	private final Optional<DecisionAuditLog> decisionAuditLog;
+
 	/**
 	 * Constructs configuration from PDP XML-schema-derived JAXB model (usually 'unmarshaled' from XML configuration file)
 	 *
@@ -375,6 +410,50 @@ public final class PdpEngineConfiguration
 			attProviderIds.add(StandardEnvironmentAttributeProvider.DEFAULT_ID);
 		}
 
+		/*
+		 * Cross-request cache of attribute values returned by attribute providers (opt-in per attribute provider)
+		 */
+		final Map<String, AttributeProviderCache> attProviderCacheConfsByProviderId = new HashMap<>();
+		for (final AttributeProviderCache attProviderCacheConf : pdpJaxbConf.getAttributeProviderCaches())
+		{
+			/*
+			PDP XML schema is supposed to be used for uniqueness check, but we double-check in case XML schema is disabled.
+			 */
+			if (attProviderCacheConfsByProviderId.putIfAbsent(attProviderCacheConf.getAttributeProvider(), attProviderCacheConf) != null)
+			{
+				throw new IllegalArgumentException("Multiple attributeProviderCache elements for AttributeProvider '" + attProviderCacheConf.getAttributeProvider() + "'");
+			}
+		}
+
+		/*
+		 * Timeouts of attribute providers
+		 */
+		final BigInteger bigAttProviderTimeout = pdpJaxbConf.getAttributeProviderTimeout();
+		final BigInteger bigAttProviderHedgingDelay = pdpJaxbConf.getAttributeProviderHedgingDelay();
+		final BigInteger bigAttProviderWorkerThreads = pdpJaxbConf.getAttributeProviderWorkerThreads();
+		final BigInteger bigRequestEvaluationTimeout = pdpJaxbConf.getRequestEvaluationTimeout();
+		final long attProviderTimeout;
+		final long attProviderHedgingDelay;
+		final int attProviderWorkerThreads;
+		final long requestEvaluationTimeout;
+		try
+		{
+			attProviderTimeout = bigAttProviderTimeout.longValueExact();
+			attProviderHedgingDelay = bigAttProviderHedgingDelay.longValueExact();
+			attProviderWorkerThreads = bigAttProviderWorkerThreads.intValueExact();
+			requestEvaluationTimeout = bigRequestEvaluationTimeout.longValueExact();
+		}
+		catch (final ArithmeticException e)
+		{
+			throw new IllegalArgumentException("Invalid attributeProviderTimeout/attributeProviderHedgingDelay/attributeProviderWorkerThreads/requestEvaluationTimeout: " + bigAttProviderTimeout + "/"
+			        + bigAttProviderHedgingDelay + "/" + bigAttProviderWorkerThreads + "/" + bigRequestEvaluationTimeout, e);
+		}
+
+		/*
+		 * Worker threads shared by all the time-limited attribute providers (created on first use)
+		 */
+		ExecutorService timeLimitedAttProviderExecutor = null;
+
 		for (final AbstractAttributeProvider attProviderJaxbConf : attProviderJaxbConfs)
 		{
 			Preconditions.checkArgument(!(attProviderJaxbConf instanceof StdEnvAttributeProviderDescriptor) || !enableStdAttProviders, "Custom StdEnvAttributeProviderDescriptor(s) is/are not compatible with standardAttributeProvidersEnabled='true' in PDP configuration");
@@ -387,10 +466,75 @@ public final class PdpEngineConfiguration
 				throw new IllegalArgumentException("AttributeProvider ID '" + attProviderJaxbConf.getId() + "' already used! Each AttributeProvider ID must be unique in the PDP configuration.");
 			}
 
-			final CloseableNamedAttributeProvider.DependencyAwareFactory depAwareAttrProviderModFactory = newAttributeProviderProviderFactory(attProviderJaxbConf, envProps);
+			final CloseableNamedAttributeProvider.DependencyAwareFactory baseAttrProviderModFactory = newAttributeProviderProviderFactory(attProviderJaxbConf, envProps);
+			/*
+			 * Standard environment attributes (current date/time) and XACML Variable-based attributes depend on the request context, therefore are not cacheable; and they are resolved in memory, no
+			 * need for timeout.
+			 */
+			final boolean isBuiltInAttrProvider = attProviderJaxbConf instanceof StdEnvAttributeProviderDescriptor || attProviderJaxbConf instanceof XacmlVarBasedAttributeProviderDescriptor;
+			final CloseableNamedAttributeProvider.DependencyAwareFactory uncachedAttrProviderModFactory;
+			if (attProviderTimeout == 0 || isBuiltInAttrProvider)
+			{
+				uncachedAttrProviderModFactory = baseAttrProviderModFactory;
+			}
+			else
+			{
+				if (timeLimitedAttProviderExecutor == null)
+				{
+					timeLimitedAttProviderExecutor = TimeLimitedNamedAttributeProvider.newExecutor(attProviderWorkerThreads);
+				}
+
+				uncachedAttrProviderModFactory = new TimeLimitedNamedAttributeProvider.Factory(attProviderJaxbConf.getId(), baseAttrProviderModFactory, timeLimitedAttProviderExecutor,
+				        Duration.ofMillis(attProviderTimeout), Duration.ofMillis(attProviderHedgingDelay));
+			}
+
+			/*
+			 * Cache outside of the time limit, so that cache hits do not go through worker threads
+			 */
+			final AttributeProviderCache attProviderCacheConf = attProviderCacheConfsByProviderId.remove(attProviderJaxbConf.getId());
+			final CloseableNamedAttributeProvider.DependencyAwareFactory depAwareAttrProviderModFactory;
+			if (attProviderCacheConf == null)
+			{
+				depAwareAttrProviderModFactory = uncachedAttrProviderModFactory;
+			}
+			else
+			{
+				if (isBuiltInAttrProvider)
+				{
+					throw new IllegalArgumentException("Invalid attributeProviderCache for AttributeProvider '" + attProviderJaxbConf.getId()
+					        + "': standard attribute providers and XacmlVarBasedAttributeProviderDescriptor depend on the request context, therefore cannot be cached");
+				}
+
+				final long attProviderCacheTtl;
+				final long attProviderCacheStaleWhileRevalidate;
+				final int attProviderCacheMaxSize;
+				try
+				{
+					attProviderCacheTtl = attProviderCacheConf.getTtl().longValueExact();
+					attProviderCacheStaleWhileRevalidate = attProviderCacheConf.getStaleWhileRevalidate().longValueExact();
+					attProviderCacheMaxSize = attProviderCacheConf.getMaxSize().intValueExact();
+				}
+				catch (final ArithmeticException e)
+				{
+					throw new IllegalArgumentException("Invalid ttl/staleWhileRevalidate/maxSize of attributeProviderCache for AttributeProvider '" + attProviderJaxbConf.getId() + "': "
+					        + attProviderCacheConf.getTtl() + "/" + attProviderCacheConf.getStaleWhileRevalidate() + "/" + attProviderCacheConf.getMaxSize(), e);
+				}
+
+				depAwareAttrProviderModFactory = new CachingNamedAttributeProvider.Factory(attProviderJaxbConf.getId(), uncachedAttrProviderModFactory, Duration.ofSeconds(attProviderCacheTtl),
+				        Duration.ofSeconds(attProviderCacheStaleWhileRevalidate), attProviderCacheMaxSize);
+			}
+
 			attProviderFactories.add(depAwareAttrProviderModFactory);
 		}
 
+		/*
+		PDP XML schema is supposed to be used for this reference check as well
+		 */
+		if (!attProviderCacheConfsByProviderId.isEmpty())
+		{
+			throw new IllegalArgumentException("attributeProviderCache element(s) referring to undefined AttributeProvider(s): " + attProviderCacheConfsByProviderId.keySet());
+		}
+
 
 		/*
 		 * Variable processing - max Variable reference depth
@@ -507,7 +651,30 @@ public final class PdpEngineConfiguration
 		/*
 		 * XACML Expression factory/parser
 		 */
-		attProviders = attProviderFactories.isEmpty()? Optional.empty(): Optional.of(new CloseableNamedAttributeProviderRegistry(attProviderFactories, attValFactoryRegistry, strictAttributeIssuerMatch));
+		if(attProviderFactories.isEmpty()) {
+			attProviders = Optional.empty();
+		} else {
+			/*
+			 * Concurrent calls to the attribute providers of the same attribute
+			 */
+			final BigInteger bigAttProviderParallelism = pdpJaxbConf.getAttributeProviderParallelism();
+			final int attProviderParallelism;
+			try
+			{
+				attProviderParallelism = bigAttProviderParallelism.intValueExact();
+			}
+			catch (final ArithmeticException e)
+			{
+				throw new IllegalArgumentException("Invalid attributeProviderParallelism: " + bigAttProviderParallelism, e);
+			}
+
+			final Optional<ExecutorService> compositeAttProviderExecutor = attProviderParallelism <= 1 ? Optional.empty() : Optional.of(Executors.newFixedThreadPool(attProviderParallelism, runnable -> {
+				final Thread thread = new Thread(runnable, "authzforce-attribute-providers");
+				thread.setDaemon(true);
+				return thread;
+			}));
+			attProviders = Optional.of(new CloseableNamedAttributeProviderRegistry(attProviderFactories, attValFactoryRegistry, strictAttributeIssuerMatch, Duration.ofMillis(requestEvaluationTimeout), compositeAttProviderExecutor));
+		}
 		final ExpressionFactory xacmlExprFactory = new DepthLimitingExpressionFactory(attValFactoryRegistry, functionRegistry, maxVarRefDepth, enableXPath, strictAttributeIssuerMatch, attProviders);
 
 		/*
@@ -519,11 +686,49 @@ public final class PdpEngineConfiguration
 			throw NO_POLICYPROVIDER_ARGUMENT_EXCEPTION;
 		}
 
+		/*
+		 * Cross-request cache of policies resolved by dynamic policy providers
+		 */
+		final BigInteger bigDynamicPolicyCacheTtl = pdpJaxbConf.getDynamicPolicyCacheTtl();
+		final BigInteger bigDynamicPolicyCacheMaxSize = pdpJaxbConf.getDynamicPolicyCacheMaxSize();
+		final long dynamicPolicyCacheTtl;
+		final int dynamicPolicyCacheMaxSize;
+		try
+		{
+			dynamicPolicyCacheTtl = bigDynamicPolicyCacheTtl.longValueExact();
+			dynamicPolicyCacheMaxSize = bigDynamicPolicyCacheMaxSize.intValueExact();
+		}
+		catch (final ArithmeticException e)
+		{
+			throw new IllegalArgumentException("Invalid dynamicPolicyCacheTtl/dynamicPolicyCacheMaxSize: " + bigDynamicPolicyCacheTtl + "/" + bigDynamicPolicyCacheMaxSize, e);
+		}
+
 		CloseablePolicyProvider<?> mutableCombinedPolicyProvider = null;
+		final List<org.ow2.authzforce.core.xmlns.pdp.StaticPolicyProvider> mutableStaticPolicyProviderJaxbConfs = new ArrayList<>();
+		final List<CachingPolicyProvider<?>> mutableDynamicPolicyCaches = new ArrayList<>();
 		for (final AbstractPolicyProvider policyProviderJaxbConf : policyProviderJaxbConfs)
 		{
-			final CloseablePolicyProvider<?> newPolicyProvider = newPolicyProvider(policyProviderJaxbConf, xacmlParserFactory, maxPolicySetRefDepth, xacmlExprFactory, combiningAlgRegistry,
+			if (policyProviderJaxbConf instanceof org.ow2.authzforce.core.xmlns.pdp.StaticPolicyProvider staticPolicyProviderJaxbConf)
+			{
+				mutableStaticPolicyProviderJaxbConfs.add(staticPolicyProviderJaxbConf);
+			}
+
+			final CloseablePolicyProvider<?> newUncachedPolicyProvider = newPolicyProvider(policyProviderJaxbConf, xacmlParserFactory, maxPolicySetRefDepth, xacmlExprFactory, combiningAlgRegistry,
 			        envProps, Optional.ofNullable(mutableCombinedPolicyProvider));
+			/*
+			 * Static policy providers resolve policies once and for all at initialization, no need for cache
+			 */
+			final CloseablePolicyProvider<?> newPolicyProvider;
+			if (dynamicPolicyCacheTtl == 0 || newUncachedPolicyProvider instanceof CloseableStaticPolicyProvider)
+			{
+				newPolicyProvider = newUncachedPolicyProvider;
+			}
+			else
+			{
+				final CachingPolicyProvider<?> cachingPolicyProvider = new CachingPolicyProvider<>(newUncachedPolicyProvider, Duration.ofSeconds(dynamicPolicyCacheTtl), dynamicPolicyCacheMaxSize);
+				mutableDynamicPolicyCaches.add(cachingPolicyProvider);
+				newPolicyProvider = cachingPolicyProvider;
+			}
 
 			/*
 			 * Update combinedPolicyProvider with new policy provider
@@ -544,6 +749,9 @@ public final class PdpEngineConfiguration
 		}
 
 		combinedPolicyProvider = mutableCombinedPolicyProvider;
+		this.dynamicPolicyCaches = Collections.unmodifiableList(mutableDynamicPolicyCaches);
+		this.staticPolicyProviderJaxbConfs = Collections.unmodifiableList(mutableStaticPolicyProviderJaxbConfs);
+		this.envProps = envProps;
 
 		final TopLevelPolicyElementRef rootPolicyRef = pdpJaxbConf.getRootPolicyRef();
 		/*
@@ -558,6 +766,7 @@ public final class PdpEngineConfiguration
 			this.rootPolicyElementType = Optional.of(nonNullRootPolicyMeta.getType());
 			this.rootPolicyId = nonNullRootPolicyMeta.getId();
 			this.rootPolicyVersionPatterns = Optional.of(new PolicyVersionPatterns(nonNullRootPolicyMeta.getVersion().toString(), null, null));
+			this.isRootPolicyFromCandidate = true;
 		}
 		else
 		{
@@ -566,6 +775,7 @@ public final class PdpEngineConfiguration
 			        : mustBePolicySet ? Optional.of(TopLevelPolicyElementType.POLICY_SET) : Optional.of(TopLevelPolicyElementType.POLICY);
 			this.rootPolicyId = rootPolicyRef.getValue();
 			this.rootPolicyVersionPatterns = Optional.of(new PolicyVersionPatterns(rootPolicyRef.getVersion(), null, null));
+			this.isRootPolicyFromCandidate = false;
 		}
 
 		// Decision cache
@@ -649,6 +859,48 @@ public final class PdpEngineConfiguration
 			this.ioProcChainsByInputType = ImmutableMap.copyOf(mutableInoutProcChainsByInputType);
 		}
 
+		this.metricsListener = Optional.empty();
+		this.decisionAuditLog = Optional.empty();
+	}
+
+	/*
+	 * Copy of the configuration with a different (reloaded) policy provider, metrics listener and/or decision audit log, sharing all other components
+	 */
+	private PdpEngineConfiguration(final PdpEngineConfiguration conf, final CloseablePolicyProvider<?> policyProvider, final Optional<EvaluationMetricsListener> metricsListener,
+	        final Optional<DecisionAuditLog> decisionAuditLog) throws IllegalArgumentException
+	{
+		this.enableXPath = conf.enableXPath;
+		this.attValFactoryRegistry = conf.attValFactoryRegistry;
+		this.strictAttributeIssuerMatch = conf.strictAttributeIssuerMatch;
+		this.attProviders = conf.attProviders;
+		this.combinedPolicyProvider = policyProvider;
+		this.dynamicPolicyCaches = conf.dynamicPolicyCaches;
+		this.staticPolicyProviderJaxbConfs = conf.staticPolicyProviderJaxbConfs;
+		this.envProps = conf.envProps;
+		this.rootPolicyId = conf.rootPolicyId;
+		this.rootPolicyElementType = conf.rootPolicyElementType;
+		this.isRootPolicyFromCandidate = conf.isRootPolicyFromCandidate;
+		if (conf.isRootPolicyFromCandidate)
+		{
+			// the latest version may have changed
+			final PrimaryPolicyMetadata nonNullRootPolicyMeta = policyProvider.getCandidateRootPolicy().orElseThrow(() -> ILLEGAL_ROOT_POLICY_REF_CONFIG_EXCEPTION);
+			if (!nonNullRootPolicyMeta.getId().equals(conf.rootPolicyId) || conf.rootPolicyElementType.isPresent() && nonNullRootPolicyMeta.getType() != conf.rootPolicyElementType.get())
+			{
+				throw new IllegalArgumentException("Candidate root policy changed from " + conf.rootPolicyElementType.orElse(null) + " '" + conf.rootPolicyId + "' to " + nonNullRootPolicyMeta);
+			}
+
+			this.rootPolicyVersionPatterns = Optional.of(new PolicyVersionPatterns(nonNullRootPolicyMeta.getVersion().toString(), null, null));
+		}
+		else
+		{
+			this.rootPolicyVersionPatterns = conf.rootPolicyVersionPatterns;
+		}
+
+		this.decisionCache = conf.decisionCache;
+		this.ioProcChainsByInputType = conf.ioProcChainsByInputType;
+		this.clientReqErrVerbosityLevel = conf.clientReqErrVerbosityLevel;
+		this.metricsListener = metricsListener;
+		this.decisionAuditLog = decisionAuditLog;
 	}
 
 	/**
@@ -922,6 +1174,71 @@ public final class PdpEngineConfiguration
 		return getInstance(confLocation, null, null);
 	}
 
+	/**
+	 * Get the directories in the file system where the StaticPolicyProviders (defined in PDP configuration) load the policies from, e.g. to watch them for policy changes. Computed on every call
+	 * (directory listing), therefore only meant to be called when needed.
+	 *
+	 * @return policy directories (absolute paths), empty if none
+	 * @throws java.io.IOException
+	 *             error listing the subdirectories of a policy location pattern's base directory
+	 */
+	public Set<Path> getStaticPolicyLocationDirectories() throws IOException
+	{
+		final Set<Path> policyDirs = new LinkedHashSet<>();
+		for (final org.ow2.authzforce.core.xmlns.pdp.StaticPolicyProvider staticPolicyProviderJaxbConf : staticPolicyProviderJaxbConfs)
+		{
+			policyDirs.addAll(CoreStaticPolicyProvider.Factory.getPolicyLocationDirectories(staticPolicyProviderJaxbConf, envProps));
+		}
+
+		return policyDirs;
+	}
+
+	/**
+	 * Reloads the policies of the StaticPolicyProvider incrementally, i.e. parsing again only the changed policy files and instantiating again only the changed policies and the PolicySets referring to
+	 * them (see {@link CoreStaticPolicyProvider#reload(Set)}), e.g. instead of loading the whole configuration again when policy files change. All the other components (attribute providers, I/O
+	 * processing chains...) are shared with this configuration, which is not modified.
+	 * <p>
+	 * This is only supported if the PDP configuration has a single policy provider, of type StaticPolicyProvider with the {@code incrementalReload} option enabled, and no decision cache (the cached
+	 * decisions of the previous policies would be invalid).
+	 *
+	 * @param changedFiles
+	 *            files (absolute paths) created, modified or deleted in the policy directories (see {@link #getStaticPolicyLocationDirectories()}) since this configuration was loaded
+	 * @return the new configuration, or this one if no policy file has changed; empty if the incremental reload is not supported, in which case the whole configuration must be loaded again
+	 * @throws java.lang.IllegalArgumentException
+	 *             if one of the changed policy documents is not valid, or the root policy cannot be resolved anymore
+	 */
+	public Optional<PdpEngineConfiguration> reloadStaticPolicies(final Set<Path> changedFiles) throws IllegalArgumentException
+	{
+		if (!(combinedPolicyProvider instanceof CoreStaticPolicyProvider staticPolicyProvider) || decisionCache.isPresent())
+		{
+			return Optional.empty();
+		}
+
+		final Optional<CoreStaticPolicyProvider> newPolicyProvider = staticPolicyProvider.reload(changedFiles);
+		if (newPolicyProvider.isEmpty())
+		{
+			return Optional.empty();
+		}
+
+		return Optional.of(newPolicyProvider.get() == staticPolicyProvider ? this : new PdpEngineConfiguration(this, newPolicyProvider.get(), this.metricsListener, this.decisionAuditLog));
+	}
+
+	/**
+	 * Get the policy snapshot files of the StaticPolicyProviders (defined in PDP configuration), e.g. to ignore their changes when watching the policy directories
+	 *
+	 * @return policy snapshot files (absolute paths), empty if none
+	 */
+	public Set<Path> getStaticPolicySnapshotFiles()
+	{
+		final Set<Path> snapshotFiles = new LinkedHashSet<>();
+		for (final org.ow2.authzforce.core.xmlns.pdp.StaticPolicyProvider staticPolicyProviderJaxbConf : staticPolicyProviderJaxbConfs)
+		{
+			CoreStaticPolicyProvider.Factory.getSnapshotFile(staticPolicyProviderJaxbConf, envProps).ifPresent(snapshotFiles::add);
+		}
+
+		return snapshotFiles;
+	}
+
 	/**
 	 * Returns true iff XPath (AttributeSelectors, xpathExpression datatype and xpath functions) support is enabled. For your information, AttributeSelector and xpathExpression datatype support is
 	 * marked as optional in XACML 3.0 core specification.
@@ -954,7 +1271,8 @@ public final class PdpEngineConfiguration
 	}
 
 	/**
-	 * Returns the Policy Provider in charge of providing the root policy where the PDP starts evaluation, and any other referenced policy
+	 * Returns the Policy Provider in charge of providing the root policy where the PDP starts evaluation, and any other referenced policy. If the dynamic policy cache is enabled (dynamicPolicyCacheTtl
+	 * &gt; 0 in PDP configuration), the non-static policyProviders are wrapped in {@link CachingPolicyProvider}s.
 	 * 
 	 * @return the Policy Provider
 	 */
@@ -963,6 +1281,37 @@ public final class PdpEngineConfiguration
 		return combinedPolicyProvider;
 	}
 
+	/**
+	 * Invalidates the policies cached across requests for a given policy type and ID (any version), and the cached PolicySets referring to this policy, e.g. when the policy is known to have changed
+	 * in the (non-static) policyProvider(s). No effect if the dynamic policy cache is disabled (dynamicPolicyCacheTtl = 0 in PDP configuration).
+	 * <p>
+	 * This applies to the {@link PdpEngine}s created from this configuration since they share the same policy providers.
+	 *
+	 * @param policyType
+	 *            policy type
+	 * @param policyId
+	 *            policy ID
+	 * @see CachingPolicyProvider#invalidate(TopLevelPolicyElementType, String)
+	 */
+	public void invalidateCachedPolicies(final TopLevelPolicyElementType policyType, final String policyId)
+	{
+		for (final CachingPolicyProvider<?> dynamicPolicyCache : dynamicPolicyCaches)
+		{
+			dynamicPolicyCache.invalidate(policyType, policyId);
+		}
+	}
+
+	/**
+	 * Invalidates all the policies cached across requests (see {@link #invalidateCachedPolicies(TopLevelPolicyElementType, String)})
+	 */
+	public void invalidateCachedPolicies()
+	{
+		for (final CachingPolicyProvider<?> dynamicPolicyCache : dynamicPolicyCaches)
+		{
+			dynamicPolicyCache.invalidateAll();
+		}
+	}
+
 	/**
 	 * Returns the type of the root policy element where the evaluation starts
 	 * 
@@ -1044,4 +1393,51 @@ public final class PdpEngineConfiguration
 		return this.ioProcChainsByInputType;
 	}
 
+	/**
+	 * Returns the listener of the evaluation metrics of the PDP engines created from this configuration
+	 *
+	 * @return the metrics listener; empty if metrics are disabled (default)
+	 */
+	public Optional<EvaluationMetricsListener> getMetricsListener()
+	{
+		return this.metricsListener;
+	}
+
+	/**
+	 * Returns a copy of this configuration with a different evaluation metrics listener, sharing all other components. Each PDP engine created from the returned configuration notifies
+	 * {@code newMetricsListener} only, i.e. engines created from different configurations have separate metrics.
+	 *
+	 * @param newMetricsListener
+	 *            listener of the evaluation metrics; null to disable metrics
+	 * @return new configuration
+	 */
+	public PdpEngineConfiguration withMetricsListener(final EvaluationMetricsListener newMetricsListener)
+	{
+		return new PdpEngineConfiguration(this, this.combinedPolicyProvider, Optional.ofNullable(newMetricsListener), this.decisionAuditLog);
+	}
+
+	/**
+	 * Returns the audit log of the decisions of the PDP engines created from this configuration
+	 *
+	 * @return the decision audit log; empty if audit is disabled (default)
+	 */
+	public Optional<DecisionAuditLog> getDecisionAuditLog()
+	{
+		return this.decisionAuditLog;
+	}
+
+	/**
+	 * Returns a copy of this configuration with a different decision audit log, sharing all other components. Each PDP engine created from the returned configuration records every Individual
+	 * Decision in {@code newDecisionAuditLog}, with the evaluation time of this Individual Decision only (also when part of a Multiple Decision request). The audit log is not closed by the PDP
+	 * engines, i.e. it may be shared by the successive engines of a {@link ReloadablePdpEngine}, and it is up to the caller to close it.
+	 *
+	 * @param newDecisionAuditLog
+	 *            decision audit log; null to disable audit
+	 * @return new configuration
+	 */
+	public PdpEngineConfiguration withDecisionAuditLog(final DecisionAuditLog newDecisionAuditLog)
+	{
+		return new PdpEngineConfiguration(this, this.combinedPolicyProvider, this.metricsListener, Optional.ofNullable(newDecisionAuditLog));
+	}
+
 }
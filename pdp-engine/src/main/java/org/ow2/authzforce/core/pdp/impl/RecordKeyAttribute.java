@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Key attribute (e.g. subject-id) of the Attribute Providers looking up a record by key, e.g. {@link HttpJsonAttributeProvider}, {@link JdbcAttributeProvider} and
+ * {@link MappedFileAttributeProvider}. The key is the single (simple) value of the attribute, resolved by the dependency Attribute Provider.
+ */
+final class RecordKeyAttribute
+{
+	private final AttributeFqn attributeFqn;
+	private final Datatype<?> datatype;
+	private final boolean mustBePresent;
+	private final NamedAttributeProvider attributeProvider;
+
+	/**
+	 * Creates the key attribute
+	 *
+	 * @param attribute
+	 *            key attribute designator (MustBePresent: whether the key is required)
+	 * @param datatype
+	 *            key attribute datatype
+	 * @param attributeProvider
+	 *            Attribute Provider resolving the key attribute
+	 */
+	RecordKeyAttribute(final AttributeDesignatorType attribute, final Datatype<?> datatype, final NamedAttributeProvider attributeProvider)
+	{
+		assert attribute != null && datatype != null && attributeProvider != null;
+		this.attributeFqn = AttributeFqns.newInstance(attribute);
+		this.datatype = datatype;
+		this.mustBePresent = attribute.isMustBePresent();
+		this.attributeProvider = attributeProvider;
+	}
+
+	/**
+	 * Gets the key for a request
+	 *
+	 * @param context
+	 *            request context
+	 * @param mdpContext
+	 *            Multiple Decision request context, if any
+	 * @param providerType
+	 *            type of the Attribute Provider using the key, for error messages, e.g. "JDBC Attribute Provider"
+	 * @param provider
+	 *            Attribute Provider using the key, for error messages
+	 * @return the key; null if no key (key attribute missing and not MustBePresent)
+	 * @throws IndeterminateEvaluationException
+	 *             if the key attribute cannot be resolved, or is missing and MustBePresent, or has more than one value, or its value is not a simple value
+	 */
+	String getKey(final EvaluationContext context, final Optional<EvaluationContext> mdpContext, final String providerType, final NamedAttributeProvider provider) throws IndeterminateEvaluationException
+	{
+		final AttributeBag<?> keyBag = attributeProvider.get(attributeFqn, datatype, context, mdpContext);
+		if (keyBag == null || keyBag.isEmpty())
+		{
+			if (mustBePresent)
+			{
+				throw new IndeterminateEvaluationException(providerType + " '" + provider + "': missing key attribute " + attributeFqn, XacmlStatusCode.MISSING_ATTRIBUTE.value());
+			}
+
+			return null;
+		}
+
+		if (keyBag.size() > 1)
+		{
+			throw new IndeterminateEvaluationException(providerType + " '" + provider + "': key attribute " + attributeFqn + " has more than one value", XacmlStatusCode.PROCESSING_ERROR.value());
+		}
+
+		final List<Serializable> keyContent = keyBag.getSingleElement().getContent();
+		if (keyContent.size() != 1 || !(keyContent.get(0) instanceof String key))
+		{
+			throw new IndeterminateEvaluationException(providerType + " '" + provider + "': value of key attribute " + attributeFqn + " is not a simple value", XacmlStatusCode.PROCESSING_ERROR.value());
+		}
+
+		return key;
+	}
+}
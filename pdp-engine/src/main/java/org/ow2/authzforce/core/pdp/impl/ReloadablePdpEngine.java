@@ -0,0 +1,478 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * PDP engine that reloads its configuration - and therefore the policies - without downtime, whenever the policy files of the StaticPolicyProviders change (see
+ * {@link PdpEngineConfiguration#getStaticPolicyLocationDirectories()}), or on demand (see {@link #reload()}).
+ * <p>
+ * A new {@link BasePdpEngine} is built from the reloaded configuration on a background thread while the current one keeps serving requests, then published atomically: requests in progress complete
+ * with the engine they started with, new requests use the new one. The previous engine is closed as soon as the last request using it completes, so that both engines are in memory only as long as
+ * necessary. If the new configuration is not valid, the error is logged and the current engine is kept.
+ * <p>
+ * Policy directories are watched with a {@link WatchService}. Since a policy update usually consists of several file changes, the reload is performed only after no more change is detected during a
+ * given quiet period. Changes of the policy snapshot files (see {@link PdpEngineConfiguration#getStaticPolicySnapshotFiles()}), which are rewritten on reload, are ignored. If supported by the
+ * configuration (see {@link PdpEngineConfiguration#reloadStaticPolicies(Set)}), only the changed policy files are reloaded and the other components of the configuration are reused by the new
+ * engine; else the whole configuration is loaded again.
+ *
+ * @version $Id: $
+ */
+public final class ReloadablePdpEngine implements CloseablePdpEngine
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReloadablePdpEngine.class);
+
+	private static final IllegalArgumentException NULL_CONF_LOADER_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined PDP configuration loader");
+	private static final IllegalArgumentException INVALID_QUIET_PERIOD_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined or negative quiet period (for policy reload)");
+	private static final IllegalStateException CLOSED_ENGINE_EXCEPTION = new IllegalStateException("PDP engine closed");
+
+	/*
+	 * PDP engine with count of users, i.e. requests in progress, plus one while it is the current engine. The engine is closed when the count drops to zero, unless its components (attribute
+	 * providers...) are still used by another generation (incremental reload), in which case the last generation using them closes them.
+	 */
+	private static final class EngineGeneration
+	{
+		private final BasePdpEngine engine;
+		private final PdpEngineConfiguration configuration;
+		private final long number;
+		private final AtomicInteger userCount = new AtomicInteger(1);
+		// number of generations not closed yet sharing the same components
+		private final AtomicInteger componentsUserCount;
+
+		private EngineGeneration(final PdpEngineConfiguration configuration, final long number, final AtomicInteger componentsUserCount) throws IllegalArgumentException, IOException
+		{
+			assert configuration != null && componentsUserCount != null;
+			this.engine = new BasePdpEngine(configuration);
+			this.configuration = configuration;
+			this.number = number;
+			this.componentsUserCount = componentsUserCount;
+		}
+
+		/*
+		 * Returns false iff the engine is already released by all users (closed or being closed)
+		 */
+		private boolean tryAcquire()
+		{
+			int count;
+			do
+			{
+				count = userCount.get();
+				if (count == 0)
+				{
+					return false;
+				}
+			}
+			while (!userCount.compareAndSet(count, count + 1));
+
+			return true;
+		}
+
+		private void release()
+		{
+			if (userCount.decrementAndGet() == 0)
+			{
+				if (componentsUserCount.decrementAndGet() > 0)
+				{
+					LOGGER.info("PDP engine generation #{} released (components still used by another generation)", number);
+					return;
+				}
+
+				try
+				{
+					engine.close();
+					LOGGER.info("PDP engine generation #{} closed", number);
+				}
+				catch (final IOException e)
+				{
+					LOGGER.error("Error closing PDP engine generation #{}", number, e);
+				}
+			}
+		}
+	}
+
+	private final Callable<PdpEngineConfiguration> confLoader;
+	private final long quietPeriodMillis;
+	private final AtomicReference<EngineGeneration> currentGeneration;
+	private final Object reloadLock = new Object();
+	private final WatchService watchService;
+	private final Thread watcherThread;
+	private volatile boolean closed = false;
+
+	// guarded by reloadLock
+	private final Map<Path, WatchKey> watchKeysByDir = new HashMap<>();
+	private volatile Set<Path> ignoredFiles = Set.of();
+	private long lastGenerationNumber = 0;
+
+	/**
+	 * Creates a reloadable PDP engine, with an initial engine created from the configuration returned by {@code configurationLoader}, and starts watching the directories of its policy locations (if
+	 * any) in a background (daemon) thread
+	 *
+	 * @param configurationLoader
+	 *            loads the PDP configuration, called initially and on every reload. E.g. {@code () -> PdpEngineConfiguration.getInstance(confLocation, catalogLocation, extensionXsdLocation)}
+	 * @param quietPeriod
+	 *            time to wait after the last detected policy file change before reloading
+	 * @throws java.lang.IllegalArgumentException
+	 *             if {@code configurationLoader} is null, {@code quietPeriod} is null/negative, or the initial PDP configuration is not valid
+	 * @throws java.io.IOException
+	 *             error loading the initial PDP configuration or watching the policy directories
+	 */
+	public ReloadablePdpEngine(final Callable<PdpEngineConfiguration> configurationLoader, final Duration quietPeriod) throws IllegalArgumentException, IOException
+	{
+		if (configurationLoader == null)
+		{
+			throw NULL_CONF_LOADER_ARGUMENT_EXCEPTION;
+		}
+
+		if (quietPeriod == null || quietPeriod.isNegative())
+		{
+			throw INVALID_QUIET_PERIOD_ARGUMENT_EXCEPTION;
+		}
+
+		this.confLoader = configurationLoader;
+		this.quietPeriodMillis = quietPeriod.toMillis();
+		final PdpEngineConfiguration initialConf = loadConfiguration();
+		this.watchService = FileSystems.getDefault().newWatchService();
+		try
+		{
+			synchronized (reloadLock)
+			{
+				this.currentGeneration = new AtomicReference<>(new EngineGeneration(initialConf, ++lastGenerationNumber, new AtomicInteger(1)));
+				updateWatchedDirectories(initialConf);
+			}
+		}
+		catch (final IllegalArgumentException | IOException e)
+		{
+			watchService.close();
+			throw e;
+		}
+
+		this.watcherThread = new Thread(this::watchPolicyDirectories, "authzforce-pdp-policy-watcher");
+		this.watcherThread.setDaemon(true);
+		this.watcherThread.start();
+	}
+
+	private PdpEngineConfiguration loadConfiguration() throws IllegalArgumentException, IOException
+	{
+		try
+		{
+			return confLoader.call();
+		}
+		catch (final IllegalArgumentException | IOException e)
+		{
+			throw e;
+		}
+		catch (final Exception e)
+		{
+			throw new IllegalArgumentException("Failed to load PDP configuration", e);
+		}
+	}
+
+	/*
+	 * Must be called with reloadLock held
+	 */
+	private void updateWatchedDirectories(final PdpEngineConfiguration conf) throws IOException
+	{
+		this.ignoredFiles = conf.getStaticPolicySnapshotFiles();
+		final Set<Path> policyDirs = conf.getStaticPolicyLocationDirectories();
+		final Iterator<Entry<Path, WatchKey>> watchKeyIt = watchKeysByDir.entrySet().iterator();
+		while (watchKeyIt.hasNext())
+		{
+			final Entry<Path, WatchKey> watchKeyEntry = watchKeyIt.next();
+			if (!policyDirs.contains(watchKeyEntry.getKey()))
+			{
+				watchKeyEntry.getValue().cancel();
+				watchKeyIt.remove();
+			}
+		}
+
+		for (final Path policyDir : policyDirs)
+		{
+			if (!watchKeysByDir.containsKey(policyDir))
+			{
+				LOGGER.debug("Watching policy directory '{}' for changes", policyDir);
+				watchKeysByDir.put(policyDir,
+						policyDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+			}
+		}
+	}
+
+	/*
+	 * Policy snapshot file or temporary file created when writing it (same directory and filename prefix)
+	 */
+	private boolean isIgnored(final Path file)
+	{
+		final Path filename = file.getFileName();
+		for (final Path ignoredFile : ignoredFiles)
+		{
+			if (file.equals(ignoredFile) || filename != null && Objects.equals(file.getParent(), ignoredFile.getParent()) && filename.toString().startsWith(ignoredFile.getFileName().toString())
+					&& filename.toString().endsWith(".tmp"))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void watchPolicyDirectories()
+	{
+		try
+		{
+			while (!closed)
+			{
+				// wait for first change
+				WatchKey watchKey = watchService.take();
+				/*
+				 * Wait for the quiet period, i.e. until no more change
+				 */
+				final Set<Path> changedFiles = new HashSet<>();
+				// OVERFLOW: events lost, changed files unknown
+				boolean overflow = false;
+				do
+				{
+					final Path dir = (Path) watchKey.watchable();
+					for (final WatchEvent<?> event : watchKey.pollEvents())
+					{
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+						{
+							overflow = true;
+						}
+						else
+						{
+							final Path changedFile = dir.resolve((Path) event.context());
+							if (!isIgnored(changedFile))
+							{
+								changedFiles.add(changedFile);
+							}
+						}
+					}
+
+					watchKey.reset();
+					watchKey = watchService.poll(quietPeriodMillis, TimeUnit.MILLISECONDS);
+				}
+				while (watchKey != null);
+
+				if (!overflow && changedFiles.isEmpty())
+				{
+					LOGGER.debug("Change of policy snapshot file(s) only -> ignored");
+					continue;
+				}
+
+				LOGGER.info("Change of policy file(s) detected -> reloading PDP engine");
+				try
+				{
+					if (overflow)
+					{
+						reload();
+					}
+					else
+					{
+						reload(changedFiles);
+					}
+				}
+				catch (final IllegalArgumentException | IOException e)
+				{
+					LOGGER.error("Failed to reload PDP engine after change of policy file(s) -> keeping the current one", e);
+				}
+			}
+		}
+		catch (final InterruptedException | ClosedWatchServiceException e)
+		{
+			LOGGER.debug("Policy directory watcher stopped");
+		}
+	}
+
+	/**
+	 * Reloads the PDP configuration and replaces the current PDP engine with a new one created from it. Requests in progress complete with the current engine. If the reload fails, the current engine
+	 * is kept.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 *             invalid PDP configuration
+	 * @throws java.io.IOException
+	 *             error loading the PDP configuration or watching its policy directories
+	 * @throws java.lang.IllegalStateException
+	 *             if this engine is closed
+	 */
+	public void reload() throws IllegalArgumentException, IOException, IllegalStateException
+	{
+		synchronized (reloadLock)
+		{
+			if (closed)
+			{
+				throw CLOSED_ENGINE_EXCEPTION;
+			}
+
+			publish(new EngineGeneration(loadConfiguration(), ++lastGenerationNumber, new AtomicInteger(1)));
+		}
+	}
+
+	/*
+	 * Reloads only the changed policy files if supported by the current configuration, else the whole configuration
+	 */
+	private void reload(final Set<Path> changedFiles) throws IllegalArgumentException, IOException, IllegalStateException
+	{
+		synchronized (reloadLock)
+		{
+			if (closed)
+			{
+				throw CLOSED_ENGINE_EXCEPTION;
+			}
+
+			final EngineGeneration generation = currentGeneration.get();
+			final Optional<PdpEngineConfiguration> newConf = generation.configuration.reloadStaticPolicies(changedFiles);
+			if (newConf.isEmpty())
+			{
+				LOGGER.info("Incremental policy reload not supported by the PDP configuration or for the changed files -> reloading the whole configuration");
+				reload();
+				return;
+			}
+
+			if (newConf.get() == generation.configuration)
+			{
+				LOGGER.info("No policy file changed -> PDP engine not reloaded");
+				return;
+			}
+
+			// components shared with the current generation
+			generation.componentsUserCount.incrementAndGet();
+			final EngineGeneration newGeneration;
+			try
+			{
+				newGeneration = new EngineGeneration(newConf.get(), ++lastGenerationNumber, generation.componentsUserCount);
+			}
+			catch (final IllegalArgumentException | IOException e)
+			{
+				generation.componentsUserCount.decrementAndGet();
+				throw e;
+			}
+
+			publish(newGeneration);
+		}
+	}
+
+	/*
+	 * Must be called with reloadLock held
+	 */
+	private void publish(final EngineGeneration newGeneration) throws IOException
+	{
+		final EngineGeneration oldGeneration = currentGeneration.getAndSet(newGeneration);
+		LOGGER.info("PDP engine generation #{} published (replacing #{})", newGeneration.number, oldGeneration.number);
+		// the old engine is closed once the requests in progress with it are completed
+		oldGeneration.release();
+		try
+		{
+			updateWatchedDirectories(newGeneration.configuration);
+		}
+		catch (final IOException e)
+		{
+			throw new IOException("PDP engine reloaded but failed to watch new policy directories", e);
+		}
+	}
+
+	private EngineGeneration acquireCurrentGeneration()
+	{
+		while (true)
+		{
+			final EngineGeneration generation = currentGeneration.get();
+			if (generation.tryAcquire())
+			{
+				return generation;
+			}
+
+			/*
+			 * Released in the meantime, i.e. replaced by a new generation, unless this engine is closed
+			 */
+			if (closed)
+			{
+				throw CLOSED_ENGINE_EXCEPTION;
+			}
+		}
+	}
+
+	@Override
+	public Iterable<PrimaryPolicyMetadata> getApplicablePolicies()
+	{
+		return currentGeneration.get().engine.getApplicablePolicies();
+	}
+
+	@Override
+	public DecisionRequestBuilder<?> newRequestBuilder(final int expectedNumOfAttributeCategories, final int expectedTotalNumOfAttributes)
+	{
+		return currentGeneration.get().engine.newRequestBuilder(expectedNumOfAttributeCategories, expectedTotalNumOfAttributes);
+	}
+
+	@Override
+	public DecisionResult evaluate(final DecisionRequest individualDecisionRequest)
+	{
+		final EngineGeneration generation = acquireCurrentGeneration();
+		try
+		{
+			return generation.engine.evaluate(individualDecisionRequest);
+		}
+		finally
+		{
+			generation.release();
+		}
+	}
+
+	@Override
+	public <INDIVIDUAL_DECISION_REQ_T extends DecisionRequest> Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> evaluate(
+			final List<INDIVIDUAL_DECISION_REQ_T> individualDecisionRequests, final EvaluationContext mdpContext) throws IndeterminateEvaluationException
+	{
+		final EngineGeneration generation = acquireCurrentGeneration();
+		try
+		{
+			return generation.engine.evaluate(individualDecisionRequests, mdpContext);
+		}
+		finally
+		{
+			generation.release();
+		}
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		synchronized (reloadLock)
+		{
+			if (closed)
+			{
+				return;
+			}
+
+			closed = true;
+			watcherThread.interrupt();
+			watchService.close();
+			currentGeneration.get().release();
+		}
+	}
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import jakarta.xml.bind.JAXBElement;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.*;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Structural sharing (hash-consing) of the evaluators of identical Targets, Conditions and Apply expressions across policies.
+ * <p>
+ * The structural key of a Target/Condition/Apply is built from its XACML elements, and is defined only if the result of its evaluation depends on nothing but these elements, i.e. it uses only
+ * AttributeDesignators, (text) AttributeValues, Functions and nested Applys. AttributeSelectors and XPath expressions depend on the namespace context of the enclosing policy, and VariableReferences
+ * on the VariableDefinitions of the enclosing policy, therefore Targets/Conditions/Applys using them are not shared. Two elements with equal structural keys can share the same evaluator, e.g. with
+ * {@link org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory#getShared(List, java.util.function.Supplier)}.
+ * <p>
+ * Shared Target/Condition evaluators memoize their result in the Individual Decision request context (see {@link #newRequestScopedMemoizingEvaluator(BooleanEvaluator)}), so that a Target/Condition
+ * repeated in several policies - e.g. a subject-level Target in sibling policies - is evaluated only once per request.
+ *
+ * @version $Id: $
+ */
+public final class SharedEvaluators
+{
+	private static final class RequestScopedMemoizingBooleanEvaluator implements BooleanEvaluator
+	{
+		private final BooleanEvaluator delegate;
+		private final String requestScopedMemoKey;
+
+		private RequestScopedMemoizingBooleanEvaluator(final BooleanEvaluator delegate)
+		{
+			assert delegate != null;
+			this.delegate = delegate;
+			/*
+			 * define a unique key for caching the result in the request context
+			 */
+			this.requestScopedMemoKey = EvaluationContextKeys.newInstanceKey(RequestScopedMemoizingBooleanEvaluator.class);
+		}
+
+		@Override
+		public boolean evaluate(final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			if (context == null)
+			{
+				return delegate.evaluate(null, mdpContext);
+			}
+
+			// check whether the result was already computed in the same context
+			final Object memoizedResult = context.getOther(requestScopedMemoKey);
+			if (memoizedResult instanceof Boolean result)
+			{
+				return result;
+			}
+
+			// Indeterminate results (exceptions) are not memoized
+			final boolean result = delegate.evaluate(context, mdpContext);
+			context.putOther(requestScopedMemoKey, result);
+			return result;
+		}
+
+		@Override
+		public String toString()
+		{
+			return delegate.toString();
+		}
+	}
+
+	/**
+	 * Creates an evaluator memoizing the result of a given one in the Individual Decision request context, to be used for shared Target/Condition evaluators (evaluated multiple times per request).
+	 *
+	 * @param evaluator
+	 *            Target/Condition evaluator
+	 * @return memoizing evaluator; or {@code evaluator} as is if constant ({@link BooleanEvaluators#TRUE}/{@link BooleanEvaluators#FALSE}, or the match-all Target)
+	 */
+	public static BooleanEvaluator newRequestScopedMemoizingEvaluator(final BooleanEvaluator evaluator)
+	{
+		assert evaluator != null;
+		if (evaluator == BooleanEvaluators.TRUE || evaluator == BooleanEvaluators.FALSE || evaluator == TargetEvaluators.MATCH_ALL_TARGET_EVALUATOR)
+		{
+			return evaluator;
+		}
+
+		return new RequestScopedMemoizingBooleanEvaluator(evaluator);
+	}
+
+	/*
+	 * Returns null if not shareable
+	 */
+	private static List<Object> newKey(final ExpressionType expr)
+	{
+		if (expr instanceof AttributeDesignatorType jaxbAttDes)
+		{
+			return newKey(jaxbAttDes);
+		}
+
+		if (expr instanceof AttributeValueType jaxbAttVal)
+		{
+			return newKey(jaxbAttVal);
+		}
+
+		if (expr instanceof FunctionType jaxbFunc)
+		{
+			return List.of("Function", jaxbFunc.getFunctionId());
+		}
+
+		if (expr instanceof ApplyType jaxbApply)
+		{
+			final List<JAXBElement<? extends ExpressionType>> jaxbArgs = jaxbApply.getExpressions();
+			final List<Object> key = new ArrayList<>(3 + jaxbArgs.size());
+			key.add("Apply");
+			key.add(jaxbApply.getFunctionId());
+			key.add(Objects.toString(jaxbApply.getDescription(), ""));
+			for (final JAXBElement<? extends ExpressionType> jaxbArg : jaxbArgs)
+			{
+				final List<Object> argKey = newKey(jaxbArg.getValue());
+				if (argKey == null)
+				{
+					return null;
+				}
+
+				key.add(argKey);
+			}
+
+			return List.copyOf(key);
+		}
+
+		// AttributeSelector, VariableReference
+		return null;
+	}
+
+	private static List<Object> newKey(final AttributeDesignatorType jaxbAttDes)
+	{
+		return List.of("AttributeDesignator", jaxbAttDes.getCategory(), jaxbAttDes.getAttributeId(), jaxbAttDes.getDataType(), Objects.toString(jaxbAttDes.getIssuer(), ""),
+		        jaxbAttDes.isMustBePresent());
+	}
+
+	private static List<Object> newKey(final AttributeValueType jaxbAttVal)
+	{
+		if (!jaxbAttVal.getOtherAttributes().isEmpty() || StandardDatatypes.XPATH.getId().equals(jaxbAttVal.getDataType()))
+		{
+			return null;
+		}
+
+		final StringBuilder textContent = new StringBuilder();
+		for (final Serializable contentItem : jaxbAttVal.getContent())
+		{
+			if (!(contentItem instanceof String text))
+			{
+				// XML content
+				return null;
+			}
+
+			textContent.append(text);
+		}
+
+		return List.of("AttributeValue", jaxbAttVal.getDataType(), textContent.toString());
+	}
+
+	/**
+	 * Gets the structural key of an Apply expression
+	 *
+	 * @param apply
+	 *            XACML Apply
+	 * @return structural key; empty if the Apply cannot be shared (see class description)
+	 */
+	public static Optional<List<Object>> getKey(final ApplyType apply)
+	{
+		return Optional.ofNullable(newKey(apply));
+	}
+
+	/**
+	 * Gets the structural key of a Condition
+	 *
+	 * @param condition
+	 *            XACML Condition
+	 * @return structural key; empty if the Condition cannot be shared (see class description)
+	 */
+	public static Optional<List<Object>> getKey(final Condition condition)
+	{
+		final List<Object> exprKey = newKey(condition.getExpression().getValue());
+		return exprKey == null ? Optional.empty() : Optional.of(List.of("Condition", exprKey));
+	}
+
+	/**
+	 * Gets the structural key of a Target
+	 *
+	 * @param target
+	 *            XACML Target
+	 * @return structural key; empty if the Target cannot be shared (see class description)
+	 */
+	public static Optional<List<Object>> getKey(final Target target)
+	{
+		final List<AnyOf> jaxbAnyOfs = target.getAnyOves();
+		final List<Object> key = new ArrayList<>(1 + jaxbAnyOfs.size());
+		key.add("Target");
+		for (final AnyOf jaxbAnyOf : jaxbAnyOfs)
+		{
+			final List<AllOf> jaxbAllOfs = jaxbAnyOf.getAllOves();
+			final List<Object> anyOfKey = new ArrayList<>(jaxbAllOfs.size());
+			for (final AllOf jaxbAllOf : jaxbAllOfs)
+			{
+				final List<Match> jaxbMatches = jaxbAllOf.getMatches();
+				final List<Object> allOfKey = new ArrayList<>(jaxbMatches.size());
+				for (final Match jaxbMatch : jaxbMatches)
+				{
+					final AttributeDesignatorType jaxbAttDes = jaxbMatch.getAttributeDesignator();
+					if (jaxbAttDes == null)
+					{
+						// AttributeSelector
+						return Optional.empty();
+					}
+
+					final List<Object> attValKey = newKey(jaxbMatch.getAttributeValue());
+					if (attValKey == null)
+					{
+						return Optional.empty();
+					}
+
+					allOfKey.add(List.of("Match", jaxbMatch.getMatchId(), attValKey, newKey(jaxbAttDes)));
+				}
+
+				anyOfKey.add(List.copyOf(allOfKey));
+			}
+
+			key.add(List.copyOf(anyOfKey));
+		}
+
+		return Optional.of(List.copyOf(key));
+	}
+
+	private SharedEvaluators()
+	{
+		// prevent instantiation
+	}
+}
@@ -23,6 +23,8 @@ import org.ow2.authzforce.core.pdp.api.EvaluationContext;
 import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
 import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
 import org.ow2.authzforce.core.pdp.api.expression.XPathCompilerProxy;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationTrace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -102,6 +104,13 @@ public final class TargetEvaluators
 		 */
 		@Override
 		public boolean evaluate(final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			final EvaluationTrace trace = EvaluationTrace.current();
+			return trace == null ? evaluateWithoutTrace(context, mdpContext)
+					: BooleanEvaluators.evaluateTraced(this::evaluateWithoutTrace, trace, "Target", anyOfEvaluatorList.size() + " AnyOf(s)", context, mdpContext);
+		}
+
+		private boolean evaluateWithoutTrace(final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
 		{
 			// logic is quite similar to AllOf evaluation
 			// at the end, lastIndeterminate == null iff no Indeterminate
@@ -202,7 +211,27 @@ public final class TargetEvaluators
 			return MATCH_ALL_TARGET_EVALUATOR;
 		}
 
-		return new NonEmptyTargetEvaluator(anyOfs, expressionFactory, xPathCompiler);
+		/*
+		 * Share the evaluator of identical Targets (in different policies) if possible
+		 */
+		if (expressionFactory instanceof DepthLimitingExpressionFactory sharingExpressionFactory)
+		{
+			final Optional<List<Object>> structuralKey = SharedEvaluators.getKey(target);
+			if (structuralKey.isPresent())
+			{
+				return sharingExpressionFactory.getShared(structuralKey.get(),
+				        () -> SharedEvaluators.newRequestScopedMemoizingEvaluator(newNonEmptyTargetEvaluator(target, expressionFactory, xPathCompiler)));
+			}
+		}
+
+		return newNonEmptyTargetEvaluator(target, expressionFactory, xPathCompiler);
+	}
+
+	private static BooleanEvaluator newNonEmptyTargetEvaluator(final Target target, final ExpressionFactory expressionFactory, final Optional<XPathCompilerProxy> xPathCompiler)
+	        throws IllegalArgumentException
+	{
+		final NonEmptyTargetEvaluator targetEvaluator = new NonEmptyTargetEvaluator(target.getAnyOves(), expressionFactory, xPathCompiler);
+		return MultipleDecisionScopedBooleanEvaluators.forTarget(targetEvaluator, targetEvaluator.anyOfEvaluatorList);
 	}
 
 	private TargetEvaluators()
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValue;
+import org.ow2.authzforce.core.pdp.api.value.AttributeValueFactoryRegistry;
+import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Attribute Provider limiting the time spent calling another Attribute Provider: each call is done in a worker thread and abandoned (interrupted) after a given timeout, or when the request evaluation
+ * deadline is exceeded (see {@link EvaluationDeadlines}), whichever comes first. The attribute is then Indeterminate (processing-error status).
+ * <p>
+ * Optionally, the call is hedged: if the first call has not completed after a given delay, a second identical call is made concurrently, and the first result is used. This bounds the latency due to
+ * occasional stalls of the attribute source, at the cost of extra calls.
+ * <p>
+ * The worker threads are those of an executor shared by all the time-limited Attribute Providers of the PDP (see {@link #newExecutor(int)}): if none is available, the call is not made and the
+ * attribute is Indeterminate. Since the request evaluation context is not thread-safe, each call is given a copy of the request context (and the Multiple Decision request context if any),
+ * and the attributes added to the copy by the successful call (e.g. resolved dependencies) are put back into the request context by the request thread. In particular, the values that the
+ * Attribute Provider puts in the context with {@link EvaluationContext#putOther(String, Object)} are not kept from one call to the other. However, the copy shares with the request context the
+ * batch resolution state of the Multiple Decision request (see {@link BatchNamedAttributeProvider}) and the per-request caches of the built-in Attribute Providers, so that time-limited calls do
+ * not multiply the calls to the attribute source.
+ * <p>
+ * WARNING: since the calls are made in worker threads - concurrently when hedged - while the request thread waits, the Attribute Provider must not rely on being called from the request thread (e.g.
+ * thread-local variables) and should be stateless.
+ *
+ * @version $Id: $
+ */
+public final class TimeLimitedNamedAttributeProvider extends BaseNamedAttributeProvider
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(TimeLimitedNamedAttributeProvider.class);
+
+	private static final IllegalArgumentException NULL_EXECUTOR_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined Attribute Provider call executor");
+	private static final IllegalArgumentException INVALID_TIMEOUT_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined or non-positive Attribute Provider timeout");
+	private static final IllegalArgumentException INVALID_HEDGING_DELAY_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined or negative Attribute Provider hedging delay");
+	private static final IllegalArgumentException INVALID_THREAD_COUNT_ARGUMENT_EXCEPTION = new IllegalArgumentException("Non-positive max number of Attribute Provider worker threads");
+
+	private static final IndeterminateEvaluationException DEADLINE_EXCEEDED_EXCEPTION = new IndeterminateEvaluationException("Request evaluation deadline exceeded before calling Attribute Provider",
+	        XacmlStatusCode.PROCESSING_ERROR.value());
+
+	private static final long WORKER_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+	/**
+	 * Creates an executor to be shared by time-limited Attribute Providers (see {@link Factory}), with at most {@code maxThreadCount} daemon worker threads and no queue: calls are rejected when all
+	 * threads are busy. Idle threads terminate after a minute, therefore it does not need to be shut down.
+	 *
+	 * @param maxThreadCount
+	 *            maximum number of worker threads, i.e. of concurrent Attribute Provider calls
+	 * @return executor
+	 * @throws IllegalArgumentException
+	 *             if {@code maxThreadCount <= 0}
+	 */
+	public static ExecutorService newExecutor(final int maxThreadCount) throws IllegalArgumentException
+	{
+		if (maxThreadCount <= 0)
+		{
+			throw INVALID_THREAD_COUNT_ARGUMENT_EXCEPTION;
+		}
+
+		final AtomicInteger threadCount = new AtomicInteger();
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreadCount, maxThreadCount, WORKER_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+			final Thread thread = new Thread(runnable, "authzforce-attribute-provider-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Factory of {@link TimeLimitedNamedAttributeProvider}s, decorating another Attribute Provider factory
+	 */
+	public static final class Factory extends DecoratingNamedAttributeProviderFactory
+	{
+		private final String createdInstanceId;
+		private final ExecutorService executor;
+		private final Duration timeout;
+		private final Duration hedgingDelay;
+
+		/**
+		 * Creates the factory
+		 *
+		 * @param id
+		 *            ID of the created Attribute Providers
+		 * @param providerFactory
+		 *            factory of the time-limited Attribute Provider
+		 * @param executor
+		 *            executor of the calls to the Attribute Provider, possibly shared with other time-limited Attribute Providers (see {@link #newExecutor(int)}). Not shut down by the created
+		 *            Attribute Providers.
+		 * @param timeout
+		 *            maximum time of a call to the Attribute Provider
+		 * @param hedgingDelay
+		 *            delay after which a second (hedged) call is made if the first one has not completed; {@link Duration#ZERO} (or greater than or equal to {@code timeout}) disables hedging
+		 * @throws IllegalArgumentException
+		 *             if {@code providerFactory == null} or {@code executor == null}, or {@code timeout} undefined or not positive, or {@code hedgingDelay} undefined or negative
+		 */
+		public Factory(final String id, final CloseableNamedAttributeProvider.DependencyAwareFactory providerFactory, final ExecutorService executor, final Duration timeout,
+		        final Duration hedgingDelay) throws IllegalArgumentException
+		{
+			super(providerFactory);
+			if (executor == null)
+			{
+				throw NULL_EXECUTOR_ARGUMENT_EXCEPTION;
+			}
+
+			if (timeout == null || timeout.isNegative() || timeout.isZero())
+			{
+				throw INVALID_TIMEOUT_ARGUMENT_EXCEPTION;
+			}
+
+			if (hedgingDelay == null || hedgingDelay.isNegative())
+			{
+				throw INVALID_HEDGING_DELAY_ARGUMENT_EXCEPTION;
+			}
+
+			this.createdInstanceId = id;
+			this.executor = executor;
+			this.timeout = timeout;
+			this.hedgingDelay = hedgingDelay;
+		}
+
+		@Override
+		public CloseableNamedAttributeProvider decorate(final NamedAttributeProvider provider, final AttributeValueFactoryRegistry attributeValueFactoryRegistry,
+		        final NamedAttributeProvider dependencyAttributeProvider)
+		{
+			return new TimeLimitedNamedAttributeProvider(createdInstanceId, provider, executor, timeout, hedgingDelay);
+		}
+	}
+
+	/*
+	 * Result of a call with the copy of the request context it was made with
+	 */
+	private record CallResult<AV extends AttributeValue>(AttributeBag<AV> attributeValues, EvaluationContextSnapshot contextSnapshot)
+	{
+	}
+
+	private final NamedAttributeProvider provider;
+	private final ExecutorService executor;
+	private final long timeoutNanos;
+	private final long hedgingDelayNanos;
+
+	private TimeLimitedNamedAttributeProvider(final String id, final NamedAttributeProvider provider, final ExecutorService executor, final Duration timeout, final Duration hedgingDelay)
+	{
+		super(id);
+		assert provider != null && executor != null;
+		this.provider = provider;
+		this.executor = executor;
+		this.timeoutNanos = timeout.toNanos();
+		this.hedgingDelayNanos = hedgingDelay.compareTo(timeout) >= 0 ? 0 : hedgingDelay.toNanos();
+	}
+
+	private static IndeterminateEvaluationException toIndeterminateEvaluationException(final ExecutionException e)
+	{
+		final Throwable cause = e.getCause();
+		if (cause instanceof IndeterminateEvaluationException iee)
+		{
+			return iee;
+		}
+
+		if (cause instanceof RuntimeException re)
+		{
+			throw re;
+		}
+
+		if (cause instanceof Error err)
+		{
+			throw err;
+		}
+
+		return new IndeterminateEvaluationException("Error calling Attribute Provider", XacmlStatusCode.PROCESSING_ERROR.value(), cause);
+	}
+
+	/*
+	 * Submits a call with copies of the request contexts, made in the request thread
+	 */
+	private <AV extends AttributeValue> Future<CallResult<AV>> submit(final CompletionService<CallResult<AV>> completionService, final AttributeFqn attributeFqn, final Datatype<AV> datatype,
+	        final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws RejectedExecutionException
+	{
+		final EvaluationContextSnapshot contextSnapshot = new EvaluationContextSnapshot(context);
+		final Optional<EvaluationContext> mdpContextCopy = EvaluationContextSnapshot.copyOf(mdpContext);
+		return completionService.submit(() -> new CallResult<>(provider.get(attributeFqn, datatype, contextSnapshot.get(), mdpContextCopy), contextSnapshot));
+	}
+
+	@Override
+	public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context, final Optional<EvaluationContext> mdpContext)
+	        throws IndeterminateEvaluationException
+	{
+		final long callTimeoutNanos = Math.min(timeoutNanos, EvaluationDeadlines.getRemainingNanos(context, mdpContext));
+		if (callTimeoutNanos <= 0)
+		{
+			throw DEADLINE_EXCEEDED_EXCEPTION;
+		}
+
+		final long callDeadlineNanos = System.nanoTime() + callTimeoutNanos;
+		final CompletionService<CallResult<AV>> completionService = new ExecutorCompletionService<>(executor);
+		final List<Future<CallResult<AV>>> calls = new ArrayList<>(2);
+		try
+		{
+			try
+			{
+				calls.add(submit(completionService, attributeFqn, datatype, context, mdpContext));
+			}
+			catch (final RejectedExecutionException e)
+			{
+				throw new IndeterminateEvaluationException("No worker thread available to call Attribute Provider '" + this + "' for attribute " + attributeFqn,
+				        XacmlStatusCode.PROCESSING_ERROR.value(), e);
+			}
+
+			Future<CallResult<AV>> completedCall = null;
+			if (hedgingDelayNanos > 0 && hedgingDelayNanos < callTimeoutNanos)
+			{
+				completedCall = completionService.poll(hedgingDelayNanos, TimeUnit.NANOSECONDS);
+				if (completedCall == null)
+				{
+					LOGGER.debug("Attribute Provider '{}': no result for attribute {} (type={}) after hedging delay -> hedged call", this, attributeFqn, datatype);
+					try
+					{
+						calls.add(submit(completionService, attributeFqn, datatype, context, mdpContext));
+					}
+					catch (final RejectedExecutionException e)
+					{
+						LOGGER.debug("Attribute Provider '{}': no worker thread available for hedged call -> waiting for the first call", this, e);
+					}
+				}
+			}
+
+			int failedCallCount = 0;
+			while (true)
+			{
+				if (completedCall == null)
+				{
+					completedCall = completionService.poll(callDeadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+					if (completedCall == null)
+					{
+						throw new IndeterminateEvaluationException("Attribute Provider '" + this + "' timeout (" + TimeUnit.NANOSECONDS.toMillis(callTimeoutNanos) + " ms) getting attribute "
+						        + attributeFqn, XacmlStatusCode.PROCESSING_ERROR.value());
+					}
+				}
+
+				final CallResult<AV> callResult;
+				try
+				{
+					callResult = completedCall.get();
+				}
+				catch (final ExecutionException e)
+				{
+					failedCallCount++;
+					if (failedCallCount >= calls.size())
+					{
+						throw toIndeterminateEvaluationException(e);
+					}
+
+					// wait for the other (hedged) call
+					completedCall = null;
+					continue;
+				}
+
+				callResult.contextSnapshot().mergeNewAttributes();
+				return callResult.attributeValues();
+			}
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IndeterminateEvaluationException("Interrupted while waiting for Attribute Provider '" + this + "' to get attribute " + attributeFqn, XacmlStatusCode.PROCESSING_ERROR.value(), e);
+		}
+		finally
+		{
+			// abandon the calls still in progress, if any
+			for (final Future<CallResult<AV>> pendingCall : calls)
+			{
+				pendingCall.cancel(true);
+			}
+		}
+	}
+
+	@Override
+	public Set<AttributeDesignatorType> getProvidedAttributes()
+	{
+		return provider.getProvidedAttributes();
+	}
+
+	@Override
+	public boolean supportsBeginMultipleDecisionRequest()
+	{
+		return provider.supportsBeginMultipleDecisionRequest();
+	}
+
+	@Override
+	public void beginMultipleDecisionRequest(final EvaluationContext mdpContext)
+	{
+		provider.beginMultipleDecisionRequest(mdpContext);
+	}
+
+	@Override
+	public boolean supportsBeginIndividualDecisionRequest()
+	{
+		return provider.supportsBeginIndividualDecisionRequest();
+	}
+
+	@Override
+	public void beginIndividualDecisionRequest(final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+	{
+		provider.beginIndividualDecisionRequest(context, mdpContext);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		if (provider instanceof CloseableNamedAttributeProvider closeableProvider)
+		{
+			closeableProvider.close();
+		}
+	}
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl;
+
+import com.google.common.collect.ImmutableMap;
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationTrace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.*;
+
+/**
+ * PDP engine recording {@link EvaluationTrace}s of requests evaluated by another PDP engine:
+ * <ul>
+ * <li>sampled requests (one in N on average) are traced while being evaluated;</li>
+ * <li>slow requests, i.e. requests evaluated in more than a given threshold, are evaluated again with tracing enabled, asynchronously in a background (daemon) thread, so that the result of the
+ * first evaluation is returned without further delay. For Multiple Decision requests, the re-evaluation uses a new Multiple Decision request context, i.e. the attributes and Target/Condition results
+ * memoized in the original one during the first evaluation are not reused. The Attribute Providers are called again for these requests, and the trace may differ from the first evaluation if
+ * attribute values changed in between, or be empty if the decision is cached by the engine. If slow requests are queued for re-evaluation faster than the background thread traces them, the
+ * ones that do not fit in the queue (of size {@code maxTraceCount}) are not traced.</li>
+ * </ul>
+ * The last traces are kept in memory (bounded) and returned by {@link #getTraces()}. The requests that are neither sampled nor slow are evaluated without tracing, at the cost of a volatile read
+ * per evaluation step as long as no trace is in progress.
+ *
+ * @version $Id: $
+ */
+public final class TracingPdpEngine implements CloseablePdpEngine
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(TracingPdpEngine.class);
+
+	private static final IllegalArgumentException NULL_ENGINE_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined PDP engine to trace");
+	private static final IllegalArgumentException INVALID_SLOW_REQUEST_THRESHOLD_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined or negative slow request threshold");
+	private static final IllegalArgumentException INVALID_SAMPLE_RATE_ARGUMENT_EXCEPTION = new IllegalArgumentException("Invalid sample rate (expected: >= 0)");
+	private static final IllegalArgumentException INVALID_MAX_TRACE_COUNT_ARGUMENT_EXCEPTION = new IllegalArgumentException("Invalid max trace count (expected: > 0)");
+
+	private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+
+	private final CloseablePdpEngine engine;
+	private final long slowRequestThresholdNanos;
+	private final int sampleRate;
+	private final int maxTraceCount;
+
+	// guarded by itself
+	private final ArrayDeque<EvaluationTrace> traces;
+
+	/*
+	 * Single background thread re-evaluating slow requests with tracing, with bounded queue (slow requests discarded when full)
+	 */
+	private final ExecutorService slowRequestTracer;
+
+	/**
+	 * Creates a tracing PDP engine
+	 *
+	 * @param engine
+	 *            traced PDP engine, closed by {@link #close()}
+	 * @param slowRequestThreshold
+	 *            minimum evaluation time of a request to be traced (re-evaluated asynchronously with tracing)
+	 * @param sampleRate
+	 *            one request in {@code sampleRate} (on average) is traced during evaluation; 0 disables sampling
+	 * @param maxTraceCount
+	 *            maximum number of traces kept in memory, the oldest ones are discarded; also the maximum number of slow requests waiting to be re-evaluated with tracing
+	 * @throws IllegalArgumentException
+	 *             if {@code engine == null || slowRequestThreshold == null || slowRequestThreshold.isNegative() || sampleRate < 0 || maxTraceCount <= 0}
+	 */
+	public TracingPdpEngine(final CloseablePdpEngine engine, final Duration slowRequestThreshold, final int sampleRate, final int maxTraceCount) throws IllegalArgumentException
+	{
+		if (engine == null)
+		{
+			throw NULL_ENGINE_ARGUMENT_EXCEPTION;
+		}
+
+		if (slowRequestThreshold == null || slowRequestThreshold.isNegative())
+		{
+			throw INVALID_SLOW_REQUEST_THRESHOLD_ARGUMENT_EXCEPTION;
+		}
+
+		if (sampleRate < 0)
+		{
+			throw INVALID_SAMPLE_RATE_ARGUMENT_EXCEPTION;
+		}
+
+		if (maxTraceCount <= 0)
+		{
+			throw INVALID_MAX_TRACE_COUNT_ARGUMENT_EXCEPTION;
+		}
+
+		this.engine = engine;
+		this.slowRequestThresholdNanos = slowRequestThreshold.toNanos();
+		this.sampleRate = sampleRate;
+		this.maxTraceCount = maxTraceCount;
+		this.traces = new ArrayDeque<>(maxTraceCount);
+		this.slowRequestTracer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(maxTraceCount), runnable -> {
+			final Thread thread = new Thread(runnable, "authzforce-pdp-slow-request-tracer");
+			thread.setDaemon(true);
+			return thread;
+		}, (runnable, executor) -> LOGGER.debug("Slow request re-evaluation queue full: request not traced"));
+	}
+
+	private boolean isSampled()
+	{
+		return sampleRate > 0 && ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+	}
+
+	private void addTrace(final EvaluationTrace trace)
+	{
+		LOGGER.debug("{}", trace);
+		synchronized (traces)
+		{
+			if (traces.size() >= maxTraceCount)
+			{
+				traces.removeFirst();
+			}
+
+			traces.addLast(trace);
+		}
+	}
+
+	private DecisionResult evaluateTraced(final DecisionRequest individualDecisionRequest, final String traceReason)
+	{
+		final EvaluationTrace trace = EvaluationTrace.start(traceReason + ": " + individualDecisionRequest);
+		DecisionResult result = null;
+		try
+		{
+			result = engine.evaluate(individualDecisionRequest);
+			return result;
+		}
+		finally
+		{
+			trace.stop(result == null ? "Error" : String.valueOf(result.getDecision()));
+			addTrace(trace);
+		}
+	}
+
+	private <INDIVIDUAL_DECISION_REQ_T extends DecisionRequest> Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> evaluateTraced(
+			final List<INDIVIDUAL_DECISION_REQ_T> individualDecisionRequests, final EvaluationContext mdpContext, final String traceReason) throws IndeterminateEvaluationException
+	{
+		final EvaluationTrace trace = EvaluationTrace.start(traceReason + ": " + individualDecisionRequests.size() + " Individual Decision request(s)");
+		String traceResult = "Error";
+		try
+		{
+			final Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> results = engine.evaluate(individualDecisionRequests, mdpContext);
+			traceResult = results.size() + " result(s)";
+			return results;
+		}
+		catch (final IndeterminateEvaluationException e)
+		{
+			traceResult = "Indeterminate: " + e.getMessage();
+			throw e;
+		}
+		finally
+		{
+			trace.stop(traceResult);
+			addTrace(trace);
+		}
+	}
+
+	private void traceSlowRequest(final DecisionRequest individualDecisionRequest, final long elapsedNanos)
+	{
+		slowRequestTracer.execute(() -> evaluateTraced(individualDecisionRequest, "Slow (" + elapsedNanos + " ns)"));
+	}
+
+	private <INDIVIDUAL_DECISION_REQ_T extends DecisionRequest> void traceSlowRequests(final List<INDIVIDUAL_DECISION_REQ_T> individualDecisionRequests, final long elapsedNanos)
+	{
+		// the caller may modify its list once evaluated
+		final List<INDIVIDUAL_DECISION_REQ_T> requests = List.copyOf(individualDecisionRequests);
+		slowRequestTracer.execute(() -> {
+			/*
+			 * New Multiple Decision context, since the original one is used concurrently by the caller and holds attributes/results memoized during the first evaluation
+			 */
+			final EvaluationContext newMdpContext = new IndividualDecisionRequestContext(Map.of(), ImmutableMap.of(), false, Optional.of(Instant.now()));
+			try
+			{
+				evaluateTraced(requests, newMdpContext, "Slow (" + elapsedNanos + " ns)");
+			}
+			catch (final IndeterminateEvaluationException e)
+			{
+				LOGGER.debug("Error re-evaluating slow Multiple Decision request with tracing", e);
+			}
+		});
+	}
+
+	@Override
+	public Iterable<PrimaryPolicyMetadata> getApplicablePolicies()
+	{
+		return engine.getApplicablePolicies();
+	}
+
+	@Override
+	public DecisionRequestBuilder<?> newRequestBuilder(final int expectedNumOfAttributeCategories, final int expectedTotalNumOfAttributes)
+	{
+		return engine.newRequestBuilder(expectedNumOfAttributeCategories, expectedTotalNumOfAttributes);
+	}
+
+	@Override
+	public DecisionResult evaluate(final DecisionRequest individualDecisionRequest)
+	{
+		if (isSampled())
+		{
+			return evaluateTraced(individualDecisionRequest, "Sampled");
+		}
+
+		final long startNanos = System.nanoTime();
+		final DecisionResult result = engine.evaluate(individualDecisionRequest);
+		final long elapsedNanos = System.nanoTime() - startNanos;
+		if (elapsedNanos >= slowRequestThresholdNanos)
+		{
+			traceSlowRequest(individualDecisionRequest, elapsedNanos);
+		}
+
+		return result;
+	}
+
+	@Override
+	public <INDIVIDUAL_DECISION_REQ_T extends DecisionRequest> Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> evaluate(
+			final List<INDIVIDUAL_DECISION_REQ_T> individualDecisionRequests, final EvaluationContext mdpContext) throws IndeterminateEvaluationException
+	{
+		if (isSampled())
+		{
+			return evaluateTraced(individualDecisionRequests, mdpContext, "Sampled");
+		}
+
+		final long startNanos = System.nanoTime();
+		final Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> results = engine.evaluate(individualDecisionRequests, mdpContext);
+		final long elapsedNanos = System.nanoTime() - startNanos;
+		if (elapsedNanos >= slowRequestThresholdNanos)
+		{
+			traceSlowRequests(individualDecisionRequests, elapsedNanos);
+		}
+
+		return results;
+	}
+
+	/**
+	 * Gets the last traces
+	 *
+	 * @return last traces (at most {@code maxTraceCount}), oldest first
+	 */
+	public List<EvaluationTrace> getTraces()
+	{
+		synchronized (traces)
+		{
+			return List.copyOf(traces);
+		}
+	}
+
+	/**
+	 * Removes all traces kept in memory
+	 */
+	public void clearTraces()
+	{
+		synchronized (traces)
+		{
+			traces.clear();
+		}
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		// discard the slow requests waiting to be traced, wait for the one in progress if any
+		slowRequestTracer.shutdownNow();
+		try
+		{
+			if (!slowRequestTracer.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+			{
+				LOGGER.warn("Timeout waiting for the slow request tracer to complete");
+			}
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			engine.close();
+		}
+	}
+}
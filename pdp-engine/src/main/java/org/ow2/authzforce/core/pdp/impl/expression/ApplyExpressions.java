@@ -60,10 +60,12 @@ public final class ApplyExpressions
 	{
 
 		private final FunctionCall<V> functionCall;
+		private final List<Expression<?>> arguments;
 
-		private VariableApplyExpression(final FunctionCall<V> funcCall)
+		private VariableApplyExpression(final FunctionCall<V> funcCall, final List<Expression<?>> arguments)
 		{
 			this.functionCall = funcCall;
+			this.arguments = arguments;
 		}
 
 		@Override
@@ -91,7 +93,7 @@ public final class ApplyExpressions
 
 	private static final IllegalArgumentException NULL_XACML_APPLY_ELEMENT_EXCEPTION = new IllegalArgumentException("Undefined argument: XACML Apply element");
 
-	private static <V extends Value> Expression<V> newInstance(final FunctionCall<V> functionCall, final String description)
+	private static <V extends Value> Expression<V> newInstance(final FunctionCall<V> functionCall, final List<Expression<?>> arguments, final String description)
 	{
 		/*
 		 * Check whether the 'Apply' Expression is constant -> try to pre-evaluate the result statically (out of context, i.e. in null context), to prevent useless re-evaluation of the same thing
@@ -106,7 +108,7 @@ public final class ApplyExpressions
 			LOGGER.debug("Apply[Description = " + description + "]: static evaluation failed -> expression is not constant -> not optimizing");
 		}
 
-		return staticEvalResult == null ? new VariableApplyExpression<>(functionCall) : new ConstantApplyExpression<>(functionCall.getReturnType(), staticEvalResult);
+		return staticEvalResult == null ? new VariableApplyExpression<>(functionCall, arguments) : new ConstantApplyExpression<>(functionCall.getReturnType(), staticEvalResult);
 	}
 
 	/**
@@ -210,16 +212,29 @@ public final class ApplyExpressions
 		final Function<?> function = func.get();
 
 		// check that the given inputs work for the function and get the optimized functionCall
+		final List<Expression<?>> immutableFuncInputs = Collections.unmodifiableList(funcInputs);
 		final FunctionCall<?> funcCall;
 		try
 		{
-			funcCall = function.newCall(Collections.unmodifiableList(funcInputs));
+			funcCall = function.newCall(immutableFuncInputs);
 		} catch (final IllegalArgumentException e)
 		{
 			throw new IllegalArgumentException("Invalid Apply[Description = " + applyDesc + "]: Invalid args for function " + function, e);
 		}
 
-		return newInstance(funcCall, applyDesc);
+		return newInstance(funcCall, immutableFuncInputs, applyDesc);
+	}
+
+	/**
+	 * Gets the arguments of an Apply expression created by {@link #newInstance(ApplyType, ExpressionFactory, Deque, Optional)}, if not constant
+	 *
+	 * @param expression
+	 *            expression
+	 * @return the (compiled) arguments of the function call in {@code expression} if {@code expression} is a non-constant Apply expression created by this class, else empty
+	 */
+	public static Optional<List<Expression<?>>> getArguments(final Expression<?> expression)
+	{
+		return expression instanceof VariableApplyExpression<?> applyExpression ? Optional.of(applyExpression.arguments) : Optional.empty();
 	}
 
 }
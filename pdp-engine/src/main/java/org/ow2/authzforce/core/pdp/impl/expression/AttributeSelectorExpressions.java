@@ -27,6 +27,7 @@ import org.ow2.authzforce.core.pdp.api.expression.AttributeSelectorExpression;
 import org.ow2.authzforce.core.pdp.api.expression.VariableReference;
 import org.ow2.authzforce.core.pdp.api.expression.XPathCompilerProxy;
 import org.ow2.authzforce.core.pdp.api.value.*;
+import org.ow2.authzforce.core.pdp.impl.metrics.AttributeSelectorEvaluationEvent;
 import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
 
 import javax.xml.namespace.QName;
@@ -485,6 +486,8 @@ public final class AttributeSelectorExpressions
             }
 
             // ELSE AttributeSelector not yet resolved in context, we have to do it now
+            final AttributeSelectorEvaluationEvent event = new AttributeSelectorEvaluationEvent();
+            event.begin();
             // get the DOM root of the request document
             final XdmNode contentElement = context.getAttributesContent(attributeSelectorId.getCategory());
             try
@@ -495,9 +498,12 @@ public final class AttributeSelectorExpressions
                 }
 
                 final XdmItem finalXPathEvaluationContextItem = getFinalXPathEvaluationContextItem(contentElement, context, mdpContext);
-                return evaluateFinal(finalXPathEvaluationContextItem, context);
+                final Bag<AV> result = evaluateFinal(finalXPathEvaluationContextItem, context);
+                event.report(attributeSelectorId, result);
+                return result;
             } catch (final IndeterminateEvaluationException e)
             {
+                event.report(attributeSelectorId, null);
                 return handleRecoverableIndeterminate(e, context);
             }
         }
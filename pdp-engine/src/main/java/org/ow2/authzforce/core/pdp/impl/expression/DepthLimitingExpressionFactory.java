@@ -31,7 +31,12 @@ import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
@@ -39,6 +44,11 @@ import java.util.stream.Stream;
  * VariableDefinition does not exceed a value (to avoid inconveniences such as stackoverflow or very negative performance impact) defined by {@code maxVarRefDef} parameter to
  * {@link #DepthLimitingExpressionFactory(AttributeValueFactoryRegistry, FunctionRegistry, int, boolean, boolean, Optional)}. Note that reference loops are avoided by the fact that a VariableReference can
  * reference only a VariableDefinition defined previously to the VariableReference in this implementation.
+ * <p>
+ * Constant AttributeValues are interned: identical AttributeValues (same datatype and same text content, without XML attributes) in all the policies parsed with the same factory - typically all
+ * policies of a PDP engine - are represented by the same {@link ConstantExpression} (and therefore the same value) instance. Similarly, identical Apply expressions - and Targets/Conditions created by
+ * {@link TargetEvaluators}/{@link org.ow2.authzforce.core.pdp.impl.rule.ConditionEvaluators} with this factory - share the same evaluator (see {@link SharedEvaluators} and
+ * {@link #getShared(List, Supplier)}).
  *
  * 
  * @version $Id: $
@@ -291,9 +301,9 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 
 	private static final class CompositeSingleNamedAttributeProvider<AV extends AttributeValue> extends EvaluationContextBasedSingleNamedAttributeProvider<AV>
 	{
-		private CompositeSingleNamedAttributeProvider(final AttributeFqn attributeName, final Datatype<AV> attributeDatatype, final boolean strictAttributeIssuerMatch, final List<NamedAttributeProvider> composedProviders)
+		private CompositeSingleNamedAttributeProvider(final AttributeFqn attributeName, final Datatype<AV> attributeDatatype, final boolean strictAttributeIssuerMatch, final List<NamedAttributeProvider> composedProviders, final Optional<Executor> subProviderCallExecutor)
 		{
-			super(attributeName, attributeDatatype, strictAttributeIssuerMatch, newDelegate(composedProviders));
+			super(attributeName, attributeDatatype, strictAttributeIssuerMatch, newDelegate(composedProviders, subProviderCallExecutor));
 		}
 	}
 
@@ -310,6 +320,16 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 
 	private static final int UNLIMITED_MAX_VARIABLE_REF_DEPTH = -1;
 
+	/*
+	 * Max number of interned constants per datatype, to bound memory usage in case of policies loaded dynamically over time
+	 */
+	private static final int MAX_INTERNED_CONSTANTS_PER_DATATYPE = 100_000;
+
+	/*
+	 * Max number of shared evaluators (see getShared(...))
+	 */
+	private static final int MAX_SHARED_EVALUATORS = 100_000;
+
 	private static final Map<AttributeFqn, AttributeDatatype<?>> STANDARD_ATTRIBUTES_WITH_FIXED_DATATYPE;
 	static {
 		final Map<AttributeFqn, AttributeDatatype<?>> mutableMap = new HashMap<>();
@@ -324,12 +344,25 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 	// not null
 	private final Optional<CloseableNamedAttributeProviderRegistry> attributeProviderRegistry;
 	private final int maxVariableReferenceDepth;
-	// the map from identifiers to internal data
-	private final Map<String, BaseVariableReference<?>> idToVariableMap = HashCollections.newMutableMap();
+	/*
+	 * The map from identifiers to internal data. Variables are in the scope of the Policy being parsed, therefore one map per thread, so that different policies may be parsed concurrently (e.g.
+	 * parallel policy loading) with the same factory.
+	 */
+	private final ThreadLocal<Map<String, BaseVariableReference<?>>> idToVariableMap = ThreadLocal.withInitial(HashCollections::newMutableMap);
 	private final boolean isXPathEnabled;
 
 	private final boolean issuerRequiredOnAttributeDesignators;
 
+	/*
+	 * Interned constant AttributeValue expressions: datatype ID -> text content -> constant expression
+	 */
+	private final ConcurrentMap<String, ConcurrentMap<String, ConstantExpression<? extends AttributeValue>>> internedConstantsByDatatype = new ConcurrentHashMap<>();
+
+	/*
+	 * Shared evaluators by structural key (see SharedEvaluators)
+	 */
+	private final ConcurrentMap<List<?>, Object> sharedEvaluatorsByStructuralKey = new ConcurrentHashMap<>();
+
 	/**
 	 * Maximum VariableReference depth allowed for VariableDefinitions to be managed. Examples:
 	 * <ul>
@@ -467,26 +500,26 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 		}
 
 		final BaseVariableReference<?> var = newVariableReference(varId, varExpr, longestVarRefChainInCurrentVarExpression);
-		return idToVariableMap.putIfAbsent(varId, var);
+		return idToVariableMap.get().putIfAbsent(varId, var);
 	}
 
 	@Override
 	public VariableReference<?> getVariableExpression(final String varId)
 	{
-		return idToVariableMap.get(varId);
+		return idToVariableMap.get().get(varId);
 	}
 
 	@Override
 	public ImmutableList<VariableReference<?>> getVariableExpressions()
 	{
-		return ImmutableList.copyOf(idToVariableMap.values());
+		return ImmutableList.copyOf(idToVariableMap.get().values());
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public VariableReference<?> removeVariable(final String varId)
 	{
-		return idToVariableMap.remove(varId);
+		return idToVariableMap.get().remove(varId);
 	}
 
 	/**
@@ -511,7 +544,7 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 		assert jaxbVarRef != null;
 
 		final String varId = jaxbVarRef.getVariableId();
-		final BaseVariableReference<?> var = idToVariableMap.get(varId);
+		final BaseVariableReference<?> var = idToVariableMap.get().get(varId);
 		if (var == null)
 		{
 			throw new IllegalArgumentException("VariableReference's VariableId=" + varId + " unknown in the current context, i.e. does not match any prior VariableDefinition's VariableId");
@@ -601,7 +634,7 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 			final List<NamedAttributeProvider> registeredAttProviders = this.attributeProviderRegistry.get().getProviders(attName);
 			// Empty list returned if no provider of attName
 			combiningProvider = registeredAttProviders.isEmpty() ?  new EvaluationContextOnlyScopedSingleNamedAttributeProvider<>(attName, attType, this.issuerRequiredOnAttributeDesignators):
-			new CompositeSingleNamedAttributeProvider<>(attName, attType, this.issuerRequiredOnAttributeDesignators, registeredAttProviders);
+			new CompositeSingleNamedAttributeProvider<>(attName, attType, this.issuerRequiredOnAttributeDesignators, registeredAttProviders, this.attributeProviderRegistry.get().getCompositeProviderExecutor());
 		}
 		return new GenericAttributeProviderBasedAttributeDesignatorExpression<>(attName, mustBePresent, attType.getBagDatatype(), combiningProvider);
 	}
@@ -614,9 +647,14 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 		/*
 		 * We check all types of Expression: <Apply>, <AttributeSelector>, <AttributeValue>, <Function>, <VariableReference> and <AttributeDesignator>
 		 */
-		if (expr instanceof ApplyType)
+		if (expr instanceof ApplyType jaxbApply)
 		{
-			expression = ApplyExpressions.newInstance((ApplyType) expr, this, longestVarRefChain, xPathCompiler);
+			/*
+			 * Shareable Apply expressions do not use VariableReferences, therefore do not change longestVarRefChain
+			 */
+			final Optional<List<Object>> structuralKey = SharedEvaluators.getKey(jaxbApply);
+			expression = structuralKey.isPresent() ? getShared(structuralKey.get(), () -> ApplyExpressions.newInstance(jaxbApply, this, longestVarRefChain, xPathCompiler))
+			        : ApplyExpressions.newInstance(jaxbApply, this, longestVarRefChain, xPathCompiler);
 		}
 		else if (expr instanceof AttributeDesignatorType jaxbAttrDes)
 		{
@@ -669,7 +707,7 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 				{
 					final List<NamedAttributeProvider> registeredAttProviders = this.attributeProviderRegistry.get().getProviders(contextSelectorAttName);
 					// Empty list returned if no provider of contextSelectorAttName
-					ctxSelectorAttProvider = registeredAttProviders.isEmpty() ? new EvaluationContextOnlyScopedSingleNamedAttributeProvider<>(contextSelectorAttName, StandardDatatypes.XPATH, issuerRequiredOnAttributeDesignators) : new CompositeSingleNamedAttributeProvider<>(contextSelectorAttName, StandardDatatypes.XPATH, issuerRequiredOnAttributeDesignators, registeredAttProviders);
+					ctxSelectorAttProvider = registeredAttProviders.isEmpty() ? new EvaluationContextOnlyScopedSingleNamedAttributeProvider<>(contextSelectorAttName, StandardDatatypes.XPATH, issuerRequiredOnAttributeDesignators) : new CompositeSingleNamedAttributeProvider<>(contextSelectorAttName, StandardDatatypes.XPATH, issuerRequiredOnAttributeDesignators, registeredAttProviders, this.attributeProviderRegistry.get().getCompositeProviderExecutor());
 				}
 				expression = AttributeSelectorExpressions.newInstance(jaxbAttrSelector, xPathCompiler.get(), attrFactory, ctxSelectorAttProvider);
 			}
@@ -708,7 +746,88 @@ public final class DepthLimitingExpressionFactory implements ExpressionFactory
 	@Override
 	public ConstantExpression<? extends AttributeValue> getInstance(final AttributeValueType jaxbAttrVal, final Optional<XPathCompilerProxy> xPathCompiler) throws IllegalArgumentException
 	{
-		return this.datatypeFactoryRegistry.newExpression(jaxbAttrVal.getDataType(), jaxbAttrVal.getContent(), jaxbAttrVal.getOtherAttributes(), xPathCompiler);
+		final String datatypeId = jaxbAttrVal.getDataType();
+		final List<Serializable> content = jaxbAttrVal.getContent();
+		/*
+		 * Only text content without XML attributes can be interned. XPath expressions depend on the namespace context (xPathCompiler) of the enclosing policy, so they cannot be interned either.
+		 */
+		if (!jaxbAttrVal.getOtherAttributes().isEmpty() || StandardDatatypes.XPATH.getId().equals(datatypeId) || !content.stream().allMatch(String.class::isInstance))
+		{
+			return this.datatypeFactoryRegistry.newExpression(datatypeId, content, jaxbAttrVal.getOtherAttributes(), xPathCompiler);
+		}
+
+		final String textContent = content.size() == 1 ? (String) content.get(0) : String.join("", (List<String>) (List<?>) content);
+		final ConcurrentMap<String, ConstantExpression<? extends AttributeValue>> internedConstants = internedConstantsByDatatype.computeIfAbsent(datatypeId, k -> new ConcurrentHashMap<>());
+		final ConstantExpression<? extends AttributeValue> internedConstant = internedConstants.get(textContent);
+		if (internedConstant != null)
+		{
+			return internedConstant;
+		}
+
+		final ConstantExpression<? extends AttributeValue> newConstant = this.datatypeFactoryRegistry.newExpression(datatypeId, content, jaxbAttrVal.getOtherAttributes(), xPathCompiler);
+		if (internedConstants.size() >= MAX_INTERNED_CONSTANTS_PER_DATATYPE)
+		{
+			return newConstant;
+		}
+
+		final ConstantExpression<? extends AttributeValue> previousConstant = internedConstants.putIfAbsent(textContent, newConstant);
+		return previousConstant == null ? newConstant : previousConstant;
+	}
+
+	/**
+	 * Gets the evaluator shared by all the elements (in policies parsed with this factory) with a given structural key (see {@link SharedEvaluators}), creating it if it does not exist yet.
+	 *
+	 * @param <T>
+	 *            evaluator type, must be the same for all elements of the same kind (e.g. Target), which is the first item of the structural key
+	 * @param structuralKey
+	 *            structural key of the element to be evaluated, as returned by one of the {@link SharedEvaluators}' getKey(...) methods
+	 * @param evaluatorFactory
+	 *            creates the evaluator if not shared yet
+	 * @return shared evaluator
+	 * @throws IllegalArgumentException
+	 *             if {@code evaluatorFactory} fails to create the evaluator (invalid element)
+	 */
+	public <T> T getShared(final List<?> structuralKey, final Supplier<T> evaluatorFactory) throws IllegalArgumentException
+	{
+		/*
+		 * Not using computeIfAbsent(...) since evaluatorFactory may call this method recursively (nested elements)
+		 */
+		final Object sharedEvaluator = sharedEvaluatorsByStructuralKey.get(structuralKey);
+		if (sharedEvaluator != null)
+		{
+			// WARNING: unchecked cast, same type for same kind of structural key
+			return (T) sharedEvaluator;
+		}
+
+		final T newEvaluator = evaluatorFactory.get();
+		if (sharedEvaluatorsByStructuralKey.size() >= MAX_SHARED_EVALUATORS)
+		{
+			return newEvaluator;
+		}
+
+		final Object previousEvaluator = sharedEvaluatorsByStructuralKey.putIfAbsent(structuralKey, newEvaluator);
+		// WARNING: unchecked cast, same type for same kind of structural key
+		return previousEvaluator == null ? newEvaluator : (T) previousEvaluator;
+	}
+
+	/**
+	 * Get the number of distinct evaluators shared by the policies parsed with this factory (see {@link #getShared(List, Supplier)})
+	 *
+	 * @return number of shared evaluators
+	 */
+	public int getSharedEvaluatorCount()
+	{
+		return sharedEvaluatorsByStructuralKey.size();
+	}
+
+	/**
+	 * Get the number of distinct constant AttributeValues interned by this factory, i.e. shared by all the policies parsed with this factory (see class description)
+	 *
+	 * @return number of interned constants
+	 */
+	public int getInternedConstantCount()
+	{
+		return internedConstantsByDatatype.values().stream().mapToInt(Map::size).sum();
 	}
 
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.metrics;
+
+import jdk.jfr.*;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.value.AttributeBag;
+import org.ow2.authzforce.core.pdp.api.value.Datatype;
+
+/**
+ * JFR event recording a call to the Attribute Provider(s) for an attribute missing from the request context
+ *
+ * @version $Id: $
+ */
+@Name("org.ow2.authzforce.pdp.AttributeProviderFetch")
+@Label("XACML Attribute Provider Fetch")
+@Category({ "AuthzForce", "PDP" })
+@Description("Call to the Attribute Provider(s) of an attribute missing from the request context")
+public final class AttributeProviderFetchEvent extends Event
+{
+	@Label("Attribute Category")
+	private String attributeCategory;
+
+	@Label("Attribute ID")
+	private String attributeId;
+
+	@Label("Attribute Issuer")
+	private String attributeIssuer;
+
+	@Label("Datatype")
+	private String datatype;
+
+	@Label("Value Count")
+	private int valueCount;
+
+	@Label("Failed")
+	private boolean failed;
+
+	/**
+	 * Ends the event with the fetch result and commits it if enabled
+	 *
+	 * @param attribute
+	 *            requested attribute
+	 * @param attributeDatatype
+	 *            requested datatype
+	 * @param result
+	 *            result; null if the call failed
+	 */
+	public void report(final AttributeFqn attribute, final Datatype<?> attributeDatatype, final AttributeBag<?> result)
+	{
+		if (shouldCommit())
+		{
+			this.attributeCategory = attribute.getCategory();
+			this.attributeId = attribute.getId();
+			this.attributeIssuer = attribute.getIssuer().orElse(null);
+			this.datatype = attributeDatatype.getId();
+			this.failed = result == null;
+			this.valueCount = result == null ? 0 : result.size();
+			commit();
+		}
+	}
+}
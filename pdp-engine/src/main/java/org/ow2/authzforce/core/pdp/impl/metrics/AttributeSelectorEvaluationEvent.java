@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.metrics;
+
+import jdk.jfr.*;
+import org.ow2.authzforce.core.pdp.api.AttributeSelectorId;
+import org.ow2.authzforce.core.pdp.api.value.Bag;
+
+/**
+ * JFR event recording the evaluation of an AttributeSelector, i.e. of its XPath expression against the Content of the request (first evaluation in the request context only)
+ *
+ * @version $Id: $
+ */
+@Name("org.ow2.authzforce.pdp.AttributeSelectorEvaluation")
+@Label("XACML AttributeSelector Evaluation")
+@Category({ "AuthzForce", "PDP" })
+@Description("XPath evaluation of an AttributeSelector against the Content of the request")
+public final class AttributeSelectorEvaluationEvent extends Event
+{
+	@Label("Attribute Category")
+	private String attributeCategory;
+
+	@Label("Path")
+	private String path;
+
+	@Label("Context Selector ID")
+	private String contextSelectorId;
+
+	@Label("Value Count")
+	private int valueCount;
+
+	@Label("Failed")
+	private boolean failed;
+
+	/**
+	 * Ends the event with the evaluation result and commits it if enabled
+	 *
+	 * @param attributeSelectorId
+	 *            evaluated AttributeSelector
+	 * @param result
+	 *            result; null if the evaluation failed
+	 */
+	public void report(final AttributeSelectorId attributeSelectorId, final Bag<?> result)
+	{
+		if (shouldCommit())
+		{
+			this.attributeCategory = attributeSelectorId.getCategory();
+			this.path = attributeSelectorId.getPath();
+			this.contextSelectorId = attributeSelectorId.getContextSelectorId().orElse(null);
+			this.failed = result == null;
+			this.valueCount = result == null ? 0 : result.size();
+			commit();
+		}
+	}
+}
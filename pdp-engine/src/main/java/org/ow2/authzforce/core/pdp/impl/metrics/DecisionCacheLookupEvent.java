@@ -0,0 +1,56 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event recording a lookup in the Decision Cache, for one or more Individual Decision Requests
+ *
+ * @version $Id: $
+ */
+@Name("org.ow2.authzforce.pdp.DecisionCacheLookup")
+@Label("XACML Decision Cache Lookup")
+@Category({ "AuthzForce", "PDP" })
+@Description("Lookup of cached decisions for one or more Individual Decision Requests")
+public final class DecisionCacheLookupEvent extends Event
+{
+	@Label("Request Count")
+	private int requestCount;
+
+	@Label("Hit Count")
+	private int hitCount;
+
+	/**
+	 * Ends the event with the lookup result and commits it if enabled
+	 *
+	 * @param lookedUpRequestCount
+	 *            number of Individual Decision Requests looked up
+	 * @param foundResultCount
+	 *            number of cached results found
+	 */
+	public void report(final int lookedUpRequestCount, final int foundResultCount)
+	{
+		if (shouldCommit())
+		{
+			this.requestCount = lookedUpRequestCount;
+			this.hitCount = foundResultCount;
+			commit();
+		}
+	}
+}
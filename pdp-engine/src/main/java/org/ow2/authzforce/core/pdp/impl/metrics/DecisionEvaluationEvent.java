@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.metrics;
+
+import jdk.jfr.*;
+import org.ow2.authzforce.core.pdp.api.DecisionResult;
+
+/**
+ * JFR event recording the evaluation of an Individual Decision Request, i.e. the evaluation of the root policy in the Individual Decision request context
+ *
+ * @version $Id: $
+ */
+@Name("org.ow2.authzforce.pdp.DecisionEvaluation")
+@Label("XACML Decision Evaluation")
+@Category({ "AuthzForce", "PDP" })
+@Description("Evaluation of an Individual Decision Request against the root policy")
+public final class DecisionEvaluationEvent extends Event
+{
+	@Label("Decision")
+	private String decision;
+
+	@Label("Applicable Policy Count")
+	@Description("Number of applicable policies, if requested (ReturnPolicyIdList)")
+	private int applicablePolicyCount;
+
+	@Label("Multiple Decision Request")
+	@Description("Whether the request is part of a Multiple Decision Request")
+	private boolean multipleDecisionRequest;
+
+	/**
+	 * Ends the event with the evaluation result and commits it if enabled
+	 *
+	 * @param result
+	 *            evaluation result
+	 * @param isPartOfMultipleDecisionRequest
+	 *            true iff the request is part of a Multiple Decision Request
+	 */
+	public void report(final DecisionResult result, final boolean isPartOfMultipleDecisionRequest)
+	{
+		if (shouldCommit())
+		{
+			this.decision = result.getDecision().value();
+			this.applicablePolicyCount = result.getApplicablePolicies() == null ? 0 : result.getApplicablePolicies().size();
+			this.multipleDecisionRequest = isPartOfMultipleDecisionRequest;
+			commit();
+		}
+	}
+}
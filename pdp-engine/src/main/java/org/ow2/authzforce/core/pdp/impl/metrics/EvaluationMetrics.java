@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.metrics;
+
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+
+/**
+ * Access to the {@link EvaluationMetricsListener} of the PDP engine evaluating a request, carried in the Individual Decision request evaluation context. The listener is set per PDP engine with
+ * {@link org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration#withMetricsListener(EvaluationMetricsListener)}, i.e. PDP engines in the same JVM have separate metrics. Metrics are disabled by
+ * default (no listener), in which case the only overhead on evaluation is the lookup of the listener in the context, i.e. no time measurement and no call.
+ *
+ * @version $Id: $
+ */
+public final class EvaluationMetrics
+{
+	private static final String LISTENER_CONTEXT_KEY = EvaluationMetrics.class.getName() + ".listener";
+
+	/**
+	 * Gets the metrics listener of the PDP engine evaluating a request
+	 *
+	 * @param context
+	 *            Individual Decision request evaluation context
+	 * @return the listener; null if metrics are disabled
+	 */
+	public static EvaluationMetricsListener getListener(final EvaluationContext context)
+	{
+		return context.getOther(LISTENER_CONTEXT_KEY) instanceof EvaluationMetricsListener listener ? listener : null;
+	}
+
+	/**
+	 * Sets the metrics listener to be notified of the evaluation of a request (called by the PDP engine when creating the request evaluation context)
+	 *
+	 * @param context
+	 *            Individual Decision request evaluation context
+	 * @param listener
+	 *            listener of the PDP engine evaluating the request
+	 */
+	public static void setListener(final EvaluationContext context, final EvaluationMetricsListener listener)
+	{
+		context.putOther(LISTENER_CONTEXT_KEY, listener);
+	}
+
+	private EvaluationMetrics()
+	{
+		// prevent instantiation
+	}
+}
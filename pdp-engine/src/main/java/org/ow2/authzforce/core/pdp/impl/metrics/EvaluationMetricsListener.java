@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.metrics;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+
+/**
+ * Listener of evaluation metrics (SPI), notified by the PDP engine after each evaluation of a Policy(Set), Rule or combining algorithm, and after each call to the Attribute Providers. To be set per PDP
+ * engine with {@link org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration#withMetricsListener(EvaluationMetricsListener)}.
+ * <p>
+ * The methods are called on the request evaluation threads, possibly concurrently, therefore implementations must be thread-safe and fast, i.e. non-blocking (e.g. update counters only, such as
+ * {@link InMemoryEvaluationMetrics}); and they must not throw any exception.
+ *
+ * @version $Id: $
+ */
+public interface EvaluationMetricsListener
+{
+	/**
+	 * Identifier of a Rule in the metrics, created once per Rule evaluator (RuleIds are unique in a Policy only)
+	 *
+	 * @param policy
+	 *            Policy enclosing the Rule
+	 * @param ruleId
+	 *            RuleId
+	 */
+	record RuleKey(PrimaryPolicyMetadata policy, String ruleId)
+	{
+	}
+
+	/**
+	 * Called after evaluation of a Policy or PolicySet (including the Target)
+	 *
+	 * @param policy
+	 *            evaluated Policy(Set)
+	 * @param decision
+	 *            result decision
+	 * @param elapsedNanos
+	 *            evaluation time in nanoseconds
+	 */
+	void policyEvaluated(PrimaryPolicyMetadata policy, DecisionType decision, long elapsedNanos);
+
+	/**
+	 * Called after evaluation of the combining algorithm of a Policy or PolicySet, i.e. evaluation of the child elements (rules, policies)
+	 *
+	 * @param policy
+	 *            Policy(Set) using the combining algorithm
+	 * @param decision
+	 *            result decision
+	 * @param elapsedNanos
+	 *            evaluation time in nanoseconds
+	 */
+	void combiningAlgEvaluated(PrimaryPolicyMetadata policy, DecisionType decision, long elapsedNanos);
+
+	/**
+	 * Called after evaluation of a Rule (except Rules that are always NotApplicable because their Condition is constant False, which are not evaluated in practice)
+	 *
+	 * @param rule
+	 *            evaluated Rule, always the same instance for a given Rule evaluator (may be used as map key without allocation)
+	 * @param decision
+	 *            result decision
+	 * @param elapsedNanos
+	 *            evaluation time in nanoseconds
+	 */
+	void ruleEvaluated(RuleKey rule, DecisionType decision, long elapsedNanos);
+
+	/**
+	 * Called after a call to the Attribute Provider(s) of a given attribute (the attribute was not found in the evaluation context)
+	 *
+	 * @param attribute
+	 *            requested attribute
+	 * @param failed
+	 *            true iff the Attribute Provider(s) failed to provide the attribute (error)
+	 * @param elapsedNanos
+	 *            call time in nanoseconds
+	 */
+	void attributeProviderCalled(AttributeFqn attribute, boolean failed, long elapsedNanos);
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.metrics;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Trace of the evaluation of a request, i.e. the result and duration of each evaluation step - Policy(Set), Target, Match, Condition, Rule, combining algorithm, attribute fetch - in evaluation
+ * order.
+ * <p>
+ * A trace is bound to the thread evaluating the request, from {@link #start(String)} to {@link #stop(String)}. The evaluators get the trace of the current thread with {@link #current()}, which
+ * returns null without accessing any thread-local variable as long as no trace is in progress in the JVM, so that tracing costs a volatile read per evaluation step when disabled.
+ * <p>
+ * The number of steps in a trace is limited to {@value #MAX_STEP_COUNT}, the next ones are ignored (see {@link #isTruncated()}).
+ *
+ * @version $Id: $
+ */
+public final class EvaluationTrace
+{
+	/**
+	 * Maximum number of steps recorded in a trace
+	 */
+	public static final int MAX_STEP_COUNT = 10_000;
+
+	private static final AtomicInteger IN_PROGRESS_TRACE_COUNT = new AtomicInteger();
+	private static final ThreadLocal<EvaluationTrace> CURRENT_THREAD_TRACE = new ThreadLocal<>();
+
+	/**
+	 * Evaluation step
+	 *
+	 * @param sequenceNumber
+	 *            sequence number of the start of the step in the trace (evaluation order)
+	 * @param depth
+	 *            nesting depth of the step, i.e. number of enclosing steps (0 for the root policy evaluation)
+	 * @param type
+	 *            type of evaluated element: Policy, PolicySet, Target, Match, Condition, Rule, CombiningAlgorithm, AttributeFetch
+	 * @param element
+	 *            evaluated element description (e.g. policy ID/version)
+	 * @param result
+	 *            evaluation result (e.g. decision, true/false, number of attribute values), or "Indeterminate: " + error message
+	 * @param startOffsetNanos
+	 *            start time of the step relative to the start of the trace, in nanoseconds
+	 * @param durationNanos
+	 *            duration of the step in nanoseconds
+	 */
+	public record Step(int sequenceNumber, int depth, String type, String element, String result, long startOffsetNanos, long durationNanos)
+	{
+	}
+
+	private final String description;
+	private final Instant startTime;
+	private final long startNanos;
+	private final List<Step> steps = new ArrayList<>();
+	private int nextSequenceNumber = 0;
+	private int depth = 0;
+	private boolean truncated = false;
+	private String result = null;
+	private long durationNanos = -1;
+
+	private EvaluationTrace(final String description)
+	{
+		this.description = description;
+		this.startTime = Instant.now();
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Gets the trace in progress in the current thread
+	 *
+	 * @return trace in progress; null if none (tracing disabled)
+	 */
+	public static EvaluationTrace current()
+	{
+		return IN_PROGRESS_TRACE_COUNT.get() == 0 ? null : CURRENT_THREAD_TRACE.get();
+	}
+
+	/**
+	 * Starts tracing the evaluations in the current thread
+	 *
+	 * @param description
+	 *            trace description (e.g. request and reason for tracing)
+	 * @return new trace in progress, to be stopped with {@link #stop(String)} in the same thread
+	 * @throws IllegalStateException
+	 *             if a trace is already in progress in the current thread
+	 */
+	public static EvaluationTrace start(final String description) throws IllegalStateException
+	{
+		if (CURRENT_THREAD_TRACE.get() != null)
+		{
+			throw new IllegalStateException("Evaluation trace already in progress in the current thread");
+		}
+
+		final EvaluationTrace trace = new EvaluationTrace(description);
+		CURRENT_THREAD_TRACE.set(trace);
+		IN_PROGRESS_TRACE_COUNT.incrementAndGet();
+		return trace;
+	}
+
+	/**
+	 * Stops this trace (must be called in the thread that started it)
+	 *
+	 * @param finalResult
+	 *            final evaluation result (e.g. decision)
+	 */
+	public void stop(final String finalResult)
+	{
+		this.durationNanos = System.nanoTime() - startNanos;
+		this.result = finalResult;
+		if (CURRENT_THREAD_TRACE.get() == this)
+		{
+			CURRENT_THREAD_TRACE.remove();
+			IN_PROGRESS_TRACE_COUNT.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Marks the start of an evaluation step, to be followed by {@link #exit(int, long, String, Object, String)} when the step is completed (in a finally block)
+	 *
+	 * @return sequence number of the step
+	 */
+	public int enter()
+	{
+		depth++;
+		return nextSequenceNumber++;
+	}
+
+	/**
+	 * Records an evaluation step started with {@link #enter()}
+	 *
+	 * @param sequenceNumber
+	 *            sequence number returned by {@link #enter()}
+	 * @param stepStartNanos
+	 *            {@link System#nanoTime()} at the start of the step
+	 * @param type
+	 *            type of evaluated element
+	 * @param element
+	 *            evaluated element (described with {@link String#valueOf(Object)})
+	 * @param stepResult
+	 *            step result
+	 */
+	public void exit(final int sequenceNumber, final long stepStartNanos, final String type, final Object element, final String stepResult)
+	{
+		final long stepEndNanos = System.nanoTime();
+		depth--;
+		if (steps.size() >= MAX_STEP_COUNT)
+		{
+			truncated = true;
+			return;
+		}
+
+		steps.add(new Step(sequenceNumber, depth, type, String.valueOf(element), stepResult, stepStartNanos - startNanos, stepEndNanos - stepStartNanos));
+	}
+
+	/**
+	 * Gets the trace description
+	 *
+	 * @return description
+	 */
+	public String getDescription()
+	{
+		return description;
+	}
+
+	/**
+	 * Gets the start time
+	 *
+	 * @return start time
+	 */
+	public Instant getStartTime()
+	{
+		return startTime;
+	}
+
+	/**
+	 * Gets the final evaluation result
+	 *
+	 * @return final result; null if the trace is not stopped
+	 */
+	public String getResult()
+	{
+		return result;
+	}
+
+	/**
+	 * Gets the total duration
+	 *
+	 * @return duration in nanoseconds; -1 if the trace is not stopped
+	 */
+	public long getDurationNanos()
+	{
+		return durationNanos;
+	}
+
+	/**
+	 * Gets the evaluation steps, in evaluation order (enclosing step before enclosed steps). Must be called after {@link #stop(String)}.
+	 *
+	 * @return steps
+	 */
+	public List<Step> getSteps()
+	{
+		final List<Step> orderedSteps = new ArrayList<>(steps);
+		orderedSteps.sort(Comparator.comparingInt(Step::sequenceNumber));
+		return orderedSteps;
+	}
+
+	/**
+	 * Indicates whether steps were ignored because the trace reached {@value #MAX_STEP_COUNT} steps
+	 *
+	 * @return true iff truncated
+	 */
+	public boolean isTruncated()
+	{
+		return truncated;
+	}
+
+	@Override
+	public String toString()
+	{
+		final StringBuilder sb = new StringBuilder();
+		sb.append("EvaluationTrace[").append(description).append(", start=").append(startTime).append(", result=").append(result).append(", durationNanos=").append(durationNanos)
+		        .append(truncated ? ", truncated" : "").append(']');
+		for (final Step step : getSteps())
+		{
+			sb.append('\n').append("  ".repeat(step.depth)).append(step.type).append(' ').append(step.element).append(" -> ").append(step.result).append(" (").append(step.durationNanos)
+			        .append(" ns)");
+		}
+
+		return sb.toString();
+	}
+}
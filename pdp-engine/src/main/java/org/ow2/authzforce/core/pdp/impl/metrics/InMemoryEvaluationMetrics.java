@@ -0,0 +1,242 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.metrics;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Default {@link EvaluationMetricsListener} keeping evaluation counts, decisions and latency histograms in memory, per Policy(Set), per Rule (enclosing Policy and RuleId), per Policy(Set)'s combining algorithm, and per
+ * attribute requested from Attribute Providers. Counters are {@link LongAdder}s, i.e. striped to avoid contention between evaluation threads, and created on the first evaluation of each element only.
+ * <p>
+ * The latency histograms have {@value #LATENCY_BUCKET_COUNT} buckets with power-of-two bounds: bucket 0 counts the latencies lower than 2^10 ns (about 1 µs), bucket i (0 &lt; i &lt;
+ * {@value #LATENCY_BUCKET_COUNT} - 1) the latencies in [2^(9+i), 2^(10+i)) ns, and the last bucket the latencies higher than 2^36 ns (about 69 s). See {@link #getLatencyBucketUpperBound(int)}.
+ * <p>
+ * The counts are read with {@link #getPolicySnapshots()}, {@link #getRuleSnapshots()}, {@link #getCombiningAlgSnapshots()} and {@link #getAttributeProviderSnapshots()}. Snapshots taken during
+ * evaluations are not atomic, i.e. counts in the same snapshot may be slightly inconsistent.
+ *
+ * @version $Id: $
+ */
+public final class InMemoryEvaluationMetrics implements EvaluationMetricsListener
+{
+	/**
+	 * Number of buckets of latency histograms
+	 */
+	public static final int LATENCY_BUCKET_COUNT = 28;
+
+	private static final int FIRST_LATENCY_BUCKET_BIT_LENGTH = 10;
+
+	/**
+	 * Snapshot of evaluation metrics of a policy element (or attribute)
+	 *
+	 * @param count
+	 *            number of evaluations (calls for attribute providers)
+	 * @param permitCount
+	 *            number of Permit decisions
+	 * @param denyCount
+	 *            number of Deny decisions
+	 * @param notApplicableCount
+	 *            number of NotApplicable decisions
+	 * @param indeterminateCount
+	 *            number of Indeterminate decisions (failures for attribute providers)
+	 * @param totalNanos
+	 *            total evaluation time in nanoseconds
+	 * @param latencyHistogram
+	 *            evaluation count per latency bucket (see {@link InMemoryEvaluationMetrics#getLatencyBucketUpperBound(int)}), array of size {@value InMemoryEvaluationMetrics#LATENCY_BUCKET_COUNT}
+	 */
+	public record Snapshot(long count, long permitCount, long denyCount, long notApplicableCount, long indeterminateCount, long totalNanos, long[] latencyHistogram)
+	{
+		/**
+		 * Gets the mean evaluation time
+		 *
+		 * @return mean evaluation time in nanoseconds, 0 if no evaluation
+		 */
+		public long meanNanos()
+		{
+			return count == 0 ? 0 : totalNanos / count;
+		}
+	}
+
+	private static final class Stats
+	{
+		private final LongAdder count = new LongAdder();
+		private final LongAdder permitCount = new LongAdder();
+		private final LongAdder denyCount = new LongAdder();
+		private final LongAdder notApplicableCount = new LongAdder();
+		private final LongAdder indeterminateCount = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final LongAdder[] latencyHistogram = new LongAdder[LATENCY_BUCKET_COUNT];
+
+		private Stats()
+		{
+			for (int i = 0; i < LATENCY_BUCKET_COUNT; i++)
+			{
+				latencyHistogram[i] = new LongAdder();
+			}
+		}
+
+		/*
+		 * decision null iff not applicable (attribute provider call without failure)
+		 */
+		private void record(final DecisionType decision, final long elapsedNanos)
+		{
+			count.increment();
+			if (decision != null)
+			{
+				switch (decision)
+				{
+					case PERMIT -> permitCount.increment();
+					case DENY -> denyCount.increment();
+					case NOT_APPLICABLE -> notApplicableCount.increment();
+					default -> indeterminateCount.increment();
+				}
+			}
+
+			totalNanos.add(elapsedNanos);
+			latencyHistogram[getLatencyBucket(elapsedNanos)].increment();
+		}
+
+		private Snapshot snapshot()
+		{
+			final long[] histogram = new long[LATENCY_BUCKET_COUNT];
+			for (int i = 0; i < LATENCY_BUCKET_COUNT; i++)
+			{
+				histogram[i] = latencyHistogram[i].sum();
+			}
+
+			return new Snapshot(count.sum(), permitCount.sum(), denyCount.sum(), notApplicableCount.sum(), indeterminateCount.sum(), totalNanos.sum(), histogram);
+		}
+	}
+
+	private static int getLatencyBucket(final long elapsedNanos)
+	{
+		final int bitLength = Long.SIZE - Long.numberOfLeadingZeros(elapsedNanos);
+		return Math.min(Math.max(bitLength - FIRST_LATENCY_BUCKET_BIT_LENGTH, 0), LATENCY_BUCKET_COUNT - 1);
+	}
+
+	/**
+	 * Gets the (exclusive) upper bound of a latency histogram bucket
+	 *
+	 * @param bucket
+	 *            bucket index, in [0, {@value #LATENCY_BUCKET_COUNT})
+	 * @return upper bound in nanoseconds; {@link Long#MAX_VALUE} for the last bucket
+	 */
+	public static long getLatencyBucketUpperBound(final int bucket)
+	{
+		return bucket >= LATENCY_BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << (FIRST_LATENCY_BUCKET_BIT_LENGTH + bucket);
+	}
+
+	private final ConcurrentMap<PrimaryPolicyMetadata, Stats> policyStats = new ConcurrentHashMap<>();
+	private final ConcurrentMap<PrimaryPolicyMetadata, Stats> combiningAlgStats = new ConcurrentHashMap<>();
+	private final ConcurrentMap<RuleKey, Stats> ruleStats = new ConcurrentHashMap<>();
+	private final ConcurrentMap<AttributeFqn, Stats> attributeProviderStats = new ConcurrentHashMap<>();
+
+	private static <K> Stats getStats(final ConcurrentMap<K, Stats> statsMap, final K key)
+	{
+		// get() first to avoid locking on computeIfAbsent() once created
+		final Stats stats = statsMap.get(key);
+		return stats == null ? statsMap.computeIfAbsent(key, k -> new Stats()) : stats;
+	}
+
+	private static <K> Map<K, Snapshot> snapshot(final ConcurrentMap<K, Stats> statsMap)
+	{
+		return statsMap.entrySet().stream().collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> e.getValue().snapshot()));
+	}
+
+	@Override
+	public void policyEvaluated(final PrimaryPolicyMetadata policy, final DecisionType decision, final long elapsedNanos)
+	{
+		getStats(policyStats, policy).record(decision, elapsedNanos);
+	}
+
+	@Override
+	public void combiningAlgEvaluated(final PrimaryPolicyMetadata policy, final DecisionType decision, final long elapsedNanos)
+	{
+		getStats(combiningAlgStats, policy).record(decision, elapsedNanos);
+	}
+
+	@Override
+	public void ruleEvaluated(final RuleKey rule, final DecisionType decision, final long elapsedNanos)
+	{
+		getStats(ruleStats, rule).record(decision, elapsedNanos);
+	}
+
+	@Override
+	public void attributeProviderCalled(final AttributeFqn attribute, final boolean failed, final long elapsedNanos)
+	{
+		getStats(attributeProviderStats, attribute).record(failed ? DecisionType.INDETERMINATE : null, elapsedNanos);
+	}
+
+	/**
+	 * Gets the metrics per Policy(Set)
+	 *
+	 * @return snapshot of metrics per evaluated Policy(Set)
+	 */
+	public Map<PrimaryPolicyMetadata, Snapshot> getPolicySnapshots()
+	{
+		return snapshot(policyStats);
+	}
+
+	/**
+	 * Gets the metrics per Policy(Set)'s combining algorithm
+	 *
+	 * @return snapshot of metrics per evaluated Policy(Set)'s combining algorithm
+	 */
+	public Map<PrimaryPolicyMetadata, Snapshot> getCombiningAlgSnapshots()
+	{
+		return snapshot(combiningAlgStats);
+	}
+
+	/**
+	 * Gets the metrics per Rule
+	 *
+	 * @return snapshot of metrics per evaluated Rule
+	 */
+	public Map<RuleKey, Snapshot> getRuleSnapshots()
+	{
+		return snapshot(ruleStats);
+	}
+
+	/**
+	 * Gets the metrics of Attribute Provider calls per attribute
+	 *
+	 * @return snapshot of metrics per attribute requested from the Attribute Providers
+	 */
+	public Map<AttributeFqn, Snapshot> getAttributeProviderSnapshots()
+	{
+		return snapshot(attributeProviderStats);
+	}
+
+	/**
+	 * Resets all metrics
+	 */
+	public void reset()
+	{
+		policyStats.clear();
+		combiningAlgStats.clear();
+		ruleStats.clear();
+		attributeProviderStats.clear();
+	}
+}
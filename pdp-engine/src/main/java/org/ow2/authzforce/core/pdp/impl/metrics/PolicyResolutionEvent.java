@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.metrics;
+
+import jdk.jfr.*;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyVersionPatterns;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementEvaluator;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementType;
+
+import java.util.Optional;
+
+/**
+ * JFR event recording the resolution of a policy by a Policy Provider, i.e. of the root policy or of a Policy(Set)IdReference
+ *
+ * @version $Id: $
+ */
+@Name("org.ow2.authzforce.pdp.PolicyResolution")
+@Label("XACML Policy Resolution")
+@Category({ "AuthzForce", "PDP" })
+@Description("Resolution of the root policy or a policy reference by a Policy Provider")
+public final class PolicyResolutionEvent extends Event
+{
+	@Label("Policy Type")
+	private String policyType;
+
+	@Label("Policy ID")
+	private String policyId;
+
+	@Label("Version Patterns")
+	private String versionPatterns;
+
+	@Label("Resolved Version")
+	@Description("Version of the resolved policy, undefined if not found")
+	private String resolvedVersion;
+
+	@Label("Found")
+	private boolean found;
+
+	/**
+	 * Ends the event with the resolution result and commits it if enabled
+	 *
+	 * @param requestedType
+	 *            type of requested policy
+	 * @param requestedId
+	 *            ID of requested policy
+	 * @param requestedVersionPatterns
+	 *            version patterns of requested policy
+	 * @param result
+	 *            resolved policy; null if not found (or the resolution failed)
+	 */
+	public void report(final TopLevelPolicyElementType requestedType, final String requestedId, final Optional<PolicyVersionPatterns> requestedVersionPatterns,
+	        final TopLevelPolicyElementEvaluator result)
+	{
+		if (shouldCommit())
+		{
+			this.policyType = requestedType.toString();
+			this.policyId = requestedId;
+			this.versionPatterns = requestedVersionPatterns.map(PolicyVersionPatterns::toString).orElse(null);
+			this.found = result != null;
+			this.resolvedVersion = result == null ? null : result.getPolicyVersion().toString();
+			commit();
+		}
+	}
+}
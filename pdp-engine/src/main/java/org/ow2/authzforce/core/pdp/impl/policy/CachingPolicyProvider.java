@@ -0,0 +1,194 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.policy;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.policy.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Policy Provider that caches the policies resolved by another (dynamic) Policy Provider across requests, to avoid resolving the same policy reference - root policy or Policy(Set)IdReference -
+ * with the same policy type, ID and version patterns on every request.
+ * <p>
+ * The cached results (resolved policy, or absence of matching policy) expire after a given time-to-live, and may be invalidated explicitly (e.g. when the policies are known to have changed) with
+ * {@link #invalidate(TopLevelPolicyElementType, String)} or {@link #invalidateAll()}. For PolicySets, the {@link PolicyRefsMetadata} of the resolved PolicySet is cached along with it, so that the
+ * PolicySet reference depth check on cache hit does not need to get it again.
+ * <p>
+ * WARNING: the evaluation context passed to {@link #get(TopLevelPolicyElementType, String, Optional, Deque, EvaluationContext, Optional)} is not part of the cache key, therefore this is only
+ * suitable for Policy Providers whose policy resolution does not depend on the request context (e.g. policies resolved from a database), or when it is acceptable to use the same policy for all
+ * requests during the time-to-live. Errors are not cached.
+ *
+ * @param <PE>
+ *            type of policy evaluator returned by the Policy Provider
+ * @version $Id: $
+ */
+public final class CachingPolicyProvider<PE extends TopLevelPolicyElementEvaluator> implements CloseablePolicyProvider<PE>
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(CachingPolicyProvider.class);
+
+	private static final IllegalArgumentException NULL_POLICY_PROVIDER_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined policy provider to cache");
+	private static final IllegalArgumentException INVALID_TTL_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined or non-positive time-to-live of policy resolution cache entries");
+	private static final IllegalArgumentException INVALID_MAX_SIZE_ARGUMENT_EXCEPTION = new IllegalArgumentException("Non-positive max size of policy resolution cache");
+
+	/*
+	 * Resolution inputs of the policy provider (except the evaluation context). Version patterns as strings, since PolicyVersionPattern(s) do not implement equals/hashCode.
+	 */
+	private record ResolutionKey(TopLevelPolicyElementType policyType, String policyId, Optional<String> versionPattern, Optional<String> earliestVersionPattern,
+	                             Optional<String> latestVersionPattern)
+	{
+		private static ResolutionKey newInstance(final TopLevelPolicyElementType policyType, final String policyId, final Optional<PolicyVersionPatterns> policyVersionConstraints)
+		{
+			if (policyVersionConstraints.isEmpty())
+			{
+				return new ResolutionKey(policyType, policyId, Optional.empty(), Optional.empty(), Optional.empty());
+			}
+
+			final PolicyVersionPatterns versionPatterns = policyVersionConstraints.get();
+			return new ResolutionKey(policyType, policyId, versionPatterns.getVersionPattern().map(PolicyVersionPattern::toString),
+			        versionPatterns.getEarliestVersionPattern().map(PolicyVersionPattern::toString), versionPatterns.getLatestVersionPattern().map(PolicyVersionPattern::toString));
+		}
+	}
+
+	/*
+	 * policy is null iff no matching policy
+	 */
+	private record ResolvedPolicy<PE>(PE policy, Optional<PolicyRefsMetadata> policyRefsMetadata)
+	{
+	}
+
+	private final CloseablePolicyProvider<PE> policyProvider;
+	private final Cache<ResolutionKey, ResolvedPolicy<PE>> cache;
+
+	/**
+	 * Creates a caching Policy Provider
+	 *
+	 * @param policyProvider
+	 *            Policy Provider whose results are cached
+	 * @param timeToLive
+	 *            time-to-live of cached results
+	 * @param maxSize
+	 *            maximum number of cached results
+	 * @throws IllegalArgumentException
+	 *             if {@code policyProvider} is null, or {@code timeToLive} is null/non-positive, or {@code maxSize <= 0}
+	 */
+	public CachingPolicyProvider(final CloseablePolicyProvider<PE> policyProvider, final Duration timeToLive, final int maxSize) throws IllegalArgumentException
+	{
+		if (policyProvider == null)
+		{
+			throw NULL_POLICY_PROVIDER_ARGUMENT_EXCEPTION;
+		}
+
+		if (timeToLive == null || timeToLive.isNegative() || timeToLive.isZero())
+		{
+			throw INVALID_TTL_ARGUMENT_EXCEPTION;
+		}
+
+		if (maxSize <= 0)
+		{
+			throw INVALID_MAX_SIZE_ARGUMENT_EXCEPTION;
+		}
+
+		this.policyProvider = policyProvider;
+		this.cache = CacheBuilder.newBuilder().expireAfterWrite(timeToLive).maximumSize(maxSize).build();
+	}
+
+	@Override
+	public Deque<String> joinPolicyRefChains(final Deque<String> policyRefChain1, final List<String> policyRefChain2) throws IllegalArgumentException
+	{
+		return policyProvider.joinPolicyRefChains(policyRefChain1, policyRefChain2);
+	}
+
+	@Override
+	public PE get(final TopLevelPolicyElementType policyType, final String policyId, final Optional<PolicyVersionPatterns> policyVersionConstraints, final Deque<String> policySetRefChain,
+	        final EvaluationContext evaluationCtx, final Optional<EvaluationContext> mdpCtx) throws IllegalArgumentException, IndeterminateEvaluationException
+	{
+		final ResolutionKey key = ResolutionKey.newInstance(policyType, policyId, policyVersionConstraints);
+		final ResolvedPolicy<PE> cachedResult = cache.getIfPresent(key);
+		if (cachedResult != null)
+		{
+			LOGGER.debug("Policy resolution cache hit: {}", key);
+			if (cachedResult.policy != null && policySetRefChain != null && !policySetRefChain.isEmpty())
+			{
+				/*
+				 * Same PolicySet reference depth check as the policy provider would do: policySetRefChain + resolved PolicySet's longest (nested) policy ref chain
+				 */
+				cachedResult.policyRefsMetadata.ifPresent(refsMetadata -> joinPolicyRefChains(policySetRefChain, refsMetadata.getLongestPolicyRefChain()));
+			}
+
+			return cachedResult.policy;
+		}
+
+		final PE policy = policyProvider.get(policyType, policyId, policyVersionConstraints, policySetRefChain, evaluationCtx, mdpCtx);
+		final Optional<PolicyRefsMetadata> policyRefsMetadata = policy == null || policyType != TopLevelPolicyElementType.POLICY_SET ? Optional.empty()
+		        : policy.getPolicyRefsMetadata(evaluationCtx, mdpCtx);
+		cache.put(key, new ResolvedPolicy<>(policy, policyRefsMetadata));
+		return policy;
+	}
+
+	@Override
+	public Optional<PrimaryPolicyMetadata> getCandidateRootPolicy()
+	{
+		return policyProvider.getCandidateRootPolicy();
+	}
+
+	/**
+	 * Invalidates the cached results for a given policy type and ID (any version), and the cached PolicySets referring to this policy (directly or indirectly)
+	 *
+	 * @param policyType
+	 *            policy type
+	 * @param policyId
+	 *            policy ID
+	 */
+	public void invalidate(final TopLevelPolicyElementType policyType, final String policyId)
+	{
+		cache.asMap().entrySet().removeIf(entry -> entry.getKey().policyType == policyType && entry.getKey().policyId.equals(policyId)
+		        || entry.getValue().policyRefsMetadata.isPresent() && entry.getValue().policyRefsMetadata.get().getRefPolicies().stream()
+		                .anyMatch(refPolicy -> refPolicy.getType() == policyType && refPolicy.getId().equals(policyId)));
+	}
+
+	/**
+	 * Invalidates all cached results
+	 */
+	public void invalidateAll()
+	{
+		cache.invalidateAll();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		cache.invalidateAll();
+		policyProvider.close();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "CachingPolicyProvider(" + policyProvider + ")";
+	}
+}
@@ -17,33 +17,45 @@
  */
 package org.ow2.authzforce.core.pdp.impl.policy;
 
+import com.google.common.base.Suppliers;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+import jakarta.xml.bind.JAXBElement;
 import jakarta.xml.bind.JAXBException;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.IdReferenceType;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.Policy;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicySet;
 import org.ow2.authzforce.core.pdp.api.EnvironmentProperties;
+import org.ow2.authzforce.core.pdp.api.HashCollections;
 import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
 import org.ow2.authzforce.core.pdp.api.XmlUtils.XmlnsFilteringParser;
 import org.ow2.authzforce.core.pdp.api.XmlUtils.XmlnsFilteringParserFactory;
 import org.ow2.authzforce.core.pdp.api.combining.CombiningAlgRegistry;
 import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
 import org.ow2.authzforce.core.pdp.api.policy.*;
+import org.ow2.authzforce.xacml.identifiers.XacmlNodeName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.ResourceUtils;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -56,6 +68,23 @@ import java.util.stream.Stream;
  * A policy location may also be a file pattern in the following form: "file://DIRECTORY_PATH/*SUFFIX" using wilcard character '*'; in which case the location is expanded to all regular files (not
  * subdirectories) in directory located at DIRECTORY_PATH with suffix <i>SUFFIX</i> (SUFFIX may be empty, i.e. no suffix). The files are NOT searched recursively on subdirectories.
  * </p>
+ * <p>
+ * To speed up startup with large numbers of policy files, the policy documents may be loaded from a binary snapshot of a previous startup instead of being parsed again, as long as they have not
+ * changed (see {@link PolicySnapshots}).
+ * </p>
+ * <p>
+ * The policies may also be loaded in parallel: policy documents are parsed concurrently (one parser per thread), then Policies are instantiated concurrently, then PolicySets are instantiated
+ * concurrently in dependency order, i.e. a PolicySet is instantiated once all the PolicySets it references (via PolicySetIdReference) are. The result is the same as with sequential loading.
+ * </p>
+ * <p>
+ * In lazy compilation mode, each policy is instantiated only when first requested, e.g. when referenced by another policy being instantiated or requested as root policy, so that policies never
+ * reached from the root policy are never instantiated. Instantiation is thread-safe and happens once per policy. Invalid policies are therefore only detected when first requested, unless
+ * {@link #warmUp()} is called to instantiate all of them.
+ * </p>
+ * <p>
+ * This provider is immutable, but {@link #update(List, List, Collection)} creates a new one with some policies added/replaced/removed, instantiating again only these policies and the PolicySets
+ * referring to them (transitively), according to the policy reference graph. {@link #reload(Set)} does the same from the policy files that have changed.
+ * </p>
  *
  * @version $Id: $
  */
@@ -66,6 +95,8 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
     private static final IllegalArgumentException ILLEGAL_EXPRESSION_FACTORY_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined Expression factory");
     private static final IllegalArgumentException ILLEGAL_XACML_PARSER_FACTORY_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined XACML parser factory");
     private static final IllegalArgumentException ILLEGAL_POLICY_URLS_ARGUMENT_EXCEPTION = new IllegalArgumentException("Undefined policy URL(s)");
+    private static final UnsupportedOperationException UNSUPPORTED_UPDATE_EXCEPTION = new UnsupportedOperationException(
+            "Incremental policy updates not enabled: source policies not kept after initialization (see 'incrementalReload' in the StaticPolicyProvider configuration)");
     private static final Logger LOGGER = LoggerFactory.getLogger(CoreStaticPolicyProvider.class);
 
     /**
@@ -105,6 +136,25 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
             this.nsPrefixUriMap = nsPrefixUriMap;
         }
 
+        /**
+         * Creates instance
+         *
+         * @param policy         XACML Policy(Set)
+         * @param nsPrefixUriMap namespace prefix-URI mappings from the policy document
+         * @param <P>            policy type
+         * @return new instance
+         * @throws java.lang.IllegalArgumentException if {@code policy == null || nsPrefixUriMap == null}
+         */
+        public static <P> PolicyWithNamespaces<P> newInstance(final P policy, final Map<String, String> nsPrefixUriMap) throws IllegalArgumentException
+        {
+            if (policy == null || nsPrefixUriMap == null)
+            {
+                throw new IllegalArgumentException("Undefined policy or namespace prefix-URI mappings");
+            }
+
+            return new PolicyWithNamespaces<>(policy, ImmutableMap.copyOf(nsPrefixUriMap));
+        }
+
     }
 
     private interface StaticPolicyProviderInParam
@@ -131,6 +181,20 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
             }
         }
 
+    /*
+     * Configuration of the policy source (Factory-created instances only)
+     */
+    private record PolicySourceConf(org.ow2.authzforce.core.xmlns.pdp.StaticPolicyProvider conf, EnvironmentProperties environmentProperties, XmlnsFilteringParserFactory xacmlParserFactory)
+    {
+    }
+
+    /*
+     * Policy source, i.e. policy locations (expanded) and the policy documents loaded from them (in the same order), kept for incremental reload (see reload(...))
+     */
+    private record PolicySource(PolicySourceConf sourceConf, List<StaticPolicyProviderInParam> providerParams, List<PolicySnapshots.PolicyDocument> policyDocs)
+    {
+    }
+
     /**
      * Module factory
      */
@@ -160,6 +224,44 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
                 throw NULL_CONF_ARGUMENT_EXCEPTION;
             }
 
+            final List<StaticPolicyProviderInParam> providerParams = getProviderParams(conf, environmentProperties);
+            final Optional<StaticPolicyProvider> otherHelpingStaticPolicyProvider;
+            if (otherHelpingPolicyProvider.isEmpty())
+            {
+                otherHelpingStaticPolicyProvider = Optional.empty();
+            } else
+            {
+                final PolicyProvider<?> provider = otherHelpingPolicyProvider.get();
+                if (provider instanceof StaticPolicyProvider)
+                {
+                    otherHelpingStaticPolicyProvider = Optional.of((StaticPolicyProvider) provider);
+                } else
+                {
+                    LOGGER.warn(
+                            "otherHelpingPolicyprovider (composition of previously instantiated policy providers) is not an instance of {} therefore ignored by this new {} instance. This type of provider may use other policy provider(s) (previously declared in PDP configuration) only if they all implement {}.",
+                            StaticPolicyProvider.class, this.getClass().getCanonicalName(), StaticPolicyProvider.class);
+                    otherHelpingStaticPolicyProvider = Optional.empty();
+                }
+            }
+
+            final Optional<Path> snapshotFile = getSnapshotFile(conf, environmentProperties);
+            final int parallelism = conf.getParallelism() == 0 ? Runtime.getRuntime().availableProcessors() : conf.getParallelism();
+            if (parallelism < 0)
+            {
+                throw new IllegalArgumentException("Invalid parallelism (for policy loading): " + parallelism + ". Expected: positive integer, or 0 for the number of available processors");
+            }
+
+            return CoreStaticPolicyProvider.getInstance(providerParams, conf.isIgnoreOldVersions(), xacmlParserFactory, maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry,
+                    otherHelpingStaticPolicyProvider, snapshotFile, parallelism, conf.isLazyCompilation(), conf.isIncrementalReload(),
+                    Optional.of(new PolicySourceConf(conf, environmentProperties, xacmlParserFactory)));
+        }
+
+        /*
+         * Expands the policy locations (file path patterns) in the configuration, in order
+         */
+        private static List<StaticPolicyProviderInParam> getProviderParams(final org.ow2.authzforce.core.xmlns.pdp.StaticPolicyProvider conf, final EnvironmentProperties environmentProperties)
+                throws IllegalArgumentException
+        {
             final List<StaticPolicyProviderInParam> providerParams = new ArrayList<>();
             for (final Object policySetOrLocationPatternBeforePlaceholderReplacement : conf.getPolicySetsAndPolicyLocations())
             {
@@ -282,32 +384,108 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
                 }
             }
 
-            final Optional<StaticPolicyProvider> otherHelpingStaticPolicyProvider;
-            if (otherHelpingPolicyProvider.isEmpty())
+            return providerParams;
+        }
+
+        /**
+         * Gets the policy snapshot file in a StaticPolicyProvider configuration (see {@link PolicySnapshots}), e.g. to ignore its changes when watching the policy directories
+         *
+         * @param conf                  StaticPolicyProvider configuration
+         * @param environmentProperties PDP configuration environment properties, used to replace placeholders in the snapshot location
+         * @return policy snapshot file (absolute path), empty if no snapshotLocation
+         * @throws java.lang.IllegalArgumentException if the snapshot location is not a file path/URL
+         */
+        public static Optional<Path> getSnapshotFile(final org.ow2.authzforce.core.xmlns.pdp.StaticPolicyProvider conf, final EnvironmentProperties environmentProperties)
+                throws IllegalArgumentException
+        {
+            if (conf == null)
             {
-                otherHelpingStaticPolicyProvider = Optional.empty();
-            } else
+                throw NULL_CONF_ARGUMENT_EXCEPTION;
+            }
+
+            final String snapshotLocationBeforePlaceholderReplacement = conf.getSnapshotLocation();
+            if (snapshotLocationBeforePlaceholderReplacement == null)
             {
-                final PolicyProvider<?> provider = otherHelpingPolicyProvider.get();
-                if (provider instanceof StaticPolicyProvider)
+                return Optional.empty();
+            }
+
+            final String snapshotLocation = environmentProperties.replacePlaceholders(snapshotLocationBeforePlaceholderReplacement);
+            try
+            {
+                return Optional.of(ResourceUtils.getFile(snapshotLocation).getAbsoluteFile().toPath());
+            } catch (final FileNotFoundException e)
+            {
+                throw new IllegalArgumentException("Invalid policy snapshot location (not a file path/URL): " + snapshotLocation, e);
+            }
+        }
+
+        /**
+         * Gets the directories in the file system where the policies are loaded from, according to the policy locations in a StaticPolicyProvider configuration, e.g. to watch them for changes. For a
+         * file path pattern, this is the pattern's base directory and all its subdirectories searched according to the pattern; for a single policy file, this is the parent directory. Policy locations
+         * that are not in the file system (e.g. classpath resources inside a JAR) are ignored.
+         *
+         * @param conf                  StaticPolicyProvider configuration
+         * @param environmentProperties PDP configuration environment properties, used to replace placeholders in policy locations
+         * @return policy directories (absolute paths), empty if none in the file system
+         * @throws java.io.IOException error listing the subdirectories of a policy location pattern's base directory
+         */
+        public static Set<Path> getPolicyLocationDirectories(final org.ow2.authzforce.core.xmlns.pdp.StaticPolicyProvider conf, final EnvironmentProperties environmentProperties)
+                throws IOException
+        {
+            if (conf == null)
+            {
+                throw NULL_CONF_ARGUMENT_EXCEPTION;
+            }
+
+            final Set<Path> policyDirs = new LinkedHashSet<>();
+            for (final Object policySetOrLocationPatternBeforePlaceholderReplacement : conf.getPolicySetsAndPolicyLocations())
+            {
+                if (!(policySetOrLocationPatternBeforePlaceholderReplacement instanceof String policyLocationPatternBeforePlaceholderReplacement))
                 {
-                    otherHelpingStaticPolicyProvider = Optional.of((StaticPolicyProvider) provider);
-                } else
+                    // inline PolicySet
+                    continue;
+                }
+
+                final String policyLocationPattern = environmentProperties.replacePlaceholders(policyLocationPatternBeforePlaceholderReplacement);
+                final int index = policyLocationPattern.startsWith(ResourceUtils.FILE_URL_PREFIX) ? policyLocationPattern.indexOf("/*") : -1;
+                if (index > 0)
                 {
-                    LOGGER.warn(
-                            "otherHelpingPolicyprovider (composition of previously instantiated policy providers) is not an instance of {} therefore ignored by this new {} instance. This type of provider may use other policy provider(s) (previously declared in PDP configuration) only if they all implement {}.",
-                            StaticPolicyProvider.class, this.getClass().getCanonicalName(), StaticPolicyProvider.class);
-                    otherHelpingStaticPolicyProvider = Optional.empty();
+                    // file path pattern (see getInstance(...))
+                    final Matcher filePathPatternMatcher = WILDCARD_SEQ_PREFIX_PATTERN.matcher(policyLocationPattern.substring(index + 1));
+                    if (!filePathPatternMatcher.matches())
+                    {
+                        throw new IllegalArgumentException("Invalid policy location: '" + policyLocationPatternBeforePlaceholderReplacement + "'. Pattern part does not match regex: "
+                                + WILDCARD_SEQ_PREFIX_PATTERN.pattern());
+                    }
+
+                    final Path directoryPath = Paths.get(URI.create(policyLocationPattern.substring(0, index))).toAbsolutePath();
+                    /*
+                     * Files at depth N (number of wildcards) are in directories at depth N-1
+                     */
+                    final int maxDirDepth = filePathPatternMatcher.group(1).length() - 1;
+                    try (Stream<Path> dirStream = Files.find(directoryPath, maxDirDepth, (path, attrs) -> attrs.isDirectory()))
+                    {
+                        dirStream.forEach(policyDirs::add);
+                    }
+
+                    continue;
+                }
+
+                try
+                {
+                    policyDirs.add(ResourceUtils.getFile(policyLocationPattern).getAbsoluteFile().getParentFile().toPath());
+                } catch (final FileNotFoundException e)
+                {
+                    LOGGER.debug("Policy location '{}' is not in the file system -> ignored", policyLocationPattern);
                 }
             }
 
-            return CoreStaticPolicyProvider.getInstance(providerParams, conf.isIgnoreOldVersions(), xacmlParserFactory, maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry,
-                    otherHelpingStaticPolicyProvider);
+            return policyDirs;
         }
     }
 
     /*
-     * Policy Provider used only for initialization, more particularly for parsing the PolicySets when they are referred to by others (in PolicySetIdReferences) at initialization time
+     * Policy Provider used for parsing the PolicySets when they are referred to by others (in PolicySetIdReferences), only at initialization time, unless lazy compilation is enabled
      */
     private static final class InitOnlyPolicyProvider extends BaseStaticPolicyProvider
     {
@@ -316,12 +494,16 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
         private final CombiningAlgRegistry combiningAlgRegistry;
 
         // will be updated by get(...)
-        private final PolicyMap<StaticTopLevelPolicyElementEvaluator> policyMap;
+        private final PolicyMap<Supplier<StaticTopLevelPolicyElementEvaluator>> policyMap;
         private final PolicyMap<PolicyWithNamespaces<PolicySet>> jaxbPolicySetMap;
+        /*
+         * Instantiated PolicySets. If used concurrently (parallel loading or lazy compilation), the table must be synchronized (Tables#synchronizedTable(...)), in which case it is also the lock
+         * for compound operations
+         */
         private final Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> policySetMapToUpdate;
         private final Optional<StaticPolicyProvider> otherPolicyProvider;
 
-        private InitOnlyPolicyProvider(final PolicyMap<StaticTopLevelPolicyElementEvaluator> policyMap, final PolicyMap<PolicyWithNamespaces<PolicySet>> jaxbPolicySetMap,
+        private InitOnlyPolicyProvider(final PolicyMap<Supplier<StaticTopLevelPolicyElementEvaluator>> policyMap, final PolicyMap<PolicyWithNamespaces<PolicySet>> jaxbPolicySetMap,
                                        final Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> outPolicySetEvaluatorMap, final int maxPolicySetRefDepth, final ExpressionFactory expressionFactory,
                                        final CombiningAlgRegistry combiningAlgRegistry, final Optional<StaticPolicyProvider> otherPolicyProvider)
         {
@@ -338,13 +520,13 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
         @Override
         protected StaticTopLevelPolicyElementEvaluator getPolicy(final String policyId, final Optional<PolicyVersionPatterns> versionConstraints) throws IndeterminateEvaluationException
         {
-            final Entry<PolicyVersion, StaticTopLevelPolicyElementEvaluator> policyEntry = policyMap.get(policyId, versionConstraints);
+            final Entry<PolicyVersion, Supplier<StaticTopLevelPolicyElementEvaluator>> policyEntry = policyMap.get(policyId, versionConstraints);
             if (policyEntry == null)
             {
                 return this.otherPolicyProvider.isPresent() ? this.otherPolicyProvider.get().get(TopLevelPolicyElementType.POLICY, policyId, versionConstraints, null) : null;
             }
 
-            return policyEntry.getValue();
+            return policyEntry.getValue().get();
         }
 
         @Override
@@ -370,16 +552,17 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
                  * No matching version already parsed. Instantiate the policy evaluator
                  */
                 final PolicyWithNamespaces<PolicySet> jaxbPolicySetWithNs = jaxbPolicySetEntry.getValue();
+                final StaticTopLevelPolicyElementEvaluator newPolicySetEvaluator;
                 try
                 {
-                    resultPolicySetEvaluator = PolicyEvaluators.getInstanceStatic(jaxbPolicySetWithNs.policy, expressionFactory, combiningAlgRegistry, this,
+                    newPolicySetEvaluator = PolicyEvaluators.getInstanceStatic(jaxbPolicySetWithNs.policy, expressionFactory, combiningAlgRegistry, this,
                             policySetRefChain, Optional.empty(), jaxbPolicySetWithNs.nsPrefixUriMap);
                 } catch (final IllegalArgumentException e)
                 {
                     throw new IllegalArgumentException("Invalid PolicySet with PolicySetId=" + policyId + ", Version=" + jaxbPolicySetVersion, e);
                 }
 
-                policySetMapToUpdate.put(policyId, jaxbPolicySetVersion, resultPolicySetEvaluator);
+                resultPolicySetEvaluator = putIfAbsent(policyId, jaxbPolicySetVersion, newPolicySetEvaluator);
             } else
             {
                 // policySet already parsed
@@ -398,6 +581,37 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
             return resultPolicySetEvaluator;
         }
 
+        /*
+         * Adds the PolicySet evaluator unless another one has been added for the same PolicySet in the meantime (by another thread), and returns the one in the table. Since the lock is not held
+         * while the PolicySet is instantiated, threads instantiating different PolicySets do not block each other, and there is no lock-order deadlock whatever the PolicySet references; but
+         * concurrent threads may instantiate the same PolicySet, and all but the first one's evaluator are discarded.
+         */
+        private StaticTopLevelPolicyElementEvaluator putIfAbsent(final String policySetId, final PolicyVersion policySetVersion, final StaticTopLevelPolicyElementEvaluator policySetEvaluator)
+        {
+            synchronized (policySetMapToUpdate)
+            {
+                final StaticTopLevelPolicyElementEvaluator oldPolicySetEvaluator = policySetMapToUpdate.get(policySetId, policySetVersion);
+                if (oldPolicySetEvaluator != null)
+                {
+                    return oldPolicySetEvaluator;
+                }
+
+                policySetMapToUpdate.put(policySetId, policySetVersion, policySetEvaluator);
+                return policySetEvaluator;
+            }
+        }
+
+        /*
+         * Copy of the PolicySets instantiated so far
+         */
+        private Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> copyPolicySets()
+        {
+            synchronized (policySetMapToUpdate)
+            {
+                return HashBasedTable.create(policySetMapToUpdate);
+            }
+        }
+
         /*
          * (non-Javadoc)
          *
@@ -410,23 +624,93 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
         }
     }
 
-    private final PolicyMap<StaticTopLevelPolicyElementEvaluator> policyEvaluatorMap;
+    /*
+     * Policy evaluators, instantiated on first call to Supplier#get() if lazy compilation enabled
+     */
+    private final PolicyMap<Supplier<StaticTopLevelPolicyElementEvaluator>> policyEvaluatorMap;
+    /*
+     * PolicySet evaluators, empty if lazy compilation enabled (instantiated on demand by lazyPolicySetProvider instead)
+     */
     private final PolicyMap<StaticTopLevelPolicyElementEvaluator> policySetEvaluatorMap;
+    /*
+     * Defined iff lazy compilation enabled
+     */
+    private final Optional<InitOnlyPolicyProvider> lazyPolicySetProvider;
+
+    /*
+     * Source (XACML/JAXB) policies, kept after initialization iff incremental updates are enabled (see update(...)), else released once the policies are instantiated
+     */
+    private final Optional<PolicyMap<PolicyWithNamespaces<Policy>>> jaxbPolicyMap;
+    private final Optional<PolicyMap<PolicyWithNamespaces<PolicySet>>> jaxbPolicySetMap;
+    /*
+     * Attribute dependencies of the policies (see getAttributeDependencies(...)), extracted from the source policies on first call if these are kept, else at initialization time
+     */
+    private final PolicyMap<Supplier<PolicyAttributeDependencies.PolicyElementDependencies>> policyDependenciesMap;
+    private final PolicyMap<Supplier<PolicyAttributeDependencies.PolicyElementDependencies>> policySetDependenciesMap;
+    /*
+     * Instantiation parameters, kept for incremental updates
+     */
+    private final int maxPolicySetRefDepth;
+    private final ExpressionFactory expressionFactory;
+    private final CombiningAlgRegistry combiningAlgRegistry;
+    private final Optional<StaticPolicyProvider> otherPolicyProvider;
+    private final boolean lazyCompilation;
+    private final Optional<PolicySource> source;
+
+    /*
+     * Policy reference graph (reversed): Policy(Set) ID -> PolicySets referring to it (directly) via Policy(Set)IdReference. Whatever the version pattern in the reference, it is a dependency on
+     * any version of the referenced Policy(Set). Empty if incremental updates are disabled.
+     */
+    private final ImmutableSetMultimap<PolicyRefKey, PolicySetKey> referringPolicySetsByRefKey;
 
-    private CoreStaticPolicyProvider(final PolicyMap<StaticTopLevelPolicyElementEvaluator> policyMap, final PolicyMap<PolicyWithNamespaces<PolicySet>> jaxbPolicySetMap, final int maxPolicySetRefDepth,
-                                     final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry, final Optional<StaticPolicyProvider> otherPolicyProvider) throws IllegalArgumentException
+    private CoreStaticPolicyProvider(final PolicyMap<PolicyWithNamespaces<Policy>> jaxbPolicyMap, final PolicyMap<Supplier<StaticTopLevelPolicyElementEvaluator>> policyMap,
+                                     final PolicyMap<PolicyWithNamespaces<PolicySet>> jaxbPolicySetMap, final Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> reusablePolicySetEvaluators,
+                                     final int maxPolicySetRefDepth, final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry,
+                                     final Optional<StaticPolicyProvider> otherPolicyProvider, final Optional<ExecutorService> executor, final boolean lazyCompilation, final boolean updatable,
+                                     final Optional<PolicySource> source) throws IllegalArgumentException
     {
         super(maxPolicySetRefDepth);
-        assert policyMap != null && jaxbPolicySetMap != null && expressionFactory != null && combiningAlgRegistry != null;
+        assert jaxbPolicyMap != null && policyMap != null && jaxbPolicySetMap != null && reusablePolicySetEvaluators != null && expressionFactory != null && combiningAlgRegistry != null && source != null;
+        assert updatable || source.isEmpty();
+
+        this.jaxbPolicyMap = updatable ? Optional.of(jaxbPolicyMap) : Optional.empty();
+        this.jaxbPolicySetMap = updatable ? Optional.of(jaxbPolicySetMap) : Optional.empty();
+        this.policyDependenciesMap = newAttributeDependenciesMap(jaxbPolicyMap, PolicyAttributeDependencies::getDependencies, updatable);
+        this.policySetDependenciesMap = newAttributeDependenciesMap(jaxbPolicySetMap, PolicyAttributeDependencies::getDependencies, updatable);
+        this.maxPolicySetRefDepth = maxPolicySetRefDepth;
+        this.expressionFactory = expressionFactory;
+        this.combiningAlgRegistry = combiningAlgRegistry;
+        this.otherPolicyProvider = otherPolicyProvider;
+        this.lazyCompilation = lazyCompilation;
+        this.source = source;
+        this.referringPolicySetsByRefKey = updatable ? newReversedPolicyRefGraph(jaxbPolicySetMap) : ImmutableSetMultimap.of();
 
         this.policyEvaluatorMap = policyMap;
-        final Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> updatablePolicySetEvaluatorTable = HashBasedTable.create();
+        if (lazyCompilation)
+        {
+            this.policySetEvaluatorMap = new PolicyMap<>(Collections.emptyMap());
+            this.lazyPolicySetProvider = Optional.of(new InitOnlyPolicyProvider(this.policyEvaluatorMap, jaxbPolicySetMap, Tables.synchronizedTable(HashBasedTable.create(reusablePolicySetEvaluators)),
+                    maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry, otherPolicyProvider));
+            return;
+        }
+
+        this.lazyPolicySetProvider = Optional.empty();
+        /*
+         * The table is updated concurrently by the bootstrap policy provider in parallel loading mode. It is initialized with the PolicySets that need no (re-)instantiation (incremental update).
+         */
+        final Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> updatablePolicySetEvaluatorTable = executor.isPresent()
+                ? Tables.synchronizedTable(HashBasedTable.create(reusablePolicySetEvaluators)) : HashBasedTable.create(reusablePolicySetEvaluators);
         /*
          * Policy Provider module used only for initialization, more particularly for parsing the PolicySets when they are referred to by others (in PolicySetIdReferences)
          */
         try (InitOnlyPolicyProvider bootstrapPolicyProvider = new InitOnlyPolicyProvider(this.policyEvaluatorMap, jaxbPolicySetMap, updatablePolicySetEvaluatorTable, maxPolicySetRefDepth,
                 expressionFactory, combiningAlgRegistry, otherPolicyProvider))
         {
+            executor.ifPresent(exec -> instantiatePolicySetsInDependencyOrder(jaxbPolicySetMap, bootstrapPolicyProvider, exec));
+
+            /*
+             * In parallel loading mode, this only instantiates the PolicySets left over by instantiatePolicySetsInDependencyOrder(), i.e. involved in circular references (to report the error)
+             */
             for (final Entry<String, PolicyVersions<PolicyWithNamespaces<PolicySet>>> jaxbPolicySetWithNsEntry : jaxbPolicySetMap.entrySet())
             {
                 final String policySetId = jaxbPolicySetWithNsEntry.getKey();
@@ -445,18 +729,7 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
                     {
                         // no policyset with such ID/Version instantiated yet
                         // do it now
-                        final PolicyWithNamespaces<PolicySet> jaxbPolicySetWithNs = jaxbPolicySetEntry.getValue();
-                        final StaticTopLevelPolicyElementEvaluator newPolicySetEvaluator;
-                        try
-                        {
-                            newPolicySetEvaluator = PolicyEvaluators.getInstanceStatic(jaxbPolicySetWithNs.policy, expressionFactory, combiningAlgRegistry,
-                                    bootstrapPolicyProvider, null, Optional.empty(), jaxbPolicySetWithNs.nsPrefixUriMap);
-                        } catch (final IllegalArgumentException e)
-                        {
-                            throw new IllegalArgumentException("Invalid PolicySet with PolicySetId='" + policySetId + "', Version=" + policySetVersion, e);
-                        }
-
-                        updatablePolicySetEvaluatorTable.put(policySetId, policySetVersion, newPolicySetEvaluator);
+                        updatablePolicySetEvaluatorTable.put(policySetId, policySetVersion, newPolicySetEvaluator(jaxbPolicySetEntry.getValue(), bootstrapPolicyProvider));
                     }
                 }
             }
@@ -465,128 +738,297 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
         this.policySetEvaluatorMap = new PolicyMap<>(updatablePolicySetEvaluatorTable.rowMap());
     }
 
-    /**
-     * Creates an instance from XACML/JAXB Policy(Set) elements
-     *
-     * @param jaxbPolicies         XACML Policies
-     * @param jaxbPolicySets       XACML PolicySets
-     * @param maxPolicySetRefDepth maximum allowed depth of PolicySet reference chain (via PolicySetIdReference): PolicySet1 -> PolicySet2 -> ...
-     * @param combiningAlgRegistry registry of policy/rule combining algorithms
-     * @param expressionFactory    Expression factory for parsing Expressions used in the policy(set)
-     * @param otherPolicyProvider  other (supporting) policy provider, used to resolve policy references that match neither {@code jaxbPolicies} nor {@code jaxbPolicySets}
-     * @return instance of this module
-     * @throws java.lang.IllegalArgumentException if both {@code jaxbPolicies} and {@code jaxbPolicySets} are null/empty, or expressionFactory/combiningAlgRegistry undefined; or one of the Policy(Set)s is not valid or conflicts
-     *                                            with another because it has same Policy(Set)Id and Version.
-     */
-    public static CoreStaticPolicyProvider getInstance(final List<PolicyWithNamespaces<Policy>> jaxbPolicies, final List<PolicyWithNamespaces<PolicySet>> jaxbPolicySets,
-                                                       final int maxPolicySetRefDepth, final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry, final Optional<StaticPolicyProvider> otherPolicyProvider)
+    private static StaticTopLevelPolicyElementEvaluator newPolicySetEvaluator(final PolicyWithNamespaces<PolicySet> jaxbPolicySetWithNs, final InitOnlyPolicyProvider bootstrapPolicyProvider)
             throws IllegalArgumentException
     {
-        if ((jaxbPolicies == null || jaxbPolicies.isEmpty()) && (jaxbPolicySets == null || jaxbPolicySets.isEmpty()))
+        try
         {
-            throw NO_POLICY_ARG_EXCEPTION;
+            return PolicyEvaluators.getInstanceStatic(jaxbPolicySetWithNs.policy, bootstrapPolicyProvider.expressionFactory, bootstrapPolicyProvider.combiningAlgRegistry, bootstrapPolicyProvider,
+                    null, Optional.empty(), jaxbPolicySetWithNs.nsPrefixUriMap);
+        } catch (final IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("Invalid PolicySet with PolicySetId='" + jaxbPolicySetWithNs.policy.getPolicySetId() + "', Version=" + jaxbPolicySetWithNs.policy.getVersion(), e);
         }
+    }
 
-        if (expressionFactory == null)
+    /*
+     * Attribute dependencies of each policy in jaxbPolicyMap, extracted on first call iff lazy, else now
+     */
+    private static <P> PolicyMap<Supplier<PolicyAttributeDependencies.PolicyElementDependencies>> newAttributeDependenciesMap(final PolicyMap<PolicyWithNamespaces<P>> jaxbPolicyMap,
+                                                                                                                           final Function<P, PolicyAttributeDependencies.PolicyElementDependencies> dependencyExtractor, final boolean lazy)
+    {
+        final Table<String, PolicyVersion, Supplier<PolicyAttributeDependencies.PolicyElementDependencies>> updatableDependenciesTable = HashBasedTable.create();
+        for (final Entry<String, PolicyVersions<PolicyWithNamespaces<P>>> jaxbPolicyVersionsEntry : jaxbPolicyMap.entrySet())
         {
-            throw ILLEGAL_EXPRESSION_FACTORY_ARGUMENT_EXCEPTION;
+            for (final Entry<PolicyVersion, PolicyWithNamespaces<P>> jaxbPolicyEntry : jaxbPolicyVersionsEntry.getValue())
+            {
+                final P jaxbPolicy = jaxbPolicyEntry.getValue().policy;
+                updatableDependenciesTable.put(jaxbPolicyVersionsEntry.getKey(), jaxbPolicyEntry.getKey(),
+                        lazy ? Suppliers.memoize(() -> dependencyExtractor.apply(jaxbPolicy)) : Suppliers.ofInstance(dependencyExtractor.apply(jaxbPolicy)));
+            }
         }
 
-        if (combiningAlgRegistry == null)
+        return new PolicyMap<>(updatableDependenciesTable.rowMap());
+    }
+
+    private record PolicySetKey(String id, PolicyVersion version)
+    {
+    }
+
+    private record PolicyRefKey(TopLevelPolicyElementType type, String id)
+    {
+    }
+
+    /*
+     * Adds the Policy(Set)IdReferences in a PolicySet, including in nested PolicySets, to the reversed policy reference graph
+     */
+    private static void addPolicyRefEdges(final PolicySet jaxbPolicySet, final PolicySetKey referringPolicySetKey, final ImmutableSetMultimap.Builder<PolicyRefKey, PolicySetKey> graphBuilder)
+    {
+        for (final Serializable policyChildElt : jaxbPolicySet.getPolicySetsAndPoliciesAndPolicySetIdReferences())
         {
-            throw ILLEGAL_COMBINING_ALG_REGISTRY_ARGUMENT_EXCEPTION;
+            if (policyChildElt instanceof PolicySet jaxbChildPolicySet)
+            {
+                addPolicyRefEdges(jaxbChildPolicySet, referringPolicySetKey, graphBuilder);
+            } else if (policyChildElt instanceof JAXBElement<?> jaxbPolicyChildElt && jaxbPolicyChildElt.getValue() instanceof IdReferenceType jaxbIdRef)
+            {
+                final TopLevelPolicyElementType refType = jaxbPolicyChildElt.getName().getLocalPart().equals(XacmlNodeName.POLICY_ID_REFERENCE.value()) ? TopLevelPolicyElementType.POLICY
+                        : TopLevelPolicyElementType.POLICY_SET;
+                graphBuilder.put(new PolicyRefKey(refType, jaxbIdRef.getValue()), referringPolicySetKey);
+            }
         }
+    }
 
-        final PolicyMap<StaticTopLevelPolicyElementEvaluator> policyMap;
-        if (jaxbPolicies == null)
+    private static ImmutableSetMultimap<PolicyRefKey, PolicySetKey> newReversedPolicyRefGraph(final PolicyMap<PolicyWithNamespaces<PolicySet>> jaxbPolicySetMap)
+    {
+        final ImmutableSetMultimap.Builder<PolicyRefKey, PolicySetKey> graphBuilder = ImmutableSetMultimap.builder();
+        for (final Entry<String, PolicyVersions<PolicyWithNamespaces<PolicySet>>> jaxbPolicySetVersionsEntry : jaxbPolicySetMap.entrySet())
         {
-            policyMap = new PolicyMap<>(Collections.emptyMap());
-        } else
+            for (final Entry<PolicyVersion, PolicyWithNamespaces<PolicySet>> jaxbPolicySetEntry : jaxbPolicySetVersionsEntry.getValue())
+            {
+                addPolicyRefEdges(jaxbPolicySetEntry.getValue().policy, new PolicySetKey(jaxbPolicySetVersionsEntry.getKey(), jaxbPolicySetEntry.getKey()), graphBuilder);
+            }
+        }
+
+        return graphBuilder.build();
+    }
+
+    /*
+     * Adds the PolicySetIdReferences in a PolicySet, including in nested PolicySets
+     */
+    private static void addPolicySetIdReferences(final PolicySet jaxbPolicySet, final List<IdReferenceType> outRefs)
+    {
+        for (final Serializable policyChildElt : jaxbPolicySet.getPolicySetsAndPoliciesAndPolicySetIdReferences())
         {
-            final Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> updatablePolicyTable = HashBasedTable.create();
-            for (final PolicyWithNamespaces<Policy> jaxbPolicyWithNs : jaxbPolicies)
+            if (policyChildElt instanceof PolicySet jaxbChildPolicySet)
             {
-                final Policy jaxbPolicy = jaxbPolicyWithNs.policy;
-                final String policyId = jaxbPolicy.getPolicyId();
-                final String policyVersion = jaxbPolicy.getVersion();
-                final StaticTopLevelPolicyElementEvaluator policyEvaluator;
-                try
+                addPolicySetIdReferences(jaxbChildPolicySet, outRefs);
+            } else if (policyChildElt instanceof JAXBElement<?> jaxbPolicyChildElt && jaxbPolicyChildElt.getName().getLocalPart().equals(XacmlNodeName.POLICYSET_ID_REFERENCE.value()))
+            {
+                outRefs.add((IdReferenceType) jaxbPolicyChildElt.getValue());
+            }
+        }
+    }
+
+    /*
+     * Instantiates the PolicySets concurrently, in waves: each wave instantiates the PolicySets whose referenced PolicySets (via PolicySetIdReferences) - if any among jaxbPolicySetMap - have all been
+     * instantiated in the previous waves, so that references are always resolved to already instantiated PolicySets. PolicySets involved in circular references are never ready and therefore left
+     * over for the caller to instantiate (and report the error).
+     */
+    private static void instantiatePolicySetsInDependencyOrder(final PolicyMap<PolicyWithNamespaces<PolicySet>> jaxbPolicySetMap, final InitOnlyPolicyProvider bootstrapPolicyProvider,
+                                                               final ExecutorService executor) throws IllegalArgumentException
+    {
+        final Map<PolicySetKey, PolicyWithNamespaces<PolicySet>> jaxbPolicySetsByKey = HashCollections.newUpdatableMap();
+        final Map<PolicySetKey, Set<PolicySetKey>> pendingPolicySetDeps = new LinkedHashMap<>();
+        for (final Entry<String, PolicyVersions<PolicyWithNamespaces<PolicySet>>> jaxbPolicySetVersionsEntry : jaxbPolicySetMap.entrySet())
+        {
+            for (final Entry<PolicyVersion, PolicyWithNamespaces<PolicySet>> jaxbPolicySetEntry : jaxbPolicySetVersionsEntry.getValue())
+            {
+                final List<IdReferenceType> policySetRefs = new ArrayList<>();
+                addPolicySetIdReferences(jaxbPolicySetEntry.getValue().policy, policySetRefs);
+                final Set<PolicySetKey> deps = HashCollections.newUpdatableSet(policySetRefs.size());
+                for (final IdReferenceType policySetRef : policySetRefs)
                 {
+                    final Entry<PolicyVersion, PolicyWithNamespaces<PolicySet>> refPolicySetEntry;
+                    try
+                    {
+                        refPolicySetEntry = jaxbPolicySetMap.get(policySetRef.getValue(),
+                                Optional.of(new PolicyVersionPatterns(policySetRef.getVersion(), policySetRef.getEarliestVersion(), policySetRef.getLatestVersion())));
+                    } catch (final IllegalArgumentException e)
+                    {
+                        // invalid version pattern, reported when instantiating the PolicySet
+                        continue;
+                    }
+
                     /*
-                    XPath compiler shall be initialized in PolicyEvaluators#getInstance(...) based on PolicyDefaults/XPathVersion if present
+                     * If null, the reference is resolved by the other policy provider (if any), no dependency here
                      */
-                    policyEvaluator = PolicyEvaluators.getInstance(jaxbPolicy, expressionFactory, combiningAlgRegistry, Optional.empty(), jaxbPolicyWithNs.nsPrefixUriMap);
-                } catch (final IllegalArgumentException e)
-                {
-                    throw new IllegalArgumentException("Invalid Policy with PolicyId=" + policyId + ", Version=" + policyVersion, e);
+                    if (refPolicySetEntry != null)
+                    {
+                        deps.add(new PolicySetKey(policySetRef.getValue(), refPolicySetEntry.getKey()));
+                    }
                 }
 
-                final StaticTopLevelPolicyElementEvaluator previousValue = updatablePolicyTable.put(policyId, new PolicyVersion(policyVersion), policyEvaluator);
-                if (previousValue != null)
-                {
-                    throw new IllegalArgumentException("Policy conflict: two <Policy>s with same PolicyId=" + policyId + ", Version=" + policyVersion);
-                }
+                final PolicySetKey policySetKey = new PolicySetKey(jaxbPolicySetVersionsEntry.getKey(), jaxbPolicySetEntry.getKey());
+                jaxbPolicySetsByKey.put(policySetKey, jaxbPolicySetEntry.getValue());
+                pendingPolicySetDeps.put(policySetKey, deps);
             }
-
-            policyMap = new PolicyMap<>(updatablePolicyTable.rowMap());
         }
 
-        final PolicyMap<PolicyWithNamespaces<PolicySet>> jaxbPolicySetMap;
-        if (jaxbPolicySets == null)
-        {
-            jaxbPolicySetMap = new PolicyMap<>(Collections.emptyMap());
-        } else
+        while (!pendingPolicySetDeps.isEmpty())
         {
-            final Table<String, PolicyVersion, PolicyWithNamespaces<PolicySet>> updatablePolicySetTable = HashBasedTable.create();
-            for (final PolicyWithNamespaces<PolicySet> jaxbPolicySetWithNs : jaxbPolicySets)
+            final List<PolicySetKey> readyPolicySets = pendingPolicySetDeps.entrySet().stream().filter(entry -> Collections.disjoint(entry.getValue(), pendingPolicySetDeps.keySet()))
+                    .map(Entry::getKey).toList();
+            if (readyPolicySets.isEmpty())
             {
-                final PolicySet jaxbPolicySet = jaxbPolicySetWithNs.policy;
-                final String policyId = jaxbPolicySet.getPolicySetId();
-                final String policyVersion = jaxbPolicySet.getVersion();
-                // check if any version of the same policy exist in the map
-                final PolicyWithNamespaces<PolicySet> previousValue = updatablePolicySetTable.put(policyId, new PolicyVersion(policyVersion), jaxbPolicySetWithNs);
-                if (previousValue != null)
+                LOGGER.debug("PolicySets left over after parallel instantiation (circular references): {}", pendingPolicySetDeps.keySet());
+                return;
+            }
+
+            final List<Callable<StaticTopLevelPolicyElementEvaluator>> tasks = readyPolicySets.stream()
+                    .<Callable<StaticTopLevelPolicyElementEvaluator>>map(key -> () ->
+                    {
+                        final StaticTopLevelPolicyElementEvaluator policySetEvaluator = newPolicySetEvaluator(jaxbPolicySetsByKey.get(key), bootstrapPolicyProvider);
+                        bootstrapPolicyProvider.policySetMapToUpdate.put(key.id, key.version, policySetEvaluator);
+                        return policySetEvaluator;
+                    }).toList();
+            invokeAll(executor, tasks);
+            readyPolicySets.forEach(pendingPolicySetDeps::remove);
+        }
+    }
+
+    /*
+     * Runs tasks concurrently and returns their results in the same order, rethrowing the first error (in task order) if any
+     */
+    private static <T> List<T> invokeAll(final ExecutorService executor, final List<Callable<T>> tasks) throws IllegalArgumentException
+    {
+        try
+        {
+            final List<Future<T>> futures = executor.invokeAll(tasks);
+            final List<T> results = new ArrayList<>(futures.size());
+            for (final Future<T> future : futures)
+            {
+                try
                 {
-                    throw new IllegalArgumentException("Policy conflict: two PolicySets with same PolicySetId=" + policyId + ", Version=" + policyVersion);
+                    results.add(future.get());
+                } catch (final ExecutionException e)
+                {
+                    if (e.getCause() instanceof RuntimeException cause)
+                    {
+                        throw cause;
+                    }
+
+                    throw new IllegalArgumentException("Failed to load policies", e.getCause());
                 }
+            }
 
-                /*
-                 * PolicySets cannot be parsed before we have collected them all, because each PolicySet may refer to others via PolicySetIdReferences
-                 */
+            return results;
+        } catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading policies", e);
+        }
+    }
+
+    private static StaticTopLevelPolicyElementEvaluator newPolicyEvaluator(final PolicyWithNamespaces<Policy> jaxbPolicyWithNs, final ExpressionFactory expressionFactory,
+                                                                         final CombiningAlgRegistry combiningAlgRegistry) throws IllegalArgumentException
+    {
+        final Policy jaxbPolicy = jaxbPolicyWithNs.policy;
+        try
+        {
+            /*
+            XPath compiler shall be initialized in PolicyEvaluators#getInstance(...) based on PolicyDefaults/XPathVersion if present
+             */
+            return PolicyEvaluators.getInstance(jaxbPolicy, expressionFactory, combiningAlgRegistry, Optional.empty(), jaxbPolicyWithNs.nsPrefixUriMap);
+        } catch (final IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("Invalid Policy with PolicyId=" + jaxbPolicy.getPolicyId() + ", Version=" + jaxbPolicy.getVersion(), e);
+        }
+    }
+
+    /*
+     * Instantiates the Policies (independent from each other), concurrently if executor is present; or, if lazyCompilation, returns suppliers that instantiate them on first call (once), in a
+     * thread-safe way
+     */
+    private static PolicyMap<Supplier<StaticTopLevelPolicyElementEvaluator>> newPolicyEvaluatorMap(final Table<String, PolicyVersion, PolicyWithNamespaces<Policy>> jaxbPolicyTable,
+                                                                                                   final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry, final Optional<ExecutorService> executor, final boolean lazyCompilation) throws IllegalArgumentException
+    {
+        final Table<String, PolicyVersion, Supplier<StaticTopLevelPolicyElementEvaluator>> updatablePolicyTable = HashBasedTable.create();
+        if (lazyCompilation)
+        {
+            for (final Table.Cell<String, PolicyVersion, PolicyWithNamespaces<Policy>> jaxbPolicyCell : jaxbPolicyTable.cellSet())
+            {
+                final PolicyWithNamespaces<Policy> jaxbPolicyWithNs = jaxbPolicyCell.getValue();
+                updatablePolicyTable.put(jaxbPolicyCell.getRowKey(), jaxbPolicyCell.getColumnKey(), Suppliers.memoize(() -> newPolicyEvaluator(jaxbPolicyWithNs, expressionFactory, combiningAlgRegistry)));
             }
 
-            jaxbPolicySetMap = new PolicyMap<>(updatablePolicySetTable.rowMap());
+            return new PolicyMap<>(updatablePolicyTable.rowMap());
         }
 
-        return new CoreStaticPolicyProvider(policyMap, jaxbPolicySetMap, maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry, otherPolicyProvider);
+        final List<Table.Cell<String, PolicyVersion, PolicyWithNamespaces<Policy>>> jaxbPolicyCells = new ArrayList<>(jaxbPolicyTable.cellSet());
+        final List<StaticTopLevelPolicyElementEvaluator> policyEvaluators;
+        if (executor.isPresent())
+        {
+            policyEvaluators = invokeAll(executor.get(), jaxbPolicyCells.stream()
+                    .<Callable<StaticTopLevelPolicyElementEvaluator>>map(cell -> () -> newPolicyEvaluator(cell.getValue(), expressionFactory, combiningAlgRegistry)).toList());
+        } else
+        {
+            policyEvaluators = new ArrayList<>(jaxbPolicyCells.size());
+            for (final Table.Cell<String, PolicyVersion, PolicyWithNamespaces<Policy>> jaxbPolicyCell : jaxbPolicyCells)
+            {
+                policyEvaluators.add(newPolicyEvaluator(jaxbPolicyCell.getValue(), expressionFactory, combiningAlgRegistry));
+            }
+        }
+
+        for (int i = 0; i < jaxbPolicyCells.size(); i++)
+        {
+            final Table.Cell<String, PolicyVersion, PolicyWithNamespaces<Policy>> jaxbPolicyCell = jaxbPolicyCells.get(i);
+            updatablePolicyTable.put(jaxbPolicyCell.getRowKey(), jaxbPolicyCell.getColumnKey(), Suppliers.ofInstance(policyEvaluators.get(i)));
+        }
+
+        return new PolicyMap<>(updatablePolicyTable.rowMap());
     }
 
     /**
-     * Creates an instance from policy locations
+     * Creates an instance from XACML/JAXB Policy(Set) elements
      *
-     * @param providerParams          location of Policy(Set) elements (JAXB) to be parsed for future reference by Policy(Set)IdReferences
-     * @param ignoreOldPolicyVersions for any given policy ID, ignore all versions except the last one if there are multiple versions of the policy
-     * @param xacmlParserFactory      XACML parser factory for parsing any XACML Policy(Set)
-     * @param maxPolicySetRefDepth    maximum allowed depth of PolicySet reference chain (via PolicySetIdReference): PolicySet1 -> PolicySet2 -> ...; a strictly negative value means no limit
-     * @param combiningAlgRegistry    registry of policy/rule combining algorithms
-     * @param expressionFactory       Expression factory for parsing Expressions used in the policy(set)
-     * @param otherPolicyProvider     other (supporting) policy provider, used to resolve policy references that do not match any of {@code providerParams}
-     * @return instance of this class
-     * @throws java.lang.IllegalArgumentException if {@code policyURLs == null || policyURLs.length == 0 || xacmlParserFactory == null || expressionFactory == null || combiningAlgRegistry == null}; or one of {@code policyURLs} is
-     *                                            null or is not a valid XACML Policy(Set) or conflicts with another because it has same Policy(Set)Id and Version. Beware that the Policy(Set)Issuer is ignored from this check!
+     * @param jaxbPolicies         XACML Policies
+     * @param jaxbPolicySets       XACML PolicySets
+     * @param maxPolicySetRefDepth maximum allowed depth of PolicySet reference chain (via PolicySetIdReference): PolicySet1 -> PolicySet2 -> ...
+     * @param combiningAlgRegistry registry of policy/rule combining algorithms
+     * @param expressionFactory    Expression factory for parsing Expressions used in the policy(set)
+     * @param otherPolicyProvider  other (supporting) policy provider, used to resolve policy references that match neither {@code jaxbPolicies} nor {@code jaxbPolicySets}
+     * @return instance of this module, not updatable (see {@link #update(List, List, Collection)})
+     * @throws java.lang.IllegalArgumentException if both {@code jaxbPolicies} and {@code jaxbPolicySets} are null/empty, or expressionFactory/combiningAlgRegistry undefined; or one of the Policy(Set)s is not valid or conflicts
+     *                                            with another because it has same Policy(Set)Id and Version.
      */
-    private static CoreStaticPolicyProvider getInstance(final List<StaticPolicyProviderInParam> providerParams, final boolean ignoreOldPolicyVersions,
-                                                       final XmlnsFilteringParserFactory xacmlParserFactory, final int maxPolicySetRefDepth, final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry,
-                                                       final Optional<StaticPolicyProvider> otherPolicyProvider) throws IllegalArgumentException
+    public static CoreStaticPolicyProvider getInstance(final List<PolicyWithNamespaces<Policy>> jaxbPolicies, final List<PolicyWithNamespaces<PolicySet>> jaxbPolicySets,
+                                                       final int maxPolicySetRefDepth, final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry, final Optional<StaticPolicyProvider> otherPolicyProvider)
+            throws IllegalArgumentException
     {
-        if (providerParams == null || providerParams.isEmpty())
-        {
-            throw ILLEGAL_POLICY_URLS_ARGUMENT_EXCEPTION;
-        }
+        return getInstance(jaxbPolicies, jaxbPolicySets, maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry, otherPolicyProvider, false);
+    }
 
-        if (xacmlParserFactory == null)
+    /**
+     * Creates an instance from XACML/JAXB Policy(Set) elements
+     *
+     * @param jaxbPolicies         XACML Policies
+     * @param jaxbPolicySets       XACML PolicySets
+     * @param maxPolicySetRefDepth maximum allowed depth of PolicySet reference chain (via PolicySetIdReference): PolicySet1 -> PolicySet2 -> ...
+     * @param combiningAlgRegistry registry of policy/rule combining algorithms
+     * @param expressionFactory    Expression factory for parsing Expressions used in the policy(set)
+     * @param otherPolicyProvider  other (supporting) policy provider, used to resolve policy references that match neither {@code jaxbPolicies} nor {@code jaxbPolicySets}
+     * @param updatable            true iff the policies must be kept in memory after instantiation, for incremental updates (see {@link #update(List, List, Collection)})
+     * @return instance of this module
+     * @throws java.lang.IllegalArgumentException if both {@code jaxbPolicies} and {@code jaxbPolicySets} are null/empty, or expressionFactory/combiningAlgRegistry undefined; or one of the Policy(Set)s is not valid or conflicts
+     *                                            with another because it has same Policy(Set)Id and Version.
+     */
+    public static CoreStaticPolicyProvider getInstance(final List<PolicyWithNamespaces<Policy>> jaxbPolicies, final List<PolicyWithNamespaces<PolicySet>> jaxbPolicySets,
+                                                       final int maxPolicySetRefDepth, final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry, final Optional<StaticPolicyProvider> otherPolicyProvider,
+                                                       final boolean updatable) throws IllegalArgumentException
+    {
+        if ((jaxbPolicies == null || jaxbPolicies.isEmpty()) && (jaxbPolicySets == null || jaxbPolicySets.isEmpty()))
         {
-            throw ILLEGAL_XACML_PARSER_FACTORY_ARGUMENT_EXCEPTION;
+            throw NO_POLICY_ARG_EXCEPTION;
         }
 
         if (expressionFactory == null)
@@ -599,18 +1041,89 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
             throw ILLEGAL_COMBINING_ALG_REGISTRY_ARGUMENT_EXCEPTION;
         }
 
-        final XmlnsFilteringParser xacmlParser;
+        final Table<String, PolicyVersion, PolicyWithNamespaces<Policy>> updatableJaxbPolicyTable = HashBasedTable.create();
+        if (jaxbPolicies != null)
+        {
+            for (final PolicyWithNamespaces<Policy> jaxbPolicyWithNs : jaxbPolicies)
+            {
+                final Policy jaxbPolicy = jaxbPolicyWithNs.policy;
+                final String policyId = jaxbPolicy.getPolicyId();
+                final String policyVersion = jaxbPolicy.getVersion();
+                final PolicyWithNamespaces<Policy> previousValue = updatableJaxbPolicyTable.put(policyId, new PolicyVersion(policyVersion), jaxbPolicyWithNs);
+                if (previousValue != null)
+                {
+                    throw new IllegalArgumentException("Policy conflict: two <Policy>s with same PolicyId=" + policyId + ", Version=" + policyVersion);
+                }
+            }
+        }
+
+        final PolicyMap<Supplier<StaticTopLevelPolicyElementEvaluator>> policyMap = newPolicyEvaluatorMap(updatableJaxbPolicyTable, expressionFactory, combiningAlgRegistry, Optional.empty(), false);
+
+        final PolicyMap<PolicyWithNamespaces<PolicySet>> jaxbPolicySetMap;
+        if (jaxbPolicySets == null)
+        {
+            jaxbPolicySetMap = new PolicyMap<>(Collections.emptyMap());
+        } else
+        {
+            final Table<String, PolicyVersion, PolicyWithNamespaces<PolicySet>> updatablePolicySetTable = HashBasedTable.create();
+            for (final PolicyWithNamespaces<PolicySet> jaxbPolicySetWithNs : jaxbPolicySets)
+            {
+                final PolicySet jaxbPolicySet = jaxbPolicySetWithNs.policy;
+                final String policyId = jaxbPolicySet.getPolicySetId();
+                final String policyVersion = jaxbPolicySet.getVersion();
+                // check if any version of the same policy exist in the map
+                final PolicyWithNamespaces<PolicySet> previousValue = updatablePolicySetTable.put(policyId, new PolicyVersion(policyVersion), jaxbPolicySetWithNs);
+                if (previousValue != null)
+                {
+                    throw new IllegalArgumentException("Policy conflict: two PolicySets with same PolicySetId=" + policyId + ", Version=" + policyVersion);
+                }
+
+                /*
+                 * PolicySets cannot be parsed before we have collected them all, because each PolicySet may refer to others via PolicySetIdReferences
+                 */
+            }
+
+            jaxbPolicySetMap = new PolicyMap<>(updatablePolicySetTable.rowMap());
+        }
+
+        return new CoreStaticPolicyProvider(new PolicyMap<>(updatableJaxbPolicyTable.rowMap()), policyMap, jaxbPolicySetMap, HashBasedTable.create(), maxPolicySetRefDepth, expressionFactory,
+                combiningAlgRegistry, otherPolicyProvider, Optional.empty(), false, updatable, Optional.empty());
+    }
+
+    private static PolicySnapshots.PolicyDocument parse(final XmlnsFilteringParser xacmlParser, final URL policyURL) throws IllegalArgumentException
+    {
+        final Object jaxbPolicyOrPolicySetObj;
         try
         {
-            xacmlParser = xacmlParserFactory.getInstance();
+            jaxbPolicyOrPolicySetObj = xacmlParser.parse(policyURL);
+        } catch (final JAXBException e)
+        {
+            throw new IllegalArgumentException("Failed to unmarshall Policy(Set) XML document from policy location: " + policyURL, e);
+        }
+
+        return new PolicySnapshots.PolicyDocument(jaxbPolicyOrPolicySetObj, xacmlParser.getNamespacePrefixUriMap());
+    }
+
+    private static XmlnsFilteringParser newXacmlParser(final XmlnsFilteringParserFactory xacmlParserFactory) throws IllegalArgumentException
+    {
+        try
+        {
+            return xacmlParserFactory.getInstance();
         } catch (final JAXBException e)
         {
             throw new IllegalArgumentException("Failed to create JAXB unmarshaller for XML Policy(Set)", e);
         }
+    }
 
-        final Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> updatablePolicyTable = HashBasedTable.create();
-        final Table<String, PolicyVersion, PolicyWithNamespaces<PolicySet>> updatablePolicySetTable = HashBasedTable.create();
+    /*
+     * Parses the policy documents from the policy locations in providerParams - concurrently (one parser per thread) if executor is present - or gets them from the snapshot if up-to-date; and returns
+     * them in the same order as providerParams, along with the inline PolicySets.
+     */
+    private static List<PolicySnapshots.PolicyDocument> getPolicyDocuments(final List<StaticPolicyProviderInParam> providerParams, final XmlnsFilteringParserFactory xacmlParserFactory,
+                                                                         final Optional<Path> snapshotFile, final Optional<ExecutorService> executor) throws IllegalArgumentException
+    {
         int providerParamIndex = 0;
+        final List<URL> policyLocations = new ArrayList<>(providerParams.size());
         for (final StaticPolicyProviderInParam providerParam : providerParams)
         {
             if (providerParam == null)
@@ -618,23 +1131,102 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
                 throw new IllegalArgumentException("Policy provider parameter #" + providerParamIndex + " undefined");
             }
 
-            final Object jaxbPolicyOrPolicySetObj;
-            if (providerParam instanceof XacmlPolicyParam)
+            if (providerParam instanceof PolicyLocationParam policyLocationParam)
+            {
+                policyLocations.add(policyLocationParam.policyLocation);
+            }
+
+            providerParamIndex++;
+        }
+
+        final String policyLocationsFingerprint;
+        final Optional<List<PolicySnapshots.PolicyDocument>> snapshotDocs;
+        if (snapshotFile.isPresent())
+        {
+            try
+            {
+                policyLocationsFingerprint = PolicySnapshots.fingerprint(policyLocations);
+            } catch (final IOException e)
+            {
+                throw new IllegalArgumentException("Failed to get the size/last modification time of policy document(s) for policy snapshot validation", e);
+            }
+
+            snapshotDocs = PolicySnapshots.read(snapshotFile.get(), policyLocationsFingerprint).filter(docs -> docs.size() == policyLocations.size());
+        } else
+        {
+            policyLocationsFingerprint = null;
+            snapshotDocs = Optional.empty();
+        }
+
+        final List<PolicySnapshots.PolicyDocument> locationDocs;
+        if (snapshotDocs.isPresent())
+        {
+            locationDocs = snapshotDocs.get();
+        } else
+        {
+            if (executor.isPresent())
             {
-                jaxbPolicyOrPolicySetObj = ((XacmlPolicyParam) providerParam).policy;
+                final ThreadLocal<XmlnsFilteringParser> threadLocalXacmlParser = ThreadLocal.withInitial(() -> newXacmlParser(xacmlParserFactory));
+                locationDocs = invokeAll(executor.get(), policyLocations.stream().<Callable<PolicySnapshots.PolicyDocument>>map(policyURL -> () -> parse(threadLocalXacmlParser.get(), policyURL)).toList());
             } else
             {
-                final URL policyURL = ((PolicyLocationParam) providerParam).policyLocation;
-                try
-                {
-                    jaxbPolicyOrPolicySetObj = xacmlParser.parse(policyURL);
-                } catch (final JAXBException e)
+                locationDocs = new ArrayList<>(policyLocations.size());
+                if (!policyLocations.isEmpty())
                 {
-                    throw new IllegalArgumentException("Failed to unmarshall Policy(Set) XML document from policy location: " + policyURL, e);
+                    final XmlnsFilteringParser xacmlParser = newXacmlParser(xacmlParserFactory);
+                    for (final URL policyURL : policyLocations)
+                    {
+                        locationDocs.add(parse(xacmlParser, policyURL));
+                    }
                 }
             }
 
-            final ImmutableMap<String, String> nsPrefixUriMap = xacmlParser.getNamespacePrefixUriMap();
+            snapshotFile.ifPresent(file -> PolicySnapshots.write(file, policyLocationsFingerprint, locationDocs));
+        }
+
+        /*
+         * Merge with inline PolicySets, in order. Inline PolicySets are given the namespace prefix-URI mappings of the policy document parsed before, if any
+         */
+        final List<PolicySnapshots.PolicyDocument> policyDocs = new ArrayList<>(providerParams.size());
+        final Iterator<PolicySnapshots.PolicyDocument> locationDocsIterator = locationDocs.iterator();
+        ImmutableMap<String, String> lastNsPrefixUriMap = ImmutableMap.of();
+        for (final StaticPolicyProviderInParam providerParam : providerParams)
+        {
+            if (providerParam instanceof XacmlPolicyParam xacmlPolicyParam)
+            {
+                policyDocs.add(new PolicySnapshots.PolicyDocument(xacmlPolicyParam.policy, lastNsPrefixUriMap));
+            } else
+            {
+                final PolicySnapshots.PolicyDocument policyDoc = locationDocsIterator.next();
+                policyDocs.add(policyDoc);
+                lastNsPrefixUriMap = policyDoc.nsPrefixUriMap();
+            }
+        }
+
+        return policyDocs;
+    }
+
+    /*
+     * Policies selected for instantiation, and Policy versions replaced by a later version (if ignoreOldPolicyVersions)
+     */
+    private record PolicySelection(Table<String, PolicyVersion, PolicyWithNamespaces<Policy>> policyTable, Table<String, PolicyVersion, PolicyWithNamespaces<PolicySet>> policySetTable,
+                                   Table<String, PolicyVersion, PolicyWithNamespaces<Policy>> supersededPolicyTable)
+    {
+    }
+
+    /*
+     * Selects the policies to be instantiated (according to ignoreOldPolicyVersions) and checks conflicts, in document order
+     */
+    private static PolicySelection selectPolicies(final List<PolicySnapshots.PolicyDocument> policyDocs, final boolean ignoreOldPolicyVersions) throws IllegalArgumentException
+    {
+        final Table<String, PolicyVersion, PolicyWithNamespaces<Policy>> updatableJaxbPolicyTable = HashBasedTable.create();
+        final Table<String, PolicyVersion, PolicyWithNamespaces<PolicySet>> updatablePolicySetTable = HashBasedTable.create();
+        // Policy versions replaced by a later version (if ignoreOldPolicyVersions)
+        final Table<String, PolicyVersion, PolicyWithNamespaces<Policy>> supersededJaxbPolicyTable = HashBasedTable.create();
+        for (final PolicySnapshots.PolicyDocument policyDoc : policyDocs)
+        {
+            final Object jaxbPolicyOrPolicySetObj = policyDoc.policyOrPolicySet();
+            final ImmutableMap<String, String> nsPrefixUriMap = policyDoc.nsPrefixUriMap();
             if (jaxbPolicyOrPolicySetObj instanceof Policy jaxbPolicy)
             {
                 final String policyId = jaxbPolicy.getPolicyId();
@@ -643,7 +1235,7 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
 
                 if (ignoreOldPolicyVersions)
                 {
-                    final Map<PolicyVersion, StaticTopLevelPolicyElementEvaluator> updatablePolicyVersions = updatablePolicyTable.row(policyId);
+                    final Map<PolicyVersion, PolicyWithNamespaces<Policy>> updatablePolicyVersions = updatableJaxbPolicyTable.row(policyId);
                     // Empty map returned if no mappings
                     final boolean isOld = updatablePolicyVersions.keySet().parallelStream().anyMatch(v -> policyVersion.compareTo(v) <= 0);
                     if (isOld)
@@ -655,22 +1247,11 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
                     /*
                      * Else replace/overwrite with this new version (make sure it is the only one), so empty the row first
                      */
+                    supersededJaxbPolicyTable.row(policyId).putAll(updatablePolicyVersions);
                     updatablePolicyVersions.clear();
                 }
 
-                final StaticTopLevelPolicyElementEvaluator policyEvaluator;
-                try
-                {
-                    /*
-                    XPath compiler shall be initialized in PolicyEvaluators#getInstance(...) based on PolicyDefaults/XPathVersion if present
-                     */
-                    policyEvaluator = PolicyEvaluators.getInstance(jaxbPolicy, expressionFactory, combiningAlgRegistry, Optional.empty(), nsPrefixUriMap);
-                } catch (final IllegalArgumentException e)
-                {
-                    throw new IllegalArgumentException("Invalid Policy with PolicyId=" + policyId + ", Version=" + policyVersionStr, e);
-                }
-
-                final StaticTopLevelPolicyElementEvaluator previousValue = updatablePolicyTable.put(policyId, policyVersion, policyEvaluator);
+                final PolicyWithNamespaces<Policy> previousValue = updatableJaxbPolicyTable.put(policyId, policyVersion, new PolicyWithNamespaces<>(jaxbPolicy, nsPrefixUriMap));
                 if (previousValue != null)
                 {
                     throw new IllegalArgumentException("Policy conflict: two policies with same PolicyId=" + policyId + ", Version=" + policyVersionStr);
@@ -712,30 +1293,115 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
             {
                 throw new IllegalArgumentException("Unexpected element found as root of the policy document: " + jaxbPolicyOrPolicySetObj.getClass().getSimpleName());
             }
+        }
 
-            providerParamIndex++;
+        return new PolicySelection(updatableJaxbPolicyTable, updatablePolicySetTable, supersededJaxbPolicyTable);
+    }
+
+    /**
+     * Creates an instance from policy locations
+     *
+     * @param providerParams          location of Policy(Set) elements (JAXB) to be parsed for future reference by Policy(Set)IdReferences
+     * @param ignoreOldPolicyVersions for any given policy ID, ignore all versions except the last one if there are multiple versions of the policy
+     * @param xacmlParserFactory      XACML parser factory for parsing any XACML Policy(Set)
+     * @param maxPolicySetRefDepth    maximum allowed depth of PolicySet reference chain (via PolicySetIdReference): PolicySet1 -> PolicySet2 -> ...; a strictly negative value means no limit
+     * @param combiningAlgRegistry    registry of policy/rule combining algorithms
+     * @param expressionFactory       Expression factory for parsing Expressions used in the policy(set)
+     * @param otherPolicyProvider     other (supporting) policy provider, used to resolve policy references that do not match any of {@code providerParams}
+     * @param snapshotFile            (optional) snapshot of the policy documents at the policy locations in {@code providerParams}, used instead of parsing the policy documents if up-to-date, else (re)written after parsing (see {@link PolicySnapshots})
+     * @param parallelism             maximum number of threads used to parse and instantiate the policies; 1 means sequential loading (in the calling thread)
+     * @param lazyCompilation         true iff each policy must be instantiated only when first requested (e.g. referenced by another policy being instantiated, or requested as root policy), instead of at initialization time
+     * @param updatable               true iff the policies must be kept in memory after instantiation, for incremental updates/reload (see {@link #update(List, List, Collection)})
+     * @param sourceConf              configuration that {@code providerParams} come from, if any, to be kept for incremental reload (see {@link #reload(Set)}) if {@code updatable}
+     * @return instance of this class
+     * @throws java.lang.IllegalArgumentException if {@code policyURLs == null || policyURLs.length == 0 || xacmlParserFactory == null || expressionFactory == null || combiningAlgRegistry == null}; or one of {@code policyURLs} is
+     *                                            null or is not a valid XACML Policy(Set) or conflicts with another because it has same Policy(Set)Id and Version. Beware that the Policy(Set)Issuer is ignored from this check!
+     */
+    private static CoreStaticPolicyProvider getInstance(final List<StaticPolicyProviderInParam> providerParams, final boolean ignoreOldPolicyVersions,
+                                                       final XmlnsFilteringParserFactory xacmlParserFactory, final int maxPolicySetRefDepth, final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry,
+                                                       final Optional<StaticPolicyProvider> otherPolicyProvider, final Optional<Path> snapshotFile, final int parallelism, final boolean lazyCompilation,
+                                                       final boolean updatable, final Optional<PolicySourceConf> sourceConf) throws IllegalArgumentException
+    {
+        if (providerParams == null || providerParams.isEmpty())
+        {
+            throw ILLEGAL_POLICY_URLS_ARGUMENT_EXCEPTION;
         }
 
-        final PolicyMap<StaticTopLevelPolicyElementEvaluator> policyMap = new PolicyMap<>(updatablePolicyTable.rowMap());
-        final PolicyMap<PolicyWithNamespaces<PolicySet>> policySetMap = new PolicyMap<>(updatablePolicySetTable.rowMap());
-        return new CoreStaticPolicyProvider(policyMap, policySetMap, maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry, otherPolicyProvider);
+        if (xacmlParserFactory == null)
+        {
+            throw ILLEGAL_XACML_PARSER_FACTORY_ARGUMENT_EXCEPTION;
+        }
+
+        if (expressionFactory == null)
+        {
+            throw ILLEGAL_EXPRESSION_FACTORY_ARGUMENT_EXCEPTION;
+        }
+
+        if (combiningAlgRegistry == null)
+        {
+            throw ILLEGAL_COMBINING_ALG_REGISTRY_ARGUMENT_EXCEPTION;
+        }
+
+        final Optional<ExecutorService> executor = parallelism > 1 ? Optional.of(Executors.newFixedThreadPool(parallelism)) : Optional.empty();
+        try
+        {
+            final List<PolicySnapshots.PolicyDocument> policyDocs = getPolicyDocuments(providerParams, xacmlParserFactory, snapshotFile, executor);
+            /*
+             * First pass: select the policies to be instantiated (according to ignoreOldPolicyVersions) and check conflicts, in document order
+             */
+            final PolicySelection policySelection = selectPolicies(policyDocs, ignoreOldPolicyVersions);
+            final Table<String, PolicyVersion, PolicyWithNamespaces<Policy>> updatableJaxbPolicyTable = policySelection.policyTable;
+            final Table<String, PolicyVersion, PolicyWithNamespaces<PolicySet>> updatablePolicySetTable = policySelection.policySetTable;
+            final Table<String, PolicyVersion, PolicyWithNamespaces<Policy>> supersededJaxbPolicyTable = policySelection.supersededPolicyTable;
+
+            /*
+             * Second pass: instantiate the policies, Policies first since they do not depend on any other
+             */
+            final PolicyMap<Supplier<StaticTopLevelPolicyElementEvaluator>> policyMap = newPolicyEvaluatorMap(updatableJaxbPolicyTable, expressionFactory, combiningAlgRegistry, executor,
+                    lazyCompilation);
+            if (!lazyCompilation && !supersededJaxbPolicyTable.isEmpty())
+            {
+                /*
+                 * Superseded Policy versions are not kept but must be valid all the same, as if they were instantiated in document order before being replaced
+                 */
+                newPolicyEvaluatorMap(supersededJaxbPolicyTable, expressionFactory, combiningAlgRegistry, executor, false);
+            }
+
+            final PolicyMap<PolicyWithNamespaces<PolicySet>> policySetMap = new PolicyMap<>(updatablePolicySetTable.rowMap());
+            return new CoreStaticPolicyProvider(new PolicyMap<>(updatableJaxbPolicyTable.rowMap()), policyMap, policySetMap, HashBasedTable.create(), maxPolicySetRefDepth, expressionFactory,
+                    combiningAlgRegistry, otherPolicyProvider, executor, lazyCompilation, updatable,
+                    updatable ? sourceConf.map(conf -> new PolicySource(conf, List.copyOf(providerParams), List.copyOf(policyDocs))) : Optional.empty());
+        } finally
+        {
+            executor.ifPresent(ExecutorService::shutdownNow);
+        }
     }
 
     @Override
     protected StaticTopLevelPolicyElementEvaluator getPolicy(final String id, final Optional<PolicyVersionPatterns> constraints)
     {
-        final Entry<PolicyVersion, StaticTopLevelPolicyElementEvaluator> policyEntry = policyEvaluatorMap.get(id, constraints);
+        final Entry<PolicyVersion, Supplier<StaticTopLevelPolicyElementEvaluator>> policyEntry = policyEvaluatorMap.get(id, constraints);
         if (policyEntry == null)
         {
             return null;
         }
 
-        return policyEntry.getValue();
+        return policyEntry.getValue().get();
     }
 
     @Override
     protected StaticTopLevelPolicyElementEvaluator getPolicySet(final String id, final Optional<PolicyVersionPatterns> constraints, final Deque<String> policySetRefChainIncludingResult)
+            throws IndeterminateEvaluationException
     {
+        if (lazyPolicySetProvider.isPresent())
+        {
+            /*
+             * Instantiate the PolicySet - and the policies it references - if not done already. Memoized per PolicySet ID/Version, without global lock (see InitOnlyPolicyProvider#putIfAbsent(...)).
+             * Circular references are detected with the policySetRefChain, as in non-lazy mode.
+             */
+            return lazyPolicySetProvider.get().getPolicySet(id, constraints, policySetRefChainIncludingResult);
+        }
+
         /*
          * Request for PolicySet (not necessarily from PolicySetIdReference, but also from CoreRefBasedRootPolicyProviderModule#CoreRefBasedRootPolicyProviderModule(...) or else)
          */
@@ -813,7 +1479,8 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
         /*
          * No single Policy, try with PolicySet
          */
-        final PrimaryPolicyMetadata candidateRootPolicySet = getCandidateRootPolicy(TopLevelPolicyElementType.POLICY_SET, this.policySetEvaluatorMap);
+        final PrimaryPolicyMetadata candidateRootPolicySet = lazyPolicySetProvider.isPresent() ? getCandidateRootPolicy(TopLevelPolicyElementType.POLICY_SET, lazyPolicySetProvider.get().jaxbPolicySetMap)
+                : getCandidateRootPolicy(TopLevelPolicyElementType.POLICY_SET, this.policySetEvaluatorMap);
         if (candidateRootPolicySet != null)
         {
             return Optional.of(candidateRootPolicySet);
@@ -825,6 +1492,417 @@ public class CoreStaticPolicyProvider extends BaseStaticPolicyProvider
         return Optional.empty();
     }
 
+    /**
+     * Gets the attribute dependencies of a Policy(Set) (see {@link PolicyAttributeDependencies}), among the policies of this provider (not the other static policy providers if any)
+     *
+     * @param policyType         Policy or PolicySet
+     * @param policyId           Policy(Set)Id
+     * @param versionConstraints version constraints
+     * @return dependencies of the latest version of the Policy(Set) matching the version constraints; null if none
+     */
+    PolicyAttributeDependencies.PolicyElementDependencies getAttributeDependencies(final TopLevelPolicyElementType policyType, final String policyId,
+                                                                                   final Optional<PolicyVersionPatterns> versionConstraints)
+    {
+        final PolicyMap<Supplier<PolicyAttributeDependencies.PolicyElementDependencies>> dependenciesMap = policyType == TopLevelPolicyElementType.POLICY ? this.policyDependenciesMap
+                : this.policySetDependenciesMap;
+        final Entry<PolicyVersion, Supplier<PolicyAttributeDependencies.PolicyElementDependencies>> dependenciesEntry = dependenciesMap.get(policyId, versionConstraints);
+        return dependenciesEntry == null ? null : dependenciesEntry.getValue().get();
+    }
+
+    private static <P> Table<String, PolicyVersion, P> toTable(final PolicyMap<P> policyMap)
+    {
+        final Table<String, PolicyVersion, P> table = HashBasedTable.create();
+        for (final Entry<String, PolicyVersions<P>> policyVersionsEntry : policyMap.entrySet())
+        {
+            for (final Entry<PolicyVersion, P> policyEntry : policyVersionsEntry.getValue())
+            {
+                table.put(policyVersionsEntry.getKey(), policyEntry.getKey(), policyEntry.getValue());
+            }
+        }
+
+        return table;
+    }
+
+    /**
+     * Creates a new instance of this provider with some policies added, replaced or removed, instantiating again only the policies that need to be, i.e. the added/replaced Policy(Set)s and the
+     * PolicySets referring to any of the added/replaced/removed ones - directly or indirectly via Policy(Set)IdReferences - since policy references are resolved statically. The other policy evaluators
+     * are reused as is. This provider is not modified, so that it can still be used until the new one replaces it.
+     * <p>
+     * The root policy evaluator - and its flattened policy tree - must be created again from the new provider, e.g. by creating a new {@link org.ow2.authzforce.core.pdp.impl.BasePdpEngine}, which only
+     * resolves the root policy and collects the policies it refers to.
+     * <p>
+     * The {@code ignoreOldVersions} option (PDP configuration) is not applied here: all versions of the added policies are kept.
+     * <p>
+     * This is only supported if incremental updates are enabled ({@code incrementalReload} option in the PDP configuration, or {@code updatable} parameter of
+     * {@link #getInstance(List, List, int, ExpressionFactory, CombiningAlgRegistry, Optional, boolean)}), since the source policies are needed. The new provider supports it as well.
+     *
+     * @param addedOrUpdatedPolicies   new Policies, or new content of existing ones (same PolicyId and Version)
+     * @param addedOrUpdatedPolicySets new PolicySets, or new content of existing ones (same PolicySetId and Version)
+     * @param removedPolicies          Policy(Set)s to be removed (only the type, ID and Version are used)
+     * @return new provider
+     * @throws java.lang.IllegalArgumentException     if one of the (re-)instantiated policies is not valid, or there is no policy left
+     * @throws java.lang.UnsupportedOperationException if incremental updates are not enabled
+     */
+    public CoreStaticPolicyProvider update(final List<PolicyWithNamespaces<Policy>> addedOrUpdatedPolicies, final List<PolicyWithNamespaces<PolicySet>> addedOrUpdatedPolicySets,
+                                           final Collection<? extends PrimaryPolicyMetadata> removedPolicies) throws IllegalArgumentException, UnsupportedOperationException
+    {
+        if (this.jaxbPolicyMap.isEmpty())
+        {
+            throw UNSUPPORTED_UPDATE_EXCEPTION;
+        }
+
+        return update(addedOrUpdatedPolicies, addedOrUpdatedPolicySets, removedPolicies, Optional.empty());
+    }
+
+    private CoreStaticPolicyProvider update(final List<PolicyWithNamespaces<Policy>> addedOrUpdatedPolicies, final List<PolicyWithNamespaces<PolicySet>> addedOrUpdatedPolicySets,
+                                            final Collection<? extends PrimaryPolicyMetadata> removedPolicies, final Optional<PolicySource> newSource) throws IllegalArgumentException
+    {
+        assert this.jaxbPolicyMap.isPresent() && this.jaxbPolicySetMap.isPresent();
+        final Table<String, PolicyVersion, PolicyWithNamespaces<Policy>> currentJaxbPolicyTable = toTable(this.jaxbPolicyMap.get());
+        final Table<String, PolicyVersion, PolicyWithNamespaces<Policy>> updatableJaxbPolicyTable = HashBasedTable.create(currentJaxbPolicyTable);
+        final Table<String, PolicyVersion, PolicyWithNamespaces<PolicySet>> updatableJaxbPolicySetTable = toTable(this.jaxbPolicySetMap.get());
+        /*
+         * IDs of the Policy(Set)s added/replaced/removed
+         */
+        final Set<PolicyRefKey> changedRefKeys = HashCollections.newUpdatableSet();
+        if (removedPolicies != null)
+        {
+            for (final PrimaryPolicyMetadata removedPolicy : removedPolicies)
+            {
+                final Table<String, PolicyVersion, ?> updatableJaxbTable = removedPolicy.getType() == TopLevelPolicyElementType.POLICY ? updatableJaxbPolicyTable : updatableJaxbPolicySetTable;
+                if (updatableJaxbTable.remove(removedPolicy.getId(), removedPolicy.getVersion()) != null)
+                {
+                    changedRefKeys.add(new PolicyRefKey(removedPolicy.getType(), removedPolicy.getId()));
+                }
+            }
+        }
+
+        if (addedOrUpdatedPolicies != null)
+        {
+            for (final PolicyWithNamespaces<Policy> jaxbPolicyWithNs : addedOrUpdatedPolicies)
+            {
+                final String policyId = jaxbPolicyWithNs.policy.getPolicyId();
+                updatableJaxbPolicyTable.put(policyId, new PolicyVersion(jaxbPolicyWithNs.policy.getVersion()), jaxbPolicyWithNs);
+                changedRefKeys.add(new PolicyRefKey(TopLevelPolicyElementType.POLICY, policyId));
+            }
+        }
+
+        if (addedOrUpdatedPolicySets != null)
+        {
+            for (final PolicyWithNamespaces<PolicySet> jaxbPolicySetWithNs : addedOrUpdatedPolicySets)
+            {
+                final String policySetId = jaxbPolicySetWithNs.policy.getPolicySetId();
+                updatableJaxbPolicySetTable.put(policySetId, new PolicyVersion(jaxbPolicySetWithNs.policy.getVersion()), jaxbPolicySetWithNs);
+                changedRefKeys.add(new PolicyRefKey(TopLevelPolicyElementType.POLICY_SET, policySetId));
+            }
+        }
+
+        if (updatableJaxbPolicyTable.isEmpty() && updatableJaxbPolicySetTable.isEmpty())
+        {
+            throw NO_POLICY_ARG_EXCEPTION;
+        }
+
+        /*
+         * PolicySets to be instantiated again: the ones referring to changed policies, transitively. Only the changed PolicySets' references may differ in the new policies, and these PolicySets are
+         * instantiated again anyway, therefore the current reference graph is enough.
+         */
+        final Set<String> affectedPolicySetIds = HashCollections.newUpdatableSet();
+        final Deque<PolicyRefKey> refKeysToVisit = new ArrayDeque<>(changedRefKeys);
+        while (!refKeysToVisit.isEmpty())
+        {
+            final PolicyRefKey refKey = refKeysToVisit.poll();
+            if (refKey.type == TopLevelPolicyElementType.POLICY_SET)
+            {
+                affectedPolicySetIds.add(refKey.id);
+            }
+
+            for (final PolicySetKey referringPolicySetKey : referringPolicySetsByRefKey.get(refKey))
+            {
+                if (!affectedPolicySetIds.contains(referringPolicySetKey.id))
+                {
+                    refKeysToVisit.add(new PolicyRefKey(TopLevelPolicyElementType.POLICY_SET, referringPolicySetKey.id));
+                }
+            }
+        }
+
+        /*
+         * Policies do not refer to other policies, only the added/replaced ones need to be instantiated
+         */
+        final Table<String, PolicyVersion, Supplier<StaticTopLevelPolicyElementEvaluator>> currentPolicyEvaluatorTable = toTable(this.policyEvaluatorMap);
+        final Table<String, PolicyVersion, Supplier<StaticTopLevelPolicyElementEvaluator>> newPolicyEvaluatorTable = HashBasedTable.create();
+        int newPolicyCount = 0;
+        for (final Table.Cell<String, PolicyVersion, PolicyWithNamespaces<Policy>> jaxbPolicyCell : updatableJaxbPolicyTable.cellSet())
+        {
+            final PolicyWithNamespaces<Policy> jaxbPolicyWithNs = jaxbPolicyCell.getValue();
+            final Supplier<StaticTopLevelPolicyElementEvaluator> currentPolicyEvaluator = currentPolicyEvaluatorTable.get(jaxbPolicyCell.getRowKey(), jaxbPolicyCell.getColumnKey());
+            final Supplier<StaticTopLevelPolicyElementEvaluator> policyEvaluator;
+            if (currentPolicyEvaluator != null && currentJaxbPolicyTable.get(jaxbPolicyCell.getRowKey(), jaxbPolicyCell.getColumnKey()) == jaxbPolicyWithNs)
+            {
+                // not replaced
+                policyEvaluator = currentPolicyEvaluator;
+            } else
+            {
+                policyEvaluator = lazyCompilation ? Suppliers.memoize(() -> newPolicyEvaluator(jaxbPolicyWithNs, expressionFactory, combiningAlgRegistry))
+                        : Suppliers.ofInstance(newPolicyEvaluator(jaxbPolicyWithNs, expressionFactory, combiningAlgRegistry));
+                newPolicyCount++;
+            }
+
+            newPolicyEvaluatorTable.put(jaxbPolicyCell.getRowKey(), jaxbPolicyCell.getColumnKey(), policyEvaluator);
+        }
+
+        final Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> currentPolicySetEvaluatorTable;
+        if (lazyPolicySetProvider.isPresent())
+        {
+            currentPolicySetEvaluatorTable = lazyPolicySetProvider.get().copyPolicySets();
+        } else
+        {
+            currentPolicySetEvaluatorTable = toTable(this.policySetEvaluatorMap);
+        }
+
+        final Table<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> reusablePolicySetEvaluators = HashBasedTable.create();
+        for (final Table.Cell<String, PolicyVersion, StaticTopLevelPolicyElementEvaluator> policySetEvaluatorCell : currentPolicySetEvaluatorTable.cellSet())
+        {
+            if (!affectedPolicySetIds.contains(policySetEvaluatorCell.getRowKey()) && updatableJaxbPolicySetTable.contains(policySetEvaluatorCell.getRowKey(), policySetEvaluatorCell.getColumnKey()))
+            {
+                reusablePolicySetEvaluators.put(policySetEvaluatorCell.getRowKey(), policySetEvaluatorCell.getColumnKey(), policySetEvaluatorCell.getValue());
+            }
+        }
+
+        LOGGER.info("Incremental policy update: {} Policy(ies) instantiated, {} reused; {} PolicySet(s) to be instantiated, {} reused", newPolicyCount,
+                newPolicyEvaluatorTable.size() - newPolicyCount, updatableJaxbPolicySetTable.size() - reusablePolicySetEvaluators.size(), reusablePolicySetEvaluators.size());
+        return new CoreStaticPolicyProvider(new PolicyMap<>(updatableJaxbPolicyTable.rowMap()), new PolicyMap<>(newPolicyEvaluatorTable.rowMap()),
+                new PolicyMap<>(updatableJaxbPolicySetTable.rowMap()), reusablePolicySetEvaluators, maxPolicySetRefDepth, expressionFactory, combiningAlgRegistry, otherPolicyProvider,
+                Optional.empty(), lazyCompilation, true, newSource);
+    }
+
+    /*
+     * Absolute path of the policy location if in the file system
+     */
+    private static Optional<Path> toFile(final URL policyLocation)
+    {
+        if (!ResourceUtils.isFileURL(policyLocation))
+        {
+            return Optional.empty();
+        }
+
+        try
+        {
+            return Optional.of(Paths.get(policyLocation.toURI()).toAbsolutePath().normalize());
+        } catch (final URISyntaxException | IllegalArgumentException e)
+        {
+            LOGGER.debug("Policy location '{}' cannot be converted to a file path", policyLocation, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Creates a new instance of this provider with the policies reloaded from the policy locations in the configuration, parsing again only the policy files that have changed or are new (e.g. in a
+     * directory matching a policy location pattern), and instantiating again only the changed policies and the PolicySets referring to them (see {@link #update(List, List, Collection)}). The
+     * {@code ignoreOldVersions} option is applied as on initialization. This provider is not modified.
+     * <p>
+     * This is only supported by instances created by the {@link Factory}, from policy locations, with the {@code incrementalReload} option enabled.
+     *
+     * @param changedFiles files (absolute paths) created, modified or deleted since this instance was created, e.g. detected by watching the policy directories
+     * @return new provider, or this instance if none of {@code changedFiles} is a policy file and the policy locations are the same; empty if this provider cannot be reloaded incrementally, i.e.
+     * not created by the {@link Factory} with the {@code incrementalReload} option, or one of the {@code changedFiles} is neither a current nor a new policy file (e.g. some other configuration file), in which case the provider must be
+     * created again from scratch
+     * @throws java.lang.IllegalArgumentException if one of the changed policy documents is not valid, or the policy locations cannot be expanded (see {@link Factory})
+     */
+    public Optional<CoreStaticPolicyProvider> reload(final Set<Path> changedFiles) throws IllegalArgumentException
+    {
+        if (this.source.isEmpty())
+        {
+            return Optional.empty();
+        }
+
+        final PolicySource currentSource = this.source.get();
+        final PolicySourceConf sourceConf = currentSource.sourceConf;
+        final Set<Path> normalizedChangedFiles = HashCollections.newUpdatableSet(changedFiles.size());
+        for (final Path changedFile : changedFiles)
+        {
+            normalizedChangedFiles.add(changedFile.toAbsolutePath().normalize());
+        }
+
+        final Map<String, PolicySnapshots.PolicyDocument> currentDocsByLocation = HashCollections.newUpdatableMap(currentSource.providerParams.size());
+        final Set<Path> policyFiles = HashCollections.newUpdatableSet();
+        final Iterator<PolicySnapshots.PolicyDocument> currentDocsIterator = currentSource.policyDocs.iterator();
+        for (final StaticPolicyProviderInParam providerParam : currentSource.providerParams)
+        {
+            final PolicySnapshots.PolicyDocument policyDoc = currentDocsIterator.next();
+            if (providerParam instanceof PolicyLocationParam policyLocationParam)
+            {
+                currentDocsByLocation.put(policyLocationParam.policyLocation.toExternalForm(), policyDoc);
+                toFile(policyLocationParam.policyLocation).ifPresent(policyFiles::add);
+            }
+        }
+
+        /*
+         * Reuse the policy documents that have not changed, parse the others
+         */
+        final List<StaticPolicyProviderInParam> newProviderParams = Factory.getProviderParams(sourceConf.conf, sourceConf.environmentProperties);
+        final List<PolicySnapshots.PolicyDocument> newPolicyDocs = new ArrayList<>(newProviderParams.size());
+        final List<URL> newPolicyLocations = new ArrayList<>(newProviderParams.size());
+        final List<PolicySnapshots.PolicyDocument> newLocationDocs = new ArrayList<>(newProviderParams.size());
+        // JAXB policies parsed again, compared by identity
+        final Set<Object> parsedPolicies = Collections.newSetFromMap(new IdentityHashMap<>());
+        XmlnsFilteringParser xacmlParser = null;
+        ImmutableMap<String, String> lastNsPrefixUriMap = ImmutableMap.of();
+        for (final StaticPolicyProviderInParam providerParam : newProviderParams)
+        {
+            if (providerParam instanceof XacmlPolicyParam xacmlPolicyParam)
+            {
+                newPolicyDocs.add(new PolicySnapshots.PolicyDocument(xacmlPolicyParam.policy, lastNsPrefixUriMap));
+                continue;
+            }
+
+            final URL policyLocation = ((PolicyLocationParam) providerParam).policyLocation;
+            final Optional<Path> policyFile = toFile(policyLocation);
+            policyFile.ifPresent(policyFiles::add);
+            final PolicySnapshots.PolicyDocument currentPolicyDoc = currentDocsByLocation.get(policyLocation.toExternalForm());
+            final PolicySnapshots.PolicyDocument policyDoc;
+            if (currentPolicyDoc != null && (policyFile.isEmpty() || !normalizedChangedFiles.contains(policyFile.get())))
+            {
+                policyDoc = currentPolicyDoc;
+            } else
+            {
+                if (xacmlParser == null)
+                {
+                    xacmlParser = newXacmlParser(sourceConf.xacmlParserFactory);
+                }
+
+                policyDoc = parse(xacmlParser, policyLocation);
+                parsedPolicies.add(policyDoc.policyOrPolicySet());
+            }
+
+            newPolicyDocs.add(policyDoc);
+            newPolicyLocations.add(policyLocation);
+            newLocationDocs.add(policyDoc);
+            lastNsPrefixUriMap = policyDoc.nsPrefixUriMap();
+        }
+
+        if (!policyFiles.containsAll(normalizedChangedFiles))
+        {
+            LOGGER.debug("Change of file(s) other than policy files: {} -> incremental reload not possible", normalizedChangedFiles);
+            return Optional.empty();
+        }
+
+        if (parsedPolicies.isEmpty() && newProviderParams.equals(currentSource.providerParams))
+        {
+            return Optional.of(this);
+        }
+
+        final PolicySelection policySelection = selectPolicies(newPolicyDocs, sourceConf.conf.isIgnoreOldVersions());
+        if (!lazyCompilation)
+        {
+            /*
+             * Superseded Policy versions are not kept but must be valid all the same (see getInstance(...))
+             */
+            final Table<String, PolicyVersion, PolicyWithNamespaces<Policy>> parsedSupersededPolicyTable = HashBasedTable.create();
+            for (final Table.Cell<String, PolicyVersion, PolicyWithNamespaces<Policy>> supersededPolicyCell : policySelection.supersededPolicyTable.cellSet())
+            {
+                if (parsedPolicies.contains(supersededPolicyCell.getValue().policy))
+                {
+                    parsedSupersededPolicyTable.put(supersededPolicyCell.getRowKey(), supersededPolicyCell.getColumnKey(), supersededPolicyCell.getValue());
+                }
+            }
+
+            newPolicyEvaluatorMap(parsedSupersededPolicyTable, expressionFactory, combiningAlgRegistry, Optional.empty(), false);
+        }
+
+        /*
+         * Difference with the current policies, by identity of the JAXB policies (same instance iff not parsed again)
+         */
+        final List<PrimaryPolicyMetadata> removedPolicies = new ArrayList<>();
+        final List<PolicyWithNamespaces<Policy>> addedOrUpdatedPolicies = getAddedOrUpdatedPolicies(toTable(this.jaxbPolicyMap.get()), policySelection.policyTable, TopLevelPolicyElementType.POLICY,
+                removedPolicies);
+        final List<PolicyWithNamespaces<PolicySet>> addedOrUpdatedPolicySets = getAddedOrUpdatedPolicies(toTable(this.jaxbPolicySetMap.get()), policySelection.policySetTable,
+                TopLevelPolicyElementType.POLICY_SET, removedPolicies);
+        LOGGER.info("Policy reload: {} policy document(s) parsed, {} reused; {} Policy(Set)(s) added/updated, {} removed", parsedPolicies.size(),
+                newLocationDocs.size() - parsedPolicies.size(), addedOrUpdatedPolicies.size() + addedOrUpdatedPolicySets.size(), removedPolicies.size());
+
+        final Optional<Path> snapshotFile = Factory.getSnapshotFile(sourceConf.conf, sourceConf.environmentProperties);
+        if (snapshotFile.isPresent())
+        {
+            final String policyLocationsFingerprint;
+            try
+            {
+                policyLocationsFingerprint = PolicySnapshots.fingerprint(newPolicyLocations);
+            } catch (final IOException e)
+            {
+                throw new IllegalArgumentException("Failed to get the size/last modification time of policy document(s) for policy snapshot validation", e);
+            }
+
+            PolicySnapshots.write(snapshotFile.get(), policyLocationsFingerprint, newLocationDocs);
+        }
+
+        return Optional.of(update(addedOrUpdatedPolicies, addedOrUpdatedPolicySets, removedPolicies,
+                Optional.of(new PolicySource(sourceConf, List.copyOf(newProviderParams), List.copyOf(newPolicyDocs)))));
+    }
+
+    /*
+     * Returns the policies in newPolicyTable that are not in currentPolicyTable (same JAXB policy instance), and adds the ones in currentPolicyTable but not in newPolicyTable to outRemovedPolicies
+     */
+    private static <P> List<PolicyWithNamespaces<P>> getAddedOrUpdatedPolicies(final Table<String, PolicyVersion, PolicyWithNamespaces<P>> currentPolicyTable,
+                                                                             final Table<String, PolicyVersion, PolicyWithNamespaces<P>> newPolicyTable, final TopLevelPolicyElementType policyType,
+                                                                             final List<PrimaryPolicyMetadata> outRemovedPolicies)
+    {
+        final List<PolicyWithNamespaces<P>> addedOrUpdatedPolicies = new ArrayList<>();
+        for (final Table.Cell<String, PolicyVersion, PolicyWithNamespaces<P>> newPolicyCell : newPolicyTable.cellSet())
+        {
+            final PolicyWithNamespaces<P> currentPolicy = currentPolicyTable.get(newPolicyCell.getRowKey(), newPolicyCell.getColumnKey());
+            if (currentPolicy == null || currentPolicy.policy != newPolicyCell.getValue().policy)
+            {
+                addedOrUpdatedPolicies.add(newPolicyCell.getValue());
+            }
+        }
+
+        for (final Table.Cell<String, PolicyVersion, PolicyWithNamespaces<P>> currentPolicyCell : currentPolicyTable.cellSet())
+        {
+            if (!newPolicyTable.contains(currentPolicyCell.getRowKey(), currentPolicyCell.getColumnKey()))
+            {
+                outRemovedPolicies.add(new BasePrimaryPolicyMetadata(policyType, currentPolicyCell.getRowKey(), currentPolicyCell.getColumnKey()));
+            }
+        }
+
+        return addedOrUpdatedPolicies;
+    }
+
+    /**
+     * Warm-up hook for lazy compilation mode: instantiates all the policies that have not been yet, e.g. to be called on a background thread after initialization, so that the first requests do not
+     * pay the instantiation cost. This does nothing if lazy compilation is disabled, since all policies are instantiated at initialization time in this case.
+     *
+     * @throws java.lang.IllegalArgumentException if one of the policies is not valid
+     */
+    public void warmUp() throws IllegalArgumentException
+    {
+        if (lazyPolicySetProvider.isEmpty())
+        {
+            return;
+        }
+
+        for (final Entry<String, PolicyVersions<Supplier<StaticTopLevelPolicyElementEvaluator>>> policyVersionsEntry : policyEvaluatorMap.entrySet())
+        {
+            for (final Entry<PolicyVersion, Supplier<StaticTopLevelPolicyElementEvaluator>> policyEntry : policyVersionsEntry.getValue())
+            {
+                policyEntry.getValue().get();
+            }
+        }
+
+        for (final Entry<String, PolicyVersions<PolicyWithNamespaces<PolicySet>>> jaxbPolicySetVersionsEntry : lazyPolicySetProvider.get().jaxbPolicySetMap.entrySet())
+        {
+            for (final Entry<PolicyVersion, PolicyWithNamespaces<PolicySet>> jaxbPolicySetEntry : jaxbPolicySetVersionsEntry.getValue())
+            {
+                try
+                {
+                    getPolicySet(jaxbPolicySetVersionsEntry.getKey(), Optional.of(new PolicyVersionPatterns(jaxbPolicySetEntry.getKey().toString(), null, null)), null);
+                } catch (final IndeterminateEvaluationException e)
+                {
+                    throw new IllegalArgumentException("Failed to instantiate PolicySet with PolicySetId='" + jaxbPolicySetVersionsEntry.getKey() + "', Version=" + jaxbPolicySetEntry.getKey(), e);
+                }
+            }
+        }
+    }
+
     @Override
     public void close()
     {
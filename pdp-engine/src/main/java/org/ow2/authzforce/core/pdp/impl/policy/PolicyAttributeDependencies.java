@@ -0,0 +1,537 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.policy;
+
+import jakarta.xml.bind.JAXBElement;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AdviceExpression;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AdviceExpressions;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AllOf;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AnyOf;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ApplyType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeAssignmentExpression;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeSelectorType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ExpressionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.IdReferenceType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Match;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ObligationExpression;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ObligationExpressions;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Policy;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicySet;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Rule;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Target;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.VariableDefinition;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.VariableReferenceType;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.AttributeSelectorId;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyVersionPatterns;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementType;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.xacml.identifiers.XacmlNodeName;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Static analysis of the attributes that a policy tree may read, i.e. the AttributeDesignators and AttributeSelectors of the root policy and the policies it references, with the places where they
+ * are used (Target, Condition, PEP action i.e. Obligation/Advice AttributeAssignment), so that PEPs can send exactly the attributes needed by the PDP.
+ * <p>
+ * The analysis walks the XACML policy documents of the {@link CoreStaticPolicyProvider} - or the dependencies extracted from them once the documents are released - following VariableReferences (to
+ * the expression of the VariableDefinition) and Policy(Set)IdReferences (to the referenced policy). Policy(Set)IdReferences to policies that are not among these documents (e.g. provided by other policy providers) cannot be followed, in which case the result is flagged as
+ * incomplete. Attributes read by Attribute Providers (e.g. the key attribute of an attribute lookup) are not included: they are dependencies of the providers, not of the policies.
+ *
+ * @version $Id: $
+ */
+public final class PolicyAttributeDependencies
+{
+	/**
+	 * Place where an attribute is used in a policy
+	 */
+	public enum Usage
+	{
+		/**
+		 * Target of a Policy(Set) or Rule
+		 */
+		TARGET,
+
+		/**
+		 * Condition of a Rule, including the VariableDefinitions it references
+		 */
+		CONDITION,
+
+		/**
+		 * AttributeAssignmentExpression of an Obligation/Advice expression, including the VariableDefinitions it references
+		 */
+		PEP_ACTION
+	}
+
+	/**
+	 * Attribute read by AttributeDesignators
+	 *
+	 * @param attribute
+	 *            attribute name (category, ID, issuer)
+	 * @param datatypeId
+	 *            attribute datatype ID
+	 * @param usages
+	 *            where the attribute is used
+	 */
+	public record DesignatedAttribute(AttributeFqn attribute, String datatypeId, Set<Usage> usages)
+	{
+	}
+
+	/**
+	 * Attribute read by AttributeSelectors
+	 *
+	 * @param selector
+	 *            AttributeSelector identifier (category of the Content, Path, ContextSelectorId). The attribute of the ContextSelectorId, if any, is also reported as a {@link DesignatedAttribute}.
+	 * @param datatypeId
+	 *            selected attribute datatype ID
+	 * @param usages
+	 *            where the AttributeSelector is used
+	 */
+	public record SelectedAttribute(AttributeSelectorId selector, String datatypeId, Set<Usage> usages)
+	{
+	}
+
+	/**
+	 * Attribute dependencies of a policy tree
+	 *
+	 * @param designatedAttributes
+	 *            attributes read by AttributeDesignators
+	 * @param selectedAttributes
+	 *            attributes read by AttributeSelectors
+	 * @param complete
+	 *            false iff the policy tree has Policy(Set)IdReferences to policies that are not among the analyzed policy documents, whose attribute dependencies are unknown
+	 */
+	public record Result(List<DesignatedAttribute> designatedAttributes, List<SelectedAttribute> selectedAttributes, boolean complete)
+	{
+	}
+
+	private record DatatypedKey<K>(K key, String datatypeId)
+	{
+	}
+
+	/*
+	 * Attribute usage or Policy(Set)IdReference found in a policy document
+	 */
+	private interface Dependency
+	{
+		void addTo(Analysis analysis);
+	}
+
+	private record DesignatorUsage(DatatypedKey<AttributeFqn> attribute, Usage usage) implements Dependency
+	{
+		@Override
+		public void addTo(final Analysis analysis)
+		{
+			Analysis.add(analysis.designatedAttributes, attribute, usage);
+		}
+	}
+
+	private record SelectorUsage(DatatypedKey<AttributeSelectorId> selector, Usage usage) implements Dependency
+	{
+		@Override
+		public void addTo(final Analysis analysis)
+		{
+			Analysis.add(analysis.selectedAttributes, selector, usage);
+		}
+	}
+
+	/*
+	 * versionConstraints is null if the version patterns are invalid (rejected when the policy is instantiated)
+	 */
+	private record PolicyReference(TopLevelPolicyElementType type, String id, Optional<PolicyVersionPatterns> versionConstraints) implements Dependency
+	{
+		@Override
+		public void addTo(final Analysis analysis)
+		{
+			if (versionConstraints == null || !analysis.addPolicy(type, id, versionConstraints))
+			{
+				// resolved by another policy provider (if any)
+				analysis.complete = false;
+			}
+		}
+	}
+
+	private record PolicyKey(TopLevelPolicyElementType type, String id, String version)
+	{
+	}
+
+	/**
+	 * Attribute dependencies of a top-level Policy(Set) element, i.e. its attribute usages and Policy(Set)IdReferences in document order, without following these references. Much smaller than the
+	 * policy document, it may be kept instead (see {@link CoreStaticPolicyProvider}).
+	 */
+	static final class PolicyElementDependencies
+	{
+		private final PolicyKey policyKey;
+		private final List<Dependency> dependencies;
+
+		private PolicyElementDependencies(final PolicyKey policyKey, final List<Dependency> dependencies)
+		{
+			this.policyKey = policyKey;
+			this.dependencies = dependencies;
+		}
+	}
+
+	/*
+	 * Collects the dependencies of a top-level Policy(Set) element, in document order
+	 */
+	private static final class PolicyDocumentWalker
+	{
+		/*
+		 * Usages of the VariableDefinitions already walked
+		 */
+		private final Map<VariableDefinition, Set<Usage>> walkedVariableUsages = new IdentityHashMap<>();
+		/*
+		 * Attribute usages already found, to keep only the first occurrence
+		 */
+		private final Set<Dependency> dependencySet = new HashSet<>();
+		private final List<Dependency> dependencies = new ArrayList<>();
+
+		private void add(final Dependency dependency)
+		{
+			if (dependencySet.add(dependency))
+			{
+				dependencies.add(dependency);
+			}
+		}
+
+		private void addAttributeDesignator(final AttributeDesignatorType jaxbAttributeDesignator, final Usage usage)
+		{
+			add(new DesignatorUsage(new DatatypedKey<>(AttributeFqns.newInstance(jaxbAttributeDesignator), jaxbAttributeDesignator.getDataType()), usage));
+		}
+
+		private void addAttributeSelector(final AttributeSelectorType jaxbAttributeSelector, final Usage usage)
+		{
+			final Optional<String> contextSelectorId = Optional.ofNullable(jaxbAttributeSelector.getContextSelectorId());
+			add(new SelectorUsage(new DatatypedKey<>(new AttributeSelectorId(jaxbAttributeSelector.getCategory(), jaxbAttributeSelector.getPath(), contextSelectorId),
+			        jaxbAttributeSelector.getDataType()), usage));
+			contextSelectorId.ifPresent(
+			        id -> add(new DesignatorUsage(new DatatypedKey<>(AttributeFqns.newInstance(jaxbAttributeSelector.getCategory(), Optional.empty(), id), StandardDatatypes.XPATH.getId()), usage)));
+		}
+
+		private void addExpression(final JAXBElement<? extends ExpressionType> jaxbExpression, final Map<String, VariableDefinition> variableDefinitions, final Usage usage)
+		{
+			if (jaxbExpression == null)
+			{
+				return;
+			}
+
+			final ExpressionType expression = jaxbExpression.getValue();
+			if (expression instanceof AttributeDesignatorType jaxbAttributeDesignator)
+			{
+				addAttributeDesignator(jaxbAttributeDesignator, usage);
+			}
+			else if (expression instanceof AttributeSelectorType jaxbAttributeSelector)
+			{
+				addAttributeSelector(jaxbAttributeSelector, usage);
+			}
+			else if (expression instanceof ApplyType jaxbApply)
+			{
+				for (final JAXBElement<? extends ExpressionType> jaxbArg : jaxbApply.getExpressions())
+				{
+					addExpression(jaxbArg, variableDefinitions, usage);
+				}
+			}
+			else if (expression instanceof VariableReferenceType jaxbVariableRef)
+			{
+				final VariableDefinition variableDefinition = variableDefinitions.get(jaxbVariableRef.getVariableId());
+				// undefined variables are rejected when the policy is instantiated
+				if (variableDefinition != null && walkedVariableUsages.computeIfAbsent(variableDefinition, k -> EnumSet.noneOf(Usage.class)).add(usage))
+				{
+					addExpression(variableDefinition.getExpression(), variableDefinitions, usage);
+				}
+			}
+
+			/*
+			 * Else AttributeValue or Function: constant
+			 */
+		}
+
+		private void addTarget(final Target jaxbTarget)
+		{
+			if (jaxbTarget == null)
+			{
+				return;
+			}
+
+			for (final AnyOf jaxbAnyOf : jaxbTarget.getAnyOves())
+			{
+				for (final AllOf jaxbAllOf : jaxbAnyOf.getAllOves())
+				{
+					for (final Match jaxbMatch : jaxbAllOf.getMatches())
+					{
+						if (jaxbMatch.getAttributeDesignator() != null)
+						{
+							addAttributeDesignator(jaxbMatch.getAttributeDesignator(), Usage.TARGET);
+						}
+
+						if (jaxbMatch.getAttributeSelector() != null)
+						{
+							addAttributeSelector(jaxbMatch.getAttributeSelector(), Usage.TARGET);
+						}
+					}
+				}
+			}
+		}
+
+		private void addPepActionExpressions(final ObligationExpressions jaxbObligationExpressions, final AdviceExpressions jaxbAdviceExpressions,
+		        final Map<String, VariableDefinition> variableDefinitions)
+		{
+			if (jaxbObligationExpressions != null)
+			{
+				for (final ObligationExpression jaxbObligationExpression : jaxbObligationExpressions.getObligationExpressions())
+				{
+					for (final AttributeAssignmentExpression jaxbAttributeAssignment : jaxbObligationExpression.getAttributeAssignmentExpressions())
+					{
+						addExpression(jaxbAttributeAssignment.getExpression(), variableDefinitions, Usage.PEP_ACTION);
+					}
+				}
+			}
+
+			if (jaxbAdviceExpressions != null)
+			{
+				for (final AdviceExpression jaxbAdviceExpression : jaxbAdviceExpressions.getAdviceExpressions())
+				{
+					for (final AttributeAssignmentExpression jaxbAttributeAssignment : jaxbAdviceExpression.getAttributeAssignmentExpressions())
+					{
+						addExpression(jaxbAttributeAssignment.getExpression(), variableDefinitions, Usage.PEP_ACTION);
+					}
+				}
+			}
+		}
+
+		private void addPolicy(final Policy jaxbPolicy)
+		{
+			addTarget(jaxbPolicy.getTarget());
+			final List<Serializable> policyChoiceElements = jaxbPolicy.getCombinerParametersAndRuleCombinerParametersAndVariableDefinitions();
+			final Map<String, VariableDefinition> variableDefinitions = new HashMap<>();
+			for (final Serializable policyChildElt : policyChoiceElements)
+			{
+				if (policyChildElt instanceof VariableDefinition jaxbVariableDefinition)
+				{
+					variableDefinitions.put(jaxbVariableDefinition.getVariableId(), jaxbVariableDefinition);
+				}
+			}
+
+			for (final Serializable policyChildElt : policyChoiceElements)
+			{
+				if (policyChildElt instanceof Rule jaxbRule)
+				{
+					addTarget(jaxbRule.getTarget());
+					if (jaxbRule.getCondition() != null)
+					{
+						addExpression(jaxbRule.getCondition().getExpression(), variableDefinitions, Usage.CONDITION);
+					}
+
+					addPepActionExpressions(jaxbRule.getObligationExpressions(), jaxbRule.getAdviceExpressions(), variableDefinitions);
+				}
+			}
+
+			addPepActionExpressions(jaxbPolicy.getObligationExpressions(), jaxbPolicy.getAdviceExpressions(), variableDefinitions);
+		}
+
+		private void addPolicySet(final PolicySet jaxbPolicySet)
+		{
+			addTarget(jaxbPolicySet.getTarget());
+			for (final Serializable policyChildElt : jaxbPolicySet.getPolicySetsAndPoliciesAndPolicySetIdReferences())
+			{
+				if (policyChildElt instanceof PolicySet jaxbChildPolicySet)
+				{
+					addPolicySet(jaxbChildPolicySet);
+				}
+				else if (policyChildElt instanceof Policy jaxbChildPolicy)
+				{
+					addPolicy(jaxbChildPolicy);
+				}
+				else if (policyChildElt instanceof JAXBElement<?> jaxbPolicyChildElt && jaxbPolicyChildElt.getValue() instanceof IdReferenceType jaxbIdRef)
+				{
+					addPolicyRef(jaxbPolicyChildElt.getName().getLocalPart().equals(XacmlNodeName.POLICY_ID_REFERENCE.value()) ? TopLevelPolicyElementType.POLICY
+					        : TopLevelPolicyElementType.POLICY_SET, jaxbIdRef);
+				}
+
+				/*
+				 * Else CombinerParameters: constant
+				 */
+			}
+
+			// no VariableDefinition in a PolicySet
+			addPepActionExpressions(jaxbPolicySet.getObligationExpressions(), jaxbPolicySet.getAdviceExpressions(), Collections.emptyMap());
+		}
+
+		private void addPolicyRef(final TopLevelPolicyElementType refPolicyType, final IdReferenceType jaxbIdRef)
+		{
+			Optional<PolicyVersionPatterns> versionConstraints;
+			try
+			{
+				versionConstraints = Optional.of(new PolicyVersionPatterns(jaxbIdRef.getVersion(), jaxbIdRef.getEarliestVersion(), jaxbIdRef.getLatestVersion()));
+			}
+			catch (final IllegalArgumentException e)
+			{
+				// invalid version pattern, rejected when the policy is instantiated
+				versionConstraints = null;
+			}
+
+			add(new PolicyReference(refPolicyType, jaxbIdRef.getValue(), versionConstraints));
+		}
+	}
+
+	/**
+	 * Gets the attribute dependencies of a Policy document
+	 *
+	 * @param jaxbPolicy
+	 *            XACML Policy
+	 * @return attribute usages and policy references of the Policy
+	 */
+	static PolicyElementDependencies getDependencies(final Policy jaxbPolicy)
+	{
+		final PolicyDocumentWalker walker = new PolicyDocumentWalker();
+		walker.addPolicy(jaxbPolicy);
+		return new PolicyElementDependencies(new PolicyKey(TopLevelPolicyElementType.POLICY, jaxbPolicy.getPolicyId(), jaxbPolicy.getVersion()), List.copyOf(walker.dependencies));
+	}
+
+	/**
+	 * Gets the attribute dependencies of a PolicySet document, without following its policy references
+	 *
+	 * @param jaxbPolicySet
+	 *            XACML PolicySet
+	 * @return attribute usages and policy references of the PolicySet
+	 */
+	static PolicyElementDependencies getDependencies(final PolicySet jaxbPolicySet)
+	{
+		final PolicyDocumentWalker walker = new PolicyDocumentWalker();
+		walker.addPolicySet(jaxbPolicySet);
+		return new PolicyElementDependencies(new PolicyKey(TopLevelPolicyElementType.POLICY_SET, jaxbPolicySet.getPolicySetId(), jaxbPolicySet.getVersion()), List.copyOf(walker.dependencies));
+	}
+
+	private static final class Analysis
+	{
+		private final CoreStaticPolicyProvider policyProvider;
+		/*
+		 * Policy(Set)s already analyzed, e.g. referenced more than once
+		 */
+		private final Set<PolicyKey> analyzedPolicies = new HashSet<>();
+		private final Map<DatatypedKey<AttributeFqn>, Set<Usage>> designatedAttributes = new LinkedHashMap<>();
+		private final Map<DatatypedKey<AttributeSelectorId>, Set<Usage>> selectedAttributes = new LinkedHashMap<>();
+		private boolean complete = true;
+
+		private Analysis(final CoreStaticPolicyProvider policyProvider)
+		{
+			this.policyProvider = policyProvider;
+		}
+
+		private static <K> void add(final Map<DatatypedKey<K>, Set<Usage>> attributes, final DatatypedKey<K> key, final Usage usage)
+		{
+			attributes.computeIfAbsent(key, k -> EnumSet.noneOf(Usage.class)).add(usage);
+		}
+
+		/*
+		 * Returns false iff there is no such policy among the policy documents
+		 */
+		private boolean addPolicy(final TopLevelPolicyElementType policyType, final String policyId, final Optional<PolicyVersionPatterns> versionConstraints)
+		{
+			final PolicyElementDependencies policyDependencies = policyProvider.getAttributeDependencies(policyType, policyId, versionConstraints);
+			if (policyDependencies == null)
+			{
+				return false;
+			}
+
+			if (analyzedPolicies.add(policyDependencies.policyKey))
+			{
+				for (final Dependency dependency : policyDependencies.dependencies)
+				{
+					dependency.addTo(this);
+				}
+			}
+
+			return true;
+		}
+
+		private Result getResult()
+		{
+			final List<DesignatedAttribute> designatedAttributeList = new ArrayList<>(designatedAttributes.size());
+			designatedAttributes.forEach((k, usages) -> designatedAttributeList.add(new DesignatedAttribute(k.key(), k.datatypeId(), Collections.unmodifiableSet(usages))));
+			final List<SelectedAttribute> selectedAttributeList = new ArrayList<>(selectedAttributes.size());
+			selectedAttributes.forEach((k, usages) -> selectedAttributeList.add(new SelectedAttribute(k.key(), k.datatypeId(), Collections.unmodifiableSet(usages))));
+			return new Result(Collections.unmodifiableList(designatedAttributeList), Collections.unmodifiableList(selectedAttributeList), complete);
+		}
+	}
+
+	/**
+	 * Finds the attributes that a policy tree may read
+	 *
+	 * @param policyProvider
+	 *            provider of the root policy and the policies it references
+	 * @param rootPolicy
+	 *            root of the policy tree
+	 * @return the attributes read by the AttributeDesignators/AttributeSelectors of {@code rootPolicy} and the policies it references, in document order
+	 * @throws IllegalArgumentException
+	 *             if {@code rootPolicy} is not provided by {@code policyProvider} itself (but by another policy provider)
+	 */
+	public static Result analyze(final CoreStaticPolicyProvider policyProvider, final PrimaryPolicyMetadata rootPolicy) throws IllegalArgumentException
+	{
+		final Analysis analysis = new Analysis(policyProvider);
+		if (!analysis.addPolicy(rootPolicy.getType(), rootPolicy.getId(), Optional.of(new PolicyVersionPatterns(rootPolicy.getVersion().toString(), null, null))))
+		{
+			throw new IllegalArgumentException("No such policy document found: " + rootPolicy);
+		}
+
+		return analysis.getResult();
+	}
+
+	/**
+	 * Finds the attributes that the policy tree of the root policy of a PDP configuration may read. The root policy must be provided by the built-in static policy provider
+	 * ({@link CoreStaticPolicyProvider}).
+	 *
+	 * @param configuration
+	 *            PDP engine configuration
+	 * @return see {@link #analyze(CoreStaticPolicyProvider, PrimaryPolicyMetadata)}
+	 * @throws IllegalArgumentException
+	 *             if the root policy is not found or is not provided by a {@link CoreStaticPolicyProvider}
+	 */
+	public static Result analyze(final PdpEngineConfiguration configuration) throws IllegalArgumentException
+	{
+		if (!(configuration.getPolicyProvider() instanceof CoreStaticPolicyProvider policyProvider))
+		{
+			throw new IllegalArgumentException("Static policy analysis not supported with this policy provider (no XACML policy document): " + configuration.getPolicyProvider());
+		}
+
+		final Analysis analysis = new Analysis(policyProvider);
+		final Optional<TopLevelPolicyElementType> rootPolicyType = configuration.getRootPolicyElementType();
+		boolean rootPolicyFound = analysis.addPolicy(rootPolicyType.orElse(TopLevelPolicyElementType.POLICY), configuration.getRootPolicyId(), configuration.getRootPolicyVersionPatterns());
+		if (!rootPolicyFound && rootPolicyType.isEmpty())
+		{
+			rootPolicyFound = analysis.addPolicy(TopLevelPolicyElementType.POLICY_SET, configuration.getRootPolicyId(), configuration.getRootPolicyVersionPatterns());
+		}
+
+		if (!rootPolicyFound)
+		{
+			throw new IllegalArgumentException("No such root policy found: ID = '" + configuration.getRootPolicyId() + "'");
+		}
+
+		return analysis.getResult();
+	}
+
+	private PolicyAttributeDependencies()
+	{
+		// prevent instantiation
+	}
+}
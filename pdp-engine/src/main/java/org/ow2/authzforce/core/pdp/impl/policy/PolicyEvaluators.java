@@ -37,6 +37,10 @@ import org.ow2.authzforce.core.pdp.api.value.Value;
 import org.ow2.authzforce.core.pdp.impl.BooleanEvaluator;
 import org.ow2.authzforce.core.pdp.impl.PepActionExpression;
 import org.ow2.authzforce.core.pdp.impl.TargetEvaluators;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationMetrics;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationMetricsListener;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationTrace;
+import org.ow2.authzforce.core.pdp.impl.metrics.PolicyResolutionEvent;
 import org.ow2.authzforce.core.pdp.impl.rule.RuleEvaluator;
 import org.ow2.authzforce.core.pdp.impl.rule.RuleEvaluators;
 import org.ow2.authzforce.xacml.identifiers.XPathVersion;
@@ -446,8 +450,14 @@ public final class PolicyEvaluators
                 this.decisionResultFactory = new PepActionAppendingDPResultFactory(this.policyMetadata.toString(), denyPepActionExpressions, permitPepActionExpressions);
             }
 
+            /*
+             * The mutable set is used only for checking duplicates. The enclosed policies are kept in an immutable (hash) set, precomputed here for constant-time lookups (contains(...)), in
+             * document order: this policy first, then the ones enclosed in each child policy.
+             */
             final Set<PrimaryPolicyMetadata> mutableEnclosedPolicies = HashCollections.newUpdatableSet();
             mutableEnclosedPolicies.add(policyMetadata);
+            final ImmutableSet.Builder<PrimaryPolicyMetadata> enclosedPoliciesBuilder = ImmutableSet.builder();
+            enclosedPoliciesBuilder.add(policyMetadata);
             combinedElements.stream().filter(e -> e instanceof PolicyEvaluator).forEach(e ->
             {
                 final Set<PrimaryPolicyMetadata> policiesEnclosedInChildPolicy = ((PolicyEvaluator) e).getEnclosedPolicies();
@@ -457,12 +467,10 @@ public final class PolicyEvaluators
                 }
 
                 mutableEnclosedPolicies.addAll(policiesEnclosedInChildPolicy);
+                enclosedPoliciesBuilder.addAll(policiesEnclosedInChildPolicy);
             });
 
-            /*
-             * Add itself
-             */
-            this.enclosedPolicies = ImmutableSet.copyOf(mutableEnclosedPolicies);
+            this.enclosedPolicies = enclosedPoliciesBuilder.build();
 
             /*
              * Define keys for caching the result of #evaluate() in the request context (see Object#toString())
@@ -508,6 +516,67 @@ public final class PolicyEvaluators
          */
         @Override
         public final DecisionResult evaluate(final EvaluationContext individualDecisionContext, final Optional<EvaluationContext> mdpContext, final boolean skipTarget)
+        {
+            final EvaluationMetricsListener metricsListener = EvaluationMetrics.getListener(individualDecisionContext);
+            final EvaluationTrace trace = EvaluationTrace.current();
+            if (metricsListener == null && trace == null)
+            {
+                return evaluateWithoutMetrics(individualDecisionContext, mdpContext, skipTarget);
+            }
+
+            final int traceStepNumber = trace == null ? -1 : trace.enter();
+            final long startNanos = System.nanoTime();
+            DecisionResult result = null;
+            try
+            {
+                result = evaluateWithoutMetrics(individualDecisionContext, mdpContext, skipTarget);
+                if (metricsListener != null)
+                {
+                    metricsListener.policyEvaluated(this.policyMetadata, result.getDecision(), System.nanoTime() - startNanos);
+                }
+
+                return result;
+            } finally
+            {
+                if (trace != null)
+                {
+                    trace.exit(traceStepNumber, startNanos, this.policyMetadata.getType().toString(), this.policyMetadata, result == null ? "Error" : result.toString());
+                }
+            }
+        }
+
+        private ExtendedDecision evaluateCombiningAlg(final EvaluationContext individualDecisionContext, final Optional<EvaluationContext> mdpContext,
+                final UpdatableList<PepAction> updatablePepActions, final UpdatableList<PrimaryPolicyMetadata> updatableApplicablePolicyIdList)
+        {
+            final EvaluationMetricsListener metricsListener = EvaluationMetrics.getListener(individualDecisionContext);
+            final EvaluationTrace trace = EvaluationTrace.current();
+            if (metricsListener == null && trace == null)
+            {
+                return combiningAlgEvaluator.evaluate(individualDecisionContext, mdpContext, updatablePepActions, updatableApplicablePolicyIdList);
+            }
+
+            final int traceStepNumber = trace == null ? -1 : trace.enter();
+            final long startNanos = System.nanoTime();
+            ExtendedDecision algResult = null;
+            try
+            {
+                algResult = combiningAlgEvaluator.evaluate(individualDecisionContext, mdpContext, updatablePepActions, updatableApplicablePolicyIdList);
+                if (metricsListener != null)
+                {
+                    metricsListener.combiningAlgEvaluated(this.policyMetadata, algResult.getDecision(), System.nanoTime() - startNanos);
+                }
+
+                return algResult;
+            } finally
+            {
+                if (trace != null)
+                {
+                    trace.exit(traceStepNumber, startNanos, "CombiningAlgorithm", this.policyMetadata, algResult == null ? "Error" : algResult.toString());
+                }
+            }
+        }
+
+        private DecisionResult evaluateWithoutMetrics(final EvaluationContext individualDecisionContext, final Optional<EvaluationContext> mdpContext, final boolean skipTarget)
         {
             /*
              * check whether the result is already cached in the evaluation individualDecisionContext
@@ -563,7 +632,7 @@ public final class PolicyEvaluators
                     updatableApplicablePolicyIdList = individualDecisionContext.isApplicablePolicyIdListRequested() ? UpdatableCollections.newUpdatableList()
                             : UpdatableCollections.emptyList();
 
-                    algResult = combiningAlgEvaluator.evaluate(individualDecisionContext, mdpContext, updatablePepActions, updatableApplicablePolicyIdList);
+                    algResult = evaluateCombiningAlg(individualDecisionContext, mdpContext, updatablePepActions, updatableApplicablePolicyIdList);
                     LOGGER.debug("{}/Algorithm -> {}", this, algResult);
                 } else
                 {
@@ -613,7 +682,7 @@ public final class PolicyEvaluators
                     updatablePepActions = UpdatableCollections.newUpdatableList();
                     updatableApplicablePolicyIdList = individualDecisionContext.isApplicablePolicyIdListRequested() ? UpdatableCollections.newUpdatableList()
                             : UpdatableCollections.emptyList();
-                    algResult = combiningAlgEvaluator.evaluate(individualDecisionContext, mdpContext, updatablePepActions, updatableApplicablePolicyIdList);
+                    algResult = evaluateCombiningAlg(individualDecisionContext, mdpContext, updatablePepActions, updatableApplicablePolicyIdList);
                     LOGGER.debug("{}/Algorithm -> {}", this, algResult);
 
                     if (targetMatchIndeterminateException != null)
@@ -1200,7 +1269,17 @@ public final class PolicyEvaluators
         protected final TopLevelPolicyElementEvaluator resolvePolicy(final Deque<String> policySetRefChainWithResolvedPolicyIfPolicySet, final EvaluationContext evalCtx, final Optional<EvaluationContext> mdpCtx)
                 throws IllegalArgumentException, IndeterminateEvaluationException
         {
-            return refPolicyProvider.get(this.referredPolicyType, this.refPolicyId, this.versionConstraints, policySetRefChainWithResolvedPolicyIfPolicySet, evalCtx, mdpCtx);
+            final PolicyResolutionEvent event = new PolicyResolutionEvent();
+            event.begin();
+            TopLevelPolicyElementEvaluator policy = null;
+            try
+            {
+                policy = refPolicyProvider.get(this.referredPolicyType, this.refPolicyId, this.versionConstraints, policySetRefChainWithResolvedPolicyIfPolicySet, evalCtx, mdpCtx);
+                return policy;
+            } finally
+            {
+                event.report(this.referredPolicyType, this.refPolicyId, this.versionConstraints, policy);
+            }
         }
 
         protected abstract void checkPolicyRefChain(TopLevelPolicyElementEvaluator nonNullRefResultPolicy, final EvaluationContext evalCtx, final Optional<EvaluationContext> mdpCtx)
@@ -1571,7 +1650,7 @@ public final class PolicyEvaluators
                 final RuleEvaluator ruleEvaluator;
                 try
                 {
-                    ruleEvaluator = RuleEvaluators.getInstance((Rule) policyChildElt, expressionFactory, childXpathCompiler);
+                    ruleEvaluator = RuleEvaluators.getInstance((Rule) policyChildElt, policyMetadata, expressionFactory, childXpathCompiler);
                 } catch (final IllegalArgumentException e)
                 {
                     throw new IllegalArgumentException(policyMetadata + ": Error parsing child #" + childIndex + " (Rule)", e);
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.policy;
+
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.NamedAttributeProvider;
+import org.ow2.authzforce.core.pdp.api.combining.CombiningAlgRegistry;
+import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
+import org.ow2.authzforce.core.pdp.api.func.Function;
+import org.ow2.authzforce.core.pdp.api.policy.*;
+import org.ow2.authzforce.core.pdp.api.value.Datatype;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimation of the heap footprint of compiled policies, i.e. the memory used by each Policy/PolicySet evaluator of a policy tree (Target/Condition evaluators, constant values, PEP action
+ * expressions, policy metadata, etc.), in order to find the policies responsible for most of the heap usage.
+ * <p>
+ * The footprint of a policy is estimated by walking the object graph from the policy evaluator, and summing the estimated shallow sizes of the objects, assuming a 64-bit JVM with compressed
+ * references (12-byte object headers, 4-byte references, 8-byte alignment). The walk stops at other Policy(Set) evaluators - reported separately - and at PDP-wide components such as policy
+ * providers, expression factories, functions and datatypes. Each object is counted once: objects shared by several policies (e.g. interned constants, shared Targets) are counted for the first policy
+ * that reaches them, in breadth-first order from the root policy. The internal structure of JDK classes that cannot be accessed by reflection is estimated from their public API (collections, maps).
+ * <p>
+ * This is an estimate meant for diagnostics, not an exact measure of the retained heap. The estimation itself may take time and memory proportional to the size of the policies.
+ *
+ * @version $Id: $
+ */
+public final class PolicyHeapFootprints
+{
+	private static final int OBJECT_HEADER_SIZE = 12;
+	private static final int ARRAY_HEADER_SIZE = 16;
+	private static final int REFERENCE_SIZE = 4;
+	private static final int OBJECT_ALIGNMENT = 8;
+
+	/*
+	 * PDP-wide components not belonging to any policy
+	 */
+	private static final List<Class<?>> EXCLUDED_TYPES = List.of(Class.class, ClassLoader.class, Thread.class, ThreadLocal.class, Enum.class, org.slf4j.Logger.class, PolicyProvider.class,
+	        ExpressionFactory.class, CombiningAlgRegistry.class, NamedAttributeProvider.class, Function.class, Datatype.class);
+
+	/**
+	 * Estimated heap footprint of a Policy/PolicySet evaluator
+	 *
+	 * @param policy
+	 *            Policy(Set) metadata (type, ID, version)
+	 * @param bytes
+	 *            estimated size in bytes of the objects reachable from the policy evaluator that are attributed to this policy, i.e. not reached before from another policy (objects shared by
+	 *            several policies are attributed to the first policy reaching them only), excluding other Policy(Set) evaluators. This is not the retained heap of the policy: the heap freed if the
+	 *            policy were removed may be smaller (shared objects) or larger (objects attributed to policies estimated before).
+	 * @param objectCount
+	 *            number of these objects
+	 */
+	public record Footprint(PrimaryPolicyMetadata policy, long bytes, long objectCount)
+	{
+	}
+
+	private record ClassLayout(long shallowSize, List<Field> referenceFields, boolean fieldsAccessible)
+	{
+	}
+
+	private static final Map<Class<?>, ClassLayout> CLASS_LAYOUTS = new ConcurrentHashMap<>();
+
+	private static long align(final long size)
+	{
+		return (size + OBJECT_ALIGNMENT - 1) / OBJECT_ALIGNMENT * OBJECT_ALIGNMENT;
+	}
+
+	private static int getFieldSize(final Class<?> fieldType)
+	{
+		if (!fieldType.isPrimitive())
+		{
+			return REFERENCE_SIZE;
+		}
+
+		if (fieldType == long.class || fieldType == double.class)
+		{
+			return 8;
+		}
+
+		if (fieldType == int.class || fieldType == float.class)
+		{
+			return 4;
+		}
+
+		return fieldType == short.class || fieldType == char.class ? 2 : 1;
+	}
+
+	private static ClassLayout newClassLayout(final Class<?> type)
+	{
+		long size = OBJECT_HEADER_SIZE;
+		final List<Field> referenceFields = new ArrayList<>();
+		boolean fieldsAccessible = true;
+		for (Class<?> c = type; c != null; c = c.getSuperclass())
+		{
+			for (final Field field : c.getDeclaredFields())
+			{
+				if (Modifier.isStatic(field.getModifiers()))
+				{
+					continue;
+				}
+
+				size += getFieldSize(field.getType());
+				if (!field.getType().isPrimitive())
+				{
+					if (field.trySetAccessible())
+					{
+						referenceFields.add(field);
+					}
+					else
+					{
+						fieldsAccessible = false;
+					}
+				}
+			}
+		}
+
+		return new ClassLayout(align(size), List.copyOf(referenceFields), fieldsAccessible);
+	}
+
+	private static boolean isExcluded(final Object obj)
+	{
+		for (final Class<?> excludedType : EXCLUDED_TYPES)
+		{
+			if (excludedType.isInstance(obj))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/*
+	 * Adds the objects referenced by obj to the stack, returns the estimated shallow size of obj
+	 */
+	private static long pushReferencedObjects(final Object obj, final Deque<Object> stack)
+	{
+		final Class<?> type = obj.getClass();
+		if (type.isArray())
+		{
+			final int length = Array.getLength(obj);
+			final Class<?> componentType = type.getComponentType();
+			if (!componentType.isPrimitive())
+			{
+				for (final Object item : (Object[]) obj)
+				{
+					if (item != null)
+					{
+						stack.push(item);
+					}
+				}
+			}
+
+			return align(ARRAY_HEADER_SIZE + (long) length * getFieldSize(componentType));
+		}
+
+		if (obj instanceof String str)
+		{
+			// String object + (Latin1 or UTF16) byte array
+			return align(OBJECT_HEADER_SIZE + 12) + align(ARRAY_HEADER_SIZE + str.length());
+		}
+
+		final ClassLayout layout = CLASS_LAYOUTS.computeIfAbsent(type, PolicyHeapFootprints::newClassLayout);
+		for (final Field field : layout.referenceFields)
+		{
+			final Object fieldValue;
+			try
+			{
+				fieldValue = field.get(obj);
+			}
+			catch (final IllegalAccessException e)
+			{
+				continue;
+			}
+
+			if (fieldValue != null)
+			{
+				stack.push(fieldValue);
+			}
+		}
+
+		if (layout.fieldsAccessible)
+		{
+			return layout.shallowSize;
+		}
+
+		/*
+		 * Internal structure not accessible (JDK classes), estimated from the public API
+		 */
+		final Collection<?> items;
+		if (obj instanceof Collection<?> collection)
+		{
+			items = collection;
+		}
+		else if (obj instanceof Map<?, ?> map)
+		{
+			final List<Object> mapItems = new ArrayList<>(2 * map.size());
+			map.forEach((k, v) ->
+			{
+				mapItems.add(k);
+				mapItems.add(v);
+			});
+			items = mapItems;
+		}
+		else if (obj instanceof Optional<?> optional)
+		{
+			items = optional.isPresent() ? List.of(optional.get()) : List.of();
+		}
+		else
+		{
+			return layout.shallowSize;
+		}
+
+		for (final Object item : items)
+		{
+			if (item != null)
+			{
+				stack.push(item);
+			}
+		}
+
+		// internal array of references (or entries)
+		return layout.shallowSize + align(ARRAY_HEADER_SIZE + (long) items.size() * REFERENCE_SIZE);
+	}
+
+	/**
+	 * Estimates the heap footprint of each Policy/PolicySet evaluator in a policy tree
+	 *
+	 * @param rootPolicy
+	 *            root of the policy tree
+	 * @return the footprint of {@code rootPolicy} and each Policy(Set) evaluator reachable from it (e.g. by static Policy(Set)IdReference), sorted by decreasing size. The policies are walked in
+	 *         breadth-first order from {@code rootPolicy}, and objects shared by several policies are attributed to the first one reaching them (see {@link Footprint#bytes()}).
+	 */
+	public static List<Footprint> estimate(final TopLevelPolicyElementEvaluator rootPolicy)
+	{
+		final Set<Object> visitedObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+		final Deque<TopLevelPolicyElementEvaluator> policyQueue = new ArrayDeque<>();
+		policyQueue.add(rootPolicy);
+		visitedObjects.add(rootPolicy);
+		final List<Footprint> footprints = new ArrayList<>();
+		final Deque<Object> objectStack = new ArrayDeque<>();
+		while (!policyQueue.isEmpty())
+		{
+			final TopLevelPolicyElementEvaluator policy = policyQueue.poll();
+			long bytes = pushReferencedObjects(policy, objectStack);
+			long objectCount = 1;
+			while (!objectStack.isEmpty())
+			{
+				final Object obj = objectStack.pop();
+				if (isExcluded(obj) || !visitedObjects.add(obj))
+				{
+					continue;
+				}
+
+				if (obj instanceof TopLevelPolicyElementEvaluator otherPolicy)
+				{
+					// reported separately
+					policyQueue.add(otherPolicy);
+					continue;
+				}
+
+				bytes += pushReferencedObjects(obj, objectStack);
+				objectCount++;
+			}
+
+			footprints.add(new Footprint(policy.getPrimaryPolicyMetadata(), bytes, objectCount));
+		}
+
+		footprints.sort(Comparator.comparingLong(Footprint::bytes).reversed());
+		return footprints;
+	}
+
+	/**
+	 * Estimates the heap footprint of each Policy/PolicySet evaluator in the policy tree of the root policy of a PDP configuration. The root policy must be provided by a static policy provider.
+	 *
+	 * @param configuration
+	 *            PDP engine configuration
+	 * @return see {@link #estimate(TopLevelPolicyElementEvaluator)}
+	 * @throws IllegalArgumentException
+	 *             if the root policy is not found or is not provided by a static policy provider
+	 * @throws IndeterminateEvaluationException
+	 *             error resolving the root policy
+	 */
+	public static List<Footprint> estimate(final PdpEngineConfiguration configuration) throws IllegalArgumentException, IndeterminateEvaluationException
+	{
+		return estimate(RootPolicyEvaluators.getStaticRootPolicy(configuration));
+	}
+
+	private PolicyHeapFootprints()
+	{
+		// prevent instantiation
+	}
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.policy;
+
+import com.google.common.collect.ImmutableMap;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Policy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Versioned binary snapshots of the XACML policy documents loaded from policy locations by {@link CoreStaticPolicyProvider}, to speed up PDP startup with large numbers of policy files.
+ * <p>
+ * A snapshot contains the XACML/JAXB Policy(Set) objects resulting from the (schema-validated) parsing of the policy documents, with their namespace prefix-URI mappings, in the order of the policy
+ * locations. Loading a snapshot therefore skips the XML parsing and schema validation of each policy document. A snapshot is only used if its format version, the version of the XACML/JAXB model, and
+ * the fingerprint of the policy locations (location, size and last modification time of each document) all match the current ones; else the policies are loaded from the policy locations as usual
+ * and the snapshot is rewritten.
+ * <p>
+ * The compiled policy evaluators are not part of the snapshot, since they refer to PDP extensions (functions, attribute providers, etc.) that are not serializable; they are compiled at startup
+ * from the snapshot contents.
+ *
+ * @version $Id: $
+ */
+final class PolicySnapshots
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(PolicySnapshots.class);
+
+	/*
+	 * "AZPS" in ASCII
+	 */
+	private static final int MAGIC_NUMBER = 0x415A5053;
+
+	/**
+	 * Snapshot format version, to be incremented whenever the snapshot format changes
+	 */
+	static final int FORMAT_VERSION = 1;
+
+	private static final String XACML_MODEL_VERSION = Objects.requireNonNullElse(Policy.class.getPackage().getImplementationVersion(), "unknown");
+
+	/*
+	 * Only the XACML/JAXB model classes and their JDK dependencies (including DOM nodes for mixed/any content) are expected in a snapshot
+	 */
+	private static final ObjectInputFilter DESERIALIZATION_FILTER = ObjectInputFilter.Config.createFilter(
+			"oasis.names.tc.xacml.**;jakarta.xml.bind.**;javax.xml.namespace.QName;java.lang.*;java.util.*;java.math.*;com.sun.org.apache.xerces.internal.dom.*;org.apache.xerces.dom.*;!*");
+
+	/**
+	 * Parsed XACML policy document
+	 *
+	 * @param policyOrPolicySet
+	 *            XACML/JAXB Policy or PolicySet
+	 * @param nsPrefixUriMap
+	 *            namespace prefix-URI mappings from the policy document
+	 */
+	record PolicyDocument(Object policyOrPolicySet, ImmutableMap<String, String> nsPrefixUriMap)
+	{
+		PolicyDocument
+		{
+			assert policyOrPolicySet != null && nsPrefixUriMap != null;
+		}
+	}
+
+	private PolicySnapshots()
+	{
+		// prevent instantiation
+	}
+
+	/**
+	 * Computes the fingerprint of policy locations, i.e. a digest of the URL, size and last modification time of each location (in order), used to detect changes of the policy documents since a
+	 * snapshot was made.
+	 *
+	 * @param policyLocations
+	 *            policy document locations
+	 * @return fingerprint
+	 * @throws IOException
+	 *             error getting the size/last modification time of a policy document
+	 */
+	static String fingerprint(final List<URL> policyLocations) throws IOException
+	{
+		final MessageDigest digest;
+		try
+		{
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (final NoSuchAlgorithmException e)
+		{
+			throw new RuntimeException("SHA-256 not supported by the JRE", e);
+		}
+
+		for (final URL policyLocation : policyLocations)
+		{
+			final long size;
+			final long lastModified;
+			if ("file".equals(policyLocation.getProtocol()))
+			{
+				final BasicFileAttributes fileAttrs;
+				try
+				{
+					fileAttrs = Files.readAttributes(Paths.get(policyLocation.toURI()), BasicFileAttributes.class);
+				}
+				catch (final URISyntaxException e)
+				{
+					throw new IOException("Invalid policy file location: " + policyLocation, e);
+				}
+
+				size = fileAttrs.size();
+				lastModified = fileAttrs.lastModifiedTime().toMillis();
+			}
+			else
+			{
+				final URLConnection conn = policyLocation.openConnection();
+				size = conn.getContentLengthLong();
+				lastModified = conn.getLastModified();
+			}
+
+			digest.update((policyLocation.toExternalForm() + '|' + size + '|' + lastModified + '\n').getBytes(StandardCharsets.UTF_8));
+		}
+
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	/**
+	 * Reads the policy documents from a snapshot file
+	 *
+	 * @param snapshotFile
+	 *            snapshot file
+	 * @param expectedFingerprint
+	 *            fingerprint of the current policy locations (see {@link #fingerprint(List)})
+	 * @return the policy documents in the snapshot, empty if the snapshot does not exist, is not valid, or is out-of-date (different format/model version or fingerprint)
+	 */
+	static Optional<List<PolicyDocument>> read(final Path snapshotFile, final String expectedFingerprint)
+	{
+		assert snapshotFile != null && expectedFingerprint != null;
+		if (!Files.isRegularFile(snapshotFile))
+		{
+			LOGGER.info("No policy snapshot at '{}' -> loading policies from policy locations", snapshotFile);
+			return Optional.empty();
+		}
+
+		try (final ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile))))
+		{
+			in.setObjectInputFilter(DESERIALIZATION_FILTER);
+			if (in.readInt() != MAGIC_NUMBER)
+			{
+				LOGGER.warn("Invalid policy snapshot '{}' (not a snapshot file) -> loading policies from policy locations", snapshotFile);
+				return Optional.empty();
+			}
+
+			final int formatVersion = in.readInt();
+			final String xacmlModelVersion = in.readUTF();
+			if (formatVersion != FORMAT_VERSION || !xacmlModelVersion.equals(XACML_MODEL_VERSION))
+			{
+				LOGGER.info("Policy snapshot '{}' made with a different format/XACML model version ({}/{}, expected: {}/{}) -> loading policies from policy locations", snapshotFile, formatVersion,
+						xacmlModelVersion, FORMAT_VERSION, XACML_MODEL_VERSION);
+				return Optional.empty();
+			}
+
+			if (!in.readUTF().equals(expectedFingerprint))
+			{
+				LOGGER.info("Policy snapshot '{}' is out-of-date (policy documents changed) -> loading policies from policy locations", snapshotFile);
+				return Optional.empty();
+			}
+
+			final int docCount = in.readInt();
+			final List<PolicyDocument> docs = new ArrayList<>(docCount);
+			for (int i = 0; i < docCount; i++)
+			{
+				final Object policyOrPolicySet = in.readObject();
+				// WARNING: unchecked cast, the snapshot is written by this class only
+				final Map<String, String> nsPrefixUriMap = (Map<String, String>) in.readObject();
+				docs.add(new PolicyDocument(policyOrPolicySet, ImmutableMap.copyOf(nsPrefixUriMap)));
+			}
+
+			LOGGER.info("Loaded {} policy document(s) from policy snapshot '{}'", docCount, snapshotFile);
+			return Optional.of(docs);
+		}
+		catch (final IOException | ClassNotFoundException | ClassCastException e)
+		{
+			LOGGER.warn("Failed to read policy snapshot '{}' -> loading policies from policy locations", snapshotFile, e);
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Writes policy documents to a snapshot file. The file is replaced atomically (if supported by the filesystem), so that a PDP starting concurrently never reads a partially written snapshot. Errors
+	 * are logged but not thrown, since the snapshot is only an optimization.
+	 *
+	 * @param snapshotFile
+	 *            snapshot file
+	 * @param fingerprint
+	 *            fingerprint of the policy locations that {@code docs} come from (see {@link #fingerprint(List)})
+	 * @param docs
+	 *            policy documents, in the order of the policy locations
+	 */
+	static void write(final Path snapshotFile, final String fingerprint, final List<PolicyDocument> docs)
+	{
+		assert snapshotFile != null && fingerprint != null && docs != null;
+		final Path absSnapshotFile = snapshotFile.toAbsolutePath();
+		Path tmpFile = null;
+		try
+		{
+			final Path snapshotDir = absSnapshotFile.getParent();
+			Files.createDirectories(snapshotDir);
+			tmpFile = Files.createTempFile(snapshotDir, absSnapshotFile.getFileName().toString(), ".tmp");
+			try (final ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile))))
+			{
+				out.writeInt(MAGIC_NUMBER);
+				out.writeInt(FORMAT_VERSION);
+				out.writeUTF(XACML_MODEL_VERSION);
+				out.writeUTF(fingerprint);
+				out.writeInt(docs.size());
+				for (final PolicyDocument doc : docs)
+				{
+					out.writeObject(doc.policyOrPolicySet);
+					out.writeObject(new HashMap<>(doc.nsPrefixUriMap));
+				}
+			}
+
+			try
+			{
+				Files.move(tmpFile, absSnapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (final AtomicMoveNotSupportedException e)
+			{
+				Files.move(tmpFile, absSnapshotFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			LOGGER.info("Saved {} policy document(s) to policy snapshot '{}'", docs.size(), absSnapshotFile);
+		}
+		catch (final IOException e)
+		{
+			LOGGER.warn("Failed to write policy snapshot '{}'", absSnapshotFile, e);
+			if (tmpFile != null)
+			{
+				try
+				{
+					Files.deleteIfExists(tmpFile);
+				}
+				catch (final IOException e1)
+				{
+					LOGGER.warn("Failed to delete temporary policy snapshot file '{}'", tmpFile, e1);
+				}
+			}
+		}
+	}
+}
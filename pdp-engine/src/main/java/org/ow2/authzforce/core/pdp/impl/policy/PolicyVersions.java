@@ -18,18 +18,26 @@
 package org.ow2.authzforce.core.pdp.impl.policy;
 
 import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
 import com.google.common.collect.UnmodifiableIterator;
 import org.ow2.authzforce.core.pdp.api.policy.PolicyVersion;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyVersionPattern;
 import org.ow2.authzforce.core.pdp.api.policy.PolicyVersionPatterns;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Policy versions sorted from the latest version to the oldest.
  * <p>
  * The choice to have the latest version in first position is motivated by §5.10 of XACML core spec: "In the case that more than one matching version can be obtained, then the most recent one SHOULD
  * be used."
+ * <p>
+ * Lookups by version patterns ({@link #getLatest(Optional)}) use range queries on the sorted versions when the EarliestVersion/LatestVersion patterns are literal versions, and a direct lookup when
+ * the Version pattern is a literal version, instead of matching every version against the patterns. The results are memoized per version patterns (up to {@value #MAX_MEMOIZED_LOOKUPS} different
+ * patterns), since instances are immutable.
  *
  * @param <P>
  *            policy type (or any other type of data corresponding to a specific policy version)
@@ -38,8 +46,27 @@ import java.util.Map.Entry;
  */
 public final class PolicyVersions<P> implements Iterable<Entry<PolicyVersion, P>>
 {
+	private static final int MAX_MEMOIZED_LOOKUPS = 64;
+
+	/*
+	 * Version patterns as strings, since PolicyVersionPattern(s) do not implement equals/hashCode
+	 */
+	private record VersionPatternsKey(Optional<String> versionPattern, Optional<String> earliestVersionPattern, Optional<String> latestVersionPattern)
+	{
+		private VersionPatternsKey(final PolicyVersionPatterns versionPatterns)
+		{
+			this(versionPatterns.getVersionPattern().map(PolicyVersionPattern::toString), versionPatterns.getEarliestVersionPattern().map(PolicyVersionPattern::toString),
+			        versionPatterns.getLatestVersionPattern().map(PolicyVersionPattern::toString));
+		}
+	}
+
 	private final ImmutableSortedMap<PolicyVersion, P> policiesByVersion;
 
+	/*
+	 * Memoized results of getLatest(...), empty if no match
+	 */
+	private final ConcurrentMap<VersionPatternsKey, Optional<Entry<PolicyVersion, P>>> latestVersionsByPatterns = new ConcurrentHashMap<>();
+
 	/**
 	 * Creates instance
 	 *
@@ -70,18 +97,73 @@ public final class PolicyVersions<P> implements Iterable<Entry<PolicyVersion, P>
 	 * @return latest version; null if none matched
 	 */
 	public Entry<PolicyVersion, P> getLatest(final Optional<PolicyVersionPatterns> PolicyVersionPatterns) {
-		// policiesByVersion is not empty -> at least one value
-		final Iterator<Entry<PolicyVersion, P>> versionPolicyPairsIterator = policiesByVersion.entrySet().iterator();
 		if (PolicyVersionPatterns.isEmpty())
 		{
 			/*
 			 * Return the latest version which is the first element by design (TreeMap initialized with reverse order on version keys). See §5.10 of XACML core spec:
 			 * "In the case that more than one matching version can be obtained, then the most recent one SHOULD be used."
 			 */
-			return versionPolicyPairsIterator.next();
+			// policiesByVersion is not empty -> at least one value
+			return policiesByVersion.entrySet().iterator().next();
 		}
 
 		final PolicyVersionPatterns nonNullPolicyVersionPatterns = PolicyVersionPatterns.get();
+		final VersionPatternsKey memoKey = new VersionPatternsKey(nonNullPolicyVersionPatterns);
+		final Optional<Entry<PolicyVersion, P>> memoizedResult = latestVersionsByPatterns.get(memoKey);
+		if (memoizedResult != null)
+		{
+			return memoizedResult.orElse(null);
+		}
+
+		final Entry<PolicyVersion, P> result = findLatest(nonNullPolicyVersionPatterns);
+		/*
+		 * Bounded, in case of many different patterns (e.g. from dynamic policy references)
+		 */
+		if (latestVersionsByPatterns.size() < MAX_MEMOIZED_LOOKUPS)
+		{
+			latestVersionsByPatterns.putIfAbsent(memoKey, Optional.ofNullable(result));
+		}
+
+		return result;
+	}
+
+	private Entry<PolicyVersion, P> findLatest(final PolicyVersionPatterns nonNullPolicyVersionPatterns)
+	{
+		/*
+		 * If Version pattern is a literal version, only one possible match
+		 */
+		final PolicyVersion literalVersion = nonNullPolicyVersionPatterns.getVersionPattern().map(PolicyVersionPattern::toLiteral).orElse(null);
+		if (literalVersion != null)
+		{
+			final P policy = policiesByVersion.get(literalVersion);
+			return policy != null && nonNullPolicyVersionPatterns.matchLatestVersion(literalVersion) && nonNullPolicyVersionPatterns.matchEarliestVersion(literalVersion)
+			        ? Maps.immutableEntry(literalVersion, policy) : null;
+		}
+
+		/*
+		 * Restrict the candidate versions to the [EarliestVersion, LatestVersion] interval if these are literal versions (versions sorted from latest to earliest, so the interval is [LatestVersion,
+		 * EarliestVersion] in the map order)
+		 */
+		NavigableMap<PolicyVersion, P> candidatePoliciesByVersion = policiesByVersion;
+		final PolicyVersion literalLatestVersion = nonNullPolicyVersionPatterns.getLatestVersionPattern().map(PolicyVersionPattern::toLiteral).orElse(null);
+		if (literalLatestVersion != null)
+		{
+			candidatePoliciesByVersion = candidatePoliciesByVersion.tailMap(literalLatestVersion, true);
+		}
+
+		final PolicyVersion literalEarliestVersion = nonNullPolicyVersionPatterns.getEarliestVersionPattern().map(PolicyVersionPattern::toLiteral).orElse(null);
+		if (literalEarliestVersion != null)
+		{
+			if (literalLatestVersion != null && literalLatestVersion.compareTo(literalEarliestVersion) < 0)
+			{
+				// empty interval
+				return null;
+			}
+
+			candidatePoliciesByVersion = candidatePoliciesByVersion.headMap(literalEarliestVersion, true);
+		}
+
+		final Iterator<Entry<PolicyVersion, P>> versionPolicyPairsIterator = candidatePoliciesByVersion.entrySet().iterator();
 
 		// constraints not null
 		// in the loop, go on until LatestVersion matched, then go on as long as
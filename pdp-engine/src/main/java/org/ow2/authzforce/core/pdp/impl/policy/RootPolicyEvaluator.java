@@ -54,4 +54,13 @@ public interface RootPolicyEvaluator extends Closeable
 	 */
 	FlattenedPolicyTree getStaticApplicablePolicies();
 
+	/**
+	 * Get the attributes that the statically applicable policies (see {@link #getStaticApplicablePolicies()}) may read, i.e. the AttributeDesignators and AttributeSelectors of the root policy and
+	 * (directly/indirectly) referenced policies, with their usages (Target, Condition, PEP action)
+	 *
+	 * @return the attribute dependencies of the static policy tree; null if the root policy is not statically resolved, or not provided by the built-in static policy provider
+	 *         ({@link CoreStaticPolicyProvider}, the analysis requires the XACML policy documents)
+	 */
+	PolicyAttributeDependencies.Result getStaticAttributeDependencies();
+
 }
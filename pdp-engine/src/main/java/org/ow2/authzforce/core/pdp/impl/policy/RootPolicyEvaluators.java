@@ -22,6 +22,8 @@ import org.ow2.authzforce.core.pdp.api.DecisionResults;
 import org.ow2.authzforce.core.pdp.api.EvaluationContext;
 import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
 import org.ow2.authzforce.core.pdp.api.policy.*;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.metrics.PolicyResolutionEvent;
 import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,6 +38,24 @@ import java.util.Optional;
  */
 public final class RootPolicyEvaluators
 {
+	private static <PE extends TopLevelPolicyElementEvaluator> PE resolvePolicy(final CloseablePolicyProvider<PE> rootPolicyProvider, final TopLevelPolicyElementType policyType,
+	        final String policyId, final Optional<PolicyVersionPatterns> optPolicyVersionPatterns, final EvaluationContext context, final Optional<EvaluationContext> mdpContext)
+	        throws IllegalArgumentException, IndeterminateEvaluationException
+	{
+		final PolicyResolutionEvent event = new PolicyResolutionEvent();
+		event.begin();
+		PE policy = null;
+		try
+		{
+			policy = rootPolicyProvider.get(policyType, policyId, optPolicyVersionPatterns, null, context, mdpContext);
+			return policy;
+		}
+		finally
+		{
+			event.report(policyType, policyId, optPolicyVersionPatterns, policy);
+		}
+	}
+
 	/**
 	 * 
 	 * @param <PE> type of top-level policy evaluator to be returned
@@ -58,10 +78,10 @@ public final class RootPolicyEvaluators
 	{
 		if (rootPolicyElementType.isPresent())
 		{
-			return rootPolicyProvider.get(rootPolicyElementType.get(), rootPolicyId, optRootPolicyVersionPatterns, null, context, mdpContext);
+			return resolvePolicy(rootPolicyProvider, rootPolicyElementType.get(), rootPolicyId, optRootPolicyVersionPatterns, context, mdpContext);
 		}
 
-		final PE xacmlPolicyEvaluator = rootPolicyProvider.get(TopLevelPolicyElementType.POLICY, rootPolicyId, optRootPolicyVersionPatterns, null, context, mdpContext);
+		final PE xacmlPolicyEvaluator = resolvePolicy(rootPolicyProvider, TopLevelPolicyElementType.POLICY, rootPolicyId, optRootPolicyVersionPatterns, context, mdpContext);
 		if (xacmlPolicyEvaluator != null)
 		{
 			logger.debug("Root policy element type undefined. Searched for XACML Policy first and found.");
@@ -69,7 +89,41 @@ public final class RootPolicyEvaluators
 		}
 
 		logger.debug("Root policy element type undefined. Searched for XACML Policy, not found. Searching for XACML PolicySet...");
-		return rootPolicyProvider.get(TopLevelPolicyElementType.POLICY_SET, rootPolicyId, optRootPolicyVersionPatterns, null, context, mdpContext);
+		return resolvePolicy(rootPolicyProvider, TopLevelPolicyElementType.POLICY_SET, rootPolicyId, optRootPolicyVersionPatterns, context, mdpContext);
+	}
+
+	/**
+	 * Resolves the root policy of a PDP configuration with its (static) policy provider, for static analysis of the policy tree
+	 *
+	 * @param configuration
+	 *            PDP engine configuration
+	 * @return root policy evaluator
+	 * @throws IllegalArgumentException
+	 *             if the root policy is not found or is not provided by a static policy provider
+	 * @throws IndeterminateEvaluationException
+	 *             error resolving the root policy
+	 */
+	static StaticTopLevelPolicyElementEvaluator getStaticRootPolicy(final PdpEngineConfiguration configuration) throws IllegalArgumentException, IndeterminateEvaluationException
+	{
+		if (!(configuration.getPolicyProvider() instanceof StaticPolicyProvider policyProvider))
+		{
+			throw new IllegalArgumentException("Static policy analysis not supported with a dynamic (non-static) policy provider: " + configuration.getPolicyProvider());
+		}
+
+		final Optional<TopLevelPolicyElementType> rootPolicyType = configuration.getRootPolicyElementType();
+		StaticTopLevelPolicyElementEvaluator rootPolicy = policyProvider.get(rootPolicyType.orElse(TopLevelPolicyElementType.POLICY), configuration.getRootPolicyId(),
+		        configuration.getRootPolicyVersionPatterns(), null);
+		if (rootPolicy == null && rootPolicyType.isEmpty())
+		{
+			rootPolicy = policyProvider.get(TopLevelPolicyElementType.POLICY_SET, configuration.getRootPolicyId(), configuration.getRootPolicyVersionPatterns(), null);
+		}
+
+		if (rootPolicy == null)
+		{
+			throw new IllegalArgumentException("No such root policy found: ID = '" + configuration.getRootPolicyId() + "'");
+		}
+
+		return rootPolicy;
 	}
 
 	/**
@@ -161,6 +215,12 @@ public final class RootPolicyEvaluators
 			return staticView == null ? null : staticView.getStaticApplicablePolicies();
 		}
 
+		@Override
+		public PolicyAttributeDependencies.Result getStaticAttributeDependencies()
+		{
+			return staticView == null ? null : staticView.getStaticAttributeDependencies();
+		}
+
 		/**
 		 * Gets the static version of this policy evaluator, i.e. a policy evaluator using the same constant root policy resolved by the internal root policy provider (once and for all) when calling
 		 * this method. This root policy will be used for all evaluations. This is possible only if the root policy provider is static, i.e. independent of the evaluation context (static
@@ -199,6 +259,10 @@ public final class RootPolicyEvaluators
 		private static final Logger LOGGER = LoggerFactory.getLogger(StaticView.class);
 		private final StaticTopLevelPolicyElementEvaluator staticRootPolicyEvaluator;
 		private transient final FlattenedPolicyTree staticApplicablePolicies;
+		/*
+		 * Null if the policies are not provided by the built-in static policy provider
+		 */
+		private transient final PolicyAttributeDependencies.Result attributeDependencies;
 
 		private StaticView(final CloseableStaticPolicyProvider staticPolicyProvider, final Optional<TopLevelPolicyElementType> rootPolicyElementType, final String rootPolicyId,
 		        final Optional<PolicyVersionPatterns> optRootPolicyVersionPatterns) throws IOException, IndeterminateEvaluationException
@@ -212,10 +276,28 @@ public final class RootPolicyEvaluators
 			}
 
 			this.staticApplicablePolicies = new FlattenedPolicyTree(staticRootPolicyEvaluator.getPrimaryPolicyMetadata(), staticRootPolicyEvaluator.getPolicyRefsMetadata());
+			/*
+			 * Analyzed once and for all, so that the policy provider is not retained
+			 */
+			this.attributeDependencies = staticPolicyProvider instanceof CoreStaticPolicyProvider coreStaticPolicyProvider ? getAttributeDependencies(coreStaticPolicyProvider,
+			        staticRootPolicyEvaluator.getPrimaryPolicyMetadata()) : null;
 
 			staticPolicyProvider.close();
 		}
 
+		private static PolicyAttributeDependencies.Result getAttributeDependencies(final CoreStaticPolicyProvider policyProvider, final PrimaryPolicyMetadata rootPolicy)
+		{
+			try
+			{
+				return PolicyAttributeDependencies.analyze(policyProvider, rootPolicy);
+			}
+			catch (final IllegalArgumentException e)
+			{
+				LOGGER.debug("Root policy {} not provided by {} itself (but by another policy provider) -> no static attribute dependency analysis", rootPolicy, policyProvider, e);
+				return null;
+			}
+		}
+
 		@Override
 		public void close()
 		{
@@ -234,5 +316,11 @@ public final class RootPolicyEvaluators
 		{
 			return staticApplicablePolicies;
 		}
+
+		@Override
+		public PolicyAttributeDependencies.Result getStaticAttributeDependencies()
+		{
+			return attributeDependencies;
+		}
 	}
 }
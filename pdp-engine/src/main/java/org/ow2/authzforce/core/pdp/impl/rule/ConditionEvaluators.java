@@ -29,9 +29,14 @@ import org.ow2.authzforce.core.pdp.api.value.BooleanValue;
 import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
 import org.ow2.authzforce.core.pdp.impl.BooleanEvaluator;
 import org.ow2.authzforce.core.pdp.impl.BooleanEvaluators;
+import org.ow2.authzforce.core.pdp.impl.MultipleDecisionScopedBooleanEvaluators;
+import org.ow2.authzforce.core.pdp.impl.SharedEvaluators;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationTrace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -75,6 +80,13 @@ public final class ConditionEvaluators
 		 */
 		@Override
 		public boolean evaluate(final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			final EvaluationTrace trace = EvaluationTrace.current();
+			return trace == null ? evaluateWithoutTrace(context, mdpContext)
+					: BooleanEvaluators.evaluateTraced(this::evaluateWithoutTrace, trace, "Condition", evaluableBoolExpression, context, mdpContext);
+		}
+
+		private boolean evaluateWithoutTrace(final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
 		{
 			final BooleanValue boolVal = evaluableBoolExpression.evaluate(context, mdpContext);
 			return boolVal.getUnderlyingValue();
@@ -102,12 +114,31 @@ public final class ConditionEvaluators
 		/*
 		 * condition != null -> condition's Expression is not null (by definition of XACML schema), therefore expressionFactory is needed
 		 */
-		final ExpressionType exprElt = condition.getExpression().getValue();
 		if (expressionFactory == null)
 		{
 			throw NULL_EXPR_FACTORY_ARGUMENT_EXCEPTION;
 		}
 
+		/*
+		 * Share the evaluator of identical Conditions (in different policies) if possible
+		 */
+		if (expressionFactory instanceof DepthLimitingExpressionFactory sharingExpressionFactory)
+		{
+			final Optional<List<Object>> structuralKey = SharedEvaluators.getKey(condition);
+			if (structuralKey.isPresent())
+			{
+				return sharingExpressionFactory.getShared(structuralKey.get(),
+				        () -> SharedEvaluators.newRequestScopedMemoizingEvaluator(newInstance(condition, expressionFactory, xPathCompiler)));
+			}
+		}
+
+		return newInstance(condition, expressionFactory, xPathCompiler);
+	}
+
+	private static BooleanEvaluator newInstance(final Condition condition, final ExpressionFactory expressionFactory, final Optional<XPathCompilerProxy> xPathCompiler)
+	        throws IllegalArgumentException
+	{
+		final ExpressionType exprElt = condition.getExpression().getValue();
 		final Expression<?> expr = expressionFactory.getInstance(exprElt,null, xPathCompiler);
 
 		// make sure it's a boolean expression...
@@ -139,7 +170,7 @@ public final class ConditionEvaluators
 
 		// constant == null
 		LOGGER.debug("Condition's Expression is not constant (evaluation without context failed)");
-		return new BooleanExpressionEvaluator(evaluableExpression);
+		return MultipleDecisionScopedBooleanEvaluators.forCondition(new BooleanExpressionEvaluator(evaluableExpression), evaluableExpression);
 	}
 
 	private ConditionEvaluators()
@@ -22,10 +22,14 @@ import oasis.names.tc.xacml._3_0.core.schema.wd_17.*;
 import org.ow2.authzforce.core.pdp.api.*;
 import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
 import org.ow2.authzforce.core.pdp.api.expression.XPathCompilerProxy;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
 import org.ow2.authzforce.core.pdp.impl.BooleanEvaluator;
 import org.ow2.authzforce.core.pdp.impl.BooleanEvaluators;
 import org.ow2.authzforce.core.pdp.impl.PepActionExpression;
 import org.ow2.authzforce.core.pdp.impl.TargetEvaluators;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationMetrics;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationMetricsListener;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationTrace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -87,6 +91,8 @@ public final class RuleEvaluators
 	 *
 	 * @param ruleElt
 	 *            Rule element definition (not null)
+	 * @param enclosingPolicy
+	 *            Policy enclosing the Rule, reported with the RuleId in the evaluation metrics (see {@link EvaluationMetricsListener#ruleEvaluated(EvaluationMetricsListener.RuleKey, DecisionType, long)})
 	 * @param xPathCompiler
 	 *            XPath compiler, defined if XPath support enabled (by PDP configuration and some enclosing Policy(Set) defines a XPathVersion according to XACML standard)
 	 * @param expressionFactory
@@ -95,7 +101,7 @@ public final class RuleEvaluators
 	 * @throws java.lang.IllegalArgumentException
 	 *            Undefined rule element, Invalid Target, Condition or Obligation/Advice expressions
 	 */
-	public static RuleEvaluator getInstance(final Rule ruleElt, final ExpressionFactory expressionFactory,  final Optional<XPathCompilerProxy> xPathCompiler) throws IllegalArgumentException
+	public static RuleEvaluator getInstance(final Rule ruleElt, final PrimaryPolicyMetadata enclosingPolicy, final ExpressionFactory expressionFactory,  final Optional<XPathCompilerProxy> xPathCompiler) throws IllegalArgumentException
 	{
 		if (ruleElt == null)
 		{
@@ -130,7 +136,7 @@ public final class RuleEvaluators
 		}
 
 		// Condition not null and not constant False
-		return new ApplicableRuleEvaluator(ruleId, ruleElt.getEffect(), ruleElt.getTarget(), conditionEvaluator, ruleElt.getObligationExpressions(), ruleElt.getAdviceExpressions(), expressionFactory, xPathCompiler);
+		return new ApplicableRuleEvaluator(ruleId, enclosingPolicy, ruleElt.getEffect(), ruleElt.getTarget(), conditionEvaluator, ruleElt.getObligationExpressions(), ruleElt.getAdviceExpressions(), expressionFactory, xPathCompiler);
 	}
 
 	/**
@@ -334,11 +340,16 @@ public final class RuleEvaluators
 
 		private final transient boolean isAlwaysApplicable;
 
+		// Rule identifier (with enclosing Policy) reported in the evaluation metrics, created once to avoid allocation per evaluation
+		private final EvaluationMetricsListener.RuleKey metricsKey;
+
 		/**
 		* Instantiates rule from XACML RuleType
 		*
 		* @param ruleId
 		*            Rule ID
+		* @param enclosingPolicy
+		*            Policy enclosing the Rule
 		* @param xPathCompiler
 		*            XPath compiler, defined if XPath support enabled (by PDP configuration and some enclosing Policy(Set) defines a XPathVersion according to XACML standard)
 		* @param expressionFactory
@@ -346,9 +357,10 @@ public final class RuleEvaluators
 		* @throws java.lang.IllegalArgumentException
 		*             Invalid Target, Condition or Obligation/Advice expressions
 		*/
-		private ApplicableRuleEvaluator(final String ruleId, final EffectType ruleEffect, final Target target, final BooleanEvaluator conditionEvaluator, final ObligationExpressions obligationExpressions, final AdviceExpressions adviceExpressions, final ExpressionFactory expressionFactory,  final Optional<XPathCompilerProxy> xPathCompiler) throws IllegalArgumentException
+		private ApplicableRuleEvaluator(final String ruleId, final PrimaryPolicyMetadata enclosingPolicy, final EffectType ruleEffect, final Target target, final BooleanEvaluator conditionEvaluator, final ObligationExpressions obligationExpressions, final AdviceExpressions adviceExpressions, final ExpressionFactory expressionFactory,  final Optional<XPathCompilerProxy> xPathCompiler) throws IllegalArgumentException
 		{
 			super(ruleId);
+			this.metricsKey = new EvaluationMetricsListener.RuleKey(enclosingPolicy, ruleId);
 			this.targetEvaluator = TargetEvaluators.getInstance(target, expressionFactory, xPathCompiler);
 			this.conditionEvaluator = conditionEvaluator;
 			this.isAlwaysApplicable = this.targetEvaluator == TargetEvaluators.MATCH_ALL_TARGET_EVALUATOR && this.conditionEvaluator == BooleanEvaluators.TRUE;
@@ -467,6 +479,37 @@ public final class RuleEvaluators
 		*/
 		@Override
 		public DecisionResult evaluate(final EvaluationContext context, final Optional<EvaluationContext> mdpContext)
+		{
+			final EvaluationMetricsListener metricsListener = EvaluationMetrics.getListener(context);
+			final EvaluationTrace trace = EvaluationTrace.current();
+			if (metricsListener == null && trace == null)
+			{
+				return evaluateWithoutMetrics(context, mdpContext);
+			}
+
+			final int traceStepNumber = trace == null ? -1 : trace.enter();
+			final long startNanos = System.nanoTime();
+			DecisionResult result = null;
+			try
+			{
+				result = evaluateWithoutMetrics(context, mdpContext);
+				if (metricsListener != null)
+				{
+					metricsListener.ruleEvaluated(this.metricsKey, result.getDecision(), System.nanoTime() - startNanos);
+				}
+
+				return result;
+			}
+			finally
+			{
+				if (trace != null)
+				{
+					trace.exit(traceStepNumber, startNanos, "Rule", getRuleId(), result == null ? "Error" : result.toString());
+				}
+			}
+		}
+
+		private DecisionResult evaluateWithoutMetrics(final EvaluationContext context, final Optional<EvaluationContext> mdpContext)
 		{
 			LOGGER.debug("Evaluating {}", this);
 			try
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import com.google.common.collect.ImmutableMap;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.io.XacmlJaxbParsingUtils;
+import org.ow2.authzforce.core.pdp.api.policy.CloseablePolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementType;
+import org.ow2.authzforce.core.pdp.api.value.*;
+import org.ow2.authzforce.core.pdp.impl.*;
+import org.ow2.authzforce.core.pdp.impl.combining.StandardCombiningAlgorithm;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+import org.ow2.authzforce.core.pdp.impl.policy.CoreStaticPolicyProvider;
+import org.ow2.authzforce.core.xmlns.pdp.StaticPolicyProvider;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests batch attribute resolution with {@link BatchNamedAttributeProvider}s across the Individual Decision requests of a Multiple Decision request
+ */
+public class BatchNamedAttributeProviderTest
+{
+	private static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+	private static final AttributeDesignatorType SUBJECT_ID = new AttributeDesignatorType(SUBJECT_CATEGORY, "urn:oasis:names:tc:xacml:1.0:subject:subject-id", StandardDatatypes.STRING.getId(), null,
+	        false);
+	private static final AttributeDesignatorType ROLE_DESIGNATOR = new AttributeDesignatorType(SUBJECT_CATEGORY, "role", StandardDatatypes.STRING.getId(), null, false);
+	private static final AttributeFqn ROLE = AttributeFqns.newInstance(ROLE_DESIGNATOR);
+
+	private static final AttributeValueFactoryRegistry ATTRIBUTE_VALUE_FACTORIES = StandardAttributeValueFactories.getRegistry(false, Optional.empty());
+
+	/*
+	 * Provides the role "<subject-id>-get" or "<subject-id>-batch" of the subject, counting the calls and recording the contexts of the Individual Decision requests begun
+	 */
+	private static final class TestBatchAttributeProvider extends BaseNamedAttributeProvider implements BatchNamedAttributeProvider
+	{
+		private final AtomicInteger getCount = new AtomicInteger();
+		private final List<List<String>> getAllSubjectIds = new ArrayList<>();
+		private final Set<EvaluationContext> begunContexts = Collections.newSetFromMap(new IdentityHashMap<>());
+		private final boolean batchFailing;
+		private boolean allBegunBeforeGetAll = true;
+
+		private TestBatchAttributeProvider(final boolean batchFailing)
+		{
+			super("test");
+			this.batchFailing = batchFailing;
+		}
+
+		@Override
+		public Set<AttributeDesignatorType> getProvidedAttributes()
+		{
+			return Set.of(ROLE_DESIGNATOR);
+		}
+
+		@Override
+		public boolean supportsBeginIndividualDecisionRequest()
+		{
+			return true;
+		}
+
+		@Override
+		public void beginIndividualDecisionRequest(final EvaluationContext context, final Optional<EvaluationContext> mdpContext)
+		{
+			begunContexts.add(context);
+		}
+
+		private static String getSubjectId(final EvaluationContext context) throws IndeterminateEvaluationException
+		{
+			return context.getNamedAttributeValue(AttributeFqns.newInstance(SUBJECT_ID), StandardDatatypes.STRING).getSingleElement().getUnderlyingValue();
+		}
+
+		@Override
+		public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context,
+		        final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			getCount.incrementAndGet();
+			return (AttributeBag<AV>) Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(getSubjectId(context) + "-get"), AttributeSources.PDP);
+		}
+
+		@Override
+		public <AV extends AttributeValue> List<AttributeBag<AV>> getAll(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final List<EvaluationContext> contexts,
+		        final EvaluationContext mdpContext) throws IndeterminateEvaluationException
+		{
+			final List<String> subjectIds = new ArrayList<>(contexts.size());
+			final List<AttributeBag<AV>> bags = new ArrayList<>(contexts.size());
+			for (final EvaluationContext context : contexts)
+			{
+				allBegunBeforeGetAll &= begunContexts.contains(context);
+				final String subjectId = getSubjectId(context);
+				subjectIds.add(subjectId);
+				bags.add((AttributeBag<AV>) Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(subjectId + "-batch"), AttributeSources.PDP));
+			}
+
+			getAllSubjectIds.add(subjectIds);
+			if (batchFailing)
+			{
+				throw new IndeterminateEvaluationException("Test error", XacmlStatusCode.PROCESSING_ERROR.value());
+			}
+
+			return bags;
+		}
+
+		@Override
+		public void close()
+		{
+			// nothing to close
+		}
+	}
+
+	private static CloseableNamedAttributeProvider.DependencyAwareFactory newFactory(final TestBatchAttributeProvider provider)
+	{
+		return new CloseableNamedAttributeProvider.DependencyAwareFactory()
+		{
+			@Override
+			public Set<AttributeDesignatorType> getDependencies()
+			{
+				return Set.of(SUBJECT_ID);
+			}
+
+			@Override
+			public CloseableNamedAttributeProvider getInstance(final AttributeValueFactoryRegistry attributeValueFactoryRegistry, final NamedAttributeProvider dependencyAttributeProvider)
+			{
+				return provider;
+			}
+		};
+	}
+
+	private static EvaluationContext newContext(final String subjectId)
+	{
+		return new IndividualDecisionRequestContext(Map.of(AttributeFqns.newInstance(SUBJECT_ID), Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(subjectId), AttributeSources.PDP)),
+		        ImmutableMap.of(), false, Optional.empty());
+	}
+
+	private static EvaluationContext newMdpContext()
+	{
+		return new IndividualDecisionRequestContext(Map.of(), ImmutableMap.of(), false, Optional.empty());
+	}
+
+	private static String getRole(final NamedAttributeProvider provider, final EvaluationContext context, final EvaluationContext mdpContext) throws IndeterminateEvaluationException
+	{
+		return provider.get(ROLE, StandardDatatypes.STRING, context, Optional.of(mdpContext)).getSingleElement().getUnderlyingValue();
+	}
+
+	@Rule
+	public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+	@Test
+	public void testPendingResultsUsedOnceByTheirRequest() throws IndeterminateEvaluationException, IOException
+	{
+		final TestBatchAttributeProvider provider = new TestBatchAttributeProvider(false);
+		try (CloseableNamedAttributeProviderRegistry registry = new CloseableNamedAttributeProviderRegistry(List.of(newFactory(provider)), ATTRIBUTE_VALUE_FACTORIES, false))
+		{
+			final NamedAttributeProvider registeredProvider = registry.getProviders(ROLE).get(0);
+			final EvaluationContext carolContext = newContext("carol");
+			carolContext.putNamedAttributeValue(ROLE, Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue("carol-request"), AttributeSources.PDP), false);
+			final List<EvaluationContext> contexts = List.of(newContext("alice"), newContext("bob"), carolContext, newContext("dave"));
+			final EvaluationContext mdpContext = newMdpContext();
+			registry.beginIndividualDecisionRequests(contexts, mdpContext);
+
+			// batch for this request and the following ones without the attribute in context, in order
+			Assert.assertEquals("bob-batch", getRole(registeredProvider, contexts.get(1), mdpContext));
+			Assert.assertEquals(List.of(List.of("bob", "dave")), provider.getAllSubjectIds);
+			Assert.assertEquals("dave-batch", getRole(registeredProvider, contexts.get(3), mdpContext));
+			Assert.assertEquals(0, provider.getCount.get());
+
+			// not part of the batch (preceding request)
+			Assert.assertEquals("alice-get", getRole(registeredProvider, contexts.get(0), mdpContext));
+			Assert.assertEquals(1, provider.getCount.get());
+
+			// pending result already used
+			Assert.assertEquals("dave-get", getRole(registeredProvider, contexts.get(3), mdpContext));
+			Assert.assertEquals(2, provider.getCount.get());
+			Assert.assertEquals(1, provider.getAllSubjectIds.size());
+		}
+	}
+
+	@Test
+	public void testFallbackToGetOnBatchError() throws IndeterminateEvaluationException, IOException
+	{
+		final TestBatchAttributeProvider provider = new TestBatchAttributeProvider(true);
+		try (CloseableNamedAttributeProviderRegistry registry = new CloseableNamedAttributeProviderRegistry(List.of(newFactory(provider)), ATTRIBUTE_VALUE_FACTORIES, false))
+		{
+			final NamedAttributeProvider registeredProvider = registry.getProviders(ROLE).get(0);
+			final List<EvaluationContext> contexts = List.of(newContext("alice"), newContext("bob"));
+			final EvaluationContext mdpContext = newMdpContext();
+			registry.beginIndividualDecisionRequests(contexts, mdpContext);
+			Assert.assertEquals("alice-get", getRole(registeredProvider, contexts.get(0), mdpContext));
+			Assert.assertEquals("bob-get", getRole(registeredProvider, contexts.get(1), mdpContext));
+			// the failed batch is not retried
+			Assert.assertEquals(1, provider.getAllSubjectIds.size());
+			Assert.assertEquals(2, provider.getCount.get());
+		}
+	}
+
+	@Test
+	public void testBatchWithTimeLimitedProvider() throws IndeterminateEvaluationException, IOException
+	{
+		final TestBatchAttributeProvider provider = new TestBatchAttributeProvider(false);
+		final ExecutorService executor = TimeLimitedNamedAttributeProvider.newExecutor(2);
+		try (CloseableNamedAttributeProviderRegistry registry = new CloseableNamedAttributeProviderRegistry(
+		        List.of(new TimeLimitedNamedAttributeProvider.Factory("test", newFactory(provider), executor, Duration.ofSeconds(10), Duration.ZERO)), ATTRIBUTE_VALUE_FACTORIES, false))
+		{
+			final NamedAttributeProvider registeredProvider = registry.getProviders(ROLE).get(0);
+			final List<EvaluationContext> contexts = List.of(newContext("alice"), newContext("bob"), newContext("carol"));
+			final EvaluationContext mdpContext = newMdpContext();
+			registry.beginIndividualDecisionRequests(contexts, mdpContext);
+
+			// the calls are made in worker threads with copies of the contexts, as many backend calls as without time limit
+			Assert.assertEquals("alice-batch", getRole(registeredProvider, contexts.get(0), mdpContext));
+			Assert.assertEquals("bob-batch", getRole(registeredProvider, contexts.get(1), mdpContext));
+			Assert.assertEquals("carol-batch", getRole(registeredProvider, contexts.get(2), mdpContext));
+			Assert.assertEquals(List.of(List.of("alice", "bob", "carol")), provider.getAllSubjectIds);
+			Assert.assertEquals(0, provider.getCount.get());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testEngineBeginsAllRequestsBeforeBatch() throws IOException, IndeterminateEvaluationException
+	{
+		final Path policyFile = tmpDir.getRoot().toPath().resolve("policy.xml");
+		Files.writeString(policyFile, "<Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"P1\" Version=\"1.0\" "
+		        + "RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-unless-permit\"><Target/><Rule RuleId=\"rule1\" Effect=\"Permit\"><Target><AnyOf><AllOf>"
+		        + "<Match MatchId=\"urn:oasis:names:tc:xacml:1.0:function:string-equal\"><AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">alice-batch</AttributeValue>"
+		        + "<AttributeDesignator Category=\"" + SUBJECT_CATEGORY + "\" AttributeId=\"role\" DataType=\"http://www.w3.org/2001/XMLSchema#string\" MustBePresent=\"false\"/>"
+		        + "</Match></AllOf></AnyOf></Target></Rule></Policy>", StandardCharsets.UTF_8);
+		final StaticPolicyProvider policyProviderConf = new StaticPolicyProvider(List.of(policyFile.toUri().toString()), false, null, null, null, null);
+		policyProviderConf.setId("test");
+
+		final TestBatchAttributeProvider provider = new TestBatchAttributeProvider(false);
+		final CloseableNamedAttributeProviderRegistry registry = new CloseableNamedAttributeProviderRegistry(List.of(newFactory(provider)), ATTRIBUTE_VALUE_FACTORIES, false);
+		final DepthLimitingExpressionFactory expressionFactory = new DepthLimitingExpressionFactory(ATTRIBUTE_VALUE_FACTORIES,
+		        StandardFunction.getRegistry(false, StandardAttributeValueFactories.BIG_INTEGER), 0, false, false, Optional.of(registry));
+		final CloseablePolicyProvider<?> policyProvider = new CoreStaticPolicyProvider.Factory().getInstance(policyProviderConf, XacmlJaxbParsingUtils.getXacmlParserFactory(false), -1,
+		        expressionFactory, StandardCombiningAlgorithm.REGISTRY, new DefaultEnvironmentProperties(), Optional.empty());
+		try (BasePdpEngine engine = new BasePdpEngine(policyProvider, Optional.of(TopLevelPolicyElementType.POLICY), "P1", Optional.empty(), false, Optional.of(registry), Optional.empty()))
+		{
+			final List<DecisionRequest> requests = new ArrayList<>();
+			for (final String subjectId : List.of("alice", "bob", "alice"))
+			{
+				final DecisionRequestBuilder<?> requestBuilder = engine.newRequestBuilder(1, 1);
+				requestBuilder.putNamedAttributeIfAbsent(AttributeFqns.newInstance(SUBJECT_ID), Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(subjectId), AttributeSources.PDP));
+				requests.add(requestBuilder.build(false));
+			}
+
+			final Collection<Entry<DecisionRequest, ? extends DecisionResult>> results = engine.evaluate(requests, newMdpContext());
+			// results in request order
+			Assert.assertEquals(requests, results.stream().map(Entry::getKey).toList());
+			Assert.assertEquals(List.of(DecisionType.PERMIT, DecisionType.DENY, DecisionType.PERMIT), results.stream().map(result -> result.getValue().getDecision()).toList());
+
+			// resolved in a single batch, after all the requests have begun
+			Assert.assertEquals(List.of(List.of("alice", "bob", "alice")), provider.getAllSubjectIds);
+			Assert.assertEquals(0, provider.getCount.get());
+			Assert.assertEquals(3, provider.begunContexts.size());
+			Assert.assertTrue(provider.allBegunBeforeGetAll);
+		}
+		finally
+		{
+			policyProvider.close();
+		}
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import com.google.common.collect.ImmutableMap;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.value.*;
+import org.ow2.authzforce.core.pdp.impl.*;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link CachingNamedAttributeProvider}
+ */
+public class CachingNamedAttributeProviderTest
+{
+	private static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+	private static final AttributeDesignatorType SUBJECT_ID = new AttributeDesignatorType(SUBJECT_CATEGORY, "urn:oasis:names:tc:xacml:1.0:subject:subject-id", StandardDatatypes.STRING.getId(), null,
+	        false);
+	private static final AttributeDesignatorType ROLE_DESIGNATOR = new AttributeDesignatorType(SUBJECT_CATEGORY, "role", StandardDatatypes.STRING.getId(), null, false);
+	private static final AttributeFqn ROLE = AttributeFqns.newInstance(ROLE_DESIGNATOR);
+	private static final AttributeFqn DEPARTMENT = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "department");
+
+	private static final AttributeValueFactoryRegistry ATTRIBUTE_VALUE_FACTORIES = StandardAttributeValueFactories.getRegistry(false, Optional.empty());
+
+	/*
+	 * Provides the subject-id from the request context
+	 */
+	private static final NamedAttributeProvider REQUEST_ATTRIBUTE_PROVIDER = new NamedAttributeProvider()
+	{
+		@Override
+		public Set<AttributeDesignatorType> getProvidedAttributes()
+		{
+			return Set.of(SUBJECT_ID);
+		}
+
+		@Override
+		public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context,
+		        final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			final AttributeBag<AV> bag = context.getNamedAttributeValue(attributeFqn, datatype);
+			return bag == null ? Bags.emptyAttributeBag(datatype, null) : bag;
+		}
+	};
+
+	/*
+	 * Provides the role "<subject-id>-<call count>" of the subject, counting the calls
+	 */
+	private static class CountingAttributeProvider extends BaseNamedAttributeProvider
+	{
+		protected final AtomicInteger getCount = new AtomicInteger();
+		protected final AtomicInteger closeCount = new AtomicInteger();
+		private volatile RuntimeException runtimeError = null;
+		private volatile boolean indeterminate = false;
+
+		private CountingAttributeProvider()
+		{
+			super("test");
+		}
+
+		@Override
+		public Set<AttributeDesignatorType> getProvidedAttributes()
+		{
+			return Set.of(ROLE_DESIGNATOR);
+		}
+
+		protected static String getSubjectId(final EvaluationContext context) throws IndeterminateEvaluationException
+		{
+			return context.getNamedAttributeValue(AttributeFqns.newInstance(SUBJECT_ID), StandardDatatypes.STRING).getSingleElement().getUnderlyingValue();
+		}
+
+		@Override
+		public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context,
+		        final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			final int count = getCount.incrementAndGet();
+			if (runtimeError != null)
+			{
+				throw runtimeError;
+			}
+
+			if (indeterminate)
+			{
+				throw new IndeterminateEvaluationException("Test error", XacmlStatusCode.PROCESSING_ERROR.value());
+			}
+
+			return (AttributeBag<AV>) Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(getSubjectId(context) + "-" + count), AttributeSources.PDP);
+		}
+
+		@Override
+		public void close()
+		{
+			closeCount.incrementAndGet();
+		}
+	}
+
+	private static final class CountingBatchAttributeProvider extends CountingAttributeProvider implements BatchNamedAttributeProvider
+	{
+		private final AtomicInteger getAllCount = new AtomicInteger();
+
+		@Override
+		public <AV extends AttributeValue> List<AttributeBag<AV>> getAll(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final List<EvaluationContext> contexts,
+		        final EvaluationContext mdpContext) throws IndeterminateEvaluationException
+		{
+			getAllCount.incrementAndGet();
+			final List<AttributeBag<AV>> bags = new ArrayList<>(contexts.size());
+			for (final EvaluationContext context : contexts)
+			{
+				bags.add((AttributeBag<AV>) Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(getSubjectId(context) + "-batch"), AttributeSources.PDP));
+			}
+
+			return bags;
+		}
+	}
+
+	/*
+	 * Category-wide provider of the subject category
+	 */
+	private static final class CountingCategoryBulkAttributeProvider extends CountingAttributeProvider implements CategoryBulkNamedAttributeProvider
+	{
+		private final AtomicInteger getAllCount = new AtomicInteger();
+
+		@Override
+		public Set<AttributeDesignatorType> getProvidedAttributes()
+		{
+			return Set.of(new AttributeDesignatorType(SUBJECT_CATEGORY, null, StandardDatatypes.STRING.getId(), null, false));
+		}
+
+		@Override
+		public Map<AttributeFqn, AttributeBag<?>> getAll(final String category, final EvaluationContext context, final Optional<EvaluationContext> mdpContext)
+		        throws IndeterminateEvaluationException
+		{
+			getAllCount.incrementAndGet();
+			return Map.of(ROLE, Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(getSubjectId(context) + "-bulk"), AttributeSources.PDP), DEPARTMENT,
+			        Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue("it"), AttributeSources.PDP));
+		}
+	}
+
+	private static CachingNamedAttributeProvider.Factory newCachingFactory(final CountingAttributeProvider provider, final Duration ttl, final Duration staleWhileRevalidate)
+	{
+		return new CachingNamedAttributeProvider.Factory("test", new CloseableNamedAttributeProvider.DependencyAwareFactory()
+		{
+			@Override
+			public Set<AttributeDesignatorType> getDependencies()
+			{
+				return Set.of(SUBJECT_ID);
+			}
+
+			@Override
+			public CloseableNamedAttributeProvider getInstance(final AttributeValueFactoryRegistry attributeValueFactoryRegistry, final NamedAttributeProvider dependencyAttributeProvider)
+			{
+				return provider;
+			}
+		}, ttl, staleWhileRevalidate, 100);
+	}
+
+	private static EvaluationContext newContext(final String subjectId)
+	{
+		return new IndividualDecisionRequestContext(Map.of(AttributeFqns.newInstance(SUBJECT_ID), Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(subjectId), AttributeSources.PDP)),
+		        ImmutableMap.of(), false, Optional.empty());
+	}
+
+	private static String getRole(final NamedAttributeProvider provider, final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+	{
+		return provider.get(ROLE, StandardDatatypes.STRING, context, mdpContext).getSingleElement().getUnderlyingValue();
+	}
+
+	@Test
+	public void testCachedPerDependencyValues() throws IndeterminateEvaluationException, IOException
+	{
+		final CountingAttributeProvider provider = new CountingAttributeProvider();
+		try (CloseableNamedAttributeProvider cachingProvider = newCachingFactory(provider, Duration.ofHours(1), Duration.ZERO).getInstance(ATTRIBUTE_VALUE_FACTORIES,
+		        REQUEST_ATTRIBUTE_PROVIDER))
+		{
+			Assert.assertEquals("alice-1", getRole(cachingProvider, newContext("alice"), Optional.empty()));
+			Assert.assertEquals("alice-1", getRole(cachingProvider, newContext("alice"), Optional.empty()));
+			Assert.assertEquals("bob-2", getRole(cachingProvider, newContext("bob"), Optional.empty()));
+			Assert.assertEquals(2, provider.getCount.get());
+		}
+
+		Assert.assertEquals(1, provider.closeCount.get());
+	}
+
+	@Test
+	public void testStaleWhileRevalidate() throws IndeterminateEvaluationException, IOException, InterruptedException
+	{
+		final Duration ttl = Duration.ofMillis(100);
+		final CountingAttributeProvider provider = new CountingAttributeProvider();
+		try (CloseableNamedAttributeProvider cachingProvider = newCachingFactory(provider, ttl, Duration.ofHours(1)).getInstance(ATTRIBUTE_VALUE_FACTORIES, REQUEST_ATTRIBUTE_PROVIDER))
+		{
+			Assert.assertEquals("alice-1", getRole(cachingProvider, newContext("alice"), Optional.empty()));
+
+			// stale, refresh failing: stale value used
+			Thread.sleep(ttl.multipliedBy(2).toMillis());
+			provider.indeterminate = true;
+			Assert.assertEquals("alice-1", getRole(cachingProvider, newContext("alice"), Optional.empty()));
+			Assert.assertEquals(2, provider.getCount.get());
+
+			// refresh failing with unchecked exception: propagated, the next request refreshes again
+			provider.indeterminate = false;
+			provider.runtimeError = new IllegalStateException("Test error");
+			Assert.assertThrows(IllegalStateException.class, () -> getRole(cachingProvider, newContext("alice"), Optional.empty()));
+			provider.runtimeError = null;
+			Assert.assertEquals("alice-4", getRole(cachingProvider, newContext("alice"), Optional.empty()));
+
+			// fresh again
+			Assert.assertEquals("alice-4", getRole(cachingProvider, newContext("alice"), Optional.empty()));
+			Assert.assertEquals(4, provider.getCount.get());
+		}
+	}
+
+	@Test
+	public void testBatchProviderNotHidden() throws IndeterminateEvaluationException, IOException
+	{
+		final CountingBatchAttributeProvider provider = new CountingBatchAttributeProvider();
+		try (CloseableNamedAttributeProviderRegistry registry = new CloseableNamedAttributeProviderRegistry(List.of(newCachingFactory(provider, Duration.ofHours(1), Duration.ZERO)),
+		        ATTRIBUTE_VALUE_FACTORIES, false))
+		{
+			final NamedAttributeProvider registeredProvider = registry.getProviders(ROLE).get(0);
+			final List<EvaluationContext> contexts = List.of(newContext("alice"), newContext("bob"));
+			final EvaluationContext mdpContext = new IndividualDecisionRequestContext(Map.of(), ImmutableMap.of(), false, Optional.empty());
+			registry.beginIndividualDecisionRequests(contexts, mdpContext);
+			Assert.assertEquals("alice-batch", getRole(registeredProvider, contexts.get(0), Optional.of(mdpContext)));
+			Assert.assertEquals("bob-batch", getRole(registeredProvider, contexts.get(1), Optional.of(mdpContext)));
+			Assert.assertEquals(1, provider.getAllCount.get());
+			Assert.assertEquals(0, provider.getCount.get());
+
+			// cached across requests
+			Assert.assertEquals("alice-batch", getRole(registeredProvider, newContext("alice"), Optional.empty()));
+			Assert.assertEquals(1, provider.getAllCount.get());
+			Assert.assertEquals(0, provider.getCount.get());
+		}
+
+		Assert.assertEquals(1, provider.closeCount.get());
+	}
+
+	@Test
+	public void testCategoryBulkProviderNotHidden() throws IndeterminateEvaluationException, IOException
+	{
+		final CountingCategoryBulkAttributeProvider provider = new CountingCategoryBulkAttributeProvider();
+		try (CloseableNamedAttributeProviderRegistry registry = new CloseableNamedAttributeProviderRegistry(List.of(newCachingFactory(provider, Duration.ofHours(1), Duration.ZERO)),
+		        ATTRIBUTE_VALUE_FACTORIES, false))
+		{
+			final NamedAttributeProvider registeredProvider = registry.getProviders(ROLE).get(0);
+			final EvaluationContext context = newContext("alice");
+			Assert.assertEquals("alice-bulk", getRole(registeredProvider, context, Optional.empty()));
+			// the other attributes of the category fetched at the same time
+			Assert.assertEquals(new StringValue("it"), context.getNamedAttributeValue(DEPARTMENT, StandardDatatypes.STRING).getSingleElement());
+			Assert.assertEquals(1, provider.getAllCount.get());
+			Assert.assertEquals(0, provider.getCount.get());
+
+			// cached across requests
+			Assert.assertEquals("alice-bulk", getRole(registeredProvider, newContext("alice"), Optional.empty()));
+			Assert.assertEquals(1, provider.getAllCount.get());
+		}
+
+		Assert.assertEquals(1, provider.closeCount.get());
+	}
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import com.google.common.collect.ImmutableMap;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.value.*;
+import org.ow2.authzforce.core.pdp.impl.*;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests category-wide bulk attribute fetching with {@link CategoryBulkNamedAttributeProvider}s
+ */
+public class CategoryBulkNamedAttributeProviderTest
+{
+	private static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+	private static final AttributeFqn SUBJECT_ID = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "urn:oasis:names:tc:xacml:1.0:subject:subject-id");
+	private static final AttributeFqn ROLE = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "role");
+	private static final AttributeFqn DEPARTMENT = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "department");
+	private static final AttributeFqn UNKNOWN = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "unknown");
+
+	private static final AttributeValueFactoryRegistry ATTRIBUTE_VALUE_FACTORIES = StandardAttributeValueFactories.getRegistry(false, Optional.empty());
+
+	/*
+	 * Category-wide provider of the subject category, providing the role "<subject-id>-<source>" and the department, counting the calls
+	 */
+	private static class CategoryWideAttributeProvider extends BaseNamedAttributeProvider
+	{
+		protected final AtomicInteger getCount = new AtomicInteger();
+		protected volatile boolean indeterminate = false;
+
+		private CategoryWideAttributeProvider()
+		{
+			super("test");
+		}
+
+		@Override
+		public Set<AttributeDesignatorType> getProvidedAttributes()
+		{
+			return Set.of(new AttributeDesignatorType(SUBJECT_CATEGORY, null, StandardDatatypes.STRING.getId(), null, false));
+		}
+
+		protected static String getSubjectId(final EvaluationContext context) throws IndeterminateEvaluationException
+		{
+			return context.getNamedAttributeValue(SUBJECT_ID, StandardDatatypes.STRING).getSingleElement().getUnderlyingValue();
+		}
+
+		protected final Map<AttributeFqn, AttributeBag<?>> getRecord(final EvaluationContext context, final String source) throws IndeterminateEvaluationException
+		{
+			if (indeterminate)
+			{
+				throw new IndeterminateEvaluationException("Test error", XacmlStatusCode.PROCESSING_ERROR.value());
+			}
+
+			return Map.of(ROLE, Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(getSubjectId(context) + "-" + source), AttributeSources.PDP), DEPARTMENT,
+			        Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue("it"), AttributeSources.PDP));
+		}
+
+		@Override
+		public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context,
+		        final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			getCount.incrementAndGet();
+			final AttributeBag<?> bag = getRecord(context, "get").get(attributeFqn);
+			return bag == null ? Bags.emptyAttributeBag(datatype, null) : (AttributeBag<AV>) bag;
+		}
+
+		@Override
+		public void close()
+		{
+			// nothing to close
+		}
+	}
+
+	private static final class CategoryBulkAttributeProvider extends CategoryWideAttributeProvider implements CategoryBulkNamedAttributeProvider
+	{
+		private final AtomicInteger getAllCount = new AtomicInteger();
+
+		@Override
+		public Map<AttributeFqn, AttributeBag<?>> getAll(final String category, final EvaluationContext context, final Optional<EvaluationContext> mdpContext)
+		        throws IndeterminateEvaluationException
+		{
+			Assert.assertEquals(SUBJECT_CATEGORY, category);
+			getAllCount.incrementAndGet();
+			return getRecord(context, "bulk");
+		}
+	}
+
+	private static CloseableNamedAttributeProviderRegistry newRegistry(final CategoryWideAttributeProvider provider) throws IOException
+	{
+		return new CloseableNamedAttributeProviderRegistry(List.of(new CloseableNamedAttributeProvider.DependencyAwareFactory()
+		{
+			@Override
+			public Set<AttributeDesignatorType> getDependencies()
+			{
+				return Set.of();
+			}
+
+			@Override
+			public CloseableNamedAttributeProvider getInstance(final AttributeValueFactoryRegistry attributeValueFactoryRegistry, final NamedAttributeProvider dependencyAttributeProvider)
+			{
+				return provider;
+			}
+		}), ATTRIBUTE_VALUE_FACTORIES, false);
+	}
+
+	private static EvaluationContext newContext(final Map<AttributeFqn, AttributeBag<?>> extraAttributes)
+	{
+		final Map<AttributeFqn, AttributeBag<?>> attributes = new HashMap<>(extraAttributes);
+		attributes.put(SUBJECT_ID, Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue("alice"), AttributeSources.PDP));
+		return new IndividualDecisionRequestContext(attributes, ImmutableMap.of(), false, Optional.empty());
+	}
+
+	private static <AV extends AttributeValue> AttributeBag<AV> get(final CloseableNamedAttributeProviderRegistry registry, final AttributeFqn attributeFqn, final Datatype<AV> datatype,
+	        final EvaluationContext context) throws IndeterminateEvaluationException
+	{
+		final List<NamedAttributeProvider> providers = registry.getProviders(attributeFqn);
+		Assert.assertEquals(1, providers.size());
+		return providers.get(0).get(attributeFqn, datatype, context, Optional.empty());
+	}
+
+	private static String getString(final CloseableNamedAttributeProviderRegistry registry, final AttributeFqn attributeFqn, final EvaluationContext context)
+	        throws IndeterminateEvaluationException
+	{
+		return get(registry, attributeFqn, StandardDatatypes.STRING, context).getSingleElement().getUnderlyingValue();
+	}
+
+	@Test
+	public void testAllAttributesFetchedOnce() throws IndeterminateEvaluationException, IOException
+	{
+		final CategoryBulkAttributeProvider provider = new CategoryBulkAttributeProvider();
+		try (CloseableNamedAttributeProviderRegistry registry = newRegistry(provider))
+		{
+			final EvaluationContext context = newContext(Map.of());
+			Assert.assertEquals("alice-bulk", getString(registry, ROLE, context));
+			// the other attributes of the category are put in the request context
+			Assert.assertEquals(new StringValue("it"), context.getNamedAttributeValue(DEPARTMENT, StandardDatatypes.STRING).getSingleElement());
+			Assert.assertEquals("it", getString(registry, DEPARTMENT, context));
+			Assert.assertEquals(1, provider.getAllCount.get());
+			Assert.assertEquals(0, provider.getCount.get());
+
+			// fetched again for another request
+			Assert.assertEquals("alice-bulk", getString(registry, ROLE, newContext(Map.of())));
+			Assert.assertEquals(2, provider.getAllCount.get());
+		}
+	}
+
+	@Test
+	public void testUnknownAttributeEmpty() throws IndeterminateEvaluationException, IOException
+	{
+		final CategoryBulkAttributeProvider provider = new CategoryBulkAttributeProvider();
+		try (CloseableNamedAttributeProviderRegistry registry = newRegistry(provider))
+		{
+			final EvaluationContext context = newContext(Map.of());
+			Assert.assertTrue(get(registry, UNKNOWN, StandardDatatypes.STRING, context).isEmpty());
+			Assert.assertEquals("alice-bulk", getString(registry, ROLE, context));
+			Assert.assertEquals(1, provider.getAllCount.get());
+			Assert.assertEquals(0, provider.getCount.get());
+		}
+	}
+
+	@Test
+	public void testDatatypeMismatch() throws IOException
+	{
+		final CategoryBulkAttributeProvider provider = new CategoryBulkAttributeProvider();
+		try (CloseableNamedAttributeProviderRegistry registry = newRegistry(provider))
+		{
+			final IndeterminateEvaluationException error = Assert.assertThrows(IndeterminateEvaluationException.class,
+			        () -> get(registry, ROLE, StandardDatatypes.INTEGER, newContext(Map.of())));
+			Assert.assertEquals(XacmlStatusCode.SYNTAX_ERROR.value(), error.getTopLevelStatus().getStatusCode().getValue());
+		}
+	}
+
+	@Test
+	public void testContextAttributesNotOverridden() throws IndeterminateEvaluationException, IOException
+	{
+		final CategoryBulkAttributeProvider provider = new CategoryBulkAttributeProvider();
+		try (CloseableNamedAttributeProviderRegistry registry = newRegistry(provider))
+		{
+			final EvaluationContext context = newContext(Map.of(DEPARTMENT, Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue("hr"), AttributeSources.PDP)));
+			Assert.assertEquals("alice-bulk", getString(registry, ROLE, context));
+			Assert.assertEquals(new StringValue("hr"), context.getNamedAttributeValue(DEPARTMENT, StandardDatatypes.STRING).getSingleElement());
+		}
+	}
+
+	@Test
+	public void testFetchErrorNotRetriedForSameRequest() throws IndeterminateEvaluationException, IOException
+	{
+		final CategoryBulkAttributeProvider provider = new CategoryBulkAttributeProvider();
+		try (CloseableNamedAttributeProviderRegistry registry = newRegistry(provider))
+		{
+			provider.indeterminate = true;
+			final EvaluationContext context = newContext(Map.of());
+			final IndeterminateEvaluationException error = Assert.assertThrows(IndeterminateEvaluationException.class, () -> getString(registry, ROLE, context));
+			Assert.assertEquals(XacmlStatusCode.PROCESSING_ERROR.value(), error.getTopLevelStatus().getStatusCode().getValue());
+
+			// same error for the other attributes of the same request, without fetching again
+			provider.indeterminate = false;
+			Assert.assertSame(error, Assert.assertThrows(IndeterminateEvaluationException.class, () -> getString(registry, DEPARTMENT, context)));
+			Assert.assertEquals(1, provider.getAllCount.get());
+
+			// fetched again for another request
+			Assert.assertEquals("alice-bulk", getString(registry, ROLE, newContext(Map.of())));
+			Assert.assertEquals(2, provider.getAllCount.get());
+			Assert.assertEquals(0, provider.getCount.get());
+		}
+	}
+
+	@Test
+	public void testFallbackToGetWithoutBulkSupport() throws IndeterminateEvaluationException, IOException
+	{
+		final CategoryWideAttributeProvider provider = new CategoryWideAttributeProvider();
+		try (CloseableNamedAttributeProviderRegistry registry = newRegistry(provider))
+		{
+			final EvaluationContext context = newContext(Map.of());
+			Assert.assertSame(provider, registry.getProviders(ROLE).get(0));
+			Assert.assertEquals("alice-get", getString(registry, ROLE, context));
+			Assert.assertEquals("it", getString(registry, DEPARTMENT, context));
+			// one call per attribute, nothing else put in the request context
+			Assert.assertEquals(2, provider.getCount.get());
+			Assert.assertNull(context.getNamedAttributeValue(DEPARTMENT, StandardDatatypes.STRING));
+		}
+	}
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import com.google.common.collect.ImmutableMap;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.value.*;
+import org.ow2.authzforce.core.pdp.impl.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Tests concurrent calls to the {@link ConcurrentNamedAttributeProvider}s of the same attribute (see {@link CloseableNamedAttributeProviderRegistry#getCompositeProviderExecutor()})
+ */
+public class ConcurrentNamedAttributeProviderTest
+{
+	private static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+	private static final AttributeDesignatorType DEPARTMENT_DESIGNATOR = new AttributeDesignatorType(SUBJECT_CATEGORY, "department", StandardDatatypes.STRING.getId(), null, false);
+	private static final AttributeDesignatorType ROLE_DESIGNATOR = new AttributeDesignatorType(SUBJECT_CATEGORY, "role", StandardDatatypes.STRING.getId(), null, false);
+	private static final AttributeDesignatorType PERMISSION_DESIGNATOR = new AttributeDesignatorType(SUBJECT_CATEGORY, "permission", StandardDatatypes.STRING.getId(), null, false);
+	private static final AttributeFqn DEPARTMENT = AttributeFqns.newInstance(DEPARTMENT_DESIGNATOR);
+	private static final AttributeFqn PERMISSION = AttributeFqns.newInstance(PERMISSION_DESIGNATOR);
+
+	private static final AttributeValueFactoryRegistry ATTRIBUTE_VALUE_FACTORIES = StandardAttributeValueFactories.getRegistry(false, Optional.empty());
+
+	private static final long MAX_WAIT_MILLIS = 5_000;
+
+	/*
+	 * Provides the value "<name>" if no dependency, else "<name>:<dependency value>" for each value of the dependency attribute, recording the thread and context of the last call
+	 */
+	private static class TestAttributeProvider extends BaseNamedAttributeProvider
+	{
+		private final String name;
+		private final AttributeDesignatorType providedAttribute;
+		private final Optional<AttributeDesignatorType> dependency;
+		private final NamedAttributeProvider dependencyAttributeProvider;
+		private final CountDownLatch concurrentCallLatch;
+		private volatile Thread callingThread = null;
+		private volatile EvaluationContext callContext = null;
+		private volatile boolean calledConcurrently = false;
+
+		private TestAttributeProvider(final String name, final AttributeDesignatorType providedAttribute, final Optional<AttributeDesignatorType> dependency,
+		        final NamedAttributeProvider dependencyAttributeProvider, final CountDownLatch concurrentCallLatch)
+		{
+			super(name);
+			this.name = name;
+			this.providedAttribute = providedAttribute;
+			this.dependency = dependency;
+			this.dependencyAttributeProvider = dependencyAttributeProvider;
+			this.concurrentCallLatch = concurrentCallLatch;
+		}
+
+		@Override
+		public Set<AttributeDesignatorType> getProvidedAttributes()
+		{
+			return Set.of(providedAttribute);
+		}
+
+		@Override
+		public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context,
+		        final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			callingThread = Thread.currentThread();
+			callContext = context;
+			if (concurrentCallLatch != null)
+			{
+				// wait for the other providers to be called
+				concurrentCallLatch.countDown();
+				try
+				{
+					calledConcurrently = concurrentCallLatch.await(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+				}
+				catch (final InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+
+			final List<StringValue> values = new ArrayList<>();
+			if (dependency.isEmpty())
+			{
+				values.add(new StringValue(name));
+			}
+			else
+			{
+				for (final StringValue dependencyValue : dependencyAttributeProvider.get(AttributeFqns.newInstance(dependency.get()), StandardDatatypes.STRING, context, mdpContext).elements())
+				{
+					values.add(new StringValue(name + ":" + dependencyValue.getUnderlyingValue()));
+				}
+			}
+
+			return (AttributeBag<AV>) Bags.newAttributeBag(StandardDatatypes.STRING, values, AttributeSources.PDP);
+		}
+
+		@Override
+		public void close()
+		{
+			// nothing to close
+		}
+	}
+
+	private static final class ConcurrentTestAttributeProvider extends TestAttributeProvider implements ConcurrentNamedAttributeProvider
+	{
+		private ConcurrentTestAttributeProvider(final String name, final AttributeDesignatorType providedAttribute, final Optional<AttributeDesignatorType> dependency,
+		        final NamedAttributeProvider dependencyAttributeProvider, final CountDownLatch concurrentCallLatch)
+		{
+			super(name, providedAttribute, dependency, dependencyAttributeProvider, concurrentCallLatch);
+		}
+	}
+
+	/*
+	 * Factory of a provider that is created with the dependency attribute provider, and kept in providers
+	 */
+	private static CloseableNamedAttributeProvider.DependencyAwareFactory newFactory(final Optional<AttributeDesignatorType> dependency,
+	        final Function<NamedAttributeProvider, TestAttributeProvider> providerCreator, final List<TestAttributeProvider> providers)
+	{
+		return new CloseableNamedAttributeProvider.DependencyAwareFactory()
+		{
+			@Override
+			public Set<AttributeDesignatorType> getDependencies()
+			{
+				return dependency.map(Set::of).orElse(Set.of());
+			}
+
+			@Override
+			public CloseableNamedAttributeProvider getInstance(final AttributeValueFactoryRegistry attributeValueFactoryRegistry, final NamedAttributeProvider dependencyAttributeProvider)
+			{
+				final TestAttributeProvider provider = providerCreator.apply(dependencyAttributeProvider);
+				providers.add(provider);
+				return provider;
+			}
+		};
+	}
+
+	private static EvaluationContext newContext()
+	{
+		return new IndividualDecisionRequestContext(Map.of(), ImmutableMap.of(), false, Optional.empty());
+	}
+
+	private static List<String> getValues(final AttributeBag<StringValue> bag)
+	{
+		final Collection<StringValue> values = bag.elements();
+		return values.stream().map(StringValue::getUnderlyingValue).toList();
+	}
+
+	/*
+	 * Gets the permission from the provider depending on the roles provided by the role providers, called through the dependency attribute provider
+	 */
+	private static List<String> getPermissions(final CloseableNamedAttributeProviderRegistry registry, final EvaluationContext context) throws IndeterminateEvaluationException
+	{
+		return getValues(registry.getProviders(PERMISSION).get(0).get(PERMISSION, StandardDatatypes.STRING, context, Optional.empty()));
+	}
+
+	@Test
+	public void testConcurrentProvidersCalledConcurrently() throws IndeterminateEvaluationException, IOException
+	{
+		final CountDownLatch concurrentCallLatch = new CountDownLatch(2);
+		final List<TestAttributeProvider> providers = new ArrayList<>();
+		final EvaluationContext context = newContext();
+		try (CloseableNamedAttributeProviderRegistry registry = new CloseableNamedAttributeProviderRegistry(List.of(
+		        newFactory(Optional.empty(), depProvider -> new ConcurrentTestAttributeProvider("r1", ROLE_DESIGNATOR, Optional.empty(), depProvider, concurrentCallLatch), providers),
+		        newFactory(Optional.empty(), depProvider -> new ConcurrentTestAttributeProvider("r2", ROLE_DESIGNATOR, Optional.empty(), depProvider, concurrentCallLatch), providers),
+		        newFactory(Optional.of(ROLE_DESIGNATOR), depProvider -> new TestAttributeProvider("p", PERMISSION_DESIGNATOR, Optional.of(ROLE_DESIGNATOR), depProvider, null), providers)),
+		        ATTRIBUTE_VALUE_FACTORIES, false, Duration.ZERO, Optional.of(Executors.newFixedThreadPool(2))))
+		{
+			// results merged in provider order
+			Assert.assertEquals(List.of("p:r1", "p:r2"), getPermissions(registry, context));
+			for (final TestAttributeProvider roleProvider : providers.subList(0, 2))
+			{
+				Assert.assertTrue(roleProvider.calledConcurrently);
+				// with a copy of the request context
+				Assert.assertNotSame(context, roleProvider.callContext);
+			}
+		}
+	}
+
+	@Test
+	public void testNonConcurrentProviderCalledInRequestThread() throws IndeterminateEvaluationException, IOException
+	{
+		final List<TestAttributeProvider> providers = new ArrayList<>();
+		final EvaluationContext context = newContext();
+		try (CloseableNamedAttributeProviderRegistry registry = new CloseableNamedAttributeProviderRegistry(List.of(
+		        newFactory(Optional.empty(), depProvider -> new TestAttributeProvider("r1", ROLE_DESIGNATOR, Optional.empty(), depProvider, null), providers),
+		        newFactory(Optional.empty(), depProvider -> new ConcurrentTestAttributeProvider("r2", ROLE_DESIGNATOR, Optional.empty(), depProvider, null), providers),
+		        newFactory(Optional.of(ROLE_DESIGNATOR), depProvider -> new TestAttributeProvider("p", PERMISSION_DESIGNATOR, Optional.of(ROLE_DESIGNATOR), depProvider, null), providers)),
+		        ATTRIBUTE_VALUE_FACTORIES, false, Duration.ZERO, Optional.of(Executors.newFixedThreadPool(2))))
+		{
+			Assert.assertEquals(List.of("p:r1", "p:r2"), getPermissions(registry, context));
+			Assert.assertSame(Thread.currentThread(), providers.get(0).callingThread);
+			Assert.assertSame(context, providers.get(0).callContext);
+			Assert.assertNotSame(context, providers.get(1).callContext);
+		}
+	}
+
+	@Test(timeout = 10_000)
+	public void testNestedConcurrentCallsWithSingleThread() throws IndeterminateEvaluationException, IOException
+	{
+		final List<TestAttributeProvider> providers = new ArrayList<>();
+		final EvaluationContext context = newContext();
+		/*
+		 * The role providers, called concurrently, depend on the department, provided by providers called concurrently as well, with the same single thread
+		 */
+		try (CloseableNamedAttributeProviderRegistry registry = new CloseableNamedAttributeProviderRegistry(List.of(
+		        newFactory(Optional.empty(), depProvider -> new ConcurrentTestAttributeProvider("d1", DEPARTMENT_DESIGNATOR, Optional.empty(), depProvider, null), providers),
+		        newFactory(Optional.empty(), depProvider -> new ConcurrentTestAttributeProvider("d2", DEPARTMENT_DESIGNATOR, Optional.empty(), depProvider, null), providers),
+		        newFactory(Optional.of(DEPARTMENT_DESIGNATOR), depProvider -> new ConcurrentTestAttributeProvider("r1", ROLE_DESIGNATOR, Optional.of(DEPARTMENT_DESIGNATOR), depProvider, null),
+		                providers),
+		        newFactory(Optional.of(DEPARTMENT_DESIGNATOR), depProvider -> new ConcurrentTestAttributeProvider("r2", ROLE_DESIGNATOR, Optional.of(DEPARTMENT_DESIGNATOR), depProvider, null),
+		                providers),
+		        newFactory(Optional.of(ROLE_DESIGNATOR), depProvider -> new TestAttributeProvider("p", PERMISSION_DESIGNATOR, Optional.of(ROLE_DESIGNATOR), depProvider, null), providers)),
+		        ATTRIBUTE_VALUE_FACTORIES, false, Duration.ZERO, Optional.of(Executors.newFixedThreadPool(1))))
+		{
+			Assert.assertEquals(List.of("p:r1:d1", "p:r1:d2", "p:r2:d1", "p:r2:d2"), getPermissions(registry, context));
+			// the department resolved with copies of the request context is put in the request context
+			Assert.assertEquals(List.of("d1", "d2"), getValues(context.getNamedAttributeValue(DEPARTMENT, StandardDatatypes.STRING)));
+		}
+	}
+}
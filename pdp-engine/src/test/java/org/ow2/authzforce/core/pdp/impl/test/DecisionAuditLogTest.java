@@ -0,0 +1,336 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import com.google.common.collect.ImmutableMap;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.value.*;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.DecisionAuditLog;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tests {@link DecisionAuditLog}
+ */
+public class DecisionAuditLogTest
+{
+	private static final DecisionRequest REQUEST = ImmutableDecisionRequest.getInstance(Map.of(), Map.of(), false);
+
+	private static final Pattern LATENCY_PATTERN = Pattern.compile("\"latencyNanos\":(\\d+)}$");
+	private static final Pattern REQUEST_DIGEST_PATTERN = Pattern.compile("\"requestDigest\":\"([0-9a-f]*)\"");
+
+	private static final AttributeFqn SUBJECT_ID = AttributeFqns.newInstance("urn:oasis:names:tc:xacml:1.0:subject-category:access-subject", Optional.empty(),
+	        "urn:oasis:names:tc:xacml:1.0:subject:subject-id");
+	private static final AttributeFqn RESOURCE_ID = AttributeFqns.newInstance("urn:oasis:names:tc:xacml:3.0:attribute-category:resource", Optional.empty(),
+	        "urn:oasis:names:tc:xacml:1.0:resource:resource-id");
+
+	@Rule
+	public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+	private static List<String> readLines(final Path file) throws IOException
+	{
+		return Files.readAllLines(file, StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testRecordedDecisionsWrittenInOrderOnClose() throws IOException
+	{
+		final Path file = tmpDir.getRoot().toPath().resolve("audit.log");
+		final DecisionAuditLog auditLog = new DecisionAuditLog(file, 16, 1_000_000, 1);
+		Assert.assertTrue(auditLog.record(REQUEST, DecisionResults.SIMPLE_PERMIT, 1000));
+		Assert.assertTrue(auditLog.record(REQUEST, DecisionResults.SIMPLE_DENY, 2000));
+		Assert.assertTrue(auditLog.record(REQUEST, DecisionResults.SIMPLE_NOT_APPLICABLE, 3000));
+		auditLog.close();
+
+		final List<String> lines = readLines(file);
+		Assert.assertEquals(3, lines.size());
+		Assert.assertTrue(lines.get(0).contains("\"decision\":\"Permit\"") && lines.get(0).endsWith("\"latencyNanos\":1000}"));
+		Assert.assertTrue(lines.get(1).contains("\"decision\":\"Deny\"") && lines.get(1).endsWith("\"latencyNanos\":2000}"));
+		Assert.assertTrue(lines.get(2).contains("\"decision\":\"NotApplicable\"") && lines.get(2).endsWith("\"latencyNanos\":3000}"));
+		Assert.assertEquals(0, auditLog.getDroppedCount());
+
+		// closed
+		Assert.assertFalse(auditLog.record(REQUEST, DecisionResults.SIMPLE_PERMIT, 1000));
+		Assert.assertEquals(1, auditLog.getDroppedCount());
+	}
+
+	@Test
+	public void testDroppedOnOverflow() throws IOException
+	{
+		final Path file = tmpDir.getRoot().toPath().resolve("audit.log");
+		final DecisionAuditLog auditLog = new DecisionAuditLog(file, 1, 1_000_000_000, 1);
+		final int recordCount = 10_000;
+		int recordedCount = 0;
+		for (int i = 0; i < recordCount; i++)
+		{
+			if (auditLog.record(REQUEST, DecisionResults.SIMPLE_PERMIT, i))
+			{
+				recordedCount++;
+			}
+		}
+
+		auditLog.close();
+		// a single slot cannot be written as fast as it is recorded
+		Assert.assertTrue(auditLog.getDroppedCount() > 0);
+		Assert.assertEquals(recordCount, recordedCount + auditLog.getDroppedCount());
+		Assert.assertEquals(recordedCount, readLines(file).size());
+	}
+
+	@Test
+	public void testRollOver() throws IOException
+	{
+		final Path file = tmpDir.getRoot().toPath().resolve("audit.log");
+		final long maxFileSize = 500;
+		final DecisionAuditLog auditLog = new DecisionAuditLog(file, 64, maxFileSize, 2);
+		for (int i = 0; i < 50; i++)
+		{
+			Assert.assertTrue(auditLog.record(REQUEST, DecisionResults.SIMPLE_PERMIT, i));
+		}
+
+		auditLog.close();
+		final Path backup1 = file.resolveSibling("audit.log.1");
+		final Path backup2 = file.resolveSibling("audit.log.2");
+		Assert.assertTrue(Files.exists(backup1));
+		Assert.assertTrue(Files.exists(backup2));
+		Assert.assertFalse(Files.exists(file.resolveSibling("audit.log.3")));
+		for (final Path f : List.of(file, backup1, backup2))
+		{
+			Assert.assertTrue(Files.size(f) <= maxFileSize);
+			for (final String line : readLines(f))
+			{
+				Assert.assertTrue(line.startsWith("{\"timestamp\":") && line.endsWith("}"));
+			}
+		}
+
+		// the latest decision is in the current file
+		final List<String> lines = readLines(file);
+		Assert.assertTrue(lines.get(lines.size() - 1).endsWith("\"latencyNanos\":49}"));
+	}
+
+	@Test
+	public void testWriteErrorCountedAndSkipped() throws IOException
+	{
+		final Path file = tmpDir.getRoot().toPath().resolve("audit.log");
+		/*
+		 * Invalid result (null decision) making the writer fail
+		 */
+		final DecisionResult invalidResult = (DecisionResult) Proxy.newProxyInstance(DecisionResult.class.getClassLoader(), new Class<?>[] { DecisionResult.class }, (proxy, method, args) -> null);
+		final DecisionAuditLog auditLog = new DecisionAuditLog(file, 16, 1_000_000, 1);
+		Assert.assertTrue(auditLog.record(REQUEST, invalidResult, 1000));
+		Assert.assertTrue(auditLog.record(REQUEST, DecisionResults.SIMPLE_DENY, 2000));
+		auditLog.close();
+
+		Assert.assertEquals(1, auditLog.getWriteErrorCount());
+		final List<String> lines = readLines(file);
+		Assert.assertEquals(1, lines.size());
+		Assert.assertTrue(lines.get(0).contains("\"decision\":\"Deny\""));
+	}
+
+	@Test
+	public void testFileOpenedAgainAfterIoError() throws IOException, InterruptedException
+	{
+		final Path file = tmpDir.getRoot().toPath().resolve("audit.log");
+		/*
+		 * Rollover on every decision, failing while the backup file cannot be deleted (non-empty directory)
+		 */
+		final Path backup = Files.createDirectory(file.resolveSibling("audit.log.1"));
+		final Path backupChild = Files.createFile(backup.resolve("child"));
+		final DecisionAuditLog auditLog = new DecisionAuditLog(file, 16, 1, 1);
+		Assert.assertTrue(auditLog.record(REQUEST, DecisionResults.SIMPLE_PERMIT, 1000));
+		Assert.assertTrue(auditLog.record(REQUEST, DecisionResults.SIMPLE_DENY, 2000));
+		final long deadline = System.currentTimeMillis() + 10_000;
+		while (auditLog.getWriteErrorCount() == 0 && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(10);
+		}
+
+		Assert.assertEquals(1, auditLog.getWriteErrorCount());
+
+		// I/O error fixed
+		Files.delete(backupChild);
+		Files.delete(backup);
+		Assert.assertTrue(auditLog.record(REQUEST, DecisionResults.SIMPLE_NOT_APPLICABLE, 3000));
+		auditLog.close();
+
+		Assert.assertEquals(1, auditLog.getWriteErrorCount());
+		final List<String> backupLines = readLines(backup);
+		Assert.assertEquals(1, backupLines.size());
+		Assert.assertTrue(backupLines.get(0).contains("\"decision\":\"Permit\""));
+		final List<String> lines = readLines(file);
+		Assert.assertEquals(1, lines.size());
+		Assert.assertTrue(lines.get(0).contains("\"decision\":\"NotApplicable\""));
+	}
+
+	private static DecisionRequest newRequest(final AttributeFqn attribute1, final AttributeBag<?> bag1, final AttributeFqn attribute2, final AttributeBag<?> bag2)
+	{
+		final Map<AttributeFqn, AttributeBag<?>> namedAttributes = new LinkedHashMap<>();
+		namedAttributes.put(attribute1, bag1);
+		namedAttributes.put(attribute2, bag2);
+		return ImmutableDecisionRequest.getInstance(namedAttributes, Map.of(), false);
+	}
+
+	private static AttributeBag<?> newBag(final String... values)
+	{
+		final List<StringValue> attributeValues = new ArrayList<>();
+		for (final String value : values)
+		{
+			attributeValues.add(new StringValue(value));
+		}
+
+		return Bags.newAttributeBag(StandardDatatypes.STRING, attributeValues, AttributeSources.PDP);
+	}
+
+	@Test
+	public void testRequestDigest() throws IOException
+	{
+		final Path file = tmpDir.getRoot().toPath().resolve("audit.log");
+		final DecisionAuditLog auditLog = new DecisionAuditLog(file, 16, 1_000_000, 1);
+		final List<DecisionRequest> requests = List.of(newRequest(SUBJECT_ID, newBag("alice"), RESOURCE_ID, newBag("doc1", "doc2")),
+		        // same attributes and values in a different order
+		        newRequest(RESOURCE_ID, newBag("doc2", "doc1"), SUBJECT_ID, newBag("alice")),
+		        // different value
+		        newRequest(SUBJECT_ID, newBag("bob"), RESOURCE_ID, newBag("doc1", "doc2")));
+		for (final DecisionRequest request : requests)
+		{
+			Assert.assertTrue(auditLog.record(request, DecisionResults.SIMPLE_PERMIT, 1000));
+		}
+
+		auditLog.close();
+
+		final List<String> digests = new ArrayList<>();
+		for (final String line : readLines(file))
+		{
+			final Matcher matcher = REQUEST_DIGEST_PATTERN.matcher(line);
+			Assert.assertTrue(matcher.find());
+			// SHA-256
+			Assert.assertEquals(64, matcher.group(1).length());
+			digests.add(matcher.group(1));
+		}
+
+		Assert.assertEquals(3, digests.size());
+		Assert.assertEquals(digests.get(0), digests.get(1));
+		Assert.assertNotEquals(digests.get(0), digests.get(2));
+	}
+
+	@Test
+	public void testNoRecordedDecisionLostOnConcurrentClose() throws IOException, InterruptedException
+	{
+		final Path file = tmpDir.getRoot().toPath().resolve("audit.log");
+		final DecisionAuditLog auditLog = new DecisionAuditLog(file, 1024, 1_000_000_000, 1);
+		final AtomicLong recordedCount = new AtomicLong();
+		final List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; i++)
+		{
+			final Thread thread = new Thread(() -> {
+				// record until closed, i.e. until the audit log drops decisions while the writer has nothing left to write
+				long droppedInARow = 0;
+				while (droppedInARow < 100_000)
+				{
+					if (auditLog.record(REQUEST, DecisionResults.SIMPLE_PERMIT, 1000))
+					{
+						recordedCount.incrementAndGet();
+						droppedInARow = 0;
+					}
+					else
+					{
+						droppedInARow++;
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+
+		Thread.sleep(50);
+		auditLog.close();
+		for (final Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		// every decision recorded successfully, before or during close, is written
+		Assert.assertEquals(recordedCount.get(), readLines(file).size());
+	}
+
+	@Test
+	public void testEngineRecordsEachIndividualDecisionLatency() throws IOException, IndeterminateEvaluationException
+	{
+		final Path policyFile = tmpDir.getRoot().toPath().resolve("policy.xml");
+		Files.writeString(policyFile, "<Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"P1\" Version=\"1.0\" "
+		        + "RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-unless-permit\"><Target/><Rule RuleId=\"rule1\" Effect=\"Permit\"><Target><AnyOf><AllOf>"
+		        + "<Match MatchId=\"urn:oasis:names:tc:xacml:1.0:function:string-equal\"><AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">alice</AttributeValue>"
+		        + "<AttributeDesignator Category=\"urn:oasis:names:tc:xacml:1.0:subject-category:access-subject\" AttributeId=\"urn:oasis:names:tc:xacml:1.0:subject:subject-id\" "
+		        + "DataType=\"http://www.w3.org/2001/XMLSchema#string\" MustBePresent=\"false\"/></Match></AllOf></AnyOf></Target></Rule></Policy>",
+		        StandardCharsets.UTF_8);
+		final Path confFile = tmpDir.getRoot().toPath().resolve("pdp.xml");
+		Files.writeString(confFile, "<pdp xmlns=\"http://authzforce.github.io/core/xmlns/pdp/8\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" version=\"8.1\">"
+		        + "<policyProvider id=\"policyProvider\" xsi:type=\"StaticPolicyProvider\"><policyLocation>${PARENT_DIR}/policy.xml</policyLocation></policyProvider></pdp>", StandardCharsets.UTF_8);
+		final Path file = tmpDir.getRoot().toPath().resolve("audit.log");
+		final PdpEngineConfiguration conf = PdpEngineConfiguration.getInstance(confFile.toString());
+		final DecisionAuditLog auditLog = new DecisionAuditLog(file, 16, 1_000_000, 1);
+		final long mdpElapsedNanos;
+		try
+		{
+			final BasePdpEngine engine = new BasePdpEngine(conf.withDecisionAuditLog(auditLog));
+			final List<DecisionRequest> requests = List.of(engine.newRequestBuilder(0, 0).build(false), engine.newRequestBuilder(0, 0).build(true));
+			final long startNanos = System.nanoTime();
+			final Collection<Entry<DecisionRequest, ? extends DecisionResult>> results = engine.evaluate(requests,
+			        new IndividualDecisionRequestContext(Map.of(), ImmutableMap.of(), false, Optional.empty()));
+			mdpElapsedNanos = System.nanoTime() - startNanos;
+			Assert.assertEquals(2, results.size());
+			Assert.assertEquals(DecisionType.DENY, engine.evaluate(REQUEST).getDecision());
+		}
+		finally
+		{
+			auditLog.close();
+			conf.getPolicyProvider().close();
+		}
+
+		final List<String> lines = readLines(file);
+		Assert.assertEquals(3, lines.size());
+		/*
+		 * Each Individual Decision of the Multiple Decision request is recorded with its own latency, not the total one
+		 */
+		long mdpRecordedNanos = 0;
+		for (final String line : lines.subList(0, 2))
+		{
+			final Matcher matcher = LATENCY_PATTERN.matcher(line);
+			Assert.assertTrue(matcher.find());
+			mdpRecordedNanos += Long.parseLong(matcher.group(1));
+		}
+
+		Assert.assertTrue(mdpRecordedNanos <= mdpElapsedNanos);
+	}
+}
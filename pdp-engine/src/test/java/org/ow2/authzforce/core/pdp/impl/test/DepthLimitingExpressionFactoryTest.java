@@ -0,0 +1,156 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeValueType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ObjectFactory;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.VariableDefinition;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.VariableReferenceType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.expression.BasicImmutableXPathCompilerProxy;
+import org.ow2.authzforce.core.pdp.api.expression.ConstantExpression;
+import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
+import org.ow2.authzforce.core.pdp.api.expression.XPathCompilerProxy;
+import org.ow2.authzforce.core.pdp.api.value.StandardAttributeValueFactories;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+import org.ow2.authzforce.xacml.identifiers.XPathVersion;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+/**
+ * Tests {@link DepthLimitingExpressionFactory} used by multiple threads, e.g. to instantiate policies in parallel, and its interning of constant AttributeValues
+ */
+public class DepthLimitingExpressionFactoryTest
+{
+	private static final ObjectFactory XACML_FACTORY = new ObjectFactory();
+	private static final String VARIABLE_ID = "var";
+
+	private static DepthLimitingExpressionFactory newXPathEnabledExpressionFactory()
+	{
+		return new DepthLimitingExpressionFactory(StandardAttributeValueFactories.getRegistry(true, Optional.empty()), StandardFunction.getRegistry(true, StandardAttributeValueFactories.BIG_INTEGER), 0,
+		        true, false, Optional.empty());
+	}
+
+	private static VariableDefinition newVariableDefinition(final String value)
+	{
+		return new VariableDefinition(XACML_FACTORY.createAttributeValue(new AttributeValueType(List.of(value), StandardDatatypes.STRING.getId(), Map.of())), VARIABLE_ID);
+	}
+
+	/**
+	 * Each thread defines a variable with the same VariableId as the others (like policies with the same VariableIds instantiated in parallel): each must resolve it to its own definition
+	 */
+	@Test
+	public void testVariablesPerThread() throws InterruptedException, ExecutionException
+	{
+		final ExpressionFactory expressionFactory = new DepthLimitingExpressionFactory(StandardAttributeValueFactories.getRegistry(false, Optional.empty()),
+		        StandardFunction.getRegistry(false, StandardAttributeValueFactories.BIG_INTEGER), 0, false, false, Optional.empty());
+		final VariableReferenceType varRef = new VariableReferenceType(VARIABLE_ID);
+
+		final int threadCount = 8;
+		// make sure all variables are defined at the same time
+		final CyclicBarrier barrier = new CyclicBarrier(threadCount);
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try
+		{
+			final List<Future<?>> futures = new ArrayList<>(threadCount);
+			for (int i = 0; i < threadCount; i++)
+			{
+				final StringValue expectedValue = new StringValue("value" + i);
+				futures.add(executor.submit(() -> {
+					Assert.assertNull("Variable already defined in this thread", expressionFactory.addVariable(newVariableDefinition(expectedValue.getUnderlyingValue()), null, Optional.empty()));
+					barrier.await(10, TimeUnit.SECONDS);
+					Assert.assertEquals(Optional.of(expectedValue), expressionFactory.getVariableExpression(VARIABLE_ID).getValue());
+					Assert.assertEquals(Optional.of(expectedValue), expressionFactory.getInstance(varRef, null, Optional.empty()).getValue());
+					Assert.assertEquals(1, expressionFactory.getVariableExpressions().size());
+					barrier.await(10, TimeUnit.SECONDS);
+					Assert.assertNotNull(expressionFactory.removeVariable(VARIABLE_ID));
+					Assert.assertNull(expressionFactory.getVariableExpression(VARIABLE_ID));
+					return null;
+				}));
+			}
+
+			for (final Future<?> future : futures)
+			{
+				future.get();
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testConstantsInterned() throws InterruptedException, ExecutionException
+	{
+		final DepthLimitingExpressionFactory expressionFactory = newXPathEnabledExpressionFactory();
+		final ConstantExpression<?> constant = expressionFactory.getInstance(new AttributeValueType(List.of("value"), StandardDatatypes.STRING.getId(), Map.of()), Optional.empty());
+		Assert.assertSame(constant, expressionFactory.getInstance(new AttributeValueType(List.of("value"), StandardDatatypes.STRING.getId(), Map.of()), Optional.empty()));
+		// same text, different datatype
+		Assert.assertNotSame(constant, expressionFactory.getInstance(new AttributeValueType(List.of("value"), StandardDatatypes.ANYURI.getId(), Map.of()), Optional.empty()));
+		Assert.assertEquals(2, expressionFactory.getInternedConstantCount());
+
+		// same constant instance for all threads
+		final int threadCount = 8;
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try
+		{
+			final List<Future<ConstantExpression<?>>> futures = new ArrayList<>(threadCount);
+			for (int i = 0; i < threadCount; i++)
+			{
+				futures.add(executor.submit(() -> expressionFactory.getInstance(new AttributeValueType(List.of("other"), StandardDatatypes.STRING.getId(), Map.of()), Optional.empty())));
+			}
+
+			final ConstantExpression<?> otherConstant = futures.get(0).get();
+			for (final Future<ConstantExpression<?>> future : futures)
+			{
+				Assert.assertSame(otherConstant, future.get());
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		Assert.assertEquals(3, expressionFactory.getInternedConstantCount());
+	}
+
+	@Test
+	public void testXPathConstantsNotInterned()
+	{
+		final DepthLimitingExpressionFactory expressionFactory = newXPathEnabledExpressionFactory();
+		final AttributeValueType xpathValue = new AttributeValueType(List.of("/*"), StandardDatatypes.XPATH.getId(),
+		        Map.of(new QName("XPathCategory"), "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject"));
+		// the XPath expression depends on the namespace context of the enclosing policy
+		final Optional<XPathCompilerProxy> xPathCompiler = Optional
+		        .of(new BasicImmutableXPathCompilerProxy(XPathVersion.fromURI("http://www.w3.org/TR/2007/REC-xpath20-20070123"), Map.of()));
+		final Optional<XPathCompilerProxy> otherXPathCompiler = Optional
+		        .of(new BasicImmutableXPathCompilerProxy(XPathVersion.fromURI("http://www.w3.org/TR/2007/REC-xpath20-20070123"), Map.of("ns", "urn:example:ns")));
+		Assert.assertNotSame(expressionFactory.getInstance(xpathValue, xPathCompiler), expressionFactory.getInstance(xpathValue, otherXPathCompiler));
+		Assert.assertEquals(0, expressionFactory.getInternedConstantCount());
+	}
+}
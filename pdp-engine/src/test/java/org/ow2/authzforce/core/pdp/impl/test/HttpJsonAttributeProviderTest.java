@@ -0,0 +1,234 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import com.google.common.collect.ImmutableMap;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.value.*;
+import org.ow2.authzforce.core.pdp.impl.HttpJsonAttributeProvider;
+import org.ow2.authzforce.core.pdp.impl.HttpJsonAttributeProvider.AttributeMapping;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link HttpJsonAttributeProvider} against an in-process HTTP server stub
+ */
+public class HttpJsonAttributeProviderTest
+{
+	private static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+	private static final AttributeDesignatorType SUBJECT_ID = new AttributeDesignatorType(SUBJECT_CATEGORY, "urn:oasis:names:tc:xacml:1.0:subject:subject-id", StandardDatatypes.STRING.getId(), null,
+	        false);
+	private static final AttributeFqn ROLE = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "role");
+	private static final AttributeFqn CITY = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "city");
+	private static final AttributeFqn LEVEL = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "level");
+
+	private static final Map<String, JSONObject> RECORDS = Map.of("alice", new JSONObject("{\"roles\": [\"admin\", \"dev\"], \"address\": {\"city\": \"Paris\"}, \"level\": 3}"), "bob",
+	        new JSONObject("{\"roles\": [\"dev\"], \"address\": {\"city\": \"Lyon\"}}"));
+
+	/*
+	 * Provides the key attribute from the request context
+	 */
+	private static final NamedAttributeProvider REQUEST_ATTRIBUTE_PROVIDER = new NamedAttributeProvider()
+	{
+		@Override
+		public Set<AttributeDesignatorType> getProvidedAttributes()
+		{
+			return Set.of(SUBJECT_ID);
+		}
+
+		@Override
+		public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context,
+		        final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			final AttributeBag<AV> bag = context.getNamedAttributeValue(attributeFqn, datatype);
+			return bag == null ? Bags.emptyAttributeBag(datatype, null) : bag;
+		}
+	};
+
+	private HttpServer server;
+	private final AtomicInteger getCount = new AtomicInteger();
+	private final AtomicInteger postCount = new AtomicInteger();
+
+	private static void send(final HttpExchange exchange, final int status, final String body) throws IOException
+	{
+		final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+		try (OutputStream out = exchange.getResponseBody())
+		{
+			out.write(bytes);
+		}
+	}
+
+	@Before
+	public void startServer() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/users/", exchange -> {
+			getCount.incrementAndGet();
+			final JSONObject record = RECORDS.get(exchange.getRequestURI().getPath().substring("/users/".length()));
+			if (record == null)
+			{
+				send(exchange, 404, "");
+			}
+			else
+			{
+				send(exchange, 200, record.toString());
+			}
+		});
+		server.createContext("/users-batch", exchange -> {
+			postCount.incrementAndGet();
+			final JSONArray keys = new JSONArray(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+			final JSONObject records = new JSONObject();
+			for (final Object key : keys)
+			{
+				final JSONObject record = RECORDS.get((String) key);
+				if (record != null)
+				{
+					records.put((String) key, record);
+				}
+			}
+
+			send(exchange, 200, records.toString());
+		});
+		server.start();
+	}
+
+	@After
+	public void stopServer()
+	{
+		server.stop(0);
+	}
+
+	private CloseableNamedAttributeProvider newProvider(final int cacheMaxSize)
+	{
+		final String baseUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+		final List<AttributeMapping> mappings = List.of(
+		        new AttributeMapping(new AttributeDesignatorType(SUBJECT_CATEGORY, ROLE.getId(), StandardDatatypes.STRING.getId(), null, false), "$.roles[*]"),
+		        new AttributeMapping(new AttributeDesignatorType(SUBJECT_CATEGORY, CITY.getId(), StandardDatatypes.STRING.getId(), null, false), "$.address.city"),
+		        new AttributeMapping(new AttributeDesignatorType(SUBJECT_CATEGORY, LEVEL.getId(), StandardDatatypes.INTEGER.getId(), null, false), "$['level']"));
+		return HttpJsonAttributeProvider.newFactory("test", baseUrl + "/users/" + HttpJsonAttributeProvider.KEY_PLACEHOLDER, Optional.of(baseUrl + "/users-batch"), SUBJECT_ID, mappings,
+		        Duration.ofSeconds(5), Duration.ofSeconds(5), true, cacheMaxSize, Duration.ZERO).getInstance(StandardAttributeValueFactories.getRegistry(false, Optional.empty()), REQUEST_ATTRIBUTE_PROVIDER);
+	}
+
+	private static EvaluationContext newContext(final String subjectId)
+	{
+		return new IndividualDecisionRequestContext(Map.of(AttributeFqns.newInstance(SUBJECT_ID), Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(subjectId), AttributeSources.PDP)),
+		        ImmutableMap.of(), false, Optional.empty());
+	}
+
+	@Test
+	public void testRecordFetchedOncePerRequest() throws IndeterminateEvaluationException, IOException
+	{
+		try (CloseableNamedAttributeProvider provider = newProvider(0))
+		{
+			final EvaluationContext context = newContext("alice");
+			final AttributeBag<StringValue> roles = provider.get(ROLE, StandardDatatypes.STRING, context, Optional.empty());
+			Assert.assertEquals(2, roles.size());
+			Assert.assertTrue(roles.elements().contains(new StringValue("admin")));
+			Assert.assertEquals(new StringValue("Paris"), provider.get(CITY, StandardDatatypes.STRING, context, Optional.empty()).getSingleElement());
+			Assert.assertEquals(IntegerValue.valueOf(3), provider.get(LEVEL, StandardDatatypes.INTEGER, context, Optional.empty()).getSingleElement());
+			Assert.assertEquals(1, getCount.get());
+
+			// no cache
+			provider.get(ROLE, StandardDatatypes.STRING, newContext("alice"), Optional.empty());
+			Assert.assertEquals(2, getCount.get());
+		}
+	}
+
+	@Test
+	public void testCache() throws IndeterminateEvaluationException, IOException
+	{
+		try (CloseableNamedAttributeProvider provider = newProvider(10))
+		{
+			provider.get(ROLE, StandardDatatypes.STRING, newContext("alice"), Optional.empty());
+			provider.get(CITY, StandardDatatypes.STRING, newContext("alice"), Optional.empty());
+			Assert.assertEquals(1, getCount.get());
+		}
+	}
+
+	@Test
+	public void testNotFound() throws IndeterminateEvaluationException, IOException
+	{
+		try (CloseableNamedAttributeProvider provider = newProvider(0))
+		{
+			Assert.assertTrue(provider.get(ROLE, StandardDatatypes.STRING, newContext("unknown"), Optional.empty()).isEmpty());
+			Assert.assertTrue(provider.get(LEVEL, StandardDatatypes.INTEGER, newContext("bob"), Optional.empty()).isEmpty());
+		}
+	}
+
+	@Test
+	public void testBatch() throws IndeterminateEvaluationException, IOException
+	{
+		try (CloseableNamedAttributeProvider provider = newProvider(0))
+		{
+			final List<EvaluationContext> contexts = List.of(newContext("alice"), newContext("bob"), newContext("unknown"));
+			final List<AttributeBag<StringValue>> cities = ((HttpJsonAttributeProvider) provider).getAll(CITY, StandardDatatypes.STRING, contexts, newContext("mdp"));
+			Assert.assertEquals(1, postCount.get());
+			Assert.assertEquals(new StringValue("Paris"), cities.get(0).getSingleElement());
+			Assert.assertEquals(new StringValue("Lyon"), cities.get(1).getSingleElement());
+			Assert.assertTrue(cities.get(2).isEmpty());
+
+			// other attributes of the fetched records
+			Assert.assertEquals(1, provider.get(ROLE, StandardDatatypes.STRING, contexts.get(1), Optional.empty()).size());
+			Assert.assertEquals(0, getCount.get());
+		}
+	}
+
+	private static boolean isHttpClientThreadAlive()
+	{
+		return Thread.getAllStackTraces().keySet().stream().anyMatch(thread -> thread.getName().equals("authzforce-http-json-attribute-provider-test"));
+	}
+
+	@Test
+	public void testHttpClientThreadsStoppedOnClose() throws IndeterminateEvaluationException, IOException, InterruptedException
+	{
+		final CloseableNamedAttributeProvider provider = newProvider(0);
+		provider.get(ROLE, StandardDatatypes.STRING, newContext("alice"), Optional.empty());
+		Assert.assertTrue(isHttpClientThreadAlive());
+		provider.close();
+
+		final long deadline = System.currentTimeMillis() + 5000;
+		while (isHttpClientThreadAlive() && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(10);
+		}
+
+		Assert.assertFalse("HTTP client thread(s) still running after close", isHttpClientThreadAlive());
+	}
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import com.google.common.collect.ImmutableMap;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.value.*;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
+import org.ow2.authzforce.core.pdp.impl.JdbcAttributeProvider;
+import org.ow2.authzforce.core.pdp.impl.JdbcAttributeProvider.AttributeMapping;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Tests {@link JdbcAttributeProvider} against an embedded H2 database
+ */
+public class JdbcAttributeProviderTest
+{
+	private static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+	private static final AttributeDesignatorType SUBJECT_ID = new AttributeDesignatorType(SUBJECT_CATEGORY, "urn:oasis:names:tc:xacml:1.0:subject:subject-id", StandardDatatypes.STRING.getId(), null,
+	        false);
+	private static final AttributeFqn ROLE = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "role");
+	private static final AttributeFqn ACTIVE = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "active");
+
+	/*
+	 * Provides the key attribute from the request context
+	 */
+	private static final NamedAttributeProvider REQUEST_ATTRIBUTE_PROVIDER = new NamedAttributeProvider()
+	{
+		@Override
+		public Set<AttributeDesignatorType> getProvidedAttributes()
+		{
+			return Set.of(SUBJECT_ID);
+		}
+
+		@Override
+		public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context,
+		        final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			final AttributeBag<AV> bag = context.getNamedAttributeValue(attributeFqn, datatype);
+			return bag == null ? Bags.emptyAttributeBag(datatype, null) : bag;
+		}
+	};
+
+	private JdbcConnectionPool dataSource;
+
+	@Before
+	public void createDatabase() throws SQLException
+	{
+		dataSource = JdbcConnectionPool.create("jdbc:h2:mem:" + JdbcAttributeProviderTest.class.getSimpleName() + ";DB_CLOSE_DELAY=-1", "sa", "");
+		try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement())
+		{
+			statement.execute("CREATE TABLE user_roles (user_id VARCHAR(64), role VARCHAR(64), active BOOLEAN)");
+			statement.execute("INSERT INTO user_roles VALUES ('alice', 'admin', TRUE), ('alice', 'dev', TRUE), ('bob', 'dev', FALSE)");
+		}
+	}
+
+	@After
+	public void dropDatabase() throws SQLException
+	{
+		try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement())
+		{
+			statement.execute("DROP TABLE user_roles");
+		}
+
+		dataSource.dispose();
+	}
+
+	private CloseableNamedAttributeProvider newProvider()
+	{
+		final List<AttributeMapping> mappings = List.of(new AttributeMapping(new AttributeDesignatorType(SUBJECT_CATEGORY, ROLE.getId(), StandardDatatypes.STRING.getId(), null, false), "role"),
+		        new AttributeMapping(new AttributeDesignatorType(SUBJECT_CATEGORY, ACTIVE.getId(), StandardDatatypes.BOOLEAN.getId(), null, false), "active"));
+		return JdbcAttributeProvider.newFactory("test", dataSource, "SELECT role, active FROM user_roles WHERE user_id = ?",
+		        Optional.of("SELECT user_id, role, active FROM user_roles WHERE user_id IN (" + JdbcAttributeProvider.KEYS_PLACEHOLDER + ")"), Optional.of("user_id"), 2, 0, true, SUBJECT_ID, mappings)
+		        .getInstance(StandardAttributeValueFactories.getRegistry(false, Optional.empty()), REQUEST_ATTRIBUTE_PROVIDER);
+	}
+
+	private static EvaluationContext newContext(final String subjectId)
+	{
+		return new IndividualDecisionRequestContext(Map.of(AttributeFqns.newInstance(SUBJECT_ID), Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(subjectId), AttributeSources.PDP)),
+		        ImmutableMap.of(), false, Optional.empty());
+	}
+
+	@Test
+	public void testGet() throws IndeterminateEvaluationException, IOException
+	{
+		try (CloseableNamedAttributeProvider provider = newProvider())
+		{
+			final EvaluationContext context = newContext("alice");
+			final AttributeBag<StringValue> roles = provider.get(ROLE, StandardDatatypes.STRING, context, Optional.empty());
+			Assert.assertEquals(2, roles.size());
+			Assert.assertTrue(roles.elements().contains(new StringValue("dev")));
+			Assert.assertTrue(provider.get(ACTIVE, StandardDatatypes.BOOLEAN, context, Optional.empty()).elements().contains(BooleanValue.TRUE));
+			Assert.assertTrue(provider.get(ROLE, StandardDatatypes.STRING, newContext("unknown"), Optional.empty()).isEmpty());
+		}
+	}
+
+	@Test
+	public void testDateTimeColumnsWithZeroSeconds() throws SQLException, IndeterminateEvaluationException, IOException
+	{
+		final AttributeFqn since = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "since");
+		final AttributeFqn shiftStart = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "shift-start");
+		try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement())
+		{
+			statement.execute("CREATE TABLE user_shifts (user_id VARCHAR(64), since TIMESTAMP, shift_start TIME)");
+			statement.execute("INSERT INTO user_shifts VALUES ('alice', TIMESTAMP '2024-01-15 12:30:00', TIME '12:30:00')");
+		}
+
+		final List<AttributeMapping> mappings = List.of(
+		        new AttributeMapping(new AttributeDesignatorType(SUBJECT_CATEGORY, since.getId(), StandardDatatypes.DATETIME.getId(), null, false), "since"),
+		        new AttributeMapping(new AttributeDesignatorType(SUBJECT_CATEGORY, shiftStart.getId(), StandardDatatypes.TIME.getId(), null, false), "shift_start"));
+		try (CloseableNamedAttributeProvider provider = JdbcAttributeProvider.newFactory("test", dataSource, "SELECT since, shift_start FROM user_shifts WHERE user_id = ?", Optional.empty(),
+		        Optional.empty(), 1, 0, false, SUBJECT_ID, mappings).getInstance(StandardAttributeValueFactories.getRegistry(false, Optional.empty()), REQUEST_ATTRIBUTE_PROVIDER))
+		{
+			// seconds not dropped when zero, as required by the XML schema lexical representation
+			final EvaluationContext context = newContext("alice");
+			Assert.assertEquals(new DateTimeValue("2024-01-15T12:30:00"), provider.get(since, StandardDatatypes.DATETIME, context, Optional.empty()).getSingleElement());
+			Assert.assertEquals(new TimeValue("12:30:00"), provider.get(shiftStart, StandardDatatypes.TIME, context, Optional.empty()).getSingleElement());
+		}
+		finally
+		{
+			try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement())
+			{
+				statement.execute("DROP TABLE user_shifts");
+			}
+		}
+	}
+
+	@Test
+	public void testBatch() throws IndeterminateEvaluationException, IOException
+	{
+		try (CloseableNamedAttributeProvider provider = newProvider())
+		{
+			// 3 keys with max batch size 2 -> 2 queries
+			final List<EvaluationContext> contexts = List.of(newContext("alice"), newContext("bob"), newContext("unknown"), newContext("bob"));
+			final List<AttributeBag<StringValue>> roles = ((JdbcAttributeProvider) provider).getAll(ROLE, StandardDatatypes.STRING, contexts, newContext("mdp"));
+			Assert.assertEquals(4, roles.size());
+			Assert.assertEquals(2, roles.get(0).size());
+			Assert.assertEquals(new StringValue("dev"), roles.get(1).getSingleElement());
+			Assert.assertTrue(roles.get(2).isEmpty());
+			Assert.assertEquals(new StringValue("dev"), roles.get(3).getSingleElement());
+			Assert.assertEquals(BooleanValue.FALSE, provider.get(ACTIVE, StandardDatatypes.BOOLEAN, contexts.get(1), Optional.empty()).getSingleElement());
+		}
+	}
+
+	private CloseableNamedAttributeProvider.DependencyAwareFactory newFactoryWithInvalidQuery(final boolean checkQueries)
+	{
+		return JdbcAttributeProvider.newFactory("test", dataSource, "SELECT role FROM no_such_table WHERE user_id = ?", Optional.empty(), Optional.empty(), 1, 0, checkQueries, SUBJECT_ID,
+		        List.of(new AttributeMapping(new AttributeDesignatorType(SUBJECT_CATEGORY, ROLE.getId(), StandardDatatypes.STRING.getId(), null, false), "role")));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidQueryChecked()
+	{
+		newFactoryWithInvalidQuery(true).getInstance(StandardAttributeValueFactories.getRegistry(false, Optional.empty()), REQUEST_ATTRIBUTE_PROVIDER);
+	}
+
+	@Test
+	public void testInvalidQueryNotChecked() throws IOException
+	{
+		// no query check -> created without database connection, error on first query
+		try (CloseableNamedAttributeProvider provider = newFactoryWithInvalidQuery(false).getInstance(StandardAttributeValueFactories.getRegistry(false, Optional.empty()),
+		        REQUEST_ATTRIBUTE_PROVIDER))
+		{
+			provider.get(ROLE, StandardDatatypes.STRING, newContext("alice"), Optional.empty());
+			Assert.fail("Invalid query executed without error");
+		}
+		catch (final IndeterminateEvaluationException e)
+		{
+			Assert.assertEquals(XacmlStatusCode.PROCESSING_ERROR.value(), e.getTopLevelStatus().getStatusCode().getValue());
+		}
+	}
+}
@@ -36,6 +36,12 @@ import org.ow2.authzforce.core.pdp.impl.test.func.SetFunctionsTest;
 import org.ow2.authzforce.core.pdp.impl.test.func.SpecialMatchFunctionsTest;
 import org.ow2.authzforce.core.pdp.impl.test.func.StringConversionFunctionsTest;
 import org.ow2.authzforce.core.pdp.impl.test.func.StringFunctionsTest;
+import org.ow2.authzforce.core.pdp.impl.test.metrics.InMemoryEvaluationMetricsTest;
+import org.ow2.authzforce.core.pdp.impl.test.metrics.JfrEventsTest;
+import org.ow2.authzforce.core.pdp.impl.test.policy.CachingPolicyProviderTest;
+import org.ow2.authzforce.core.pdp.impl.test.policy.CoreStaticPolicyProviderTest;
+import org.ow2.authzforce.core.pdp.impl.test.policy.PolicyHeapFootprintsTest;
+import org.ow2.authzforce.core.pdp.impl.test.policy.PolicyVersionsTest;
 import org.ow2.authzforce.core.pdp.impl.test.value.AnyURIAttributeTest;
 import org.ow2.authzforce.core.pdp.impl.test.value.StandardJavaTypeToXacmlAttributeDatatypeConversionTest;
 import org.slf4j.Logger;
@@ -53,7 +59,12 @@ import org.slf4j.LoggerFactory;
 @RunWith(Suite.class)
 @SuiteClasses(value = { EqualityFunctionsTest.class, NumericArithmeticFunctionsTest.class, StringConversionFunctionsTest.class, NumericConversionFunctionsTest.class, LogicalFunctionsTest.class,
 		NumericComparisonFunctionsTest.class, DateTimeArithmeticFunctionsTest.class, NonNumericComparisonFunctionsTest.class, StringFunctionsTest.class, BagFunctionsTest.class,
-		SetFunctionsTest.class, HigherOrderFunctionsTest.class, RegExpBasedFunctionsTest.class, SpecialMatchFunctionsTest.class, StandardJavaTypeToXacmlAttributeDatatypeConversionTest.class })
+		SetFunctionsTest.class, HigherOrderFunctionsTest.class, RegExpBasedFunctionsTest.class, SpecialMatchFunctionsTest.class, StandardJavaTypeToXacmlAttributeDatatypeConversionTest.class,
+		PolicyVersionsTest.class, InMemoryEvaluationMetricsTest.class, HttpJsonAttributeProviderTest.class, JdbcAttributeProviderTest.class,
+		MappedFileAttributeProviderTest.class, MultipleDecisionScopedBooleanEvaluatorsTest.class, CoreStaticPolicyProviderTest.class, DepthLimitingExpressionFactoryTest.class,
+		ReloadablePdpEngineTest.class, CachingPolicyProviderTest.class, SharedEvaluatorsTest.class, PolicyHeapFootprintsTest.class, DecisionAuditLogTest.class, TracingPdpEngineTest.class,
+		CachingNamedAttributeProviderTest.class, BatchNamedAttributeProviderTest.class, TimeLimitedNamedAttributeProviderTest.class, ConcurrentNamedAttributeProviderTest.class,
+		CategoryBulkNamedAttributeProviderTest.class, PolicyAttributeDependenciesTest.class, JfrEventsTest.class })
 public class MainTest
 {
 	/**
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import com.google.common.collect.ImmutableMap;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.value.*;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
+import org.ow2.authzforce.core.pdp.impl.MappedAttributeFile;
+import org.ow2.authzforce.core.pdp.impl.MappedFileAttributeProvider;
+import org.ow2.authzforce.core.pdp.impl.MappedFileAttributeProvider.AttributeMapping;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Tests {@link MappedAttributeFile} and {@link MappedFileAttributeProvider}
+ */
+public class MappedFileAttributeProviderTest
+{
+	private static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+	private static final AttributeDesignatorType SUBJECT_ID = new AttributeDesignatorType(SUBJECT_CATEGORY, "urn:oasis:names:tc:xacml:1.0:subject:subject-id", StandardDatatypes.STRING.getId(), null,
+	        false);
+	private static final AttributeFqn GROUP = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "group");
+	private static final AttributeFqn LEVEL = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "level");
+
+	/*
+	 * Provides the key attribute from the request context
+	 */
+	private static final NamedAttributeProvider REQUEST_ATTRIBUTE_PROVIDER = new NamedAttributeProvider()
+	{
+		@Override
+		public Set<AttributeDesignatorType> getProvidedAttributes()
+		{
+			return Set.of(SUBJECT_ID);
+		}
+
+		@Override
+		public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context,
+		        final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			final AttributeBag<AV> bag = context.getNamedAttributeValue(attributeFqn, datatype);
+			return bag == null ? Bags.emptyAttributeBag(datatype, null) : bag;
+		}
+	};
+
+	@Rule
+	public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+	private static EvaluationContext newContext(final String subjectId)
+	{
+		return new IndividualDecisionRequestContext(Map.of(AttributeFqns.newInstance(SUBJECT_ID), Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(subjectId), AttributeSources.PDP)),
+		        ImmutableMap.of(), false, Optional.empty());
+	}
+
+	private static void writeFile(final Path path, final int userCount, final String extraGroup) throws IOException
+	{
+		try (MappedAttributeFile.Writer writer = new MappedAttributeFile.Writer(path, List.of("groups", "level")))
+		{
+			for (int i = 0; i < userCount; i++)
+			{
+				writer.add("user" + i, List.of(List.of("group" + i % 10, extraGroup), i % 2 == 0 ? List.of(Integer.toString(i)) : List.of()));
+			}
+
+			writer.commit();
+		}
+	}
+
+	private static CloseableNamedAttributeProvider newProvider(final Path path)
+	{
+		final List<AttributeMapping> mappings = List.of(new AttributeMapping(new AttributeDesignatorType(SUBJECT_CATEGORY, GROUP.getId(), StandardDatatypes.STRING.getId(), null, false), "groups"),
+		        new AttributeMapping(new AttributeDesignatorType(SUBJECT_CATEGORY, LEVEL.getId(), StandardDatatypes.INTEGER.getId(), null, false), "level"));
+		// check for a new version on every lookup
+		return MappedFileAttributeProvider.newFactory("test", path, Duration.ofNanos(1), SUBJECT_ID, mappings)
+		        .getInstance(StandardAttributeValueFactories.getRegistry(false, Optional.empty()), REQUEST_ATTRIBUTE_PROVIDER);
+	}
+
+	@Test
+	public void testFile() throws IOException
+	{
+		final Path path = tmpDir.getRoot().toPath().resolve("users.bin");
+		writeFile(path, 10_000, "all");
+		final MappedAttributeFile file = MappedAttributeFile.open(path);
+		Assert.assertEquals(10_000, file.size());
+		Assert.assertEquals(List.of("groups", "level"), file.getFieldNames());
+		for (int i = 0; i < 10_000; i++)
+		{
+			Assert.assertEquals(List.of("group" + i % 10, "all"), file.get("user" + i, 0));
+		}
+
+		Assert.assertEquals(List.of("42"), file.get("user42", 1));
+		Assert.assertEquals(List.of(), file.get("user43", 1));
+		Assert.assertNull(file.get("unknown", 0));
+	}
+
+	@Test
+	public void testProviderAndSwap() throws IOException, IndeterminateEvaluationException
+	{
+		final Path path = tmpDir.getRoot().toPath().resolve("users.bin");
+		writeFile(path, 100, "v1");
+		try (CloseableNamedAttributeProvider provider = newProvider(path))
+		{
+			final AttributeBag<StringValue> groups = provider.get(GROUP, StandardDatatypes.STRING, newContext("user12"), Optional.empty());
+			Assert.assertEquals(2, groups.size());
+			Assert.assertTrue(groups.elements().contains(new StringValue("v1")));
+			Assert.assertEquals(IntegerValue.valueOf(12), provider.get(LEVEL, StandardDatatypes.INTEGER, newContext("user12"), Optional.empty()).getSingleElement());
+			Assert.assertTrue(provider.get(LEVEL, StandardDatatypes.INTEGER, newContext("user13"), Optional.empty()).isEmpty());
+			Assert.assertTrue(provider.get(GROUP, StandardDatatypes.STRING, newContext("unknown"), Optional.empty()).isEmpty());
+
+			writeFile(path, 100, "v2");
+			Assert.assertTrue(provider.get(GROUP, StandardDatatypes.STRING, newContext("user12"), Optional.empty()).elements().contains(new StringValue("v2")));
+		}
+	}
+}
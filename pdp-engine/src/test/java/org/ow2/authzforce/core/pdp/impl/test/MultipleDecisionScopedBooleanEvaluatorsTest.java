@@ -0,0 +1,237 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import com.google.common.collect.ImmutableMap;
+import jakarta.xml.bind.JAXBElement;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.*;
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.AttributeSources;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.expression.BasicImmutableXPathCompilerProxy;
+import org.ow2.authzforce.core.pdp.api.expression.Expression;
+import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
+import org.ow2.authzforce.core.pdp.api.expression.XPathCompilerProxy;
+import org.ow2.authzforce.core.pdp.api.value.*;
+import org.ow2.authzforce.core.pdp.impl.AnyOfEvaluator;
+import org.ow2.authzforce.core.pdp.impl.BooleanEvaluator;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
+import org.ow2.authzforce.core.pdp.impl.MultipleDecisionScopedBooleanEvaluators;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+import org.ow2.authzforce.xacml.identifiers.XPathVersion;
+
+import javax.xml.namespace.QName;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link MultipleDecisionScopedBooleanEvaluators}
+ */
+public class MultipleDecisionScopedBooleanEvaluatorsTest
+{
+	private static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+	private static final AttributeDesignatorType SUBJECT_ID = new AttributeDesignatorType(SUBJECT_CATEGORY, "urn:oasis:names:tc:xacml:1.0:subject:subject-id", StandardDatatypes.STRING.getId(), null,
+	        false);
+	private static final AttributeDesignatorType SUBJECT_LEVEL = new AttributeDesignatorType(SUBJECT_CATEGORY, "level", StandardDatatypes.INTEGER.getId(), null, false);
+
+	private static final ObjectFactory XACML_FACTORY = new ObjectFactory();
+	private static final ExpressionFactory EXPRESSION_FACTORY = new DepthLimitingExpressionFactory(StandardAttributeValueFactories.getRegistry(true, Optional.empty()),
+	        StandardFunction.getRegistry(true, StandardAttributeValueFactories.BIG_INTEGER), 0, true, false, Optional.empty());
+	private static final Optional<XPathCompilerProxy> XPATH_COMPILER = Optional
+	        .of(new BasicImmutableXPathCompilerProxy(XPathVersion.fromURI("http://www.w3.org/TR/2007/REC-xpath20-20070123"), Map.of()));
+
+	/*
+	 * Counts the evaluations delegated by the memoizing evaluator
+	 */
+	private static final class CountingEvaluator implements BooleanEvaluator
+	{
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public boolean evaluate(final EvaluationContext context, final Optional<EvaluationContext> mdpContext)
+		{
+			count.incrementAndGet();
+			return true;
+		}
+	}
+
+	private record CountedEvaluator(BooleanEvaluator evaluator, CountingEvaluator delegate)
+	{
+	}
+
+	private static EvaluationContext newContext(final String subjectId)
+	{
+		return new IndividualDecisionRequestContext(Map.of(AttributeFqns.newInstance(SUBJECT_ID), Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(subjectId), AttributeSources.PDP)),
+		        ImmutableMap.of(), false, Optional.empty());
+	}
+
+	private static EvaluationContext newMdpContext()
+	{
+		return new IndividualDecisionRequestContext(Map.of(), ImmutableMap.of(), false, Optional.empty());
+	}
+
+	@SafeVarargs
+	private static ApplyType newApply(final String functionId, final JAXBElement<? extends ExpressionType>... args)
+	{
+		return new ApplyType(null, List.of(args), functionId);
+	}
+
+	private static AttributeValueType newStringValue(final String value)
+	{
+		return new AttributeValueType(List.of(value), StandardDatatypes.STRING.getId(), Map.of());
+	}
+
+	private static Expression<BooleanValue> compile(final ApplyType apply)
+	{
+		// WARNING: unchecked cast, only boolean functions are used as Conditions in this test
+		return (Expression<BooleanValue>) EXPRESSION_FACTORY.getInstance(apply, null, XPATH_COMPILER);
+	}
+
+	/*
+	 * string-equal(string-one-and-only(subject-id), "alice")
+	 */
+	private static Expression<BooleanValue> newSubjectIdCondition()
+	{
+		return compile(newApply("urn:oasis:names:tc:xacml:1.0:function:string-equal",
+		        XACML_FACTORY.createApply(newApply("urn:oasis:names:tc:xacml:1.0:function:string-one-and-only", XACML_FACTORY.createAttributeDesignator(SUBJECT_ID))),
+		        XACML_FACTORY.createAttributeValue(newStringValue("alice"))));
+	}
+
+	private static Match newMatch(final String value)
+	{
+		return new Match(newStringValue(value), SUBJECT_ID, null, "urn:oasis:names:tc:xacml:1.0:function:string-equal");
+	}
+
+	private static List<AnyOfEvaluator> newTargetAnyOfs(final Match... matches)
+	{
+		return List.of(new AnyOfEvaluator(List.of(new AllOf(List.of(matches))), EXPRESSION_FACTORY, XPATH_COMPILER));
+	}
+
+	@Test
+	public void testConditionMemoizedInMdpScope() throws IndeterminateEvaluationException
+	{
+		final CountingEvaluator delegate = new CountingEvaluator();
+		final BooleanEvaluator evaluator = MultipleDecisionScopedBooleanEvaluators.forCondition(delegate, newSubjectIdCondition());
+		Assert.assertNotSame(delegate, evaluator);
+
+		final Optional<EvaluationContext> mdpContext = Optional.of(newMdpContext());
+		Assert.assertTrue(evaluator.evaluate(newContext("alice"), mdpContext));
+		Assert.assertTrue(evaluator.evaluate(newContext("alice"), mdpContext));
+		Assert.assertEquals(1, delegate.count.get());
+
+		// different attribute value -> different memo entry
+		Assert.assertTrue(evaluator.evaluate(newContext("bob"), mdpContext));
+		Assert.assertEquals(2, delegate.count.get());
+
+		// new Multiple Decision request -> new memo
+		Assert.assertTrue(evaluator.evaluate(newContext("alice"), Optional.of(newMdpContext())));
+		Assert.assertEquals(3, delegate.count.get());
+	}
+
+	@Test
+	public void testConditionsWithSameHashCodeNotSharingMemo() throws IndeterminateEvaluationException
+	{
+		/*
+		 * Look for two memoizing evaluators with the same (identity) hash code, which is bound to happen among the many Targets/Conditions of large policies
+		 */
+		final Expression<BooleanValue> condition = newSubjectIdCondition();
+		final Map<Integer, CountedEvaluator> evaluatorsByHashCode = new HashMap<>();
+		CountedEvaluator evaluator1 = null;
+		CountedEvaluator evaluator2 = null;
+		for (int i = 0; i < 10_000_000 && evaluator2 == null; i++)
+		{
+			final CountingEvaluator delegate = new CountingEvaluator();
+			final CountedEvaluator evaluator = new CountedEvaluator(MultipleDecisionScopedBooleanEvaluators.forCondition(delegate, condition), delegate);
+			evaluator1 = evaluatorsByHashCode.putIfAbsent(evaluator.evaluator().hashCode(), evaluator);
+			if (evaluator1 != null)
+			{
+				evaluator2 = evaluator;
+			}
+		}
+
+		Assert.assertNotNull("No hash code collision found", evaluator2);
+		evaluatorsByHashCode.clear();
+		Assert.assertEquals(evaluator1.evaluator().hashCode(), evaluator2.evaluator().hashCode());
+
+		// each evaluator has its own memo in the same Multiple Decision request context
+		final Optional<EvaluationContext> mdpContext = Optional.of(newMdpContext());
+		evaluator1.evaluator().evaluate(newContext("alice"), mdpContext);
+		evaluator2.evaluator().evaluate(newContext("alice"), mdpContext);
+		evaluator1.evaluator().evaluate(newContext("alice"), mdpContext);
+		evaluator2.evaluator().evaluate(newContext("alice"), mdpContext);
+		Assert.assertEquals(1, evaluator1.delegate().count.get());
+		Assert.assertEquals(1, evaluator2.delegate().count.get());
+	}
+
+	@Test
+	public void testConditionNotMemoizedOutOfMdpScopeOrWithMissingAttribute() throws IndeterminateEvaluationException
+	{
+		final CountingEvaluator delegate = new CountingEvaluator();
+		final BooleanEvaluator evaluator = MultipleDecisionScopedBooleanEvaluators.forCondition(delegate, newSubjectIdCondition());
+		evaluator.evaluate(newContext("alice"), Optional.empty());
+		evaluator.evaluate(newContext("alice"), Optional.empty());
+		Assert.assertEquals(2, delegate.count.get());
+
+		// attribute not in the context, might be resolved by an attribute provider
+		final Optional<EvaluationContext> mdpContext = Optional.of(newMdpContext());
+		evaluator.evaluate(newMdpContext(), mdpContext);
+		evaluator.evaluate(newMdpContext(), mdpContext);
+		Assert.assertEquals(4, delegate.count.get());
+	}
+
+	@Test
+	public void testConditionWithXPathConstantNotMemoized()
+	{
+		/*
+		 * integer-greater-than(xpath-node-count(xpathExpression), integer-one-and-only(level)): the XPath expression is constant but evaluated against the request content
+		 */
+		final AttributeValueType xpathValue = new AttributeValueType(List.of("/*"), StandardDatatypes.XPATH.getId(), Map.of(new QName("XPathCategory"), SUBJECT_CATEGORY));
+		final Expression<BooleanValue> condition = compile(newApply("urn:oasis:names:tc:xacml:1.0:function:integer-greater-than",
+		        XACML_FACTORY.createApply(newApply("urn:oasis:names:tc:xacml:3.0:function:xpath-node-count", XACML_FACTORY.createAttributeValue(xpathValue))),
+		        XACML_FACTORY.createApply(newApply("urn:oasis:names:tc:xacml:1.0:function:integer-one-and-only", XACML_FACTORY.createAttributeDesignator(SUBJECT_LEVEL)))));
+		final CountingEvaluator delegate = new CountingEvaluator();
+		Assert.assertSame(delegate, MultipleDecisionScopedBooleanEvaluators.forCondition(delegate, condition));
+	}
+
+	@Test
+	public void testTargetMemoizedInMdpScope() throws IndeterminateEvaluationException
+	{
+		final CountingEvaluator delegate = new CountingEvaluator();
+		final BooleanEvaluator evaluator = MultipleDecisionScopedBooleanEvaluators.forTarget(delegate, newTargetAnyOfs(newMatch("alice"), newMatch("bob")));
+		Assert.assertNotSame(delegate, evaluator);
+
+		final Optional<EvaluationContext> mdpContext = Optional.of(newMdpContext());
+		evaluator.evaluate(newContext("alice"), mdpContext);
+		evaluator.evaluate(newContext("alice"), mdpContext);
+		Assert.assertEquals(1, delegate.count.get());
+	}
+
+	@Test
+	public void testSingleMatchTargetNotMemoized()
+	{
+		final CountingEvaluator delegate = new CountingEvaluator();
+		Assert.assertSame(delegate, MultipleDecisionScopedBooleanEvaluators.forTarget(delegate, newTargetAnyOfs(newMatch("alice"))));
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.AttributeSelectorId;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.policy.PolicyAttributeDependencies;
+import org.ow2.authzforce.core.pdp.impl.policy.PolicyAttributeDependencies.Usage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Tests {@link PolicyAttributeDependencies}
+ */
+public class PolicyAttributeDependenciesTest
+{
+	private static final String STRING = "http://www.w3.org/2001/XMLSchema#string";
+	private static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+	private static final String RESOURCE_CATEGORY = "urn:oasis:names:tc:xacml:3.0:attribute-category:resource";
+	private static final String ACTION_CATEGORY = "urn:oasis:names:tc:xacml:3.0:attribute-category:action";
+
+	private static final AttributeFqn SUBJECT_ID = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "urn:oasis:names:tc:xacml:1.0:subject:subject-id");
+	private static final AttributeFqn SUBJECT_EMAIL = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "email");
+	private static final AttributeFqn RESOURCE_TYPE = AttributeFqns.newInstance(RESOURCE_CATEGORY, Optional.empty(), "type");
+	private static final AttributeFqn RESOURCE_OWNER = AttributeFqns.newInstance(RESOURCE_CATEGORY, Optional.empty(), "owner");
+	private static final AttributeFqn ACTION_ID = AttributeFqns.newInstance(ACTION_CATEGORY, Optional.empty(), "urn:oasis:names:tc:xacml:1.0:action:action-id");
+
+	@Rule
+	public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+	private PdpEngineConfiguration configuration;
+
+	private static String designator(final AttributeFqn attribute)
+	{
+		return "<AttributeDesignator Category=\"" + attribute.getCategory() + "\" AttributeId=\"" + attribute.getId() + "\" DataType=\"" + STRING + "\" MustBePresent=\"false\"/>";
+	}
+
+	private static String match(final String attributeValue, final AttributeFqn attribute)
+	{
+		return "<Match MatchId=\"urn:oasis:names:tc:xacml:1.0:function:string-equal\"><AttributeValue DataType=\"" + STRING + "\">" + attributeValue + "</AttributeValue>"
+		        + designator(attribute) + "</Match>";
+	}
+
+	private static String target(final String match)
+	{
+		return "<Target><AnyOf><AllOf>" + match + "</AllOf></AnyOf></Target>";
+	}
+
+	@Before
+	public void setUp() throws IOException
+	{
+		final Path policyDir = tmpDir.newFolder("policies").toPath();
+		/*
+		 * Root PolicySet referring to P1, with a Target on the action
+		 */
+		Files.writeString(policyDir.resolve("root.xml"), "<PolicySet xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicySetId=\"root\" Version=\"1.0\" "
+		        + "PolicyCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:policy-combining-algorithm:deny-unless-permit\">" + target(match("read", ACTION_ID))
+		        + "<PolicyIdReference>P1</PolicyIdReference></PolicySet>", StandardCharsets.UTF_8);
+		/*
+		 * P1: the subject ID is used in a Target and (via a VariableReference) in a Condition, the email in an Obligation, the resource content in an Advice; the unused VariableDefinition is
+		 * ignored
+		 */
+		Files.writeString(policyDir.resolve("p1.xml"), "<Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"P1\" Version=\"1.0\" "
+		        + "RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-unless-permit\">"
+		        + "<PolicyDefaults><XPathVersion>http://www.w3.org/TR/1999/REC-xpath-19991116</XPathVersion></PolicyDefaults><Target/>"
+		        + "<VariableDefinition VariableId=\"isOwner\"><Apply FunctionId=\"urn:oasis:names:tc:xacml:1.0:function:string-is-in\">"
+		        + "<Apply FunctionId=\"urn:oasis:names:tc:xacml:1.0:function:string-one-and-only\">" + designator(SUBJECT_ID) + "</Apply>" + designator(RESOURCE_OWNER) + "</Apply></VariableDefinition>"
+		        + "<VariableDefinition VariableId=\"unused\"><Apply FunctionId=\"urn:oasis:names:tc:xacml:1.0:function:string-bag-size\">"
+		        + designator(AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "unused")) + "</Apply></VariableDefinition>"
+		        + "<Rule RuleId=\"owner\" Effect=\"Permit\">" + target(match("document", RESOURCE_TYPE)) + "<Condition><VariableReference VariableId=\"isOwner\"/></Condition>"
+		        + "<ObligationExpressions><ObligationExpression ObligationId=\"notify\" FulfillOn=\"Permit\"><AttributeAssignmentExpression AttributeId=\"to\">"
+		        + designator(SUBJECT_EMAIL) + "</AttributeAssignmentExpression></ObligationExpression></ObligationExpressions></Rule>"
+		        + "<Rule RuleId=\"admin\" Effect=\"Permit\">" + target(match("admin", SUBJECT_ID))
+		        + "<AdviceExpressions><AdviceExpression AdviceId=\"title\" AppliesTo=\"Permit\"><AttributeAssignmentExpression AttributeId=\"title\">"
+		        + "<AttributeSelector Category=\"" + RESOURCE_CATEGORY + "\" Path=\"//title/text()\" DataType=\"" + STRING + "\" MustBePresent=\"false\"/>"
+		        + "</AttributeAssignmentExpression></AdviceExpression></AdviceExpressions></Rule></Policy>", StandardCharsets.UTF_8);
+		final Path confFile = tmpDir.getRoot().toPath().resolve("pdp.xml");
+		Files.writeString(confFile, "<pdp xmlns=\"http://authzforce.github.io/core/xmlns/pdp/8\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" version=\"8.1\" xPathEnabled=\"true\">"
+		        + "<policyProvider id=\"policyProvider\" xsi:type=\"StaticPolicyProvider\"><policyLocation>${PARENT_DIR}/policies/*.xml</policyLocation></policyProvider>"
+		        + "<rootPolicyRef>root</rootPolicyRef></pdp>", StandardCharsets.UTF_8);
+		configuration = PdpEngineConfiguration.getInstance(confFile.toString());
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		configuration.getPolicyProvider().close();
+	}
+
+	private static Map<AttributeFqn, Set<Usage>> getUsagesByAttribute(final PolicyAttributeDependencies.Result result)
+	{
+		final Map<AttributeFqn, Set<Usage>> usagesByAttribute = new HashMap<>();
+		for (final PolicyAttributeDependencies.DesignatedAttribute attribute : result.designatedAttributes())
+		{
+			Assert.assertEquals(STRING, attribute.datatypeId());
+			Assert.assertNull("Duplicate attribute: " + attribute, usagesByAttribute.put(attribute.attribute(), attribute.usages()));
+		}
+
+		return usagesByAttribute;
+	}
+
+	@Test
+	public void testAnalyzeConfiguration()
+	{
+		final PolicyAttributeDependencies.Result result = PolicyAttributeDependencies.analyze(configuration);
+		Assert.assertTrue(result.complete());
+		Assert.assertEquals(Map.of(ACTION_ID, EnumSet.of(Usage.TARGET), RESOURCE_TYPE, EnumSet.of(Usage.TARGET), SUBJECT_ID, EnumSet.of(Usage.TARGET, Usage.CONDITION), RESOURCE_OWNER,
+		        EnumSet.of(Usage.CONDITION), SUBJECT_EMAIL, EnumSet.of(Usage.PEP_ACTION)), getUsagesByAttribute(result));
+
+		Assert.assertEquals(1, result.selectedAttributes().size());
+		final PolicyAttributeDependencies.SelectedAttribute selectedAttribute = result.selectedAttributes().get(0);
+		Assert.assertEquals(new AttributeSelectorId(RESOURCE_CATEGORY, "//title/text()", Optional.empty()), selectedAttribute.selector());
+		Assert.assertEquals(STRING, selectedAttribute.datatypeId());
+		Assert.assertEquals(EnumSet.of(Usage.PEP_ACTION), selectedAttribute.usages());
+	}
+
+	@Test
+	public void testEngineAttributeDependencies() throws IOException
+	{
+		try (BasePdpEngine engine = new BasePdpEngine(configuration))
+		{
+			Assert.assertEquals(PolicyAttributeDependencies.analyze(configuration), engine.getAttributeDependencies());
+			// computed once, when the engine is created
+			Assert.assertSame(engine.getAttributeDependencies(), engine.getAttributeDependencies());
+		}
+	}
+}
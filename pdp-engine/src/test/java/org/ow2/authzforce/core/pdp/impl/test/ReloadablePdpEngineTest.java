@@ -0,0 +1,161 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.ReloadablePdpEngine;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Tests {@link ReloadablePdpEngine}
+ */
+public class ReloadablePdpEngineTest
+{
+	private static final Duration QUIET_PERIOD = Duration.ofMillis(200);
+	private static final long TIMEOUT_MILLIS = 10_000;
+
+	@Rule
+	public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+	private Path confFile;
+	private Path policyDir;
+	private final AtomicInteger confLoadCount = new AtomicInteger();
+
+	private static String newPolicy(final String version)
+	{
+		return "<Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"P1\" Version=\"" + version
+		        + "\" RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-unless-permit\"><Target/><Rule RuleId=\"permit\" Effect=\"Permit\"/></Policy>";
+	}
+
+	@Before
+	public void setUp() throws IOException
+	{
+		policyDir = tmpDir.newFolder("policies").toPath();
+		Files.writeString(policyDir.resolve("policy.xml"), newPolicy("1.0"), StandardCharsets.UTF_8);
+		// policy snapshot in the watched policy directory
+		confFile = tmpDir.getRoot().toPath().resolve("pdp.xml");
+		Files.writeString(confFile,
+		        "<pdp xmlns=\"http://authzforce.github.io/core/xmlns/pdp/8\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" version=\"8.1\">"
+		                + "<policyProvider id=\"policyProvider\" xsi:type=\"StaticPolicyProvider\" incrementalReload=\"true\" snapshotLocation=\"${PARENT_DIR}/policies/policies.snapshot\">"
+		                + "<policyLocation>${PARENT_DIR}/policies/**.xml</policyLocation></policyProvider></pdp>",
+		        StandardCharsets.UTF_8);
+	}
+
+	private PdpEngineConfiguration loadConfiguration() throws IOException
+	{
+		confLoadCount.incrementAndGet();
+		return PdpEngineConfiguration.getInstance(confFile.toString());
+	}
+
+	private static String getRootPolicyVersion(final ReloadablePdpEngine engine)
+	{
+		final PrimaryPolicyMetadata rootPolicy = engine.getApplicablePolicies().iterator().next();
+		return rootPolicy.getVersion().toString();
+	}
+
+	private static boolean waitFor(final BooleanSupplier condition, final long timeoutMillis) throws InterruptedException
+	{
+		final long deadline = System.currentTimeMillis() + timeoutMillis;
+		while (!condition.getAsBoolean())
+		{
+			if (System.currentTimeMillis() > deadline)
+			{
+				return false;
+			}
+
+			Thread.sleep(50);
+		}
+
+		return true;
+	}
+
+	@Test
+	public void testPolicyDirectoriesComputedOnDemand() throws IOException
+	{
+		final PdpEngineConfiguration conf = loadConfiguration();
+		Assert.assertEquals(Set.of(policyDir), conf.getStaticPolicyLocationDirectories());
+		Assert.assertEquals(Set.of(policyDir.resolve("policies.snapshot")), conf.getStaticPolicySnapshotFiles());
+
+		// subdirectory matching the policy location pattern created after the configuration was loaded
+		final Path subDir = Files.createDirectory(policyDir.resolve("sub"));
+		Assert.assertEquals(Set.of(policyDir, subDir), conf.getStaticPolicyLocationDirectories());
+	}
+
+	@Test
+	public void testIncrementalReloadOnPolicyChange() throws IOException, InterruptedException
+	{
+		try (ReloadablePdpEngine engine = new ReloadablePdpEngine(this::loadConfiguration, QUIET_PERIOD))
+		{
+			Assert.assertEquals("1.0", getRootPolicyVersion(engine));
+			Files.writeString(policyDir.resolve("policy.xml"), newPolicy("2.0"), StandardCharsets.UTF_8);
+			Assert.assertTrue("Policy change not reloaded", waitFor(() -> getRootPolicyVersion(engine).equals("2.0"), TIMEOUT_MILLIS));
+			// only the policy file is reloaded, not the PDP configuration
+			Assert.assertEquals(1, confLoadCount.get());
+
+			// new policy file
+			Files.writeString(policyDir.resolve("policy2.xml"), newPolicy("3.0"), StandardCharsets.UTF_8);
+			Assert.assertTrue("New policy file not loaded", waitFor(() -> getRootPolicyVersion(engine).equals("3.0"), TIMEOUT_MILLIS));
+			// removed policy file
+			Files.delete(policyDir.resolve("policy2.xml"));
+			Assert.assertTrue("Policy file removal not reloaded", waitFor(() -> getRootPolicyVersion(engine).equals("2.0"), TIMEOUT_MILLIS));
+			Assert.assertEquals(1, confLoadCount.get());
+		}
+	}
+
+	@Test
+	public void testFullReloadOnOtherFileChange() throws IOException, InterruptedException
+	{
+		try (ReloadablePdpEngine engine = new ReloadablePdpEngine(this::loadConfiguration, QUIET_PERIOD))
+		{
+			Files.writeString(policyDir.resolve("notes.txt"), "not a policy", StandardCharsets.UTF_8);
+			Assert.assertTrue("Configuration not reloaded", waitFor(() -> confLoadCount.get() == 2, TIMEOUT_MILLIS));
+			Assert.assertEquals("1.0", getRootPolicyVersion(engine));
+		}
+	}
+
+	@Test
+	public void testSnapshotChangeIgnored() throws IOException, InterruptedException
+	{
+		try (ReloadablePdpEngine engine = new ReloadablePdpEngine(this::loadConfiguration, QUIET_PERIOD))
+		{
+			Assert.assertTrue(Files.exists(policyDir.resolve("policies.snapshot")));
+			// rewrite the snapshot like the policy provider does: temporary file then move
+			final Path tmpSnapshotFile = Files.createTempFile(policyDir, "policies.snapshot", ".tmp");
+			Files.write(tmpSnapshotFile, Files.readAllBytes(policyDir.resolve("policies.snapshot")));
+			Files.move(tmpSnapshotFile, policyDir.resolve("policies.snapshot"), StandardCopyOption.REPLACE_EXISTING);
+
+			Assert.assertFalse("Snapshot change reloaded", waitFor(() -> confLoadCount.get() > 1, QUIET_PERIOD.toMillis() * 10));
+			Assert.assertEquals("1.0", getRootPolicyVersion(engine));
+		}
+	}
+}
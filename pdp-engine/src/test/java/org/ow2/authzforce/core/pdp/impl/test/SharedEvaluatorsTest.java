@@ -0,0 +1,222 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import com.google.common.collect.ImmutableMap;
+import jakarta.xml.bind.JAXBElement;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.*;
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.AttributeSources;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.StandardAttributeValueFactories;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.impl.*;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+import org.ow2.authzforce.core.pdp.impl.rule.ConditionEvaluators;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link SharedEvaluators}: sharing of the evaluators of identical Targets, Conditions and Applys across policies
+ */
+public class SharedEvaluatorsTest
+{
+	private static final AttributeDesignatorType SUBJECT_ID = new AttributeDesignatorType("urn:oasis:names:tc:xacml:1.0:subject-category:access-subject",
+	        "urn:oasis:names:tc:xacml:1.0:subject:subject-id", StandardDatatypes.STRING.getId(), null, false);
+	private static final String STRING_EQUAL_FUNCTION_ID = "urn:oasis:names:tc:xacml:1.0:function:string-equal";
+
+	private static final ObjectFactory XACML_FACTORY = new ObjectFactory();
+
+	/*
+	 * Counts the evaluations delegated by the memoizing evaluator
+	 */
+	private static final class CountingEvaluator implements BooleanEvaluator
+	{
+		private final AtomicInteger count = new AtomicInteger();
+		private final boolean indeterminate;
+
+		private CountingEvaluator(final boolean indeterminate)
+		{
+			this.indeterminate = indeterminate;
+		}
+
+		@Override
+		public boolean evaluate(final EvaluationContext context, final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			count.incrementAndGet();
+			if (indeterminate)
+			{
+				throw new IndeterminateEvaluationException("Test error", XacmlStatusCode.PROCESSING_ERROR.value());
+			}
+
+			return true;
+		}
+	}
+
+	private static DepthLimitingExpressionFactory newExpressionFactory()
+	{
+		return new DepthLimitingExpressionFactory(StandardAttributeValueFactories.getRegistry(false, Optional.empty()), StandardFunction.getRegistry(false, StandardAttributeValueFactories.BIG_INTEGER),
+		        0, false, false, Optional.empty());
+	}
+
+	private static EvaluationContext newContext(final String subjectId)
+	{
+		return new IndividualDecisionRequestContext(Map.of(AttributeFqns.newInstance(SUBJECT_ID), Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(subjectId), AttributeSources.PDP)),
+		        ImmutableMap.of(), false, Optional.empty());
+	}
+
+	private static AttributeValueType newStringValue(final String value)
+	{
+		return new AttributeValueType(List.of(value), StandardDatatypes.STRING.getId(), Map.of());
+	}
+
+	/*
+	 * Target matching subject-id = subjectId
+	 */
+	private static Target newTarget(final String subjectId)
+	{
+		return new Target(List.of(new AnyOf(List.of(new AllOf(List.of(new Match(newStringValue(subjectId), SUBJECT_ID, null, STRING_EQUAL_FUNCTION_ID)))))));
+	}
+
+	/*
+	 * string-equal(string-one-and-only(subject-id), subjectId)
+	 */
+	private static ApplyType newSubjectIdApply(final String subjectId)
+	{
+		final JAXBElement<ApplyType> oneAndOnlyApply = XACML_FACTORY.createApply(
+		        new ApplyType(null, List.of(XACML_FACTORY.createAttributeDesignator(SUBJECT_ID)), "urn:oasis:names:tc:xacml:1.0:function:string-one-and-only"));
+		return new ApplyType(null, List.of(oneAndOnlyApply, XACML_FACTORY.createAttributeValue(newStringValue(subjectId))), STRING_EQUAL_FUNCTION_ID);
+	}
+
+	@Test
+	public void testIdenticalTargetsShared() throws IndeterminateEvaluationException
+	{
+		final DepthLimitingExpressionFactory expressionFactory = newExpressionFactory();
+		final BooleanEvaluator targetEvaluator = TargetEvaluators.getInstance(newTarget("alice"), expressionFactory, Optional.empty());
+		Assert.assertSame(targetEvaluator, TargetEvaluators.getInstance(newTarget("alice"), expressionFactory, Optional.empty()));
+		Assert.assertNotSame(targetEvaluator, TargetEvaluators.getInstance(newTarget("bob"), expressionFactory, Optional.empty()));
+		// different factory, i.e. different PDP engine
+		Assert.assertNotSame(targetEvaluator, TargetEvaluators.getInstance(newTarget("alice"), newExpressionFactory(), Optional.empty()));
+
+		Assert.assertTrue(targetEvaluator.evaluate(newContext("alice"), Optional.empty()));
+		Assert.assertFalse(targetEvaluator.evaluate(newContext("bob"), Optional.empty()));
+	}
+
+	@Test
+	public void testIdenticalConditionsShared() throws IndeterminateEvaluationException
+	{
+		final DepthLimitingExpressionFactory expressionFactory = newExpressionFactory();
+		final BooleanEvaluator conditionEvaluator = ConditionEvaluators.getInstance(new Condition(XACML_FACTORY.createApply(newSubjectIdApply("alice"))), expressionFactory, Optional.empty());
+		final int sharedEvaluatorCount = expressionFactory.getSharedEvaluatorCount();
+		Assert.assertTrue(sharedEvaluatorCount > 0);
+		Assert.assertSame(conditionEvaluator, ConditionEvaluators.getInstance(new Condition(XACML_FACTORY.createApply(newSubjectIdApply("alice"))), expressionFactory, Optional.empty()));
+		// nothing new to share
+		Assert.assertEquals(sharedEvaluatorCount, expressionFactory.getSharedEvaluatorCount());
+		Assert.assertTrue(conditionEvaluator.evaluate(newContext("alice"), Optional.empty()));
+		Assert.assertFalse(conditionEvaluator.evaluate(newContext("bob"), Optional.empty()));
+	}
+
+	@Test
+	public void testConditionWithVariableReferenceNotShared()
+	{
+		final DepthLimitingExpressionFactory expressionFactory = newExpressionFactory();
+		expressionFactory.addVariable(new VariableDefinition(XACML_FACTORY.createApply(newSubjectIdApply("alice")), "isAlice"), null, Optional.empty());
+		// the VariableDefinition depends on the enclosing policy
+		final Condition condition = new Condition(XACML_FACTORY.createVariableReference(new VariableReferenceType("isAlice")));
+		Assert.assertNotSame(ConditionEvaluators.getInstance(condition, expressionFactory, Optional.empty()), ConditionEvaluators.getInstance(condition, expressionFactory, Optional.empty()));
+	}
+
+	@Test
+	public void testSharedEvaluatorMemoizedPerRequest() throws IndeterminateEvaluationException
+	{
+		final CountingEvaluator delegate = new CountingEvaluator(false);
+		final BooleanEvaluator evaluator = SharedEvaluators.newRequestScopedMemoizingEvaluator(delegate);
+		final EvaluationContext context = newContext("alice");
+		Assert.assertTrue(evaluator.evaluate(context, Optional.empty()));
+		Assert.assertTrue(evaluator.evaluate(context, Optional.empty()));
+		Assert.assertEquals(1, delegate.count.get());
+
+		// new request
+		Assert.assertTrue(evaluator.evaluate(newContext("alice"), Optional.empty()));
+		Assert.assertEquals(2, delegate.count.get());
+
+		// constant evaluators are not wrapped
+		Assert.assertSame(BooleanEvaluators.TRUE, SharedEvaluators.newRequestScopedMemoizingEvaluator(BooleanEvaluators.TRUE));
+	}
+
+	@Test
+	public void testSharedEvaluatorsWithSameHashCodeNotSharingMemo() throws IndeterminateEvaluationException
+	{
+		/*
+		 * Look for two memoizing evaluators with the same (identity) hash code, which is bound to happen among the many Targets/Conditions of large policies
+		 */
+		final Map<Integer, BooleanEvaluator> evaluatorsByHashCode = new HashMap<>();
+		final Map<BooleanEvaluator, CountingEvaluator> delegatesByEvaluator = new HashMap<>();
+		BooleanEvaluator evaluator1 = null;
+		BooleanEvaluator evaluator2 = null;
+		for (int i = 0; i < 10_000_000 && evaluator2 == null; i++)
+		{
+			final CountingEvaluator delegate = new CountingEvaluator(false);
+			final BooleanEvaluator evaluator = SharedEvaluators.newRequestScopedMemoizingEvaluator(delegate);
+			delegatesByEvaluator.put(evaluator, delegate);
+			evaluator1 = evaluatorsByHashCode.putIfAbsent(evaluator.hashCode(), evaluator);
+			if (evaluator1 != null)
+			{
+				evaluator2 = evaluator;
+			}
+		}
+
+		Assert.assertNotNull("No hash code collision found", evaluator2);
+		Assert.assertEquals(evaluator1.hashCode(), evaluator2.hashCode());
+		final CountingEvaluator delegate1 = delegatesByEvaluator.get(evaluator1);
+		final CountingEvaluator delegate2 = delegatesByEvaluator.get(evaluator2);
+		evaluatorsByHashCode.clear();
+		delegatesByEvaluator.clear();
+
+		// each evaluator has its own memo in the same request context
+		final EvaluationContext context = newContext("alice");
+		evaluator1.evaluate(context, Optional.empty());
+		evaluator2.evaluate(context, Optional.empty());
+		evaluator1.evaluate(context, Optional.empty());
+		evaluator2.evaluate(context, Optional.empty());
+		Assert.assertEquals(1, delegate1.count.get());
+		Assert.assertEquals(1, delegate2.count.get());
+	}
+
+	@Test
+	public void testIndeterminateNotMemoized()
+	{
+		final CountingEvaluator delegate = new CountingEvaluator(true);
+		final BooleanEvaluator evaluator = SharedEvaluators.newRequestScopedMemoizingEvaluator(delegate);
+		final EvaluationContext context = newContext("alice");
+		Assert.assertThrows(IndeterminateEvaluationException.class, () -> evaluator.evaluate(context, Optional.empty()));
+		Assert.assertThrows(IndeterminateEvaluationException.class, () -> evaluator.evaluate(context, Optional.empty()));
+		Assert.assertEquals(2, delegate.count.get());
+	}
+}
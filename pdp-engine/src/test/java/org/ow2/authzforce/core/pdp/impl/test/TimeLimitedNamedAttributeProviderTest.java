@@ -0,0 +1,317 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import com.google.common.collect.ImmutableMap;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.value.*;
+import org.ow2.authzforce.core.pdp.impl.*;
+import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link TimeLimitedNamedAttributeProvider}
+ */
+public class TimeLimitedNamedAttributeProviderTest
+{
+	private static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+	private static final AttributeDesignatorType ROLE_DESIGNATOR = new AttributeDesignatorType(SUBJECT_CATEGORY, "role", StandardDatatypes.STRING.getId(), null, false);
+	private static final AttributeFqn SUBJECT_ID = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "urn:oasis:names:tc:xacml:1.0:subject:subject-id");
+	private static final AttributeFqn ROLE = AttributeFqns.newInstance(ROLE_DESIGNATOR);
+	private static final AttributeFqn DEPARTMENT = AttributeFqns.newInstance(SUBJECT_CATEGORY, Optional.empty(), "department");
+
+	private static final AttributeValueFactoryRegistry ATTRIBUTE_VALUE_FACTORIES = StandardAttributeValueFactories.getRegistry(false, Optional.empty());
+
+	private static final long MAX_WAIT_MILLIS = 5_000;
+
+	/*
+	 * Provides the role "<subject-id>-<call number>", the first calls blocking until released, and puts the department in the context
+	 */
+	private static class BlockingAttributeProvider extends BaseNamedAttributeProvider
+	{
+		protected final AtomicInteger getCount = new AtomicInteger();
+		private final int blockingCallCount;
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final CountDownLatch blockedCallsDone;
+
+		private BlockingAttributeProvider(final int blockingCallCount)
+		{
+			super("test");
+			this.blockingCallCount = blockingCallCount;
+			this.blockedCallsDone = new CountDownLatch(blockingCallCount);
+		}
+
+		@Override
+		public Set<AttributeDesignatorType> getProvidedAttributes()
+		{
+			return Set.of(ROLE_DESIGNATOR);
+		}
+
+		protected static String getSubjectId(final EvaluationContext context) throws IndeterminateEvaluationException
+		{
+			return context.getNamedAttributeValue(SUBJECT_ID, StandardDatatypes.STRING).getSingleElement().getUnderlyingValue();
+		}
+
+		@Override
+		public <AV extends AttributeValue> AttributeBag<AV> get(final AttributeFqn attributeFqn, final Datatype<AV> datatype, final EvaluationContext context,
+		        final Optional<EvaluationContext> mdpContext) throws IndeterminateEvaluationException
+		{
+			final int callNumber = getCount.incrementAndGet();
+			if (callNumber <= blockingCallCount)
+			{
+				// not interruptible, like a blocking I/O
+				boolean released = false;
+				while (!released)
+				{
+					try
+					{
+						released = release.await(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+					}
+					catch (final InterruptedException e)
+					{
+						// ignored
+					}
+				}
+			}
+
+			context.putNamedAttributeValue(DEPARTMENT, Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue("it-" + callNumber), AttributeSources.PDP), false);
+			if (callNumber <= blockingCallCount)
+			{
+				blockedCallsDone.countDown();
+			}
+
+			return (AttributeBag<AV>) Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(getSubjectId(context) + "-" + callNumber), AttributeSources.PDP);
+		}
+
+		private void releaseBlockedCalls() throws InterruptedException
+		{
+			release.countDown();
+			Assert.assertTrue(blockedCallsDone.await(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS));
+		}
+
+		@Override
+		public void close()
+		{
+			release.countDown();
+		}
+	}
+
+	/*
+	 * Category-wide provider of the subject category
+	 */
+	private static final class CategoryBulkAttributeProvider extends BlockingAttributeProvider implements CategoryBulkNamedAttributeProvider
+	{
+		private final AtomicInteger getAllCount = new AtomicInteger();
+
+		private CategoryBulkAttributeProvider()
+		{
+			super(0);
+		}
+
+		@Override
+		public Set<AttributeDesignatorType> getProvidedAttributes()
+		{
+			return Set.of(new AttributeDesignatorType(SUBJECT_CATEGORY, null, StandardDatatypes.STRING.getId(), null, false));
+		}
+
+		@Override
+		public Map<AttributeFqn, AttributeBag<?>> getAll(final String category, final EvaluationContext context, final Optional<EvaluationContext> mdpContext)
+		        throws IndeterminateEvaluationException
+		{
+			getAllCount.incrementAndGet();
+			return Map.of(ROLE, Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(getSubjectId(context) + "-bulk"), AttributeSources.PDP), DEPARTMENT,
+			        Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue("it"), AttributeSources.PDP));
+		}
+	}
+
+	private final ExecutorService executor = TimeLimitedNamedAttributeProvider.newExecutor(4);
+
+	@After
+	public void tearDown()
+	{
+		executor.shutdownNow();
+	}
+
+	private TimeLimitedNamedAttributeProvider.Factory newTimeLimitedFactory(final BlockingAttributeProvider provider, final Duration timeout, final Duration hedgingDelay)
+	{
+		return new TimeLimitedNamedAttributeProvider.Factory("test", new CloseableNamedAttributeProvider.DependencyAwareFactory()
+		{
+			@Override
+			public Set<AttributeDesignatorType> getDependencies()
+			{
+				return Set.of();
+			}
+
+			@Override
+			public CloseableNamedAttributeProvider getInstance(final AttributeValueFactoryRegistry attributeValueFactoryRegistry, final NamedAttributeProvider dependencyAttributeProvider)
+			{
+				return provider;
+			}
+		}, executor, timeout, hedgingDelay);
+	}
+
+	private static EvaluationContext newContext(final String subjectId)
+	{
+		return new IndividualDecisionRequestContext(Map.of(SUBJECT_ID, Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue(subjectId), AttributeSources.PDP)), ImmutableMap.of(),
+		        false, Optional.empty());
+	}
+
+	private static String getRole(final NamedAttributeProvider provider, final EvaluationContext context) throws IndeterminateEvaluationException
+	{
+		return provider.get(ROLE, StandardDatatypes.STRING, context, Optional.empty()).getSingleElement().getUnderlyingValue();
+	}
+
+	private static void assertProcessingError(final NamedAttributeProvider provider, final EvaluationContext context)
+	{
+		final IndeterminateEvaluationException error = Assert.assertThrows(IndeterminateEvaluationException.class, () -> getRole(provider, context));
+		Assert.assertEquals(XacmlStatusCode.PROCESSING_ERROR.value(), error.getTopLevelStatus().getStatusCode().getValue());
+	}
+
+	@Test
+	public void testNewAttributesMergedIntoContext() throws IndeterminateEvaluationException, IOException
+	{
+		final BlockingAttributeProvider provider = new BlockingAttributeProvider(0);
+		try (CloseableNamedAttributeProvider timeLimitedProvider = newTimeLimitedFactory(provider, Duration.ofSeconds(10), Duration.ZERO).getInstance(ATTRIBUTE_VALUE_FACTORIES, null))
+		{
+			final EvaluationContext context = newContext("alice");
+			Assert.assertEquals("alice-1", getRole(timeLimitedProvider, context));
+			Assert.assertEquals(new StringValue("it-1"), context.getNamedAttributeValue(DEPARTMENT, StandardDatatypes.STRING).getSingleElement());
+		}
+	}
+
+	@Test
+	public void testTimeout() throws IOException, InterruptedException
+	{
+		final BlockingAttributeProvider provider = new BlockingAttributeProvider(1);
+		try (CloseableNamedAttributeProvider timeLimitedProvider = newTimeLimitedFactory(provider, Duration.ofMillis(100), Duration.ZERO).getInstance(ATTRIBUTE_VALUE_FACTORIES, null))
+		{
+			final EvaluationContext context = newContext("alice");
+			final long startMillis = System.currentTimeMillis();
+			assertProcessingError(timeLimitedProvider, context);
+			Assert.assertTrue(System.currentTimeMillis() - startMillis < MAX_WAIT_MILLIS);
+
+			// the abandoned call does not update the request context
+			provider.releaseBlockedCalls();
+			Assert.assertNull(context.getNamedAttributeValue(DEPARTMENT, StandardDatatypes.STRING));
+		}
+	}
+
+	@Test
+	public void testHedgedCall() throws IndeterminateEvaluationException, IOException, InterruptedException
+	{
+		final BlockingAttributeProvider provider = new BlockingAttributeProvider(1);
+		try (CloseableNamedAttributeProvider timeLimitedProvider = newTimeLimitedFactory(provider, Duration.ofSeconds(10), Duration.ofMillis(50)).getInstance(ATTRIBUTE_VALUE_FACTORIES, null))
+		{
+			final EvaluationContext context = newContext("alice");
+			// result of the hedged (second) call
+			Assert.assertEquals("alice-2", getRole(timeLimitedProvider, context));
+			Assert.assertEquals(2, provider.getCount.get());
+			provider.releaseBlockedCalls();
+			Assert.assertEquals(new StringValue("it-2"), context.getNamedAttributeValue(DEPARTMENT, StandardDatatypes.STRING).getSingleElement());
+		}
+	}
+
+	@Test
+	public void testDeadlineExceeded() throws IOException
+	{
+		final BlockingAttributeProvider provider = new BlockingAttributeProvider(0);
+		try (CloseableNamedAttributeProvider timeLimitedProvider = newTimeLimitedFactory(provider, Duration.ofSeconds(10), Duration.ZERO).getInstance(ATTRIBUTE_VALUE_FACTORIES, null))
+		{
+			final EvaluationContext context = newContext("alice");
+			EvaluationDeadlines.set(context, System.nanoTime() - 1);
+			assertProcessingError(timeLimitedProvider, context);
+			Assert.assertEquals(0, provider.getCount.get());
+		}
+	}
+
+	@Test
+	public void testCallLimitedByDeadline() throws IOException, InterruptedException
+	{
+		final BlockingAttributeProvider provider = new BlockingAttributeProvider(1);
+		try (CloseableNamedAttributeProvider timeLimitedProvider = newTimeLimitedFactory(provider, Duration.ofHours(1), Duration.ZERO).getInstance(ATTRIBUTE_VALUE_FACTORIES, null))
+		{
+			final EvaluationContext context = newContext("alice");
+			EvaluationDeadlines.set(context, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100));
+			final long startMillis = System.currentTimeMillis();
+			assertProcessingError(timeLimitedProvider, context);
+			Assert.assertTrue(System.currentTimeMillis() - startMillis < MAX_WAIT_MILLIS);
+			provider.releaseBlockedCalls();
+		}
+	}
+
+	@Test
+	public void testNoWorkerThreadAvailable() throws IOException, InterruptedException
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		for (int i = 0; i < 4; i++)
+		{
+			executor.execute(() -> {
+				try
+				{
+					release.await();
+				}
+				catch (final InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+
+		final BlockingAttributeProvider provider = new BlockingAttributeProvider(0);
+		try (CloseableNamedAttributeProvider timeLimitedProvider = newTimeLimitedFactory(provider, Duration.ofSeconds(10), Duration.ZERO).getInstance(ATTRIBUTE_VALUE_FACTORIES, null))
+		{
+			assertProcessingError(timeLimitedProvider, newContext("alice"));
+			Assert.assertEquals(0, provider.getCount.get());
+		}
+		finally
+		{
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void testCategoryBulkProviderNotHidden() throws IndeterminateEvaluationException, IOException
+	{
+		final CategoryBulkAttributeProvider provider = new CategoryBulkAttributeProvider();
+		try (CloseableNamedAttributeProviderRegistry registry = new CloseableNamedAttributeProviderRegistry(List.of(newTimeLimitedFactory(provider, Duration.ofSeconds(10), Duration.ZERO)),
+		        ATTRIBUTE_VALUE_FACTORIES, false))
+		{
+			final NamedAttributeProvider registeredProvider = registry.getProviders(ROLE).get(0);
+			final EvaluationContext context = newContext("alice");
+			Assert.assertEquals("alice-bulk", getRole(registeredProvider, context));
+			// the other attributes of the category fetched in the worker thread are put in the request context
+			Assert.assertEquals(new StringValue("it"), context.getNamedAttributeValue(DEPARTMENT, StandardDatatypes.STRING).getSingleElement());
+			Assert.assertEquals(1, provider.getAllCount.get());
+			Assert.assertEquals(0, provider.getCount.get());
+		}
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test;
+
+import com.google.common.collect.ImmutableMap;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ow2.authzforce.core.pdp.api.*;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.TracingPdpEngine;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationTrace;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tests {@link TracingPdpEngine}
+ */
+public class TracingPdpEngineTest
+{
+	private static final long TIMEOUT_MILLIS = 10_000;
+
+	/*
+	 * Engine recording the threads and Multiple Decision contexts of the evaluations
+	 */
+	private static final class RecordingPdpEngine implements CloseablePdpEngine
+	{
+		private final BasePdpEngine engine;
+		private final List<Thread> evaluationThreads = new CopyOnWriteArrayList<>();
+		private final List<EvaluationContext> mdpContexts = new CopyOnWriteArrayList<>();
+
+		private RecordingPdpEngine(final BasePdpEngine engine)
+		{
+			this.engine = engine;
+		}
+
+		@Override
+		public Iterable<PrimaryPolicyMetadata> getApplicablePolicies()
+		{
+			return engine.getApplicablePolicies();
+		}
+
+		@Override
+		public DecisionRequestBuilder<?> newRequestBuilder(final int expectedNumOfAttributeCategories, final int expectedTotalNumOfAttributes)
+		{
+			return engine.newRequestBuilder(expectedNumOfAttributeCategories, expectedTotalNumOfAttributes);
+		}
+
+		@Override
+		public DecisionResult evaluate(final DecisionRequest individualDecisionRequest)
+		{
+			evaluationThreads.add(Thread.currentThread());
+			return engine.evaluate(individualDecisionRequest);
+		}
+
+		@Override
+		public <INDIVIDUAL_DECISION_REQ_T extends DecisionRequest> Collection<Entry<INDIVIDUAL_DECISION_REQ_T, ? extends DecisionResult>> evaluate(
+		        final List<INDIVIDUAL_DECISION_REQ_T> individualDecisionRequests, final EvaluationContext mdpContext) throws IndeterminateEvaluationException
+		{
+			evaluationThreads.add(Thread.currentThread());
+			mdpContexts.add(mdpContext);
+			return engine.evaluate(individualDecisionRequests, mdpContext);
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			engine.close();
+		}
+	}
+
+	@Rule
+	public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+	private PdpEngineConfiguration configuration;
+	private RecordingPdpEngine recordingEngine;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		final Path policyFile = tmpDir.getRoot().toPath().resolve("policy.xml");
+		Files.writeString(policyFile, "<Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"P1\" Version=\"1.0\" "
+		        + "RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-unless-permit\"><Target/><Rule RuleId=\"rule1\" Effect=\"Permit\"><Target><AnyOf><AllOf>"
+		        + "<Match MatchId=\"urn:oasis:names:tc:xacml:1.0:function:string-equal\"><AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">alice</AttributeValue>"
+		        + "<AttributeDesignator Category=\"urn:oasis:names:tc:xacml:1.0:subject-category:access-subject\" AttributeId=\"urn:oasis:names:tc:xacml:1.0:subject:subject-id\" "
+		        + "DataType=\"http://www.w3.org/2001/XMLSchema#string\" MustBePresent=\"false\"/></Match></AllOf></AnyOf></Target></Rule></Policy>",
+		        StandardCharsets.UTF_8);
+		final Path confFile = tmpDir.getRoot().toPath().resolve("pdp.xml");
+		Files.writeString(confFile, "<pdp xmlns=\"http://authzforce.github.io/core/xmlns/pdp/8\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" version=\"8.1\">"
+		        + "<policyProvider id=\"policyProvider\" xsi:type=\"StaticPolicyProvider\"><policyLocation>${PARENT_DIR}/policy.xml</policyLocation></policyProvider></pdp>", StandardCharsets.UTF_8);
+		configuration = PdpEngineConfiguration.getInstance(confFile.toString());
+		recordingEngine = new RecordingPdpEngine(new BasePdpEngine(configuration));
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		configuration.getPolicyProvider().close();
+	}
+
+	private static List<EvaluationTrace> waitForTraces(final TracingPdpEngine engine, final int count) throws InterruptedException
+	{
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		List<EvaluationTrace> traces = engine.getTraces();
+		while (traces.size() < count && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(10);
+			traces = engine.getTraces();
+		}
+
+		return traces;
+	}
+
+	@Test
+	public void testSampledRequestTracedDuringEvaluation() throws IOException
+	{
+		try (TracingPdpEngine engine = new TracingPdpEngine(recordingEngine, Duration.ofHours(1), 1, 10))
+		{
+			Assert.assertEquals(DecisionType.DENY, engine.evaluate(engine.newRequestBuilder(0, 0).build(false)).getDecision());
+			final List<EvaluationTrace> traces = engine.getTraces();
+			Assert.assertEquals(1, traces.size());
+			Assert.assertTrue(traces.get(0).getDescription().startsWith("Sampled"));
+			Assert.assertEquals(String.valueOf(DecisionType.DENY), traces.get(0).getResult());
+			Assert.assertFalse(traces.get(0).getSteps().isEmpty());
+			// not evaluated again
+			Assert.assertEquals(List.of(Thread.currentThread()), recordingEngine.evaluationThreads);
+		}
+	}
+
+	@Test
+	public void testFastRequestNotTraced() throws IOException
+	{
+		try (TracingPdpEngine engine = new TracingPdpEngine(recordingEngine, Duration.ofHours(1), 0, 10))
+		{
+			engine.evaluate(engine.newRequestBuilder(0, 0).build(false));
+			Assert.assertTrue(engine.getTraces().isEmpty());
+			Assert.assertEquals(1, recordingEngine.evaluationThreads.size());
+		}
+	}
+
+	@Test
+	public void testSlowRequestTracedAsynchronously() throws IOException, InterruptedException
+	{
+		try (TracingPdpEngine engine = new TracingPdpEngine(recordingEngine, Duration.ZERO, 0, 10))
+		{
+			Assert.assertEquals(DecisionType.DENY, engine.evaluate(engine.newRequestBuilder(0, 0).build(false)).getDecision());
+			final List<EvaluationTrace> traces = waitForTraces(engine, 1);
+			Assert.assertEquals(1, traces.size());
+			Assert.assertTrue(traces.get(0).getDescription().startsWith("Slow"));
+			Assert.assertFalse(traces.get(0).getSteps().isEmpty());
+
+			// first evaluation in the caller's thread, re-evaluation with tracing in another one
+			Assert.assertEquals(2, recordingEngine.evaluationThreads.size());
+			Assert.assertSame(Thread.currentThread(), recordingEngine.evaluationThreads.get(0));
+			Assert.assertNotSame(Thread.currentThread(), recordingEngine.evaluationThreads.get(1));
+		}
+	}
+
+	@Test
+	public void testSlowMultipleDecisionRequestTracedInNewContext() throws IOException, InterruptedException, IndeterminateEvaluationException
+	{
+		try (TracingPdpEngine engine = new TracingPdpEngine(recordingEngine, Duration.ZERO, 0, 10))
+		{
+			final List<DecisionRequest> requests = List.of(engine.newRequestBuilder(0, 0).build(false), engine.newRequestBuilder(0, 0).build(true));
+			final EvaluationContext mdpContext = new IndividualDecisionRequestContext(Map.of(), ImmutableMap.of(), false, Optional.empty());
+			Assert.assertEquals(2, engine.evaluate(requests, mdpContext).size());
+			final List<EvaluationTrace> traces = waitForTraces(engine, 1);
+			Assert.assertEquals(1, traces.size());
+			Assert.assertEquals("2 result(s)", traces.get(0).getResult());
+
+			Assert.assertEquals(2, recordingEngine.mdpContexts.size());
+			Assert.assertSame(mdpContext, recordingEngine.mdpContexts.get(0));
+			Assert.assertNotSame(mdpContext, recordingEngine.mdpContexts.get(1));
+		}
+	}
+}
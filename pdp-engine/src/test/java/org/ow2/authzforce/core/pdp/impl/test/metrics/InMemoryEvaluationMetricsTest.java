@@ -0,0 +1,150 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test.metrics;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.DecisionRequest;
+import org.ow2.authzforce.core.pdp.api.policy.BasePrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyVersion;
+import org.ow2.authzforce.core.pdp.api.policy.PrimaryPolicyMetadata;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementType;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.metrics.EvaluationMetricsListener.RuleKey;
+import org.ow2.authzforce.core.pdp.impl.metrics.InMemoryEvaluationMetrics;
+import org.ow2.authzforce.core.pdp.impl.metrics.InMemoryEvaluationMetrics.Snapshot;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Tests the counters of {@link InMemoryEvaluationMetrics}
+ */
+public class InMemoryEvaluationMetricsTest
+{
+	private static final PrimaryPolicyMetadata POLICY_P1 = new BasePrimaryPolicyMetadata(TopLevelPolicyElementType.POLICY, "P1", new PolicyVersion("1.0"));
+	private static final PrimaryPolicyMetadata POLICY_P2 = new BasePrimaryPolicyMetadata(TopLevelPolicyElementType.POLICY, "P2", new PolicyVersion("1.0"));
+
+	@Rule
+	public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+	@Test
+	public void testRuleSnapshot()
+	{
+		final InMemoryEvaluationMetrics metrics = new InMemoryEvaluationMetrics();
+		metrics.ruleEvaluated(new RuleKey(POLICY_P1, "rule1"), DecisionType.PERMIT, 500);
+		metrics.ruleEvaluated(new RuleKey(POLICY_P1, "rule1"), DecisionType.PERMIT, 1500);
+		metrics.ruleEvaluated(new RuleKey(POLICY_P1, "rule1"), DecisionType.NOT_APPLICABLE, 3000);
+		metrics.ruleEvaluated(new RuleKey(POLICY_P1, "rule1"), DecisionType.INDETERMINATE, 100_000_000_000L);
+		metrics.ruleEvaluated(new RuleKey(POLICY_P1, "rule2"), DecisionType.DENY, 10);
+		// same RuleId in another policy
+		metrics.ruleEvaluated(new RuleKey(POLICY_P2, "rule1"), DecisionType.DENY, 10);
+
+		final Snapshot snapshot = metrics.getRuleSnapshots().get(new RuleKey(POLICY_P1, "rule1"));
+		Assert.assertNotNull(snapshot);
+		Assert.assertEquals(4, snapshot.count());
+		Assert.assertEquals(2, snapshot.permitCount());
+		Assert.assertEquals(0, snapshot.denyCount());
+		Assert.assertEquals(1, snapshot.notApplicableCount());
+		Assert.assertEquals(1, snapshot.indeterminateCount());
+		Assert.assertEquals(100_000_005_000L, snapshot.totalNanos());
+
+		final long[] histogram = snapshot.latencyHistogram();
+		Assert.assertEquals(InMemoryEvaluationMetrics.LATENCY_BUCKET_COUNT, histogram.length);
+		// 500 ns < 2^10
+		Assert.assertEquals(1, histogram[0]);
+		// 2^10 <= 1500 ns < 2^11
+		Assert.assertEquals(1, histogram[1]);
+		// 2^11 <= 3000 ns < 2^12
+		Assert.assertEquals(1, histogram[2]);
+		// 100 s > 2^36 ns
+		Assert.assertEquals(1, histogram[InMemoryEvaluationMetrics.LATENCY_BUCKET_COUNT - 1]);
+		Assert.assertEquals(2048, InMemoryEvaluationMetrics.getLatencyBucketUpperBound(1));
+
+		Assert.assertEquals(1, metrics.getRuleSnapshots().get(new RuleKey(POLICY_P1, "rule2")).denyCount());
+		Assert.assertEquals(1, metrics.getRuleSnapshots().get(new RuleKey(POLICY_P2, "rule1")).count());
+	}
+
+	@Test
+	public void testMetricsPerEngine() throws IOException
+	{
+		/*
+		 * Rule with a Target (not optimized away like empty rules) on subject-id, NotApplicable since there is no subject-id in the request
+		 */
+		final Path policyFile = tmpDir.getRoot().toPath().resolve("policy.xml");
+		Files.writeString(policyFile, "<Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"P1\" Version=\"1.0\" "
+		        + "RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-unless-permit\"><Target/><Rule RuleId=\"rule1\" Effect=\"Permit\"><Target><AnyOf><AllOf>"
+		        + "<Match MatchId=\"urn:oasis:names:tc:xacml:1.0:function:string-equal\"><AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">alice</AttributeValue>"
+		        + "<AttributeDesignator Category=\"urn:oasis:names:tc:xacml:1.0:subject-category:access-subject\" AttributeId=\"urn:oasis:names:tc:xacml:1.0:subject:subject-id\" "
+		        + "DataType=\"http://www.w3.org/2001/XMLSchema#string\" MustBePresent=\"false\"/></Match></AllOf></AnyOf></Target></Rule></Policy>",
+		        StandardCharsets.UTF_8);
+		final Path confFile = tmpDir.getRoot().toPath().resolve("pdp.xml");
+		Files.writeString(confFile, "<pdp xmlns=\"http://authzforce.github.io/core/xmlns/pdp/8\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" version=\"8.1\">"
+		        + "<policyProvider id=\"policyProvider\" xsi:type=\"StaticPolicyProvider\"><policyLocation>${PARENT_DIR}/policy.xml</policyLocation></policyProvider></pdp>", StandardCharsets.UTF_8);
+		final PdpEngineConfiguration conf = PdpEngineConfiguration.getInstance(confFile.toString());
+		final InMemoryEvaluationMetrics metrics1 = new InMemoryEvaluationMetrics();
+		final InMemoryEvaluationMetrics metrics2 = new InMemoryEvaluationMetrics();
+		try
+		{
+			final BasePdpEngine engine1 = new BasePdpEngine(conf.withMetricsListener(metrics1));
+			final BasePdpEngine engine2 = new BasePdpEngine(conf.withMetricsListener(metrics2));
+			final BasePdpEngine engineWithoutMetrics = new BasePdpEngine(conf);
+			final DecisionRequest request = engine1.newRequestBuilder(0, 0).build(false);
+			Assert.assertEquals(DecisionType.DENY, engine1.evaluate(request).getDecision());
+			Assert.assertEquals(DecisionType.DENY, engine1.evaluate(request).getDecision());
+			Assert.assertEquals(DecisionType.DENY, engine2.evaluate(request).getDecision());
+			Assert.assertEquals(DecisionType.DENY, engineWithoutMetrics.evaluate(request).getDecision());
+
+			Assert.assertEquals(2, metrics1.getPolicySnapshots().get(POLICY_P1).denyCount());
+			Assert.assertEquals(2, metrics1.getRuleSnapshots().get(new RuleKey(POLICY_P1, "rule1")).notApplicableCount());
+			Assert.assertEquals(1, metrics2.getPolicySnapshots().get(POLICY_P1).denyCount());
+			Assert.assertEquals(1, metrics2.getRuleSnapshots().get(new RuleKey(POLICY_P1, "rule1")).notApplicableCount());
+			Assert.assertFalse(conf.getMetricsListener().isPresent());
+		}
+		finally
+		{
+			conf.getPolicyProvider().close();
+		}
+	}
+
+	@Test
+	public void testAttributeProviderSnapshotAndReset()
+	{
+		final InMemoryEvaluationMetrics metrics = new InMemoryEvaluationMetrics();
+		final AttributeFqn attribute = AttributeFqns.newInstance("urn:oasis:names:tc:xacml:1.0:subject-category:access-subject", Optional.empty(), "role");
+		metrics.attributeProviderCalled(attribute, false, 2000);
+		metrics.attributeProviderCalled(attribute, true, 4000);
+
+		final Snapshot snapshot = metrics.getAttributeProviderSnapshots().get(attribute);
+		Assert.assertEquals(2, snapshot.count());
+		Assert.assertEquals(1, snapshot.indeterminateCount());
+		Assert.assertEquals(3000, snapshot.meanNanos());
+
+		metrics.reset();
+		Assert.assertTrue(metrics.getAttributeProviderSnapshots().isEmpty());
+	}
+}
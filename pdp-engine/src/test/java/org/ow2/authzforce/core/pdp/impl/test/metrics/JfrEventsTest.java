@@ -0,0 +1,165 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test.metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ow2.authzforce.core.pdp.api.AttributeFqn;
+import org.ow2.authzforce.core.pdp.api.AttributeFqns;
+import org.ow2.authzforce.core.pdp.api.AttributeSources;
+import org.ow2.authzforce.core.pdp.api.DecisionRequest;
+import org.ow2.authzforce.core.pdp.api.value.Bags;
+import org.ow2.authzforce.core.pdp.api.value.StandardDatatypes;
+import org.ow2.authzforce.core.pdp.api.value.StringValue;
+import org.ow2.authzforce.core.pdp.impl.BasePdpEngine;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.metrics.AttributeProviderFetchEvent;
+import org.ow2.authzforce.core.pdp.impl.metrics.DecisionCacheLookupEvent;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Tests the JFR events of the PDP
+ */
+public class JfrEventsTest
+{
+	private static final String DECISION_EVALUATION_EVENT = "org.ow2.authzforce.pdp.DecisionEvaluation";
+	private static final String POLICY_RESOLUTION_EVENT = "org.ow2.authzforce.pdp.PolicyResolution";
+	private static final String ATTRIBUTE_PROVIDER_FETCH_EVENT = "org.ow2.authzforce.pdp.AttributeProviderFetch";
+	private static final String DECISION_CACHE_LOOKUP_EVENT = "org.ow2.authzforce.pdp.DecisionCacheLookup";
+
+	@Rule
+	public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+	private static Recording newRecording(final String... eventNames)
+	{
+		final Recording recording = new Recording();
+		for (final String eventName : eventNames)
+		{
+			recording.enable(eventName);
+		}
+
+		return recording;
+	}
+
+	/*
+	 * Stops the recording and returns the events recorded by the current thread
+	 */
+	private List<RecordedEvent> stopAndGetEvents(final Recording recording) throws IOException
+	{
+		recording.stop();
+		final Path file = tmpDir.newFile().toPath();
+		recording.dump(file);
+		final String threadName = Thread.currentThread().getName();
+		return RecordingFile.readAllEvents(file).stream().filter(event -> event.getThread() != null && threadName.equals(event.getThread().getJavaName())).collect(Collectors.toList());
+	}
+
+	private static List<RecordedEvent> getEvents(final List<RecordedEvent> events, final String eventName)
+	{
+		return events.stream().filter(event -> event.getEventType().getName().equals(eventName)).collect(Collectors.toList());
+	}
+
+	@Test
+	public void testDecisionEvaluationAndPolicyResolutionEvents() throws IOException
+	{
+		final Path policyFile = tmpDir.getRoot().toPath().resolve("policy.xml");
+		Files.writeString(policyFile, "<Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"P1\" Version=\"1.0\" "
+		        + "RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-unless-permit\"><Target/></Policy>", StandardCharsets.UTF_8);
+		final Path confFile = tmpDir.getRoot().toPath().resolve("pdp.xml");
+		Files.writeString(confFile, "<pdp xmlns=\"http://authzforce.github.io/core/xmlns/pdp/8\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" version=\"8.1\">"
+		        + "<policyProvider id=\"policyProvider\" xsi:type=\"StaticPolicyProvider\"><policyLocation>${PARENT_DIR}/policy.xml</policyLocation></policyProvider></pdp>", StandardCharsets.UTF_8);
+		final PdpEngineConfiguration conf = PdpEngineConfiguration.getInstance(confFile.toString());
+		try (Recording recording = newRecording(DECISION_EVALUATION_EVENT, POLICY_RESOLUTION_EVENT))
+		{
+			recording.start();
+			// the static root policy is resolved when the engine is created
+			try (BasePdpEngine engine = new BasePdpEngine(conf))
+			{
+				final DecisionRequest request = engine.newRequestBuilder(0, 0).build(false);
+				Assert.assertEquals(DecisionType.DENY, engine.evaluate(request).getDecision());
+			}
+
+			final List<RecordedEvent> events = stopAndGetEvents(recording);
+			final List<RecordedEvent> policyResolutionEvents = getEvents(events, POLICY_RESOLUTION_EVENT);
+			Assert.assertEquals(1, policyResolutionEvents.size());
+			final RecordedEvent policyResolutionEvent = policyResolutionEvents.get(0);
+			Assert.assertEquals("P1", policyResolutionEvent.getString("policyId"));
+			Assert.assertTrue(policyResolutionEvent.getBoolean("found"));
+			Assert.assertEquals("1.0", policyResolutionEvent.getString("resolvedVersion"));
+
+			final List<RecordedEvent> decisionEvents = getEvents(events, DECISION_EVALUATION_EVENT);
+			Assert.assertEquals(1, decisionEvents.size());
+			Assert.assertEquals(DecisionType.DENY.value(), decisionEvents.get(0).getString("decision"));
+			Assert.assertFalse(decisionEvents.get(0).getBoolean("multipleDecisionRequest"));
+		}
+	}
+
+	@Test
+	public void testAttributeProviderFetchEvent() throws IOException
+	{
+		final AttributeFqn attribute = AttributeFqns.newInstance("urn:oasis:names:tc:xacml:1.0:subject-category:access-subject", Optional.of("issuer"), "role");
+		try (Recording recording = newRecording(ATTRIBUTE_PROVIDER_FETCH_EVENT))
+		{
+			recording.start();
+			final AttributeProviderFetchEvent event = new AttributeProviderFetchEvent();
+			event.begin();
+			event.report(attribute, StandardDatatypes.STRING, Bags.singletonAttributeBag(StandardDatatypes.STRING, new StringValue("dev"), AttributeSources.PDP));
+			final AttributeProviderFetchEvent failedEvent = new AttributeProviderFetchEvent();
+			failedEvent.begin();
+			failedEvent.report(attribute, StandardDatatypes.STRING, null);
+
+			final List<RecordedEvent> events = getEvents(stopAndGetEvents(recording), ATTRIBUTE_PROVIDER_FETCH_EVENT);
+			Assert.assertEquals(2, events.size());
+			final RecordedEvent recordedEvent = events.get(0);
+			Assert.assertEquals(attribute.getCategory(), recordedEvent.getString("attributeCategory"));
+			Assert.assertEquals(attribute.getId(), recordedEvent.getString("attributeId"));
+			Assert.assertEquals("issuer", recordedEvent.getString("attributeIssuer"));
+			Assert.assertEquals(StandardDatatypes.STRING.getId(), recordedEvent.getString("datatype"));
+			Assert.assertEquals(1, recordedEvent.getInt("valueCount"));
+			Assert.assertFalse(recordedEvent.getBoolean("failed"));
+			Assert.assertTrue(events.get(1).getBoolean("failed"));
+			Assert.assertEquals(0, events.get(1).getInt("valueCount"));
+		}
+	}
+
+	@Test
+	public void testDisabledEventNotRecorded() throws IOException
+	{
+		try (Recording recording = new Recording())
+		{
+			recording.disable(DECISION_CACHE_LOOKUP_EVENT);
+			recording.start();
+			final DecisionCacheLookupEvent event = new DecisionCacheLookupEvent();
+			event.begin();
+			event.report(2, 1);
+			Assert.assertTrue(getEvents(stopAndGetEvents(recording), DECISION_CACHE_LOOKUP_EVENT).isEmpty());
+		}
+	}
+}
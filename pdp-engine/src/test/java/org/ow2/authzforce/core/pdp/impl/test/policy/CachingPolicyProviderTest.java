@@ -0,0 +1,202 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test.policy;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
+import org.ow2.authzforce.core.pdp.api.io.XacmlJaxbParsingUtils;
+import org.ow2.authzforce.core.pdp.api.policy.*;
+import org.ow2.authzforce.core.pdp.api.value.StandardAttributeValueFactories;
+import org.ow2.authzforce.core.pdp.impl.DefaultEnvironmentProperties;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
+import org.ow2.authzforce.core.pdp.impl.combining.StandardCombiningAlgorithm;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+import org.ow2.authzforce.core.pdp.impl.policy.CachingPolicyProvider;
+import org.ow2.authzforce.core.pdp.impl.policy.CoreStaticPolicyProvider;
+import org.ow2.authzforce.core.xmlns.pdp.StaticPolicyProvider;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link CachingPolicyProvider}
+ */
+public class CachingPolicyProviderTest
+{
+	private static final ExpressionFactory EXPRESSION_FACTORY = new DepthLimitingExpressionFactory(StandardAttributeValueFactories.getRegistry(false, Optional.empty()),
+	        StandardFunction.getRegistry(false, StandardAttributeValueFactories.BIG_INTEGER), 0, false, false, Optional.empty());
+
+	/*
+	 * Policy provider counting the policy resolutions, delegating to a static policy provider
+	 */
+	private static final class CountingPolicyProvider implements CloseablePolicyProvider<StaticTopLevelPolicyElementEvaluator>
+	{
+		private final CloseableStaticPolicyProvider delegate;
+		private final AtomicInteger count = new AtomicInteger();
+
+		private CountingPolicyProvider(final CloseableStaticPolicyProvider delegate)
+		{
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Deque<String> joinPolicyRefChains(final Deque<String> policyRefChain1, final List<String> policyRefChain2) throws IllegalArgumentException
+		{
+			return delegate.joinPolicyRefChains(policyRefChain1, policyRefChain2);
+		}
+
+		@Override
+		public StaticTopLevelPolicyElementEvaluator get(final TopLevelPolicyElementType policyType, final String policyId, final Optional<PolicyVersionPatterns> policyVersionConstraints,
+		        final Deque<String> policySetRefChain, final EvaluationContext evaluationCtx, final Optional<EvaluationContext> mdpCtx) throws IllegalArgumentException, IndeterminateEvaluationException
+		{
+			count.incrementAndGet();
+			return delegate.get(policyType, policyId, policyVersionConstraints, policySetRefChain);
+		}
+
+		@Override
+		public Optional<PrimaryPolicyMetadata> getCandidateRootPolicy()
+		{
+			return delegate.getCandidateRootPolicy();
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			delegate.close();
+		}
+	}
+
+	@Rule
+	public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+	private CountingPolicyProvider countingPolicyProvider;
+
+	private static EvaluationContext newContext()
+	{
+		return new IndividualDecisionRequestContext(Map.of(), ImmutableMap.of(), false, Optional.empty());
+	}
+
+	private static StaticTopLevelPolicyElementEvaluator get(final CachingPolicyProvider<StaticTopLevelPolicyElementEvaluator> provider, final TopLevelPolicyElementType policyType,
+	        final String policyId) throws IndeterminateEvaluationException
+	{
+		return provider.get(policyType, policyId, Optional.empty(), new ArrayDeque<>(), newContext(), Optional.empty());
+	}
+
+	/*
+	 * Policies P0 and P1, PolicySet PS1 referring to P1
+	 */
+	@Before
+	public void setUp() throws IOException
+	{
+		final List<String> policyLocations = new ArrayList<>();
+		for (final String policyId : List.of("P0", "P1"))
+		{
+			final Path policyFile = tmpDir.getRoot().toPath().resolve(policyId + ".xml");
+			Files.writeString(policyFile, "<Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"" + policyId
+			        + "\" Version=\"1.0\" RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-unless-permit\"><Target/><Rule RuleId=\"permit\" Effect=\"Permit\"/></Policy>",
+			        StandardCharsets.UTF_8);
+			policyLocations.add(policyFile.toUri().toString());
+		}
+
+		final Path policySetFile = tmpDir.getRoot().toPath().resolve("PS1.xml");
+		Files.writeString(policySetFile, "<PolicySet xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicySetId=\"PS1\" Version=\"1.0\" "
+		        + "PolicyCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:policy-combining-algorithm:permit-overrides\"><Target/><PolicyIdReference>P1</PolicyIdReference></PolicySet>",
+		        StandardCharsets.UTF_8);
+		policyLocations.add(policySetFile.toUri().toString());
+
+		final StaticPolicyProvider conf = new StaticPolicyProvider(policyLocations, false, null, null, null, null);
+		conf.setId("test");
+		countingPolicyProvider = new CountingPolicyProvider((CloseableStaticPolicyProvider) new CoreStaticPolicyProvider.Factory().getInstance(conf,
+		        XacmlJaxbParsingUtils.getXacmlParserFactory(false), -1, EXPRESSION_FACTORY, StandardCombiningAlgorithm.REGISTRY, new DefaultEnvironmentProperties(), Optional.empty()));
+	}
+
+	@Test
+	public void testCachedWithinTtl() throws IOException, IndeterminateEvaluationException
+	{
+		try (CachingPolicyProvider<StaticTopLevelPolicyElementEvaluator> provider = new CachingPolicyProvider<>(countingPolicyProvider, Duration.ofHours(1), 100))
+		{
+			final StaticTopLevelPolicyElementEvaluator policy = get(provider, TopLevelPolicyElementType.POLICY, "P0");
+			Assert.assertSame(policy, get(provider, TopLevelPolicyElementType.POLICY, "P0"));
+			Assert.assertEquals(1, countingPolicyProvider.count.get());
+
+			// absence of matching policy cached as well
+			Assert.assertNull(get(provider, TopLevelPolicyElementType.POLICY, "unknown"));
+			Assert.assertNull(get(provider, TopLevelPolicyElementType.POLICY, "unknown"));
+			Assert.assertEquals(2, countingPolicyProvider.count.get());
+
+			// version patterns are part of the cache key
+			Assert.assertNotNull(provider.get(TopLevelPolicyElementType.POLICY, "P0", Optional.of(new PolicyVersionPatterns("1.0", null, null)), null, newContext(), Optional.empty()));
+			Assert.assertEquals(3, countingPolicyProvider.count.get());
+		}
+	}
+
+	@Test
+	public void testTtlExpiry() throws IOException, IndeterminateEvaluationException, InterruptedException
+	{
+		final Duration ttl = Duration.ofMillis(200);
+		try (CachingPolicyProvider<StaticTopLevelPolicyElementEvaluator> provider = new CachingPolicyProvider<>(countingPolicyProvider, ttl, 100))
+		{
+			get(provider, TopLevelPolicyElementType.POLICY, "P0");
+			get(provider, TopLevelPolicyElementType.POLICY, "P0");
+			Assert.assertEquals(1, countingPolicyProvider.count.get());
+
+			Thread.sleep(ttl.multipliedBy(2).toMillis());
+			get(provider, TopLevelPolicyElementType.POLICY, "P0");
+			Assert.assertEquals(2, countingPolicyProvider.count.get());
+		}
+	}
+
+	@Test
+	public void testInvalidate() throws IOException, IndeterminateEvaluationException
+	{
+		try (CachingPolicyProvider<StaticTopLevelPolicyElementEvaluator> provider = new CachingPolicyProvider<>(countingPolicyProvider, Duration.ofHours(1), 100))
+		{
+			get(provider, TopLevelPolicyElementType.POLICY, "P0");
+			get(provider, TopLevelPolicyElementType.POLICY, "P1");
+			get(provider, TopLevelPolicyElementType.POLICY_SET, "PS1");
+			Assert.assertEquals(3, countingPolicyProvider.count.get());
+
+			// P1 and PS1 referring to it
+			provider.invalidate(TopLevelPolicyElementType.POLICY, "P1");
+			get(provider, TopLevelPolicyElementType.POLICY, "P0");
+			Assert.assertEquals(3, countingPolicyProvider.count.get());
+			get(provider, TopLevelPolicyElementType.POLICY, "P1");
+			get(provider, TopLevelPolicyElementType.POLICY_SET, "PS1");
+			Assert.assertEquals(5, countingPolicyProvider.count.get());
+
+			provider.invalidateAll();
+			get(provider, TopLevelPolicyElementType.POLICY, "P0");
+			get(provider, TopLevelPolicyElementType.POLICY, "P1");
+			get(provider, TopLevelPolicyElementType.POLICY_SET, "PS1");
+			Assert.assertEquals(8, countingPolicyProvider.count.get());
+		}
+	}
+}
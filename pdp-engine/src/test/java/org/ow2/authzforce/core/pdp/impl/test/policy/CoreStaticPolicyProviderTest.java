@@ -0,0 +1,512 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test.policy;
+
+import com.google.common.collect.ImmutableMap;
+import jakarta.xml.bind.JAXBException;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.Policy;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ow2.authzforce.core.pdp.api.EvaluationContext;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.expression.ExpressionFactory;
+import org.ow2.authzforce.core.pdp.api.io.XacmlJaxbParsingUtils;
+import org.ow2.authzforce.core.pdp.api.policy.*;
+import org.ow2.authzforce.core.pdp.api.value.StandardAttributeValueFactories;
+import org.ow2.authzforce.core.pdp.impl.DefaultEnvironmentProperties;
+import org.ow2.authzforce.core.pdp.impl.IndividualDecisionRequestContext;
+import org.ow2.authzforce.core.pdp.impl.combining.StandardCombiningAlgorithm;
+import org.ow2.authzforce.core.pdp.impl.expression.DepthLimitingExpressionFactory;
+import org.ow2.authzforce.core.pdp.impl.func.StandardFunction;
+import org.ow2.authzforce.core.pdp.impl.policy.CoreStaticPolicyProvider;
+import org.ow2.authzforce.core.xmlns.pdp.StaticPolicyProvider;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Tests {@link CoreStaticPolicyProvider} loading options
+ */
+public class CoreStaticPolicyProviderTest
+{
+	private static final int SNAPSHOT_MAGIC_NUMBER = 0x415A5053;
+	private static final ExpressionFactory EXPRESSION_FACTORY = new DepthLimitingExpressionFactory(StandardAttributeValueFactories.getRegistry(false, Optional.empty()),
+	        StandardFunction.getRegistry(false, StandardAttributeValueFactories.BIG_INTEGER), 0, false, false, Optional.empty());
+
+	@Rule
+	public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+	private static String newPolicy(final String policyId, final String version)
+	{
+		return "<Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"" + policyId + "\" Version=\"" + version
+		        + "\" RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-unless-permit\"><Target/><Rule RuleId=\"permit\" Effect=\"Permit\"/></Policy>";
+	}
+
+	/*
+	 * Writes the policy file, preserving the last modification time of the previous version if preserveLastModifiedTime
+	 */
+	private static void writePolicy(final Path file, final String version, final boolean preserveLastModifiedTime) throws IOException
+	{
+		final FileTime lastModifiedTime = preserveLastModifiedTime ? Files.getLastModifiedTime(file) : null;
+		Files.writeString(file, newPolicy("P1", version), StandardCharsets.UTF_8);
+		if (lastModifiedTime != null)
+		{
+			Files.setLastModifiedTime(file, lastModifiedTime);
+		}
+	}
+
+	/*
+	 * PolicySet PS{index} referring to Policy P{index} and PolicySet PS{index - 1} (if index > 0)
+	 */
+	private static String newPolicySet(final int index)
+	{
+		return "<PolicySet xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicySetId=\"PS" + index
+		        + "\" Version=\"1.0\" PolicyCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:policy-combining-algorithm:permit-overrides\"><Target/><PolicyIdReference>P" + index + "</PolicyIdReference>"
+		        + (index > 0 ? "<PolicySetIdReference>PS" + (index - 1) + "</PolicySetIdReference>" : "") + "</PolicySet>";
+	}
+
+	/*
+	 * The configuration model is immutable (except the ID)
+	 */
+	private static StaticPolicyProvider newConf(final List<String> policyLocations, final boolean ignoreOldVersions, final int parallelism, final boolean lazyCompilation,
+	        final String snapshotLocation, final boolean incrementalReload)
+	{
+		final StaticPolicyProvider conf = new StaticPolicyProvider(new ArrayList<>(policyLocations), ignoreOldVersions, parallelism, lazyCompilation, snapshotLocation, incrementalReload);
+		conf.setId("test");
+		return conf;
+	}
+
+	private static StaticPolicyProvider newConf(final List<String> policyLocations, final boolean ignoreOldVersions, final int parallelism, final boolean lazyCompilation,
+	        final String snapshotLocation)
+	{
+		return newConf(policyLocations, ignoreOldVersions, parallelism, lazyCompilation, snapshotLocation, false);
+	}
+
+	private static StaticPolicyProvider newConf(final Path policyFile, final Path snapshotFile)
+	{
+		return newConf(List.of(policyFile.toUri().toString()), false, 1, false, snapshotFile.toString());
+	}
+
+	private static CloseablePolicyProvider<?> newProvider(final StaticPolicyProvider conf)
+	{
+		return new CoreStaticPolicyProvider.Factory().getInstance(conf, XacmlJaxbParsingUtils.getXacmlParserFactory(false), -1, EXPRESSION_FACTORY, StandardCombiningAlgorithm.REGISTRY,
+		        new DefaultEnvironmentProperties(), Optional.empty());
+	}
+
+	/*
+	 * Returns the version of the (single) policy loaded by the provider
+	 */
+	private static String loadPolicyVersion(final StaticPolicyProvider conf) throws IOException
+	{
+		try (CloseablePolicyProvider<?> provider = newProvider(conf))
+		{
+			return provider.getCandidateRootPolicy().orElseThrow().getVersion().toString();
+		}
+	}
+
+	/*
+	 * Returns, for each policy P{i} (versions 1.0 and 1.1) and PolicySet PS{i} (version 1.0), a description made of: version, referenced policies, longest policy reference chain and decision for an
+	 * empty request
+	 */
+	private static List<String> describePolicies(final CloseablePolicyProvider<?> provider, final int policyCount) throws IndeterminateEvaluationException
+	{
+		final org.ow2.authzforce.core.pdp.api.policy.StaticPolicyProvider staticProvider = (org.ow2.authzforce.core.pdp.api.policy.StaticPolicyProvider) provider;
+		final List<String> descriptions = new ArrayList<>();
+		for (int i = 0; i < policyCount; i++)
+		{
+			for (final String version : List.of("1.0", "1.1"))
+			{
+				descriptions.add(describe(staticProvider.get(TopLevelPolicyElementType.POLICY, "P" + i, Optional.of(new PolicyVersionPatterns(version, null, null)), null)));
+			}
+
+			descriptions.add(describe(staticProvider.get(TopLevelPolicyElementType.POLICY_SET, "PS" + i, Optional.empty(), new ArrayDeque<>())));
+		}
+
+		return descriptions;
+	}
+
+	private static String describe(final StaticTopLevelPolicyElementEvaluator policy)
+	{
+		final EvaluationContext context = new IndividualDecisionRequestContext(Map.of(), ImmutableMap.of(), false, Optional.empty());
+		final List<String> refPolicies = policy.getPolicyRefsMetadata()
+		        .map(refsMetadata -> refsMetadata.getRefPolicies().stream().map(ref -> ref.getType() + ":" + ref.getId() + "#" + ref.getVersion()).sorted().toList()).orElse(List.of());
+		return policy.getPolicyId() + "#" + policy.getPolicyVersion() + ": refs=" + refPolicies + ", longestRefChain="
+		        + policy.getPolicyRefsMetadata().map(PolicyRefsMetadata::getLongestPolicyRefChain).orElse(List.of()) + ", decision=" + policy.evaluate(context, Optional.empty()).getDecision();
+	}
+
+	@Test
+	public void testSnapshotRoundTrip() throws IOException
+	{
+		final Path policyFile = tmpDir.getRoot().toPath().resolve("policy.xml");
+		final Path snapshotFile = tmpDir.getRoot().toPath().resolve("policies.snapshot");
+		writePolicy(policyFile, "1.0", false);
+		final StaticPolicyProvider conf = newConf(policyFile, snapshotFile);
+		Assert.assertEquals("1.0", loadPolicyVersion(conf));
+		Assert.assertTrue("Snapshot not written", Files.isRegularFile(snapshotFile));
+
+		/*
+		 * Same size and last modification time -> the snapshot is considered up-to-date, so the new content is not parsed (the only way to tell the snapshot was used)
+		 */
+		writePolicy(policyFile, "2.0", true);
+		Assert.assertEquals("1.0", loadPolicyVersion(conf));
+	}
+
+	@Test
+	public void testSnapshotFingerprintMismatch() throws IOException
+	{
+		final Path policyFile = tmpDir.getRoot().toPath().resolve("policy.xml");
+		final Path snapshotFile = tmpDir.getRoot().toPath().resolve("policies.snapshot");
+		writePolicy(policyFile, "1.0", false);
+		final StaticPolicyProvider conf = newConf(policyFile, snapshotFile);
+		Assert.assertEquals("1.0", loadPolicyVersion(conf));
+
+		writePolicy(policyFile, "2.0", true);
+		Files.setLastModifiedTime(policyFile, FileTime.fromMillis(Files.getLastModifiedTime(policyFile).toMillis() + 10_000));
+		Assert.assertEquals("2.0", loadPolicyVersion(conf));
+
+		// the snapshot is rewritten with the new version
+		writePolicy(policyFile, "3.0", true);
+		Assert.assertEquals("2.0", loadPolicyVersion(conf));
+	}
+
+	@Test
+	public void testSnapshotFormatVersionMismatch() throws IOException
+	{
+		final Path policyFile = tmpDir.getRoot().toPath().resolve("policy.xml");
+		final Path snapshotFile = tmpDir.getRoot().toPath().resolve("policies.snapshot");
+		writePolicy(policyFile, "1.0", false);
+		final StaticPolicyProvider conf = newConf(policyFile, snapshotFile);
+		Assert.assertEquals("1.0", loadPolicyVersion(conf));
+
+		/*
+		 * The snapshot format version is the int following the snapshot magic number (after the Java serialization stream header)
+		 */
+		final byte[] snapshot = Files.readAllBytes(snapshotFile);
+		final ByteBuffer snapshotBuffer = ByteBuffer.wrap(snapshot);
+		int formatVersionIndex = -1;
+		for (int i = 0; i + 2 * Integer.BYTES <= snapshot.length; i++)
+		{
+			if (snapshotBuffer.getInt(i) == SNAPSHOT_MAGIC_NUMBER)
+			{
+				formatVersionIndex = i + Integer.BYTES;
+				break;
+			}
+		}
+
+		Assert.assertTrue("Snapshot magic number not found", formatVersionIndex > 0);
+		snapshotBuffer.putInt(formatVersionIndex, Integer.MAX_VALUE);
+		Files.write(snapshotFile, snapshot);
+
+		writePolicy(policyFile, "2.0", true);
+		Assert.assertEquals("2.0", loadPolicyVersion(conf));
+	}
+
+	@Test
+	public void testInvalidSnapshot() throws IOException
+	{
+		final Path policyFile = tmpDir.getRoot().toPath().resolve("policy.xml");
+		final Path snapshotFile = tmpDir.getRoot().toPath().resolve("policies.snapshot");
+		writePolicy(policyFile, "1.0", false);
+		Files.write(snapshotFile, List.of("not a policy snapshot"), StandardCharsets.UTF_8);
+		Assert.assertEquals("1.0", loadPolicyVersion(newConf(policyFile, snapshotFile)));
+	}
+
+	/*
+	 * Writes policies P{i} (versions 1.0 and 1.1) and PolicySets PS{i} for i in [0, policyCount) (see newPolicySet(int)), and returns their locations
+	 */
+	private List<String> writePolicyTree(final int policyCount) throws IOException
+	{
+		final List<String> policyLocations = new ArrayList<>();
+		for (int i = 0; i < policyCount; i++)
+		{
+			for (final String version : List.of("1.0", "1.1"))
+			{
+				final Path policyFile = tmpDir.getRoot().toPath().resolve("P" + i + "-" + version + ".xml");
+				// Permit for even i and version 1.1 only
+				Files.writeString(policyFile, newPolicy("P" + i, version).replace("Effect=\"Permit\"", i % 2 == 0 && version.equals("1.1") ? "Effect=\"Permit\"" : "Effect=\"Deny\""),
+				        StandardCharsets.UTF_8);
+				policyLocations.add(policyFile.toUri().toString());
+			}
+		}
+
+		// PolicySets must be declared after the ones they refer to
+		for (int i = 0; i < policyCount; i++)
+		{
+			final Path policySetFile = tmpDir.getRoot().toPath().resolve("PS" + i + ".xml");
+			Files.writeString(policySetFile, newPolicySet(i), StandardCharsets.UTF_8);
+			policyLocations.add(policySetFile.toUri().toString());
+		}
+
+		return policyLocations;
+	}
+
+	@Test
+	public void testParallelLoadingEquivalentToSequential() throws IOException, IndeterminateEvaluationException
+	{
+		final int policyCount = 20;
+		final List<String> policyLocations = writePolicyTree(policyCount);
+		final List<String> sequentialPolicies;
+		try (CloseablePolicyProvider<?> provider = newProvider(newConf(policyLocations, false, 1, false, null)))
+		{
+			sequentialPolicies = describePolicies(provider, policyCount);
+		}
+
+		try (CloseablePolicyProvider<?> provider = newProvider(newConf(policyLocations, false, 4, false, null)))
+		{
+			Assert.assertEquals(sequentialPolicies, describePolicies(provider, policyCount));
+		}
+	}
+
+	@Test
+	public void testSupersededPolicyVersionValidated() throws IOException
+	{
+		final Path oldPolicyFile = tmpDir.getRoot().toPath().resolve("policy-1.0.xml");
+		Files.writeString(oldPolicyFile, newPolicy("P1", "1.0").replace("urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-unless-permit", "urn:example:unknown-algorithm"),
+		        StandardCharsets.UTF_8);
+		final Path newPolicyFile = tmpDir.getRoot().toPath().resolve("policy-2.0.xml");
+		Files.writeString(newPolicyFile, newPolicy("P1", "2.0"), StandardCharsets.UTF_8);
+		for (final int parallelism : new int[] { 1, 4 })
+		{
+			final List<String> policyLocations = List.of(oldPolicyFile.toUri().toString(), newPolicyFile.toUri().toString());
+			Assert.assertThrows(IllegalArgumentException.class, () -> newProvider(newConf(policyLocations, true, parallelism, false, null)));
+
+			// not instantiated at all in lazy mode
+			try (CloseablePolicyProvider<?> provider = newProvider(newConf(policyLocations, true, parallelism, true, null)))
+			{
+				Assert.assertEquals("2.0", provider.getCandidateRootPolicy().orElseThrow().getVersion().toString());
+			}
+		}
+	}
+
+	@Test
+	public void testLazyCompilationEquivalentToEager() throws IOException, IndeterminateEvaluationException
+	{
+		final int policyCount = 20;
+		final List<String> policyLocations = writePolicyTree(policyCount);
+		final List<String> eagerPolicies;
+		try (CloseablePolicyProvider<?> provider = newProvider(newConf(policyLocations, false, 1, false, null)))
+		{
+			eagerPolicies = describePolicies(provider, policyCount);
+		}
+
+		final StaticPolicyProvider lazyConf = newConf(policyLocations, false, 1, true, null);
+		try (CloseablePolicyProvider<?> provider = newProvider(lazyConf))
+		{
+			Assert.assertEquals(eagerPolicies, describePolicies(provider, policyCount));
+		}
+
+		try (CloseablePolicyProvider<?> provider = newProvider(lazyConf))
+		{
+			((CoreStaticPolicyProvider) provider).warmUp();
+			Assert.assertEquals(eagerPolicies, describePolicies(provider, policyCount));
+		}
+	}
+
+	@Test
+	public void testLazyCompilationInstantiatesOnce() throws IOException, InterruptedException, ExecutionException
+	{
+		final int policyCount = 20;
+		final StaticPolicyProvider conf = newConf(writePolicyTree(policyCount), false, 1, true, null);
+		final int threadCount = 8;
+		final CyclicBarrier barrier = new CyclicBarrier(threadCount);
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try (CloseablePolicyProvider<?> provider = newProvider(conf))
+		{
+			final org.ow2.authzforce.core.pdp.api.policy.StaticPolicyProvider staticProvider = (org.ow2.authzforce.core.pdp.api.policy.StaticPolicyProvider) provider;
+			final List<Future<StaticTopLevelPolicyElementEvaluator>> futures = new ArrayList<>(threadCount);
+			for (int i = 0; i < threadCount; i++)
+			{
+				futures.add(executor.submit(() -> {
+					barrier.await(10, TimeUnit.SECONDS);
+					return staticProvider.get(TopLevelPolicyElementType.POLICY_SET, "PS" + (policyCount - 1), Optional.empty(), new ArrayDeque<>());
+				}));
+			}
+
+			final StaticTopLevelPolicyElementEvaluator policySet = futures.get(0).get();
+			Assert.assertNotNull(policySet);
+			for (final Future<StaticTopLevelPolicyElementEvaluator> future : futures)
+			{
+				Assert.assertSame(policySet, future.get());
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testLazyCompilationOfCircularReferencesConcurrently() throws IOException
+	{
+		// PS0 -> PS1 -> PS0
+		final List<String> policyLocations = new ArrayList<>();
+		for (int i = 0; i < 2; i++)
+		{
+			final Path policySetFile = tmpDir.getRoot().toPath().resolve("PS" + i + ".xml");
+			Files.writeString(policySetFile, "<PolicySet xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicySetId=\"PS" + i
+			        + "\" Version=\"1.0\" PolicyCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:policy-combining-algorithm:permit-overrides\"><Target/><PolicySetIdReference>PS" + (1 - i)
+			        + "</PolicySetIdReference></PolicySet>", StandardCharsets.UTF_8);
+			policyLocations.add(policySetFile.toUri().toString());
+		}
+
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try (CloseablePolicyProvider<?> provider = newProvider(newConf(policyLocations, false, 1, true, null)))
+		{
+			final org.ow2.authzforce.core.pdp.api.policy.StaticPolicyProvider staticProvider = (org.ow2.authzforce.core.pdp.api.policy.StaticPolicyProvider) provider;
+			final List<Future<StaticTopLevelPolicyElementEvaluator>> futures = new ArrayList<>(2);
+			for (int i = 0; i < 2; i++)
+			{
+				final String policySetId = "PS" + i;
+				futures.add(executor.submit(() -> {
+					barrier.await(10, TimeUnit.SECONDS);
+					return staticProvider.get(TopLevelPolicyElementType.POLICY_SET, policySetId, Optional.empty(), new ArrayDeque<>());
+				}));
+			}
+
+			// the circular reference is reported to both threads, without deadlock
+			for (final Future<StaticTopLevelPolicyElementEvaluator> future : futures)
+			{
+				Assert.assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testLazyCompilationOfInvalidPolicy() throws IOException, IndeterminateEvaluationException
+	{
+		final Path invalidPolicyFile = tmpDir.getRoot().toPath().resolve("invalid-policy.xml");
+		Files.writeString(invalidPolicyFile, newPolicy("invalid", "1.0").replace("urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-unless-permit", "urn:example:unknown-algorithm"),
+		        StandardCharsets.UTF_8);
+		final List<String> policyLocations = new ArrayList<>(writePolicyTree(1));
+		policyLocations.add(invalidPolicyFile.toUri().toString());
+		Assert.assertThrows(IllegalArgumentException.class, () -> newProvider(newConf(policyLocations, false, 1, false, null)));
+
+		// not reported until requested
+		try (CloseablePolicyProvider<?> provider = newProvider(newConf(policyLocations, false, 1, true, null)))
+		{
+			final org.ow2.authzforce.core.pdp.api.policy.StaticPolicyProvider staticProvider = (org.ow2.authzforce.core.pdp.api.policy.StaticPolicyProvider) provider;
+			Assert.assertNotNull(staticProvider.get(TopLevelPolicyElementType.POLICY_SET, "PS0", Optional.empty(), new ArrayDeque<>()));
+			Assert.assertThrows(IllegalArgumentException.class, () -> staticProvider.get(TopLevelPolicyElementType.POLICY, "invalid", Optional.empty(), null));
+			Assert.assertThrows(IllegalArgumentException.class, ((CoreStaticPolicyProvider) provider)::warmUp);
+		}
+	}
+
+	private static StaticTopLevelPolicyElementEvaluator getPolicy(final CoreStaticPolicyProvider provider, final String policyId, final String version) throws IndeterminateEvaluationException
+	{
+		return provider.get(TopLevelPolicyElementType.POLICY, policyId, Optional.of(new PolicyVersionPatterns(version, null, null)), null);
+	}
+
+	private static DecisionType getPolicySetDecision(final CoreStaticPolicyProvider provider, final String policySetId) throws IndeterminateEvaluationException
+	{
+		final EvaluationContext context = new IndividualDecisionRequestContext(Map.of(), ImmutableMap.of(), false, Optional.empty());
+		return provider.get(TopLevelPolicyElementType.POLICY_SET, policySetId, Optional.empty(), new ArrayDeque<>()).evaluate(context, Optional.empty()).getDecision();
+	}
+
+	private CoreStaticPolicyProvider.PolicyWithNamespaces<Policy> parsePolicy(final String policyId, final String version, final String effect) throws IOException, JAXBException
+	{
+		final Path policyFile = tmpDir.newFile().toPath();
+		Files.writeString(policyFile, newPolicy(policyId, version).replace("Effect=\"Permit\"", "Effect=\"" + effect + "\""), StandardCharsets.UTF_8);
+		final Policy policy = (Policy) XacmlJaxbParsingUtils.getXacmlParserFactory(false).getInstance().parse(policyFile.toUri().toURL());
+		return CoreStaticPolicyProvider.PolicyWithNamespaces.newInstance(policy, Map.of());
+	}
+
+	@Test
+	public void testUpdate() throws IOException, JAXBException, IndeterminateEvaluationException
+	{
+		try (CloseablePolicyProvider<?> provider = newProvider(newConf(writePolicyTree(2), false, 1, false, null, true)))
+		{
+			final CoreStaticPolicyProvider staticProvider = (CoreStaticPolicyProvider) provider;
+			final StaticTopLevelPolicyElementEvaluator p1 = getPolicy(staticProvider, "P1", "1.1");
+			Assert.assertEquals(DecisionType.PERMIT, getPolicySetDecision(staticProvider, "PS0"));
+
+			// replace P0 v1.1 (latest version, referenced by PS0 and indirectly PS1) with a Deny policy
+			final CoreStaticPolicyProvider replaced = staticProvider.update(List.of(parsePolicy("P0", "1.1", "Deny")), null, null);
+			Assert.assertSame("Unchanged policy instantiated again", p1, getPolicy(replaced, "P1", "1.1"));
+			Assert.assertEquals(DecisionType.DENY, getPolicySetDecision(replaced, "PS0"));
+			Assert.assertEquals(DecisionType.DENY, getPolicySetDecision(replaced, "PS1"));
+			// the original provider is not modified
+			Assert.assertEquals(DecisionType.PERMIT, getPolicySetDecision(staticProvider, "PS0"));
+
+			// add P0 v2.0, the new latest version
+			final CoreStaticPolicyProvider added = replaced.update(List.of(parsePolicy("P0", "2.0", "Permit")), null, null);
+			Assert.assertNotNull(getPolicy(added, "P0", "2.0"));
+			Assert.assertEquals(DecisionType.PERMIT, getPolicySetDecision(added, "PS0"));
+
+			// remove it again
+			final CoreStaticPolicyProvider removed = added.update(null, null, List.of(new BasePrimaryPolicyMetadata(TopLevelPolicyElementType.POLICY, "P0", new PolicyVersion("2.0"))));
+			Assert.assertNull(getPolicy(removed, "P0", "2.0"));
+			Assert.assertEquals(DecisionType.DENY, getPolicySetDecision(removed, "PS0"));
+
+			// PS1 would refer to a missing Policy
+			Assert.assertThrows(IllegalArgumentException.class, () -> removed.update(null, null, List.of(new BasePrimaryPolicyMetadata(TopLevelPolicyElementType.POLICY, "P1", new PolicyVersion("1.0")),
+			        new BasePrimaryPolicyMetadata(TopLevelPolicyElementType.POLICY, "P1", new PolicyVersion("1.1")))));
+		}
+	}
+
+	@Test
+	public void testReloadChangedFilesOnly() throws IOException, IndeterminateEvaluationException
+	{
+		try (CloseablePolicyProvider<?> provider = newProvider(newConf(writePolicyTree(2), false, 1, false, null, true)))
+		{
+			final CoreStaticPolicyProvider staticProvider = (CoreStaticPolicyProvider) provider;
+			final StaticTopLevelPolicyElementEvaluator p1 = getPolicy(staticProvider, "P1", "1.1");
+			Assert.assertSame(staticProvider, staticProvider.reload(Set.of()).orElseThrow());
+
+			final Path p0File = tmpDir.getRoot().toPath().resolve("P0-1.1.xml");
+			Files.writeString(p0File, newPolicy("P0", "1.1").replace("Effect=\"Permit\"", "Effect=\"Deny\""), StandardCharsets.UTF_8);
+			final CoreStaticPolicyProvider reloaded = staticProvider.reload(Set.of(p0File)).orElseThrow();
+			Assert.assertSame("Unchanged policy instantiated again", p1, getPolicy(reloaded, "P1", "1.1"));
+			Assert.assertEquals(DecisionType.DENY, getPolicySetDecision(reloaded, "PS1"));
+			// reloadable again
+			Assert.assertSame(reloaded, reloaded.reload(Set.of()).orElseThrow());
+
+			// not a policy file
+			Assert.assertTrue(reloaded.reload(Set.of(tmpDir.getRoot().toPath().resolve("pdp.xml"))).isEmpty());
+			// not created from policy locations
+			Assert.assertTrue(reloaded.update(List.of(), null, null).reload(Set.of(p0File)).isEmpty());
+		}
+	}
+
+	@Test
+	public void testIncrementalReloadDisabled() throws IOException, JAXBException, IndeterminateEvaluationException
+	{
+		try (CloseablePolicyProvider<?> provider = newProvider(newConf(writePolicyTree(2), false, 1, false, null)))
+		{
+			final CoreStaticPolicyProvider staticProvider = (CoreStaticPolicyProvider) provider;
+			Assert.assertEquals(DecisionType.PERMIT, getPolicySetDecision(staticProvider, "PS1"));
+			// source policies not kept
+			Assert.assertTrue(staticProvider.reload(Set.of()).isEmpty());
+			final CoreStaticPolicyProvider.PolicyWithNamespaces<Policy> p0 = parsePolicy("P0", "1.1", "Deny");
+			Assert.assertThrows(UnsupportedOperationException.class, () -> staticProvider.update(List.of(p0), null, null));
+		}
+	}
+}
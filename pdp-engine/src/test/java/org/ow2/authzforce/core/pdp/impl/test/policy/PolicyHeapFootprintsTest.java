@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test.policy;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ow2.authzforce.core.pdp.api.IndeterminateEvaluationException;
+import org.ow2.authzforce.core.pdp.api.policy.StaticPolicyProvider;
+import org.ow2.authzforce.core.pdp.api.policy.StaticTopLevelPolicyElementEvaluator;
+import org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementType;
+import org.ow2.authzforce.core.pdp.impl.PdpEngineConfiguration;
+import org.ow2.authzforce.core.pdp.impl.policy.PolicyHeapFootprints;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Tests {@link PolicyHeapFootprints}
+ */
+public class PolicyHeapFootprintsTest
+{
+	@Rule
+	public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+	private PdpEngineConfiguration configuration;
+
+	/*
+	 * Policy with a Target on subject-id (identical in all policies with the same subjectId, therefore shared)
+	 */
+	private static String newPolicy(final String policyId, final String subjectId)
+	{
+		return "<Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"" + policyId
+		        + "\" Version=\"1.0\" RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-unless-permit\"><Target><AnyOf><AllOf>"
+		        + "<Match MatchId=\"urn:oasis:names:tc:xacml:1.0:function:string-equal\"><AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">" + subjectId + "</AttributeValue>"
+		        + "<AttributeDesignator Category=\"urn:oasis:names:tc:xacml:1.0:subject-category:access-subject\" AttributeId=\"urn:oasis:names:tc:xacml:1.0:subject:subject-id\" "
+		        + "DataType=\"http://www.w3.org/2001/XMLSchema#string\" MustBePresent=\"false\"/></Match></AllOf></AnyOf></Target><Rule RuleId=\"permit\" Effect=\"Permit\"/></Policy>";
+	}
+
+	/*
+	 * PolicySet PS referring to P1 and P2, with the same Target
+	 */
+	@Before
+	public void setUp() throws IOException
+	{
+		final Path policyDir = tmpDir.newFolder("policies").toPath();
+		Files.writeString(policyDir.resolve("P1.xml"), newPolicy("P1", "alice"), StandardCharsets.UTF_8);
+		Files.writeString(policyDir.resolve("P2.xml"), newPolicy("P2", "alice"), StandardCharsets.UTF_8);
+		Files.writeString(policyDir.resolve("PS.xml"),
+		        "<PolicySet xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicySetId=\"PS\" Version=\"1.0\" PolicyCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:policy-combining-algorithm:permit-overrides\">"
+		                + "<Target/><PolicyIdReference>P1</PolicyIdReference><PolicyIdReference>P2</PolicyIdReference></PolicySet>",
+		        StandardCharsets.UTF_8);
+		final Path confFile = tmpDir.getRoot().toPath().resolve("pdp.xml");
+		Files.writeString(confFile,
+		        "<pdp xmlns=\"http://authzforce.github.io/core/xmlns/pdp/8\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" version=\"8.1\">"
+		                + "<policyProvider id=\"policyProvider\" xsi:type=\"StaticPolicyProvider\"><policyLocation>${PARENT_DIR}/policies/P1.xml</policyLocation>"
+		                + "<policyLocation>${PARENT_DIR}/policies/P2.xml</policyLocation><policyLocation>${PARENT_DIR}/policies/PS.xml</policyLocation></policyProvider>"
+		                + "<rootPolicyRef policySet=\"true\">PS</rootPolicyRef></pdp>",
+		        StandardCharsets.UTF_8);
+		configuration = PdpEngineConfiguration.getInstance(confFile.toString());
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		configuration.getPolicyProvider().close();
+	}
+
+	@Test
+	public void testFootprintPerPolicy() throws IndeterminateEvaluationException
+	{
+		final List<PolicyHeapFootprints.Footprint> footprints = PolicyHeapFootprints.estimate(configuration);
+		Assert.assertEquals(List.of("P1", "P2", "PS"), footprints.stream().map(footprint -> footprint.policy().getId()).sorted().toList());
+		Assert.assertEquals("Footprints not sorted by decreasing size", footprints.stream().sorted(Comparator.comparingLong(PolicyHeapFootprints.Footprint::bytes).reversed()).toList(), footprints);
+		for (final PolicyHeapFootprints.Footprint footprint : footprints)
+		{
+			Assert.assertTrue(footprint.bytes() > 0);
+			Assert.assertTrue(footprint.objectCount() > 0);
+		}
+	}
+
+	@Test
+	public void testSharedObjectsAttributedToFirstPolicy() throws IndeterminateEvaluationException
+	{
+		final Map<String, PolicyHeapFootprints.Footprint> footprintsByPolicyId = PolicyHeapFootprints.estimate(configuration).stream()
+		        .collect(Collectors.toMap(footprint -> footprint.policy().getId(), Function.identity()));
+		long policiesAloneBytes = 0;
+		long policiesInTreeBytes = 0;
+		for (final String policyId : List.of("P1", "P2"))
+		{
+			final StaticTopLevelPolicyElementEvaluator policy = ((StaticPolicyProvider) configuration.getPolicyProvider()).get(TopLevelPolicyElementType.POLICY, policyId, Optional.empty(), null);
+			policiesAloneBytes += PolicyHeapFootprints.estimate(policy).get(0).bytes();
+			policiesInTreeBytes += footprintsByPolicyId.get(policyId).bytes();
+		}
+
+		/*
+		 * The Target shared by P1 and P2 is attributed to the first one reached from the root PolicySet only, but to each of them if estimated alone
+		 */
+		Assert.assertTrue(policiesInTreeBytes < policiesAloneBytes);
+	}
+}
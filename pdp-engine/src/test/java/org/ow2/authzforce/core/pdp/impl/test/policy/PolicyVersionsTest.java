@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012-2024 THALES.
+ *
+ * This file is part of AuthzForce CE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ow2.authzforce.core.pdp.impl.test.policy;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyVersion;
+import org.ow2.authzforce.core.pdp.api.policy.PolicyVersionPatterns;
+import org.ow2.authzforce.core.pdp.impl.policy.PolicyVersions;
+
+import java.util.*;
+import java.util.Map.Entry;
+
+/**
+ * Tests the lookup of policy versions matching version patterns with {@link PolicyVersions}
+ */
+@RunWith(value = Parameterized.class)
+public class PolicyVersionsTest
+{
+	private static final PolicyVersions<String> POLICY_VERSIONS;
+
+	static
+	{
+		final Map<PolicyVersion, String> policiesByVersion = new HashMap<>();
+		for (int major = 0; major < 10; major++)
+		{
+			for (int minor = 0; minor < 10; minor++)
+			{
+				final String version = major + "." + minor;
+				policiesByVersion.put(new PolicyVersion(version), "policy-" + version);
+			}
+		}
+
+		POLICY_VERSIONS = new PolicyVersions<>(policiesByVersion);
+	}
+
+	@Parameters(name = "{index}: Version={0}, EarliestVersion={1}, LatestVersion={2} -> {3}")
+	public static Collection<Object[]> data()
+	{
+		return Arrays.asList(new Object[][] {
+		        /*
+		         * each test input is: Version pattern, EarliestVersion pattern, LatestVersion pattern, expected matching version (null if none)
+		         */
+		        { null, null, null, "9.9" },
+		        /*
+		         * Literal Version
+		         */
+		        { "3.4", null, null, "3.4" }, { "3.4", "3.5", null, null }, { "3.4", null, "3.3", null }, { "10.0", null, null, null },
+		        /*
+		         * Literal EarliestVersion/LatestVersion
+		         */
+		        { null, null, "5.5", "5.5" }, { null, "5.5", null, "9.9" }, { null, "2.0", "4.5", "4.5" }, { null, "4.5", "2.0", null }, { null, "4.5", "4.5", "4.5" },
+		        /*
+		         * Patterns
+		         */
+		        { "3.*", null, null, "3.9" }, { "3.*", null, "3.4", "3.4" }, { "*.2", "4.0", "6.0", "5.2" }, { "1.+", null, null, "1.9" }, { "*.9", "9.9", null, "9.9" } });
+	}
+
+	private final PolicyVersionPatterns versionPatterns;
+	private final String expectedVersion;
+
+	public PolicyVersionsTest(final String versionPattern, final String earliestVersionPattern, final String latestVersionPattern, final String expectedVersion)
+	{
+		this.versionPatterns = new PolicyVersionPatterns(versionPattern, earliestVersionPattern, latestVersionPattern);
+		this.expectedVersion = expectedVersion;
+	}
+
+	@Test
+	public void test()
+	{
+		// twice to check the memoized result as well
+		for (int i = 0; i < 2; i++)
+		{
+			final Entry<PolicyVersion, String> actual = POLICY_VERSIONS.getLatest(Optional.of(versionPatterns));
+			if (expectedVersion == null)
+			{
+				Assert.assertNull(actual);
+			}
+			else
+			{
+				Assert.assertNotNull(actual);
+				Assert.assertEquals(expectedVersion, actual.getKey().toString());
+				Assert.assertEquals("policy-" + expectedVersion, actual.getValue());
+			}
+		}
+	}
+}
@@ -313,7 +313,7 @@ public class TestUtils
         Preconditions.checkNotNull(rootPolicyRef, "Root policy reference (ID, version) undefined");
         Preconditions.checkNotNull(policyLocations, "Policy location(s) undefined");
 
-        final StaticPolicyProvider jaxbPolicyProvider = new StaticPolicyProvider(new ArrayList<>(policyLocations), true);
+        final StaticPolicyProvider jaxbPolicyProvider = new StaticPolicyProvider(new ArrayList<>(policyLocations), true, null, null, null, null);
         jaxbPolicyProvider.setId("policyProvider");
         final List<AbstractPolicyProvider> policyProviders = Collections.singletonList(jaxbPolicyProvider);
 
@@ -342,7 +342,7 @@ public class TestUtils
 
 
         // set max PolicySet reference depth to max possible depth automatically
-        final Pdp jaxbPDP = new Pdp(null, null, null, attProviders, policyProviders, rootPolicyRef, null, ioProcChains, "8.0", true, true, true, true, enableXPath, false, null, null, BigInteger.valueOf(jaxbPolicyProvider.getPolicySetsAndPolicyLocations().size()), null);
+        final Pdp jaxbPDP = new Pdp(null, null, null, attProviders, null, policyProviders, rootPolicyRef, null, ioProcChains, "8.0", true, true, true, true, enableXPath, false, null, null, BigInteger.valueOf(jaxbPolicyProvider.getPolicySetsAndPolicyLocations().size()), null, null, null, null, null, null, null, null);
         return new PdpEngineConfiguration(jaxbPDP, new DefaultEnvironmentProperties());
 
     }
@@ -17,11 +17,16 @@
  */
 package org.ow2.authzforce.core.pdp.testutil.ext;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.mongodb.MongoException;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
 import jakarta.xml.bind.JAXBException;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.Policy;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicySet;
@@ -39,12 +44,16 @@ import org.ow2.authzforce.core.pdp.testutil.ext.xmlns.MongoDBBasedPolicyProvider
 import org.ow2.authzforce.xacml.identifiers.XacmlNodeName;
 import org.ow2.authzforce.xacml.identifiers.XacmlStatusCode;
 import org.ow2.authzforce.xacml.identifiers.XacmlVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.xml.sax.InputSource;
 
 import java.io.StringReader;
-import java.util.Deque;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 
@@ -54,7 +63,10 @@ import java.util.Optional;
  * <p>
  * This policy provider does not support Policy(Set)IdReferences with LatestVersion and EarliestVersion attributes.
  * <p>
- * TODO: performance optimization: cache results of {@link #get(org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementType, String, Optional, Deque)} to avoid repetitive requests to the database server
+ * The results of {@link #get(org.ow2.authzforce.core.pdp.api.policy.TopLevelPolicyElementType, String, Optional, Deque)} - the compiled policies, or the absence of matching policy - may be cached
+ * to avoid requesting the database server and compiling the policy on every call, with a maximum size and time-to-live. In addition, if policy documents have an 'updatedAt' property (date of the
+ * last modification), the database may be polled in the background for policy documents modified since the last poll, in which case the cached results for the same policy IDs - and the cached
+ * PolicySets referring to them - are invalidated. Deleted policy documents are only evicted from the cache when the time-to-live expires.
  * 
  */
 public final class MongoDbPolicyProvider extends BaseStaticPolicyProvider
@@ -69,6 +81,13 @@ public final class MongoDbPolicyProvider extends BaseStaticPolicyProvider
 	 */
 	public static final String XACML3_POLICYSET_TYPE_ID = "{" + XacmlVersion.V3_0.getNamespace() + "}" + XacmlNodeName.POLICYSET.value();
 
+	/**
+	 * Name of the optional (date) property of policy documents stored in database, holding the date of the last modification of the document. Used for cache invalidation.
+	 */
+	public static final String UPDATED_AT_PROPERTY_NAME = "updatedAt";
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MongoDbPolicyProvider.class);
+
 	/**
 	 * Factory
 	 *
@@ -111,7 +130,14 @@ public final class MongoDbPolicyProvider extends BaseStaticPolicyProvider
 				throw ILLEGAL_COMBINING_ALG_REGISTRY_ARGUMENT_EXCEPTION;
 			}
 
-			return new MongoDbPolicyProvider(conf.getId(), "mongodb://"+conf.getServerHost()+":" +conf.getServerPort(), conf.getDbName(), conf.getCollectionName(), xmlParserFactory, expressionFactory, combiningAlgRegistry, maxPolicySetRefDepth);
+			if (conf.getCacheMaxSize() < 0 || conf.getCacheTtlSeconds() < 0 || conf.getCachePollingIntervalSeconds() < 0)
+			{
+				throw new IllegalArgumentException("PolicyProvider '" + conf.getId() + "': invalid cache settings (cacheMaxSize = " + conf.getCacheMaxSize() + ", cacheTtlSeconds = "
+						+ conf.getCacheTtlSeconds() + ", cachePollingIntervalSeconds = " + conf.getCachePollingIntervalSeconds() + "). Expected: positive integers or 0");
+			}
+
+			return new MongoDbPolicyProvider(conf.getId(), "mongodb://"+conf.getServerHost()+":" +conf.getServerPort(), conf.getDbName(), conf.getCollectionName(), xmlParserFactory, expressionFactory, combiningAlgRegistry, maxPolicySetRefDepth,
+					conf.getCacheMaxSize(), conf.getCacheTtlSeconds(), conf.getCachePollingIntervalSeconds());
 		}
 
 	}
@@ -121,6 +147,28 @@ public final class MongoDbPolicyProvider extends BaseStaticPolicyProvider
 		{
 		}
 
+	private record PolicyIdKey(TopLevelPolicyElementType policyType, String policyId)
+	{
+	}
+
+	/*
+	 * Version pattern as string since only VersionMatch is supported in policy references
+	 */
+	private record CacheKey(PolicyIdKey policyIdKey, Optional<String> versionPattern)
+	{
+	}
+
+	/*
+	 * Identifies a policy document (type, id, version)
+	 */
+	private record PolicyDocKey(String policyTypeId, String policyId, String version)
+	{
+		private static PolicyDocKey of(final Document policyDoc)
+		{
+			return new PolicyDocKey(policyDoc.getString("type"), policyDoc.getString("id"), policyDoc.getString("version"));
+		}
+	}
+
 	private final String id;
 	private final MongoClient dbClient;
 	private final MongoCollection<Document> policyCollection;
@@ -129,8 +177,28 @@ public final class MongoDbPolicyProvider extends BaseStaticPolicyProvider
 	private final CombiningAlgRegistry combiningAlgRegistry;
 	private transient final ImmutableXacmlStatus jaxbUnmarshallerCreationErrStatus;
 
+	/*
+	 * Empty result means no matching policy in database
+	 */
+	private final Optional<Cache<CacheKey, Optional<StaticTopLevelPolicyElementEvaluator>>> policyCache;
+	private final Optional<ScheduledExecutorService> cacheInvalidationScheduler;
+	/*
+	 * Incremented on every cache invalidation, so that results loaded from database before the invalidation are not cached
+	 */
+	private final AtomicLong cacheInvalidationCount = new AtomicLong();
+	/*
+	 * Most recent 'updatedAt' of policy documents seen by the cache invalidation task (only used by this task)
+	 */
+	private Date lastSeenUpdateDate = new Date(0);
+	/*
+	 * Policy documents seen by the cache invalidation task with 'updatedAt' = lastSeenUpdateDate (only used by this task). Since policy documents may be updated in the same millisecond as the last
+	 * seen update (after it has been polled), the task polls the documents updated at or after lastSeenUpdateDate, and skips these ones.
+	 */
+	private Set<PolicyDocKey> lastSeenUpdatedPolicyDocKeys = Set.of();
+
 	private MongoDbPolicyProvider(final String id, final String serverUri, final String dbName, final String collectionName, final XmlnsFilteringParserFactory xacmlParserFactory,
-								  final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry, final int maxPolicySetRefDepth)
+								  final ExpressionFactory expressionFactory, final CombiningAlgRegistry combiningAlgRegistry, final int maxPolicySetRefDepth, final int cacheMaxSize,
+								  final int cacheTtlSeconds, final int cachePollingIntervalSeconds)
 	{
 		super(maxPolicySetRefDepth);
 		assert id != null && !id.isEmpty() && dbName != null && !dbName.isEmpty() && collectionName != null && !collectionName.isEmpty() && xacmlParserFactory != null && expressionFactory != null
@@ -144,18 +212,155 @@ public final class MongoDbPolicyProvider extends BaseStaticPolicyProvider
 		this.expressionFactory = expressionFactory;
 		this.combiningAlgRegistry = combiningAlgRegistry;
 		this.jaxbUnmarshallerCreationErrStatus = new ImmutableXacmlStatus(XacmlStatusCode.PROCESSING_ERROR.value(), Optional.of("PolicyProvider " + id + ": Failed to create JAXB unmarshaller for XACML Policy(Set)"));
+
+		if (cacheMaxSize == 0)
+		{
+			this.policyCache = Optional.empty();
+			this.cacheInvalidationScheduler = Optional.empty();
+			return;
+		}
+
+		final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().maximumSize(cacheMaxSize);
+		if (cacheTtlSeconds > 0)
+		{
+			cacheBuilder.expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS);
+		}
+
+		this.policyCache = Optional.of(cacheBuilder.build());
+		if (cachePollingIntervalSeconds == 0)
+		{
+			this.cacheInvalidationScheduler = Optional.empty();
+			return;
+		}
+
+		/*
+		 * Start from the most recent update in database, i.e. ignore the updates before this provider is created
+		 */
+		try
+		{
+			final Document lastUpdatedPolicyDoc = policyCollection.find(Filters.exists(UPDATED_AT_PROPERTY_NAME)).sort(Sorts.descending(UPDATED_AT_PROPERTY_NAME))
+					.projection(Projections.include(UPDATED_AT_PROPERTY_NAME)).first();
+			if (lastUpdatedPolicyDoc != null)
+			{
+				this.lastSeenUpdateDate = lastUpdatedPolicyDoc.getDate(UPDATED_AT_PROPERTY_NAME);
+				final Set<PolicyDocKey> lastUpdatedPolicyDocKeys = new HashSet<>();
+				for (final Document policyDoc : policyCollection.find(Filters.eq(UPDATED_AT_PROPERTY_NAME, lastSeenUpdateDate)).projection(Projections.include("type", "id", "version")))
+				{
+					lastUpdatedPolicyDocKeys.add(PolicyDocKey.of(policyDoc));
+				}
+
+				this.lastSeenUpdatedPolicyDocKeys = lastUpdatedPolicyDocKeys;
+			}
+		}
+		catch (final MongoException | ClassCastException e)
+		{
+			/*
+			 * Database not available yet: nothing cached yet either, so it is enough to consider all updates from now on
+			 */
+			LOGGER.warn("PolicyProvider '{}': failed to get the date of the last policy update from database -> polling policy updates from now on", id, e);
+			this.lastSeenUpdateDate = new Date();
+		}
+
+		final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable ->
+		{
+			final Thread thread = new Thread(runnable, "authzforce-mongodb-policy-cache-invalidation-" + id);
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::invalidateUpdatedPolicies, cachePollingIntervalSeconds, cachePollingIntervalSeconds, TimeUnit.SECONDS);
+		this.cacheInvalidationScheduler = Optional.of(scheduler);
+	}
+
+	private static TopLevelPolicyElementType getPolicyType(final String policyTypeId)
+	{
+		if (XACML3_POLICY_TYPE_ID.equals(policyTypeId))
+		{
+			return TopLevelPolicyElementType.POLICY;
+		}
+
+		return XACML3_POLICYSET_TYPE_ID.equals(policyTypeId) ? TopLevelPolicyElementType.POLICY_SET : null;
 	}
 
+	/*
+	 * Invalidates the cached results for the policies updated in database since the last call, and the cached PolicySets referring to them (directly or indirectly)
+	 */
+	private void invalidateUpdatedPolicies()
+	{
+		assert policyCache.isPresent();
+		final Set<PolicyIdKey> updatedPolicyIdKeys = new HashSet<>();
+		Date newLastSeenUpdateDate = lastSeenUpdateDate;
+		final Set<PolicyDocKey> newLastSeenUpdatedPolicyDocKeys = new HashSet<>(lastSeenUpdatedPolicyDocKeys);
+		try
+		{
+			for (final Document policyDoc : policyCollection.find(Filters.gte(UPDATED_AT_PROPERTY_NAME, lastSeenUpdateDate))
+					.projection(Projections.include("type", "id", "version", UPDATED_AT_PROPERTY_NAME)))
+			{
+				final PolicyDocKey policyDocKey = PolicyDocKey.of(policyDoc);
+				final Date updateDate = policyDoc.getDate(UPDATED_AT_PROPERTY_NAME);
+				if (updateDate.equals(lastSeenUpdateDate) && lastSeenUpdatedPolicyDocKeys.contains(policyDocKey))
+				{
+					// already seen by the previous poll
+					continue;
+				}
+
+				final TopLevelPolicyElementType policyType = getPolicyType(policyDocKey.policyTypeId());
+				if (policyType != null)
+				{
+					updatedPolicyIdKeys.add(new PolicyIdKey(policyType, policyDocKey.policyId()));
+				}
+
+				if (updateDate.after(newLastSeenUpdateDate))
+				{
+					newLastSeenUpdateDate = updateDate;
+					newLastSeenUpdatedPolicyDocKeys.clear();
+				}
+
+				if (updateDate.equals(newLastSeenUpdateDate))
+				{
+					newLastSeenUpdatedPolicyDocKeys.add(policyDocKey);
+				}
+			}
+		}
+		catch (final MongoException | ClassCastException e)
+		{
+			LOGGER.warn("PolicyProvider '{}': failed to get updated policies from database for cache invalidation", id, e);
+			return;
+		}
+
+		lastSeenUpdateDate = newLastSeenUpdateDate;
+		lastSeenUpdatedPolicyDocKeys = newLastSeenUpdatedPolicyDocKeys;
 
+		if (updatedPolicyIdKeys.isEmpty())
+		{
+			return;
+		}
+
+		LOGGER.debug("PolicyProvider '{}': policies updated in database: {} -> invalidating cache entries", id, updatedPolicyIdKeys);
+		cacheInvalidationCount.incrementAndGet();
+		policyCache.get().asMap().entrySet().removeIf(cacheEntry ->
+		{
+			if (updatedPolicyIdKeys.contains(cacheEntry.getKey().policyIdKey))
+			{
+				return true;
+			}
+
+			/*
+			 * PolicySets include the policies they refer to (static resolution)
+			 */
+			final Optional<PolicyRefsMetadata> policyRefsMetadata = cacheEntry.getValue().flatMap(StaticTopLevelPolicyElementEvaluator::getPolicyRefsMetadata);
+			return policyRefsMetadata.isPresent()
+					&& policyRefsMetadata.get().getRefPolicies().stream().anyMatch(refPolicy -> updatedPolicyIdKeys.contains(new PolicyIdKey(refPolicy.getType(), refPolicy.getId())));
+		});
+	}
 
 	@Override
 	public void close()
 	{
+		this.cacheInvalidationScheduler.ifPresent(ScheduledExecutorService::shutdownNow);
 		this.dbClient.close();
 	}
 
-	private PolicyQueryResult getJaxbPolicyElement(final String policyTypeId, final String policyId, final Optional<PolicyVersionPatterns> policyPolicyVersionPatterns)
-	        throws IndeterminateEvaluationException
+	private Optional<PolicyVersionPattern> getVersionPattern(final Optional<PolicyVersionPatterns> policyPolicyVersionPatterns) throws IllegalArgumentException
 	{
 		final Optional<PolicyVersionPattern> versionPattern;
 		if (policyPolicyVersionPatterns.isPresent())
@@ -184,6 +389,12 @@ public final class MongoDbPolicyProvider extends BaseStaticPolicyProvider
 			versionPattern = Optional.empty();
 		}
 
+		return versionPattern;
+	}
+
+	private PolicyQueryResult getJaxbPolicyElement(final String policyTypeId, final String policyId, final Optional<PolicyVersionPattern> versionPattern)
+	        throws IndeterminateEvaluationException
+	{
 		final Document policyDoc;
 		/*
 		 * TODO: the following code will get any policy version that matches the policy type, id and optional VersionMatch. It may be smarter to always get the latest if there are multiple matches.
@@ -246,13 +457,45 @@ public final class MongoDbPolicyProvider extends BaseStaticPolicyProvider
 		return new PolicyQueryResult(policyDoc, resultJaxbObj, xacmlParser.getNamespacePrefixUriMap());
 	}
 
-	@Override
-	public StaticTopLevelPolicyElementEvaluator getPolicy(final String policyId, final Optional<PolicyVersionPatterns> policyPolicyVersionPatterns) throws IndeterminateEvaluationException
+	/*
+	 * Returns null if no policy cache, else the cached result: empty if cached as not found, undefined (null) if not cached
+	 */
+	private Optional<StaticTopLevelPolicyElementEvaluator> getCachedResult(final CacheKey cacheKey)
+	{
+		return policyCache.map(cache -> cache.getIfPresent(cacheKey)).orElse(null);
+	}
+
+	private void cacheResult(final CacheKey cacheKey, final StaticTopLevelPolicyElementEvaluator result, final long cacheInvalidationCountBeforeLoad)
 	{
 		/*
-		 * TODO: use a policy cache and check it before requesting the database.
+		 * Do not cache the result if the cache has been invalidated since it was loaded (may be out-of-date)
 		 */
-		final PolicyQueryResult xmlParsingResult = getJaxbPolicyElement(XACML3_POLICY_TYPE_ID, policyId, policyPolicyVersionPatterns);
+		if (policyCache.isPresent() && cacheInvalidationCount.get() == cacheInvalidationCountBeforeLoad)
+		{
+			policyCache.get().put(cacheKey, Optional.ofNullable(result));
+		}
+	}
+
+	@Override
+	public StaticTopLevelPolicyElementEvaluator getPolicy(final String policyId, final Optional<PolicyVersionPatterns> policyPolicyVersionPatterns) throws IndeterminateEvaluationException
+	{
+		final Optional<PolicyVersionPattern> versionPattern = getVersionPattern(policyPolicyVersionPatterns);
+		final CacheKey cacheKey = new CacheKey(new PolicyIdKey(TopLevelPolicyElementType.POLICY, policyId), versionPattern.map(PolicyVersionPattern::toString));
+		final Optional<StaticTopLevelPolicyElementEvaluator> cachedResult = getCachedResult(cacheKey);
+		if (cachedResult != null)
+		{
+			return cachedResult.orElse(null);
+		}
+
+		final long cacheInvalidationCountBeforeLoad = cacheInvalidationCount.get();
+		final StaticTopLevelPolicyElementEvaluator result = loadPolicy(policyId, versionPattern);
+		cacheResult(cacheKey, result, cacheInvalidationCountBeforeLoad);
+		return result;
+	}
+
+	private StaticTopLevelPolicyElementEvaluator loadPolicy(final String policyId, final Optional<PolicyVersionPattern> versionPattern) throws IndeterminateEvaluationException
+	{
+		final PolicyQueryResult xmlParsingResult = getJaxbPolicyElement(XACML3_POLICY_TYPE_ID, policyId, versionPattern);
 		if (xmlParsingResult == null)
 		{
 			return null;
@@ -299,12 +542,38 @@ public final class MongoDbPolicyProvider extends BaseStaticPolicyProvider
 	public StaticTopLevelPolicyElementEvaluator getPolicySet(final String policyId, final Optional<PolicyVersionPatterns> policyPolicyVersionPatterns, final Deque<String> policySetRefChain)
 	        throws IndeterminateEvaluationException
 	{
-		/*
-		 * TODO: use a policy cache and check it before requesting the database. If we found a matching policy in cache, and it is a policyset, we would check the depth of policy references as well:
-		 * <p>
-		 * Utils.appendAndCheckPolicyRefChain(newPolicySetRefChain, cachedPolicy.getExtraPolicyMetadata().getLongestPolicyRefChain(), maxPolicySetRefDepth);
-		 */
-		final PolicyQueryResult xmlParsingResult = getJaxbPolicyElement(XACML3_POLICYSET_TYPE_ID, policyId, policyPolicyVersionPatterns);
+		final Optional<PolicyVersionPattern> versionPattern = getVersionPattern(policyPolicyVersionPatterns);
+		final CacheKey cacheKey = new CacheKey(new PolicyIdKey(TopLevelPolicyElementType.POLICY_SET, policyId), versionPattern.map(PolicyVersionPattern::toString));
+		final Optional<StaticTopLevelPolicyElementEvaluator> cachedResult = getCachedResult(cacheKey);
+		if (cachedResult != null)
+		{
+			if (cachedResult.isEmpty())
+			{
+				return null;
+			}
+
+			/*
+			 * Check the depth of policy references, i.e. length of (policySetRefChain + cached PolicySet's longest (nested) policy ref chain) <= maxPolicySetRefDepth
+			 */
+			final StaticTopLevelPolicyElementEvaluator cachedPolicySet = cachedResult.get();
+			if (policySetRefChain != null && !policySetRefChain.isEmpty())
+			{
+				cachedPolicySet.getPolicyRefsMetadata().ifPresent(refsMetadata -> joinPolicyRefChains(policySetRefChain, refsMetadata.getLongestPolicyRefChain()));
+			}
+
+			return cachedPolicySet;
+		}
+
+		final long cacheInvalidationCountBeforeLoad = cacheInvalidationCount.get();
+		final StaticTopLevelPolicyElementEvaluator result = loadPolicySet(policyId, versionPattern, policySetRefChain);
+		cacheResult(cacheKey, result, cacheInvalidationCountBeforeLoad);
+		return result;
+	}
+
+	private StaticTopLevelPolicyElementEvaluator loadPolicySet(final String policyId, final Optional<PolicyVersionPattern> versionPattern, final Deque<String> policySetRefChain)
+			throws IndeterminateEvaluationException
+	{
+		final PolicyQueryResult xmlParsingResult = getJaxbPolicyElement(XACML3_POLICYSET_TYPE_ID, policyId, versionPattern);
 		if (xmlParsingResult == null)
 		{
 			return null;
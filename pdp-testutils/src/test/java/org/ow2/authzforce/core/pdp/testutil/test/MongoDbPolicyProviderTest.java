@@ -23,6 +23,7 @@ import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.CreateCollectionOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
 import com.mongodb.client.model.ValidationOptions;
 import de.bwaldvogel.mongo.MongoServer;
 import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
@@ -71,6 +72,7 @@ import java.math.BigInteger;
 import java.net.InetSocketAddress;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -88,6 +90,8 @@ public class MongoDbPolicyProviderTest
 	        "root-rbac-policyset-1.2.xml", "rbac-pps-employee-1.0.xml" };
 
 	private static CloseablePolicyProvider<?> POLICY_PROVIDER_MODULE;
+	private static MongoDBBasedPolicyProviderDescriptor POLICY_PROVIDER_CONF;
+	private static ExpressionFactory EXPRESSION_FACTORY;
 
 	@BeforeClass
 	public static void setUpBeforeClass() throws Exception
@@ -115,6 +119,8 @@ public class MongoDbPolicyProviderTest
 		final ExpressionFactory expressionFactory = new DepthLimitingExpressionFactory(valFactoryReg, funcReg, 0, false, false, Optional.empty());
 			POLICY_PROVIDER_MODULE = new MongoDbPolicyProvider.Factory().getInstance(mongodbBasedPolicyProviderConf, XacmlJaxbParsingUtils.getXacmlParserFactory(false), 10, expressionFactory,
 			        StandardCombiningAlgorithm.REGISTRY, null, Optional.empty());
+		POLICY_PROVIDER_CONF = mongodbBasedPolicyProviderConf;
+		EXPRESSION_FACTORY = expressionFactory;
 
 		/*
 		 * Use in-memory MongoDB server from https://github.com/bwaldvogel/mongo-java-server
@@ -336,6 +342,44 @@ public class MongoDbPolicyProviderTest
 		assertEquals("1.2", policyEvaluator.getPolicyVersion().toString());
 	}
 
+	@Test
+	public void testGetPolicyFromCacheAndInvalidationAfterUpdate() throws Exception
+	{
+		final MongoDBBasedPolicyProviderDescriptor cachingPolicyProviderConf = new MongoDBBasedPolicyProviderDescriptor();
+		cachingPolicyProviderConf.setId("caching-" + POLICY_PROVIDER_CONF.getId());
+		cachingPolicyProviderConf.setServerHost(POLICY_PROVIDER_CONF.getServerHost());
+		cachingPolicyProviderConf.setServerPort(POLICY_PROVIDER_CONF.getServerPort());
+		cachingPolicyProviderConf.setDbName(POLICY_PROVIDER_CONF.getDbName());
+		cachingPolicyProviderConf.setCollectionName(POLICY_PROVIDER_CONF.getCollectionName());
+		cachingPolicyProviderConf.setCacheMaxSize(100);
+		cachingPolicyProviderConf.setCacheTtlSeconds(3600);
+		cachingPolicyProviderConf.setCachePollingIntervalSeconds(1);
+		try (final CloseablePolicyProvider<?> cachingPolicyProvider = new MongoDbPolicyProvider.Factory().getInstance(cachingPolicyProviderConf, XacmlJaxbParsingUtils.getXacmlParserFactory(false), 10,
+				EXPRESSION_FACTORY, StandardCombiningAlgorithm.REGISTRY, null, Optional.empty());
+		     final MongoClient dbClient = MongoClients.create("mongodb://" + POLICY_PROVIDER_CONF.getServerHost() + ":" + POLICY_PROVIDER_CONF.getServerPort()))
+		{
+			final Optional<PolicyVersionPatterns> versionPatterns = Optional.of(new PolicyVersionPatterns("0.1.0", null, null));
+			final TopLevelPolicyElementEvaluator policyEvaluator = cachingPolicyProvider.get(TopLevelPolicyElementType.POLICY, "permit-all", versionPatterns, null, null, Optional.empty());
+			assertNotNull(policyEvaluator);
+			assertSame("Policy not retrieved from cache", policyEvaluator, cachingPolicyProvider.get(TopLevelPolicyElementType.POLICY, "permit-all", versionPatterns, null, null, Optional.empty()));
+
+			// update the policy in database, the cached policy should be invalidated on next poll
+			dbClient.getDatabase(POLICY_PROVIDER_CONF.getDbName()).getCollection(POLICY_PROVIDER_CONF.getCollectionName()).updateOne(
+					Filters.and(Filters.eq("type", MongoDbPolicyProvider.XACML3_POLICY_TYPE_ID), Filters.eq("id", "permit-all"), Filters.eq("version", "0.1.0")),
+					Updates.set(MongoDbPolicyProvider.UPDATED_AT_PROPERTY_NAME, new Date()));
+			TopLevelPolicyElementEvaluator reloadedPolicyEvaluator = policyEvaluator;
+			for (int i = 0; i < 100 && reloadedPolicyEvaluator == policyEvaluator; i++)
+			{
+				Thread.sleep(100);
+				reloadedPolicyEvaluator = cachingPolicyProvider.get(TopLevelPolicyElementType.POLICY, "permit-all", versionPatterns, null, null, Optional.empty());
+			}
+
+			assertNotSame("Cached policy not invalidated after update in database", policyEvaluator, reloadedPolicyEvaluator);
+			assertNotNull(reloadedPolicyEvaluator);
+			assertEquals("0.1.0", reloadedPolicyEvaluator.getPolicyVersion().toString());
+		}
+	}
+
 	@Test
 	public void testPdpInstantiationWithMongoDBBasedPolicyProvider() throws IllegalArgumentException, IOException, JAXBException
 	{